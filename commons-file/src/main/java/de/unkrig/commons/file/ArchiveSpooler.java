@@ -0,0 +1,414 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.jar.JarArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.sevenz.SevenZArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.ZipArchiveFormat;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Spools archives that are only available as a stream (typically because they are nested in another archive or in
+ * compressed contents) into temporary files, so that they can be read with random-access readers (see {@link
+ * ArchiveFormat#open(File)}) instead of forward-only {@link ArchiveInputStream}s.
+ * <p>
+ *   Random access has several advantages: ZIP and JAR archives are read through their central directory (which,
+ *   unlike scanning the local headers, works reliably for entries with data descriptors, and yields sizes and CRCs
+ *   before the entry contents are read), their entries can be processed concurrently (see {@link
+ *   de.unkrig.commons.file.contentsprocessing.ContentsProcessings#processArchive(String, ArchiveInputStream,
+ *   de.unkrig.commons.file.contentsprocessing.ContentsProcessor,
+ *   de.unkrig.commons.file.contentsprocessing.ContentsProcessings.ArchiveCombiner,
+ *   de.unkrig.commons.lang.protocol.ProducerWhichThrows, de.unkrig.commons.util.concurrent.SquadExecutor,
+ *   ExceptionHandler)}), and 7Z archives, which do not support streaming at all, can be processed.
+ * </p>
+ * <p>
+ *   7Z archives are always spooled, because they cannot be read from a stream. ZIP and JAR archives are spooled
+ *   (unless disabled, see {@link #SYSTEM_PROPERTY_SPOOL_ZIP_ARCHIVES}) iff they are larger than {@link
+ *   #SYSTEM_PROPERTY_MAX_IN_MEMORY_SIZE}; smaller ones are buffered in memory and then read as a stream.
+ * </p>
+ * <p>
+ *   The total size of all archives that are spooled at the same time is limited (see {@link
+ *   #SYSTEM_PROPERTY_MAX_SPOOL_SIZE}); iff that limit would be exceeded, then a ZIP or JAR archive is read as a
+ *   stream instead, and a 7Z archive cannot be processed. The copy buffers are taken from a pool.
+ * </p>
+ */
+public final
+class ArchiveSpooler {
+
+    private ArchiveSpooler() {}
+
+    /**
+     * Iff a system property with this name is set, then its (long) value configures the maximum total size of all
+     * archives that are spooled at the same time. The default is 1073741824 (1 GiB); zero disables spooling (and
+     * thus the processing of 7Z archives).
+     *
+     * @see #setMaxSpoolSize(long)
+     */
+    public static final String SYSTEM_PROPERTY_MAX_SPOOL_SIZE = "ArchiveSpooler.maxSpoolSize";
+
+    /**
+     * Iff a system property with this name is set to "false", then ZIP and JAR archives are never spooled, but always
+     * read as a stream. The default is to spool them (iff they are larger than {@link
+     * #SYSTEM_PROPERTY_MAX_IN_MEMORY_SIZE}), so that they are read through their central directory.
+     *
+     * @see #setSpoolZipArchives(boolean)
+     */
+    public static final String SYSTEM_PROPERTY_SPOOL_ZIP_ARCHIVES = "ArchiveSpooler.spoolZipArchives";
+
+    /**
+     * Iff a system property with this name is set, then its (long) value configures the maximum size of ZIP and JAR
+     * archives that are buffered in memory instead of being spooled into a temporary file. The default is 1048576
+     * (1 MiB).
+     *
+     * @see #setMaxInMemorySize(long)
+     */
+    public static final String SYSTEM_PROPERTY_MAX_IN_MEMORY_SIZE = "ArchiveSpooler.maxInMemorySize";
+
+    private static final int BUFFER_SIZE        = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private static volatile long maxSpoolSize = Long.getLong(ArchiveSpooler.SYSTEM_PROPERTY_MAX_SPOOL_SIZE, 1L << 30);
+
+    private static volatile boolean
+    spoolZipArchives = !"false".equals(System.getProperty(ArchiveSpooler.SYSTEM_PROPERTY_SPOOL_ZIP_ARCHIVES));
+
+    private static volatile long
+    maxInMemorySize = Long.getLong(ArchiveSpooler.SYSTEM_PROPERTY_MAX_IN_MEMORY_SIZE, 1L << 20);
+
+    /**
+     * The total size of the archives that are currently spooled.
+     */
+    private static final AtomicLong SPOOLED_BYTES = new AtomicLong();
+
+    private static final Queue<byte[]> BUFFER_POOL = new ConcurrentLinkedQueue<byte[]>();
+
+    /**
+     * Overrides the value of the {@link #SYSTEM_PROPERTY_MAX_SPOOL_SIZE} system property.
+     */
+    public static void
+    setMaxSpoolSize(long maxSpoolSize) { ArchiveSpooler.maxSpoolSize = maxSpoolSize; }
+
+    /**
+     * Overrides the value of the {@link #SYSTEM_PROPERTY_SPOOL_ZIP_ARCHIVES} system property.
+     */
+    public static void
+    setSpoolZipArchives(boolean spoolZipArchives) { ArchiveSpooler.spoolZipArchives = spoolZipArchives; }
+
+    /**
+     * Overrides the value of the {@link #SYSTEM_PROPERTY_MAX_IN_MEMORY_SIZE} system property.
+     */
+    public static void
+    setMaxInMemorySize(long maxInMemorySize) { ArchiveSpooler.maxInMemorySize = maxInMemorySize; }
+
+    /**
+     * @return The total size of the archives that are currently spooled
+     */
+    public static long
+    getSpooledBytes() { return ArchiveSpooler.SPOOLED_BYTES.get(); }
+
+    /**
+     * @return Whether archives of the given format are read more efficiently (or only) from a file than from a stream
+     */
+    public static boolean
+    isRandomAccess(ArchiveFormat archiveFormat) {
+        return (
+            archiveFormat == ZipArchiveFormat.get()
+            || archiveFormat == JarArchiveFormat.get()
+            || archiveFormat == SevenZArchiveFormat.get()
+        );
+    }
+
+    /**
+     * @return Whether archives of the given format are spooled: 7Z archives always, ZIP and JAR archives unless
+     *         {@link #SYSTEM_PROPERTY_SPOOL_ZIP_ARCHIVES disabled}
+     */
+    public static boolean
+    isSpooled(ArchiveFormat archiveFormat) {
+        return (
+            archiveFormat == SevenZArchiveFormat.get()
+            || (ArchiveSpooler.spoolZipArchives && ArchiveSpooler.isRandomAccess(archiveFormat))
+        );
+    }
+
+    /**
+     * Iff the <var>archiveFormat</var> {@link #isSpooled(ArchiveFormat) is spooled}, the archive is not small enough
+     * to be buffered in memory, and the spool size limit allows, reads the <var>inputStream</var> until end-of-input
+     * into a temporary file and opens that with {@link ArchiveFormat#open(File)}; otherwise wraps the
+     * <var>inputStream</var> (or the memory buffer) with {@link ArchiveFormat#archiveInputStream(InputStream)}.
+     * <p>
+     *   The <var>inputStream</var> is not closed.
+     * </p>
+     *
+     * @return             A {@link Spool} that must be closed after the archive was processed
+     * @throws IOException The archive is a 7Z archive, and the spool size limit does not allow to spool it
+     */
+    public static Spool
+    spool(InputStream inputStream, ArchiveFormat archiveFormat) throws IOException, ArchiveException {
+
+        if (!ArchiveSpooler.isSpooled(archiveFormat)) {
+            return new Spool(archiveFormat.archiveInputStream(inputStream), null, 0);
+        }
+
+        if (ArchiveSpooler.maxSpoolSize <= 0) {
+            if (archiveFormat == SevenZArchiveFormat.get()) throw ArchiveSpooler.spoolSizeExceeded(archiveFormat);
+            return new Spool(archiveFormat.archiveInputStream(inputStream), null, 0);
+        }
+
+        byte[] buffer = ArchiveSpooler.borrowBuffer();
+        try {
+
+            // A small ZIP or JAR archive is read from memory, because, for it, the benefits of random access do not
+            // outweigh the cost of a temporary file. (A 7Z archive cannot be read from memory, because "SevenZFile"
+            // requires a file.)
+            if (archiveFormat != SevenZArchiveFormat.get()) {
+                long                  maxInMemorySize = ArchiveSpooler.maxInMemorySize;
+                ByteArrayOutputStream head            = new ByteArrayOutputStream();
+                for (;;) {
+                    int n = inputStream.read(buffer);
+                    if (n == -1) {
+                        return new Spool(
+                            archiveFormat.archiveInputStream(new ByteArrayInputStream(head.toByteArray())),
+                            null,
+                            0
+                        );
+                    }
+                    head.write(buffer, 0, n);
+                    if (head.size() > maxInMemorySize) break;
+                }
+                inputStream = new SequenceInputStream(new ByteArrayInputStream(head.toByteArray()), inputStream);
+            }
+
+            return ArchiveSpooler.spoolToFile(inputStream, archiveFormat, buffer);
+        } finally {
+            ArchiveSpooler.returnBuffer(buffer);
+        }
+    }
+
+    private static Spool
+    spoolToFile(InputStream inputStream, ArchiveFormat archiveFormat, byte[] buffer)
+    throws IOException, ArchiveException {
+
+        File file     = File.createTempFile("spool", "." + archiveFormat.getName());
+        long reserved = 0;
+        try {
+
+            InputStream overflow = null;
+
+            OutputStream os = new FileOutputStream(file);
+            try {
+                for (;;) {
+                    int n = inputStream.read(buffer);
+                    if (n == -1) break;
+
+                    if (!ArchiveSpooler.reserve(n)) {
+
+                        // A 7Z archive cannot be read as a stream.
+                        if (archiveFormat == SevenZArchiveFormat.get()) {
+                            throw ArchiveSpooler.spoolSizeExceeded(archiveFormat);
+                        }
+
+                        // The spool size limit is exceeded; continue with the spooled data, the current buffer
+                        // and the rest of the input stream.
+                        overflow = new ByteArrayInputStream(Arrays.copyOf(buffer, n));
+                        break;
+                    }
+                    reserved += n;
+
+                    os.write(buffer, 0, n);
+                }
+                os.close();
+            } finally {
+                try { os.close(); } catch (Exception e) {}
+            }
+
+            if (overflow != null) {
+                InputStream spooled = new FileInputStream(file);
+                try {
+                    return new Spool(
+                        archiveFormat.archiveInputStream(new SequenceInputStream(
+                            spooled,
+                            new SequenceInputStream(overflow, inputStream)
+                        )),
+                        file,
+                        reserved,
+                        spooled
+                    );
+                } catch (ArchiveException ae) {
+                    spooled.close();
+                    throw ae;
+                } catch (RuntimeException re) {
+                    spooled.close();
+                    throw re;
+                }
+            }
+
+            return new Spool(archiveFormat.open(file), file, reserved);
+        } catch (IOException ioe) {
+            ArchiveSpooler.release(file, reserved);
+            throw ioe;
+        } catch (ArchiveException ae) {
+            ArchiveSpooler.release(file, reserved);
+            throw ae;
+        } catch (RuntimeException re) {
+            ArchiveSpooler.release(file, reserved);
+            throw re;
+        }
+    }
+
+    private static IOException
+    spoolSizeExceeded(ArchiveFormat archiveFormat) {
+        return new IOException(
+            "Cannot process \""
+            + archiveFormat.getName()
+            + "\" archive, because it cannot be read as a stream, and spooling it would exceed the spool size limit"
+            + " of "
+            + ArchiveSpooler.maxSpoolSize
+            + " bytes (see system property \""
+            + ArchiveSpooler.SYSTEM_PROPERTY_MAX_SPOOL_SIZE
+            + "\")"
+        );
+    }
+
+    /**
+     * Holds an {@link ArchiveInputStream} and the resources that it needs.
+     */
+    public static final
+    class Spool implements Closeable {
+
+        private final ArchiveInputStream    archiveInputStream;
+        @Nullable private final File        file;
+        private final long                  reserved;
+        @Nullable private final InputStream spooled;
+        private boolean                     closed;
+
+        Spool(ArchiveInputStream archiveInputStream, @Nullable File file, long reserved) {
+            this(archiveInputStream, file, reserved, null);
+        }
+
+        Spool(
+            ArchiveInputStream    archiveInputStream,
+            @Nullable File        file,
+            long                  reserved,
+            @Nullable InputStream spooled
+        ) {
+            this.archiveInputStream = archiveInputStream;
+            this.file               = file;
+            this.reserved           = reserved;
+            this.spooled            = spooled;
+        }
+
+        /**
+         * @return The archive input stream to read the archive from
+         */
+        public ArchiveInputStream
+        getArchiveInputStream() { return this.archiveInputStream; }
+
+        /**
+         * @return Whether the archive is read from a temporary file, with random access
+         */
+        public boolean
+        isRandomAccess() { return this.file != null && this.spooled == null; }
+
+        /**
+         * Iff the archive was spooled, closes the {@link #getArchiveInputStream() archive input stream} and deletes
+         * the temporary file; otherwise a no-op (the archive input stream is left open, like the input stream that it
+         * reads from). Closing a spool more than once has no effect.
+         */
+        @Override public synchronized void
+        close() throws IOException {
+
+            File file = this.file;
+            if (file == null || this.closed) return;
+            this.closed = true;
+
+            try {
+                InputStream spooled = this.spooled;
+                if (spooled != null) {
+                    spooled.close();
+                } else {
+                    this.archiveInputStream.close();
+                }
+            } finally {
+                ArchiveSpooler.release(file, this.reserved);
+            }
+        }
+    }
+
+    /**
+     * Reserves <var>n</var> bytes of spool size.
+     *
+     * @return Whether the spool size limit allows the reservation
+     */
+    private static boolean
+    reserve(long n) {
+        for (;;) {
+            long current = ArchiveSpooler.SPOOLED_BYTES.get();
+            if (current + n > ArchiveSpooler.maxSpoolSize) return false;
+            if (ArchiveSpooler.SPOOLED_BYTES.compareAndSet(current, current + n)) return true;
+        }
+    }
+
+    private static void
+    release(File file, long reserved) {
+        file.delete();
+        ArchiveSpooler.SPOOLED_BYTES.addAndGet(-reserved);
+    }
+
+    private static byte[]
+    borrowBuffer() {
+        byte[] result = ArchiveSpooler.BUFFER_POOL.poll();
+        return result != null ? result : new byte[ArchiveSpooler.BUFFER_SIZE];
+    }
+
+    private static void
+    returnBuffer(byte[] buffer) {
+
+        // Notice: The size check is racy, so the pool may slightly exceed its nominal size.
+        if (ArchiveSpooler.BUFFER_POOL.size() < ArchiveSpooler.MAX_POOLED_BUFFERS) {
+            ArchiveSpooler.BUFFER_POOL.add(buffer);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,6 +41,10 @@ import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.UnsupportedZipFeatureException;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 
+import de.unkrig.commons.file.ArchiveSpooler.Spool;
+import de.unkrig.commons.file.FormatDetector.Signature;
+import de.unkrig.commons.file.ProcessingMetrics.Span;
+import de.unkrig.commons.file.ProcessingMetrics.Stage;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
@@ -203,36 +208,63 @@ class CompressUtil {
 
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream);
 
+        // Read the signature only once for both the archive and the compression format detection.
+        Signature signature;
+        Span      detectionSpan = ProcessingMetrics.startCurrent(Stage.DETECTION);
+        try {
+            signature = FormatDetector.peek(inputStream);
+        } finally {
+            detectionSpan.end();
+        }
+
         ARCHIVE: {
-            final ArchiveFormat archiveFormat = ArchiveFormatFactory.forContents(inputStream);
+            final ArchiveFormat archiveFormat = signature.archiveFormat();
             if (archiveFormat == null) break ARCHIVE;
 
             if (!lookIntoArchive.evaluate(archiveFormat)) {
                 return normalContentsHandler.handleNormalContents(inputStream, lastModifiedDate);
             }
 
-            ArchiveInputStream ais;
+            Span span = ProcessingMetrics.startCurrent(Stage.ARCHIVE);
             try {
-                ais = archiveFormat.archiveInputStream(InputStreams.unclosable(inputStream));
-            } catch (ArchiveException ae) {
-                throw new IOException(archiveFormat.getName(), ae);
-            }
 
-            return archiveHandler.handleArchive(ais, archiveFormat);
+                // 7Z archives (and, by default, large ZIP and JAR archives) are spooled into a temporary file.
+                Spool spool;
+                try {
+                    spool = ArchiveSpooler.spool(InputStreams.unclosable(inputStream), archiveFormat);
+                } catch (ArchiveException ae) {
+                    throw new IOException(archiveFormat.getName(), ae);
+                }
+
+                try {
+                    T result = archiveHandler.handleArchive(spool.getArchiveInputStream(), archiveFormat);
+                    spool.close();
+                    return result;
+                } finally {
+                    try { spool.close(); } catch (Exception e) {}
+                }
+            } finally {
+                span.end();
+            }
         }
 
         COMPRESSED: {
-            final CompressionFormat compressionFormat = CompressionFormatFactory.forContents(inputStream);
+            final CompressionFormat compressionFormat = signature.compressionFormat();
             if (compressionFormat == null) break COMPRESSED;
 
             if (!lookIntoCompressed.evaluate(compressionFormat)) {
                 return normalContentsHandler.handleNormalContents(inputStream, lastModifiedDate);
             }
 
-            return compressorHandler.handleCompressor(
-                compressionFormat.compressorInputStream(InputStreams.unclosable(inputStream)),
-                compressionFormat
-            );
+            Span span = ProcessingMetrics.startCurrent(Stage.COMPRESSED);
+            try {
+                return compressorHandler.handleCompressor(
+                    compressionFormat.compressorInputStream(InputStreams.unclosable(inputStream)),
+                    compressionFormat
+                );
+            } finally {
+                span.end();
+            }
         }
 
         return normalContentsHandler.handleNormalContents(inputStream, lastModifiedDate);
@@ -263,9 +295,36 @@ class CompressUtil {
         ArchiveHandler<? extends T>        archiveHandler,
         CompressorHandler<? extends T>     compressorHandler,
         NormalContentsHandler<? extends T> normalContentsHandler
+    ) throws IOException {
+        return CompressUtil.processFile(
+            path,
+            file,
+            null, // attributes
+            lookIntoFormat,
+            archiveHandler,
+            compressorHandler,
+            normalContentsHandler
+        );
+    }
+
+    /**
+     * Equivalent with {@link #processFile(String, File, Predicate, ArchiveHandler, CompressorHandler,
+     * NormalContentsHandler)}, but takes the modification time of the <var>file</var> from the <var>attributes</var>
+     * (iff not {@code null}) instead of querying the file system.
+     */
+    @Nullable public static <T> T
+    processFile(
+        String                             path,
+        File                               file,
+        @Nullable BasicFileAttributes      attributes,
+        Predicate<? super String>          lookIntoFormat,
+        ArchiveHandler<? extends T>        archiveHandler,
+        CompressorHandler<? extends T>     compressorHandler,
+        NormalContentsHandler<? extends T> normalContentsHandler
     ) throws IOException {
         return CompressUtil.processFile(
             file,
+            attributes,
             CompressUtil.lookIntoArchive(path, lookIntoFormat),
             archiveHandler,
             CompressUtil.lookIntoCompressed(path, lookIntoFormat),
@@ -294,50 +353,93 @@ class CompressUtil {
         CompressorHandler<? extends T>       compressorHandler,
         NormalContentsHandler<? extends T>   normalContentsHandler
     ) throws IOException {
+        return CompressUtil.processFile(
+            file,
+            null, // attributes
+            lookIntoArchive,
+            archiveHandler,
+            lookIntoCompressed,
+            compressorHandler,
+            normalContentsHandler
+        );
+    }
+
+    /**
+     * Equivalent with {@link #processFile(File, Predicate, ArchiveHandler, Predicate, CompressorHandler,
+     * NormalContentsHandler)}, but takes the modification time of the <var>file</var> from the <var>attributes</var>
+     * (iff not {@code null}) instead of querying the file system.
+     */
+    @Nullable public static <T> T
+    processFile(
+        final File                           file,
+        @Nullable BasicFileAttributes        attributes,
+        Predicate<? super ArchiveFormat>     lookIntoArchive,
+        ArchiveHandler<? extends T>          archiveHandler,
+        Predicate<? super CompressionFormat> lookIntoCompressed,
+        CompressorHandler<? extends T>       compressorHandler,
+        NormalContentsHandler<? extends T>   normalContentsHandler
+    ) throws IOException {
 
         InputStream is = CompressUtil.markableFileInputStream(file);
 
         try {
 
-            ArchiveFormat archiveFormat = ArchiveFormatFactory.forContents(is);
+            // Read the signature only once for both the archive and the compression format detection.
+            Signature signature;
+            Span      detectionSpan = ProcessingMetrics.startCurrent(Stage.DETECTION);
+            try {
+                signature = FormatDetector.peek(is);
+            } finally {
+                detectionSpan.end();
+            }
+
+            ArchiveFormat archiveFormat = signature.archiveFormat();
             if (archiveFormat != null) {
 
                 if (!lookIntoArchive.evaluate(archiveFormat)) {
-                    long lastModified     = file.lastModified();
-                    Date lastModifiedDate = lastModified == 0 ? null : new Date(lastModified);
-                    return normalContentsHandler.handleNormalContents(is, lastModifiedDate);
+                    return normalContentsHandler.handleNormalContents(
+                        is,
+                        CompressUtil.lastModifiedDate(file, attributes)
+                    );
                 }
 
-                is.close();
-                ArchiveInputStream ais = archiveFormat.open(file);
-                is = ais;
+                Span span = ProcessingMetrics.startCurrent(Stage.ARCHIVE);
+                try {
+                    is.close();
+                    ArchiveInputStream ais = archiveFormat.open(file);
+                    is = ais;
 
-                T result = archiveHandler.handleArchive(ais, archiveFormat);
+                    T result = archiveHandler.handleArchive(ais, archiveFormat);
 
-                ais.close();
-                return result;
+                    ais.close();
+                    return result;
+                } finally {
+                    span.end();
+                }
             }
 
-            CompressionFormat compressionFormat = CompressionFormatFactory.forContents(is);
+            CompressionFormat compressionFormat = signature.compressionFormat();
             if (compressionFormat != null) {
 
                 if (!lookIntoCompressed.evaluate(compressionFormat)) {
                     return normalContentsHandler.handleNormalContents(is, null);
                 }
 
-                CompressorInputStream cis = compressionFormat.compressorInputStream(new BufferedInputStream(is));
+                Span span = ProcessingMetrics.startCurrent(Stage.COMPRESSED);
+                try {
+                    CompressorInputStream cis = compressionFormat.compressorInputStream(new BufferedInputStream(is));
 
-                T result = compressorHandler.handleCompressor(cis, compressionFormat);
+                    T result = compressorHandler.handleCompressor(cis, compressionFormat);
 
-                cis.close();
-                return result;
+                    cis.close();
+                    return result;
+                } finally {
+                    span.end();
+                }
             }
 
             CompressUtil.LOGGER.log(Level.FINER, "Processing normal file \"{0}\"", file);
-            long lastModified     = file.lastModified();
-            Date lastModifiedDate = lastModified == 0 ? null : new Date(lastModified);
-
-            T result = normalContentsHandler.handleNormalContents(is, lastModifiedDate);
+            T result = normalContentsHandler.handleNormalContents(is, CompressUtil.lastModifiedDate(file, attributes));
 
             is.close();
             return result;
@@ -362,6 +464,15 @@ class CompressUtil {
         }
     }
 
+    @Nullable private static Date
+    lastModifiedDate(File file, @Nullable BasicFileAttributes attributes) {
+
+        if (attributes != null) return FileUtil.lastModifiedDate(attributes);
+
+        long lastModified = file.lastModified();
+        return lastModified == 0 ? null : new Date(lastModified);
+    }
+
     private static Predicate<ArchiveFormat>
     lookIntoArchive(final String path, final Predicate<? super String> lookIntoFormat) {
 
@@ -0,0 +1,514 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A persistent index that remembers the size, the modification time and a hash of the contents of files, so that
+ * files which have not changed since the preceding run can be skipped in O(1).
+ * <p>
+ *   Each index entry also records a <var>fingerprint</var>, typically a string that describes the configuration of
+ *   the processing or transformation. Entries with a different fingerprint are regarded as missing, so that changing
+ *   the configuration invalidates the entire index.
+ * </p>
+ * <p>
+ *   A file is regarded as unchanged iff its size and modification time are the same as in the index entry, or, iff
+ *   only its modification time is different, if the hash of its contents is the same.
+ * </p>
+ * <p>
+ *   The index file consists of a header and a sequence of records, where later records override earlier ones.
+ *   Changes are collected in memory (in a thread-safe manner) and appended to the index file by {@link #commit()},
+ *   followed by a "commit" record; incomplete record sequences (e.g. after a crash) are ignored and truncated when
+ *   the index is loaded. When the index file contains too many overridden records, {@link #commit()} instead
+ *   rewrites it to a temporary file and atomically renames that to the index file.
+ * </p>
+ * <p>
+ *   The content hashes are derived from the digests of a {@link MemoizationCache} (see {@link
+ *   MemoizationCache#fileDigest(File, BasicFileAttributes)}), so that a file is read at most once to compute its
+ *   hash, even if both {@link #isUnchanged(File, BasicFileAttributes)} and {@link #update(File,
+ *   BasicFileAttributes)} need it. Pass the cache of a memoizing processing to {@link #load(File, String,
+ *   MemoizationCache)} to also share the digests that it computes.
+ * </p>
+ *
+ * @see de.unkrig.commons.file.fileprocessing.FileProcessings#changeTrackingFileProcessor(
+ *      de.unkrig.commons.file.fileprocessing.FileProcessor, FileChangeIndex)
+ * @see de.unkrig.commons.file.filetransformation.FileTransformations#changeTrackingFileTransformer(
+ *      de.unkrig.commons.file.filetransformation.FileTransformer, FileChangeIndex)
+ */
+public
+class FileChangeIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(FileChangeIndex.class.getName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC   = 0x43494458; // "CIDX"
+    private static final int VERSION = 1;
+
+    // Record types.
+    private static final byte ENTRY   = 'E';
+    private static final byte REMOVAL = 'R';
+    private static final byte COMMIT  = 'C';
+
+    private static final int DEFAULT_FILE_DIGESTS_CAPACITY = 1000;
+
+    /**
+     * Marks a file as removed in the {@link #changes}.
+     */
+    private static final Entry REMOVED = new Entry(-1, -1, -1, -1);
+
+    private static final
+    class Entry {
+
+        final long size, lastModified, contentHash, fingerprint;
+
+        Entry(long size, long lastModified, long contentHash, long fingerprint) {
+            this.size         = size;
+            this.lastModified = lastModified;
+            this.contentHash  = contentHash;
+            this.fingerprint  = fingerprint;
+        }
+    }
+
+    // CONFIGURATION
+
+    private final File                indexFile;
+    private final long                fingerprint;
+    private final MemoizationCache<?> fileDigests;
+
+    // STATE
+
+    /**
+     * The committed state, as in the index file.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * The changes since the last {@link #commit()}.
+     */
+    private final Map<String, Entry> changes = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * The length of the committed part of the index file, or -1 iff the index file does not exist.
+     */
+    private long committedLength = -1;
+
+    /**
+     * The number of records in the index file; used to determine when the index file should be compacted.
+     */
+    private long recordCount;
+
+    private final AtomicLong skippedFiles   = new AtomicLong();
+    private final AtomicLong skippedBytes   = new AtomicLong();
+    private final AtomicLong processedFiles = new AtomicLong();
+    private final AtomicLong processedBytes = new AtomicLong();
+
+    private
+    FileChangeIndex(File indexFile, String fingerprint, MemoizationCache<?> fileDigests) {
+        this.indexFile   = indexFile;
+        this.fingerprint = FileChangeIndex.hash(fingerprint.getBytes(FileChangeIndex.UTF_8));
+        this.fileDigests = fileDigests;
+    }
+
+    /**
+     * Loads the index from the given <var>indexFile</var>; iff that file does not exist, then the index is initially
+     * empty.
+     *
+     * @param fingerprint Identifies the processing or transformation; index entries with a different fingerprint are
+     *                    ignored
+     */
+    public static FileChangeIndex
+    load(File indexFile, String fingerprint) throws IOException {
+        return FileChangeIndex.load(
+            indexFile,
+            fingerprint,
+            new MemoizationCache<Void>(FileChangeIndex.DEFAULT_FILE_DIGESTS_CAPACITY)
+        );
+    }
+
+    /**
+     * Loads the index from the given <var>indexFile</var>; iff that file does not exist, then the index is initially
+     * empty.
+     *
+     * @param fingerprint Identifies the processing or transformation; index entries with a different fingerprint are
+     *                    ignored
+     * @param fileDigests Computes (and remembers) the digests from which the content hashes are derived; typically
+     *                    the same cache that a {@link
+     *                    de.unkrig.commons.file.fileprocessing.FileProcessings#memoizingFileProcessor(
+     *                    de.unkrig.commons.file.fileprocessing.FileProcessor, MemoizationCache) memoizing file
+     *                    processor} uses
+     */
+    public static FileChangeIndex
+    load(File indexFile, String fingerprint, MemoizationCache<?> fileDigests) throws IOException {
+
+        FileChangeIndex result = new FileChangeIndex(indexFile, fingerprint, fileDigests);
+
+        InputStream is;
+        try {
+            is = new FileInputStream(indexFile);
+        } catch (FileNotFoundException fnfe) {
+            return result;
+        }
+
+        try {
+            result.load(new DataInputStream(new BufferedInputStream(is)));
+        } finally {
+            is.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Whether the <var>file</var> is unchanged since it was last {@link #update(File, BasicFileAttributes)
+     *         updated} in this index
+     */
+    public boolean
+    isUnchanged(File file, BasicFileAttributes attributes) throws IOException {
+
+        String key   = file.getAbsolutePath();
+        Entry  entry = this.changes.get(key);
+        if (entry == null) entry = this.entries.get(key);
+
+        long size         = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        if (entry != null && entry != FileChangeIndex.REMOVED && entry.fingerprint == this.fingerprint) {
+
+            if (entry.size == size && entry.lastModified == lastModified) {
+                this.skippedFiles.incrementAndGet();
+                this.skippedBytes.addAndGet(size);
+                return true;
+            }
+
+            // The file was "touched", but maybe its contents is unchanged.
+            if (entry.size == size && this.contentHash(file, attributes) == entry.contentHash) {
+                this.changes.put(key, new Entry(size, lastModified, entry.contentHash, this.fingerprint));
+                this.skippedFiles.incrementAndGet();
+                this.skippedBytes.addAndGet(size);
+                return true;
+            }
+        }
+
+        this.processedFiles.incrementAndGet();
+        this.processedBytes.addAndGet(size);
+        return false;
+    }
+
+    /**
+     * Records the current state of the <var>file</var>, so that the next {@link #isUnchanged(File,
+     * BasicFileAttributes)} (typically in a later run) returns {@code true} unless the file is modified in the
+     * meantime. Notice that this method reads the file's contents to compute its hash, unless its digest is already
+     * known for the given <var>attributes</var>.
+     *
+     * @param attributes The current attributes of the <var>file</var>
+     */
+    public void
+    update(File file, BasicFileAttributes attributes) throws IOException {
+        this.changes.put(file.getAbsolutePath(), new Entry(
+            attributes.size(),
+            attributes.lastModifiedTime().toMillis(),
+            this.contentHash(file, attributes),
+            this.fingerprint
+        ));
+    }
+
+    /**
+     * Forgets about the <var>file</var>, so that the next {@link #isUnchanged(File, BasicFileAttributes)} returns
+     * {@code false}.
+     */
+    public void
+    remove(File file) { this.changes.put(file.getAbsolutePath(), FileChangeIndex.REMOVED); }
+
+    /**
+     * Persists all changes since the preceding commit.
+     */
+    public synchronized void
+    commit() throws IOException {
+
+        if (this.changes.isEmpty()) return;
+
+        // Take a snapshot of the changes. (Changes that are made concurrently will be committed next time.)
+        Map<String, Entry> changes = new HashMap<String, Entry>(this.changes);
+        for (Map.Entry<String, Entry> e : changes.entrySet()) this.changes.remove(e.getKey(), e.getValue());
+
+        for (Map.Entry<String, Entry> e : changes.entrySet()) {
+            if (e.getValue() == FileChangeIndex.REMOVED) {
+                this.entries.remove(e.getKey());
+            } else {
+                this.entries.put(e.getKey(), e.getValue());
+            }
+        }
+
+        if (this.committedLength == -1 || this.recordCount + changes.size() > 2 * this.entries.size() + 1024) {
+            this.rewrite();
+        } else {
+            this.append(changes);
+        }
+    }
+
+    /**
+     * @return The number of files for which {@link #isUnchanged(File, BasicFileAttributes)} returned {@code true}
+     */
+    public long getSkippedFiles() { return this.skippedFiles.get(); }
+
+    /**
+     * @return The total size of the files for which {@link #isUnchanged(File, BasicFileAttributes)} returned {@code
+     *         true}
+     */
+    public long getSkippedBytes() { return this.skippedBytes.get(); }
+
+    /**
+     * @return The number of files for which {@link #isUnchanged(File, BasicFileAttributes)} returned {@code false}
+     */
+    public long getProcessedFiles() { return this.processedFiles.get(); }
+
+    /**
+     * @return The total size of the files for which {@link #isUnchanged(File, BasicFileAttributes)} returned {@code
+     *         false}
+     */
+    public long getProcessedBytes() { return this.processedBytes.get(); }
+
+    @Override public String
+    toString() {
+        return (
+            this.skippedFiles
+            + " files ("
+            + this.skippedBytes
+            + " bytes) skipped, "
+            + this.processedFiles
+            + " files ("
+            + this.processedBytes
+            + " bytes) processed"
+        );
+    }
+
+    // IMPLEMENTATION
+
+    private void
+    load(DataInputStream dis) throws IOException {
+
+        if (dis.readInt() != FileChangeIndex.MAGIC) throw new IOException(this.indexFile + ": Not an index file");
+
+        int version = dis.readInt();
+        if (version != FileChangeIndex.VERSION) {
+            throw new IOException(this.indexFile + ": Unsupported index file version " + version);
+        }
+
+        Map<String, Entry> uncommitted = new HashMap<String, Entry>();
+
+        long position = 8, recordCount = 0;
+        this.committedLength = position;
+        try {
+            for (;;) {
+                int type = dis.read();
+                if (type == -1) break;
+                position++;
+
+                if (type == FileChangeIndex.COMMIT) {
+                    if (dis.readInt() != uncommitted.size()) break;
+                    position += 4;
+
+                    for (Map.Entry<String, Entry> e : uncommitted.entrySet()) {
+                        if (e.getValue() == FileChangeIndex.REMOVED) {
+                            this.entries.remove(e.getKey());
+                        } else {
+                            this.entries.put(e.getKey(), e.getValue());
+                        }
+                    }
+                    recordCount += uncommitted.size();
+                    uncommitted.clear();
+
+                    this.committedLength = position;
+                    this.recordCount     = recordCount;
+                    continue;
+                }
+
+                byte[] path = new byte[dis.readUnsignedShort()];
+                dis.readFully(path);
+                position += 2 + path.length;
+
+                if (type == FileChangeIndex.REMOVAL) {
+                    uncommitted.put(new String(path, FileChangeIndex.UTF_8), FileChangeIndex.REMOVED);
+                } else
+                if (type == FileChangeIndex.ENTRY) {
+                    uncommitted.put(new String(path, FileChangeIndex.UTF_8), new Entry(
+                        dis.readLong(), // size
+                        dis.readLong(), // lastModified
+                        dis.readLong(), // contentHash
+                        dis.readLong()  // fingerprint
+                    ));
+                    position += 32;
+                } else
+                {
+                    break;
+                }
+            }
+        } catch (EOFException eofe) {
+            ;
+        }
+
+        if (!uncommitted.isEmpty()) {
+            FileChangeIndex.LOGGER.log(
+                Level.WARNING,
+                "{0}: Ignoring {1} uncommitted records",
+                new Object[] { this.indexFile, uncommitted.size() }
+            );
+        }
+    }
+
+    /**
+     * Appends the <var>changes</var> and a COMMIT record to the index file.
+     */
+    private void
+    append(Map<String, Entry> changes) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(this.indexFile, "rw");
+        try {
+
+            // Discard any uncommitted records.
+            raf.setLength(this.committedLength);
+            raf.seek(this.committedLength);
+
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(raf.getChannel())
+            ));
+            FileChangeIndex.writeRecords(changes, dos);
+            dos.flush();
+
+            raf.getFD().sync();
+            this.committedLength = raf.length();
+            this.recordCount     += changes.size();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes all entries to a new index file, and atomically replaces the index file with it.
+     */
+    private void
+    rewrite() throws IOException {
+
+        File newFile = new File(this.indexFile.getPath() + ".new");
+
+        FileOutputStream fos = new FileOutputStream(newFile);
+        try {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+            dos.writeInt(FileChangeIndex.MAGIC);
+            dos.writeInt(FileChangeIndex.VERSION);
+            FileChangeIndex.writeRecords(this.entries, dos);
+            dos.flush();
+            fos.getFD().sync();
+            fos.close();
+        } catch (IOException ioe) {
+            try { fos.close(); } catch (Exception e) {}
+            newFile.delete();
+            throw ioe;
+        }
+
+        Files.move(
+            newFile.toPath(),
+            this.indexFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+
+        this.committedLength = this.indexFile.length();
+        this.recordCount     = this.entries.size();
+    }
+
+    private static void
+    writeRecords(Map<String, Entry> records, DataOutputStream dos) throws IOException {
+
+        for (Map.Entry<String, Entry> e : records.entrySet()) {
+
+            byte[] path  = e.getKey().getBytes(FileChangeIndex.UTF_8);
+            Entry  entry = e.getValue();
+
+            if (entry == FileChangeIndex.REMOVED) {
+                dos.writeByte(FileChangeIndex.REMOVAL);
+                dos.writeShort(path.length);
+                dos.write(path);
+            } else {
+                dos.writeByte(FileChangeIndex.ENTRY);
+                dos.writeShort(path.length);
+                dos.write(path);
+                dos.writeLong(entry.size);
+                dos.writeLong(entry.lastModified);
+                dos.writeLong(entry.contentHash);
+                dos.writeLong(entry.fingerprint);
+            }
+        }
+
+        dos.writeByte(FileChangeIndex.COMMIT);
+        dos.writeInt(records.size());
+    }
+
+    /**
+     * @return The first 64 bits of the SHA-256 digest of the <var>file</var>'s contents
+     */
+    private long
+    contentHash(File file, BasicFileAttributes attributes) throws IOException {
+        return Long.parseUnsignedLong(this.fileDigests.fileDigest(file, attributes).substring(0, 16), 16);
+    }
+
+    private static long
+    hash(byte[] data) { return FileChangeIndex.toLong(MemoizationCache.messageDigest().digest(data)); }
+
+    private static long
+    toLong(byte[] digest) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) result = (result << 8) | (digest[i] & 0xff);
+        return result;
+    }
+}
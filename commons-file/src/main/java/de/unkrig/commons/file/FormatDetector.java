@@ -0,0 +1,103 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.utils.IOUtils;
+
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Determines the archive format and the compression format of contents from one "peek window" of its leading bytes,
+ * so that the contents are read only once for both.
+ * <p>
+ *   The results are identical with those of {@link ArchiveFormatFactory#forContents(InputStream)} resp. {@link
+ *   CompressionFormatFactory#forContents(InputStream)}.
+ * </p>
+ */
+public final
+class FormatDetector {
+
+    private FormatDetector() {}
+
+    /**
+     * The size of the "peek window".
+     */
+    public static final int SIGNATURE_SIZE = 512;
+
+    /**
+     * The leading bytes of some contents.
+     */
+    public static final
+    class Signature {
+
+        private final byte[] bytes;
+        private final int    length;
+
+        Signature(byte[] bytes, int length) {
+            this.bytes  = bytes;
+            this.length = length;
+        }
+
+        /**
+         * @return One of {@link ArchiveFormatFactory#allFormats()}, or {@code null} iff the contents has none of the
+         *         known archive formats
+         */
+        @Nullable public ArchiveFormat
+        archiveFormat() { return ArchiveFormatFactory.forSignature(this.bytes, this.length); }
+
+        /**
+         * @return One of {@link CompressionFormatFactory#allFormats()}, or {@code null} iff the contents has none of
+         *         the known compression formats
+         */
+        @Nullable public CompressionFormat
+        compressionFormat() { return CompressionFormatFactory.forSignature(this.bytes, this.length); }
+    }
+
+    /**
+     * Reads the first {@link #SIGNATURE_SIZE} bytes from the <var>inputStream</var> (or less, iff the stream is
+     * shorter) and then resets it.
+     *
+     * @param inputStream Must support {@link InputStream#mark(int)}
+     */
+    public static Signature
+    peek(InputStream inputStream) throws IOException {
+
+        byte[] bytes = new byte[FormatDetector.SIGNATURE_SIZE];
+        inputStream.mark(bytes.length);
+        int length = IOUtils.readFully(inputStream, bytes);
+        inputStream.reset();
+
+        return new Signature(bytes, length);
+    }
+}
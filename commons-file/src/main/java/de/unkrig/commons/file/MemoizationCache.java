@@ -0,0 +1,451 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A bounded cache that maps a <em>digest of contents</em> to the result of processing these contents, so that
+ * duplicate contents (e.g. the same JAR file in many places, or nested in many WAR files) are processed only once.
+ * <p>
+ *   Results are computed through {@link #get(String, Computation)}; when several threads request the result for the
+ *   same digest concurrently, only one of them computes it, and the others wait for that result ("single flight").
+ *   Results of failed computations are not cached.
+ * </p>
+ * <p>
+ *   Additionally, the cache remembers the digests of files by path, size and modification time (see {@link
+ *   #fileDigest(File, BasicFileAttributes)}), so that unchanged files need not be read to compute their digest.
+ * </p>
+ * <p>
+ *   A cache that was {@link #load(File, String, int) loaded} from a file can be {@link #commit() persisted}; only
+ *   results that are {@code null} or {@link Serializable} are persisted. Like with {@link FileChangeIndex}, a
+ *   <var>fingerprint</var> identifies the processing; a cache file with a different fingerprint is ignored.
+ * </p>
+ * <p>
+ *   Notice that memoization is only correct if the processing result depends on nothing but the contents (and not,
+ *   e.g., on the path or the modification time), and if the processing has no relevant side effects.
+ * </p>
+ *
+ * @param <T> The type of the processing results
+ * @see de.unkrig.commons.file.contentsprocessing.ContentsProcessings#memoizingContentsProcessor(
+ *      de.unkrig.commons.file.contentsprocessing.ContentsProcessor, MemoizationCache)
+ * @see de.unkrig.commons.file.fileprocessing.FileProcessings#memoizingFileProcessor(
+ *      de.unkrig.commons.file.fileprocessing.FileProcessor, MemoizationCache)
+ */
+public
+class MemoizationCache<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(MemoizationCache.class.getName());
+
+    private static final int MAGIC   = 0x4d454d4f; // "MEMO"
+    private static final int VERSION = 1;
+
+    /**
+     * Represents a {@code null} result in the {@link #results}.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Computes the result for a digest.
+     *
+     * @param <T> The type of the result
+     */
+    public
+    interface Computation<T> {
+
+        /** @see Computation */
+        @Nullable T compute() throws IOException, InterruptedException;
+    }
+
+    private static final
+    class FileDigest {
+
+        final long   size, lastModified;
+        final String digest;
+
+        FileDigest(long size, long lastModified, String digest) {
+            this.size         = size;
+            this.lastModified = lastModified;
+            this.digest       = digest;
+        }
+    }
+
+    /**
+     * A computation that is currently executing.
+     */
+    private static final
+    class InFlight {
+        final CountDownLatch done = new CountDownLatch(1);
+        boolean              success;
+        @Nullable Object     result;
+    }
+
+    // CONFIGURATION
+
+    private final int              capacity;
+    @Nullable private final File   cacheFile;
+    @Nullable private final String fingerprint;
+
+    // STATE
+
+    /**
+     * Maps digest to result (or {@link #NULL}); access must be synchronized on the map.
+     */
+    private final Map<String, Object> results;
+
+    /**
+     * Maps absolute file path to {@link FileDigest}; access must be synchronized on the map.
+     */
+    private final Map<String, FileDigest> fileDigests;
+
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<String, InFlight>();
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an empty, non-persistent cache.
+     *
+     * @param capacity The maximum number of results (and of file digests) that are cached; least recently used
+     *                 first out
+     */
+    public
+    MemoizationCache(int capacity) { this(capacity, null, null); }
+
+    private
+    MemoizationCache(int capacity, @Nullable File cacheFile, @Nullable String fingerprint) {
+        this.capacity    = capacity;
+        this.cacheFile   = cacheFile;
+        this.fingerprint = fingerprint;
+        this.results     = MemoizationCache.lruMap(capacity);
+        this.fileDigests = MemoizationCache.lruMap(capacity);
+    }
+
+    /**
+     * Loads the cache from the given <var>cacheFile</var>; iff that file does not exist, or was written with a
+     * different <var>fingerprint</var>, or is unreadable, then the cache is initially empty.
+     *
+     * @param fingerprint Identifies the processing; a cache file with a different fingerprint is ignored
+     * @param capacity    The maximum number of results (and of file digests) that are cached; least recently used
+     *                    first out
+     * @see #commit()
+     */
+    public static <T> MemoizationCache<T>
+    load(File cacheFile, String fingerprint, int capacity) throws IOException {
+
+        MemoizationCache<T> result = new MemoizationCache<T>(capacity, cacheFile, fingerprint);
+
+        InputStream is;
+        try {
+            is = new FileInputStream(cacheFile);
+        } catch (FileNotFoundException fnfe) {
+            return result;
+        }
+
+        try {
+            result.load(new ObjectInputStream(new BufferedInputStream(is)));
+        } catch (ClassNotFoundException cnfe) {
+            MemoizationCache.LOGGER.log(Level.WARNING, cacheFile + ": Ignoring cache file", cnfe);
+            result.clear();
+        } catch (IOException ioe) {
+            MemoizationCache.LOGGER.log(Level.WARNING, cacheFile + ": Ignoring cache file", ioe);
+            result.clear();
+        } finally {
+            is.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cached result for the <var>digest</var>, or, iff there is none, computes it through the
+     * <var>computation</var> and caches it. Iff another thread is currently computing the result for the same
+     * <var>digest</var>, then this method waits for that result instead of computing it again.
+     */
+    @SuppressWarnings("unchecked") @Nullable public T
+    get(String digest, Computation<? extends T> computation) throws IOException, InterruptedException {
+
+        for (;;) {
+
+            synchronized (this.results) {
+                Object result = this.results.get(digest);
+                if (result != null) {
+                    this.hits.incrementAndGet();
+                    return result == MemoizationCache.NULL ? null : (T) result;
+                }
+            }
+
+            InFlight inFlight = new InFlight();
+            InFlight other    = this.inFlight.putIfAbsent(digest, inFlight);
+            if (other != null) {
+                other.done.await();
+                if (other.success) {
+                    this.hits.incrementAndGet();
+                    return (T) other.result;
+                }
+
+                // The other computation failed; retry, so that each caller gets "its own" exception.
+                continue;
+            }
+
+            this.misses.incrementAndGet();
+            try {
+                T result = computation.compute();
+
+                synchronized (this.results) {
+                    this.results.put(digest, result == null ? MemoizationCache.NULL : result);
+                }
+                inFlight.result  = result;
+                inFlight.success = true;
+
+                return result;
+            } finally {
+                this.inFlight.remove(digest, inFlight);
+                inFlight.done.countDown();
+            }
+        }
+    }
+
+    /**
+     * @return The digest of the contents of the <var>file</var>; the file is read only iff its path, size or
+     *         modification time are different from when its digest was last computed
+     */
+    public String
+    fileDigest(File file, BasicFileAttributes attributes) throws IOException {
+
+        String key          = file.getAbsolutePath();
+        long   size         = attributes.size();
+        long   lastModified = attributes.lastModifiedTime().toMillis();
+
+        synchronized (this.fileDigests) {
+            FileDigest fd = this.fileDigests.get(key);
+            if (fd != null && fd.size == size && fd.lastModified == lastModified) return fd.digest;
+        }
+
+        MessageDigest md = MemoizationCache.messageDigest();
+
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            for (int n = is.read(buffer); n != -1; n = is.read(buffer)) md.update(buffer, 0, n);
+        } finally {
+            is.close();
+        }
+
+        String digest = MemoizationCache.toString(md);
+
+        synchronized (this.fileDigests) {
+            this.fileDigests.put(key, new FileDigest(size, lastModified, digest));
+        }
+
+        return digest;
+    }
+
+    /**
+     * @return A new {@link MessageDigest} that is suitable for computing the <var>digest</var> argument of {@link
+     *         #get(String, Computation)}
+     * @see    #toString(MessageDigest)
+     */
+    public static MessageDigest
+    messageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new AssertionError(nsae);
+        }
+    }
+
+    /**
+     * Completes the <var>messageDigest</var> and returns the digest as a hex string.
+     */
+    public static String
+    toString(MessageDigest messageDigest) {
+
+        byte[]        ba = messageDigest.digest();
+        StringBuilder sb = new StringBuilder(2 * ba.length);
+        for (byte b : ba) sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+
+        return sb.toString();
+    }
+
+    /**
+     * Persists the cache to the file that it was {@link #load(File, String, int) loaded} from; a no-op for a
+     * non-persistent cache.
+     */
+    public void
+    commit() throws IOException {
+
+        File cacheFile = this.cacheFile;
+        if (cacheFile == null) return;
+
+        // Take snapshots of the cached state.
+        List<Map.Entry<String, Object>> results;
+        synchronized (this.results) {
+            results = new ArrayList<Map.Entry<String, Object>>(this.results.entrySet());
+        }
+        List<Map.Entry<String, FileDigest>> fileDigests;
+        synchronized (this.fileDigests) {
+            fileDigests = new ArrayList<Map.Entry<String, FileDigest>>(this.fileDigests.entrySet());
+        }
+
+        File newFile = new File(cacheFile.getPath() + ".new");
+
+        FileOutputStream fos = new FileOutputStream(newFile);
+        try {
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos));
+
+            oos.writeInt(MemoizationCache.MAGIC);
+            oos.writeInt(MemoizationCache.VERSION);
+            oos.writeUTF(String.valueOf(this.fingerprint));
+
+            // Notice: The least recently used entries come first, so that the order is preserved when loading.
+            for (Map.Entry<String, Object> e : results) {
+                Object result = e.getValue();
+                if (result == MemoizationCache.NULL) {
+                    result = null;
+                } else
+                if (!(result instanceof Serializable)) {
+                    continue;
+                }
+
+                oos.writeBoolean(true);
+                oos.writeUTF(e.getKey());
+                oos.writeObject(result);
+            }
+            oos.writeBoolean(false);
+
+            for (Map.Entry<String, FileDigest> e : fileDigests) {
+                FileDigest fd = e.getValue();
+
+                oos.writeBoolean(true);
+                oos.writeUTF(e.getKey());
+                oos.writeLong(fd.size);
+                oos.writeLong(fd.lastModified);
+                oos.writeUTF(fd.digest);
+            }
+            oos.writeBoolean(false);
+
+            oos.flush();
+            fos.getFD().sync();
+            fos.close();
+        } catch (IOException ioe) {
+            try { fos.close(); } catch (Exception e) {}
+            newFile.delete();
+            throw ioe;
+        }
+
+        FileUtil.replace(newFile, cacheFile);
+    }
+
+    /**
+     * @return The number of invocations of {@link #get(String, Computation)} that did not execute the
+     *         computation
+     */
+    public long getHits() { return this.hits.get(); }
+
+    /**
+     * @return The number of invocations of {@link #get(String, Computation)} that executed the computation
+     */
+    public long getMisses() { return this.misses.get(); }
+
+    /**
+     * Removes all cached results and file digests.
+     */
+    public void
+    clear() {
+        synchronized (this.results)     { this.results.clear(); }
+        synchronized (this.fileDigests) { this.fileDigests.clear(); }
+    }
+
+    @Override public String
+    toString() {
+        return this.hits + " hits, " + this.misses + " misses, capacity " + this.capacity;
+    }
+
+    // IMPLEMENTATION
+
+    private void
+    load(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+
+        if (ois.readInt() != MemoizationCache.MAGIC) throw new IOException(this.cacheFile + ": Not a cache file");
+
+        int version = ois.readInt();
+        if (version != MemoizationCache.VERSION) {
+            throw new IOException(this.cacheFile + ": Unsupported cache file version " + version);
+        }
+
+        if (!ois.readUTF().equals(this.fingerprint)) return;
+
+        while (ois.readBoolean()) {
+            String key    = ois.readUTF();
+            Object result = ois.readObject();
+            this.results.put(key, result == null ? MemoizationCache.NULL : result);
+        }
+
+        while (ois.readBoolean()) {
+            String key = ois.readUTF();
+            this.fileDigests.put(key, new FileDigest(ois.readLong(), ois.readLong(), ois.readUTF()));
+        }
+    }
+
+    private static <V> Map<String, V>
+    lruMap(final int capacity) {
+
+        return new LinkedHashMap<String, V>(16, .75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override protected boolean
+            removeEldestEntry(@Nullable Map.Entry<String, V> eldest) { return this.size() > capacity; }
+        };
+    }
+}
@@ -0,0 +1,449 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.unkrig.commons.nullanalysis.NotNullByDefault;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Collects counters and per-stage timings of file and contents processing and transformation, e.g. for progress
+ * reporting and for finding performance bottlenecks.
+ * <p>
+ *   The metrics are fed by the "metering" decorators, e.g. {@link
+ *   de.unkrig.commons.file.fileprocessing.FileProcessings#meteringFileProcessor(
+ *   de.unkrig.commons.file.fileprocessing.FileProcessor, ProcessingMetrics)} and {@link
+ *   de.unkrig.commons.file.contentsprocessing.ContentsProcessings#meteringContentsProcessor(
+ *   de.unkrig.commons.file.contentsprocessing.ContentsProcessor, ProcessingMetrics)}. While such a decorator is
+ *   executing, the {@link CompressUtil} methods additionally report the {@link Stage#DETECTION DETECTION}, {@link
+ *   Stage#ARCHIVE ARCHIVE} and {@link Stage#COMPRESSED COMPRESSED} stages to the same metrics.
+ * </p>
+ * <p>
+ *   The time of each stage is measured <em>exclusively</em>, i.e. without the time of the stages that are nested
+ *   in it (in the same thread); e.g. the {@link Stage#ARCHIVE ARCHIVE} time of a ZIP file does not include the
+ *   time that the {@link Stage#CONTENTS CONTENTS} of its entries took.
+ * </p>
+ * <p>
+ *   All methods are thread-safe. When the metrics are {@link #setEnabled(boolean) disabled}, the decorators cost
+ *   only a volatile read per invocation.
+ * </p>
+ */
+public
+class ProcessingMetrics {
+
+    /**
+     * The stages of processing and transformation that are timed.
+     */
+    public
+    enum Stage {
+
+        /** Processing of files, excluding the other stages, e.g. opening, closing and renaming files. */
+        FILE,
+
+        /** Detection of archive and compression formats. */
+        DETECTION,
+
+        /** Processing of archives, excluding the processing of their entries, e.g. reading archive headers. */
+        ARCHIVE,
+
+        /** Processing of compressed contents, excluding the processing of the uncompressed contents. */
+        COMPRESSED,
+
+        /** Reading (and thus: decompressing) of contents by contents processors and transformers. */
+        READ,
+
+        /** Processing of contents by contents processors and transformers, excluding {@link #READ}. */
+        CONTENTS,
+    }
+
+    private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<Span>();
+
+    /**
+     * Whether any {@link ProcessingMetrics} object has ever started a span; until then, {@link #current()} need not
+     * even query the thread-local.
+     */
+    private static volatile boolean used;
+
+    private static final Comparator<Entry<String, Long>>
+    BY_DURATION = new Comparator<Entry<String, Long>>() {
+
+        @Override @NotNullByDefault(false) public int
+        compare(Entry<String, Long> e1, Entry<String, Long> e2) { return e1.getValue().compareTo(e2.getValue()); }
+    };
+
+    // CONFIGURATION
+    private final int        slowestFileCount;
+    private volatile boolean enabled = true;
+
+    // STATE
+    private volatile long                            startNanos = System.nanoTime();
+    private final AtomicLongArray                    stageNanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicLong                         files      = new AtomicLong();
+    private final AtomicLong                         contents   = new AtomicLong();
+    private final AtomicLong                         bytes      = new AtomicLong();
+    private final AtomicLong                         errors     = new AtomicLong();
+    private final PriorityQueue<Entry<String, Long>> slowestFiles;
+
+    /**
+     * Equivalent with {@link #ProcessingMetrics(int) ProcessingMetrics(10)}.
+     */
+    public
+    ProcessingMetrics() { this(10); }
+
+    /**
+     * @param slowestFileCount How many of the slowest files to remember
+     */
+    public
+    ProcessingMetrics(int slowestFileCount) {
+        this.slowestFileCount = slowestFileCount;
+        this.slowestFiles     = new PriorityQueue<Entry<String, Long>>(
+            Math.max(1, slowestFileCount),
+            ProcessingMetrics.BY_DURATION
+        );
+    }
+
+    /**
+     * Enables or disables the collection of metrics; initially the metrics are enabled.
+     */
+    public void
+    setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    /**
+     * @return Whether metrics are currently collected
+     */
+    public boolean
+    isEnabled() { return this.enabled; }
+
+    /**
+     * Resets all counters and timers, and restarts the elapsed time.
+     */
+    public void
+    reset() {
+        for (int i = 0; i < this.stageNanos.length(); i++) this.stageNanos.set(i, 0);
+        this.files.set(0);
+        this.contents.set(0);
+        this.bytes.set(0);
+        this.errors.set(0);
+        synchronized (this.slowestFiles) { this.slowestFiles.clear(); }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts timing the <var>stage</var> in the current thread. The returned span must be {@link Span#end() ended}
+     * in the same thread, typically in a {@code finally} clause.
+     *
+     * @param path Iff non-{@code null} and the <var>stage</var> is {@link Stage#FILE FILE}, then the file is a
+     *             candidate for the {@link Snapshot#getSlowestFiles() slowest files}
+     */
+    public Span
+    start(Stage stage, @Nullable String path) {
+        if (!this.enabled) return Span.NOP;
+
+        ProcessingMetrics.used = true;
+        return new Span(this, stage, path);
+    }
+
+    /**
+     * Counts one failed file or contents.
+     */
+    public void
+    countError() { if (this.enabled) this.errors.incrementAndGet(); }
+
+    /**
+     * Wraps the <var>delegate</var> such that the number of bytes read and the time spent reading are reported as
+     * the {@link Stage#READ READ} stage.
+     */
+    public InputStream
+    meteredInputStream(InputStream delegate) {
+
+        if (!this.enabled) return delegate;
+
+        return new FilterInputStream(delegate) {
+
+            @Override public int
+            read() throws IOException {
+                long start = System.nanoTime();
+                int  b     = super.read();
+                ProcessingMetrics.this.reportRead(System.nanoTime() - start, b == -1 ? 0 : 1);
+                return b;
+            }
+
+            @Override @NotNullByDefault(false) public int
+            read(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                int  n     = super.read(b, off, len);
+                ProcessingMetrics.this.reportRead(System.nanoTime() - start, n == -1 ? 0 : n);
+                return n;
+            }
+
+            @Override public long
+            skip(long n) throws IOException {
+                long start   = System.nanoTime();
+                long skipped = super.skip(n);
+                ProcessingMetrics.this.reportRead(System.nanoTime() - start, skipped);
+                return skipped;
+            }
+        };
+    }
+
+    private void
+    reportRead(long nanos, long byteCount) {
+
+        this.stageNanos.addAndGet(Stage.READ.ordinal(), nanos);
+        this.bytes.addAndGet(byteCount);
+
+        // Exclude the reading time from the enclosing span.
+        Span span = ProcessingMetrics.CURRENT_SPAN.get();
+        if (span != null) span.childNanos += nanos;
+    }
+
+    /**
+     * Starts timing the <var>stage</var> in the metrics of the innermost span of the current thread (iff any).
+     */
+    static Span
+    startCurrent(Stage stage) {
+
+        if (!ProcessingMetrics.used) return Span.NOP;
+
+        Span span = ProcessingMetrics.CURRENT_SPAN.get();
+        if (span == null) return Span.NOP;
+
+        ProcessingMetrics metrics = span.metrics;
+        assert metrics != null;
+        return metrics.start(stage, null);
+    }
+
+    /**
+     * @return A consistent-enough copy of the current metrics; cheap enough to be taken frequently for progress
+     *         reporting
+     */
+    public Snapshot
+    snapshot() {
+
+        long[] stageNanos = new long[this.stageNanos.length()];
+        for (int i = 0; i < stageNanos.length; i++) stageNanos[i] = this.stageNanos.get(i);
+
+        List<Entry<String, Long>> slowestFiles;
+        synchronized (this.slowestFiles) {
+            slowestFiles = new ArrayList<Entry<String, Long>>(this.slowestFiles);
+        }
+        Collections.sort(slowestFiles, Collections.reverseOrder(ProcessingMetrics.BY_DURATION));
+
+        return new Snapshot(
+            System.nanoTime() - this.startNanos,
+            this.files.get(),
+            this.contents.get(),
+            this.bytes.get(),
+            this.errors.get(),
+            stageNanos,
+            Collections.unmodifiableList(slowestFiles)
+        );
+    }
+
+    private void
+    recordFile(String path, long nanos) {
+
+        if (this.slowestFileCount <= 0) return;
+
+        synchronized (this.slowestFiles) {
+            if (this.slowestFiles.size() == this.slowestFileCount) {
+                if (nanos <= this.slowestFiles.peek().getValue()) return;
+                this.slowestFiles.poll();
+            }
+            this.slowestFiles.add(new SimpleImmutableEntry<String, Long>(path, nanos));
+        }
+    }
+
+    /**
+     * The timing of one stage in one thread; see {@link ProcessingMetrics#start(Stage, String)}.
+     */
+    public static final
+    class Span {
+
+        static final Span NOP = new Span();
+
+        @Nullable private final ProcessingMetrics metrics;
+        @Nullable private final Stage             stage;
+        @Nullable private final String            path;
+        @Nullable private final Span              parent;
+        private final long                        startNanos;
+
+        /** The time of the spans that were nested in this span. */
+        long childNanos;
+
+        private
+        Span() {
+            this.metrics    = null;
+            this.stage      = null;
+            this.path       = null;
+            this.parent     = null;
+            this.startNanos = 0;
+        }
+
+        Span(ProcessingMetrics metrics, Stage stage, @Nullable String path) {
+            this.metrics    = metrics;
+            this.stage      = stage;
+            this.path       = path;
+            this.parent     = ProcessingMetrics.CURRENT_SPAN.get();
+            this.startNanos = System.nanoTime();
+
+            ProcessingMetrics.CURRENT_SPAN.set(this);
+        }
+
+        /**
+         * Stops the timing and reports it to the metrics.
+         */
+        public void
+        end() {
+
+            ProcessingMetrics metrics = this.metrics;
+            Stage             stage   = this.stage;
+            if (metrics == null || stage == null) return;
+
+            long nanos = System.nanoTime() - this.startNanos;
+
+            metrics.stageNanos.addAndGet(stage.ordinal(), nanos - this.childNanos);
+            switch (stage) {
+
+            case FILE:
+                metrics.files.incrementAndGet();
+                if (this.path != null) metrics.recordFile(this.path, nanos);
+                break;
+
+            case CONTENTS:
+                metrics.contents.incrementAndGet();
+                break;
+
+            default:
+                ;
+            }
+
+            Span parent = this.parent;
+            if (parent != null) {
+                parent.childNanos += nanos;
+                ProcessingMetrics.CURRENT_SPAN.set(parent);
+            } else {
+                ProcessingMetrics.CURRENT_SPAN.remove();
+            }
+        }
+    }
+
+    /**
+     * An immutable copy of the state of a {@link ProcessingMetrics} object.
+     */
+    public static final
+    class Snapshot {
+
+        private final long                      elapsedNanos, files, contents, bytes, errors;
+        private final long[]                    stageNanos;
+        private final List<Entry<String, Long>> slowestFiles;
+
+        Snapshot(
+            long                      elapsedNanos,
+            long                      files,
+            long                      contents,
+            long                      bytes,
+            long                      errors,
+            long[]                    stageNanos,
+            List<Entry<String, Long>> slowestFiles
+        ) {
+            this.elapsedNanos = elapsedNanos;
+            this.files        = files;
+            this.contents     = contents;
+            this.bytes        = bytes;
+            this.errors       = errors;
+            this.stageNanos   = stageNanos;
+            this.slowestFiles = slowestFiles;
+        }
+
+        /** @return The time since the metrics were created or {@link ProcessingMetrics#reset() reset} */
+        public long
+        getElapsedNanos() { return this.elapsedNanos; }
+
+        /** @return The number of files that were processed or transformed */
+        public long
+        getFiles() { return this.files; }
+
+        /** @return The number of contents (files, archive entries, compressed contents) that were processed */
+        public long
+        getContents() { return this.contents; }
+
+        /** @return The number of bytes that the contents processors and transformers read */
+        public long
+        getBytes() { return this.bytes; }
+
+        /** @return The number of files or contents whose processing failed */
+        public long
+        getErrors() { return this.errors; }
+
+        /** @return The (exclusive) time that was spent in the given <var>stage</var>, summed over all threads */
+        public long
+        getStageNanos(Stage stage) { return this.stageNanos[stage.ordinal()]; }
+
+        /** @return The slowest files and their processing times in nanoseconds, slowest first */
+        public List<Entry<String, Long>>
+        getSlowestFiles() { return this.slowestFiles; }
+
+        /** @return The average number of files per second since the metrics were created or reset */
+        public double
+        getFilesPerSecond() { return this.files * 1E9 / Math.max(1, this.elapsedNanos); }
+
+        /** @return The average number of bytes per second since the metrics were created or reset */
+        public double
+        getBytesPerSecond() { return this.bytes * 1E9 / Math.max(1, this.elapsedNanos); }
+
+        @Override public String
+        toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(
+                "%d files (%.1f/s), %d contents, %d bytes (%.1f MB/s), %d errors",
+                this.files,
+                this.getFilesPerSecond(),
+                this.contents,
+                this.bytes,
+                this.getBytesPerSecond() / 1E6,
+                this.errors
+            ));
+            for (Stage stage : Stage.values()) {
+                sb.append(String.format(", %s %d ms", stage, this.getStageNanos(stage) / 1000000));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -26,19 +26,34 @@
 
 package de.unkrig.commons.file.contentsprocessing;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 
@@ -47,12 +62,21 @@ import de.unkrig.commons.file.CompressUtil.ArchiveHandler;
 import de.unkrig.commons.file.CompressUtil.CompressorHandler;
 import de.unkrig.commons.file.CompressUtil.NormalContentsHandler;
 import de.unkrig.commons.file.ExceptionHandler;
+import de.unkrig.commons.file.FormatDetector;
+import de.unkrig.commons.file.FormatDetector.Signature;
+import de.unkrig.commons.file.MemoizationCache;
+import de.unkrig.commons.file.MemoizationCache.Computation;
+import de.unkrig.commons.file.ProcessingMetrics;
+import de.unkrig.commons.file.ProcessingMetrics.Span;
+import de.unkrig.commons.file.ProcessingMetrics.Stage;
 import de.unkrig.commons.file.fileprocessing.FileProcessings;
 import de.unkrig.commons.file.fileprocessing.FileProcessor;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.ZipFileArchiveInputStream;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
+import de.unkrig.commons.io.IoUtil;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.ExceptionUtil;
 import de.unkrig.commons.lang.protocol.HardReference;
@@ -74,6 +98,19 @@ class ContentsProcessings {
 
     private ContentsProcessings() {}
 
+    /**
+     * Iff a system property with this name is set, then its (integer) value configures up to which size {@link
+     * #memoizingContentsProcessor(ContentsProcessor, MemoizationCache)} spools contents in memory; larger contents
+     * are spooled to a temporary file. The default is 1048576 (1 MiB).
+     */
+    public static final String
+    SYSTEM_PROPERTY_MEMOIZATION_SPOOL_THRESHOLD = "ContentsProcessings.memoizationSpoolThreshold";
+
+    private static final int MEMOIZATION_SPOOL_THRESHOLD = Integer.getInteger(
+        ContentsProcessings.SYSTEM_PROPERTY_MEMOIZATION_SPOOL_THRESHOLD,
+        1 << 20
+    );
+
     /**
      * @return A {@link ContentsProcessor} that does not read any of the contents, and evaluates to {@code null}.
      */
@@ -104,6 +141,243 @@ class ContentsProcessings {
         @Override @Nullable public Object combine(String archivePath, List<Object> combinables) { return null; }
     };
 
+    /**
+     * Wraps the given <var>delegate</var> in a {@link ContentsProcessor} which reports the contents processing as
+     * the {@link Stage#CONTENTS CONTENTS} stage, and the reading of the contents as the {@link Stage#READ READ}
+     * stage to the <var>metrics</var>.
+     */
+    public static <T> ContentsProcessor<T>
+    meteringContentsProcessor(final ContentsProcessor<T> delegate, final ProcessingMetrics metrics) {
+
+        return new ContentsProcessor<T>() {
+
+            @Override @Nullable public T
+            process(
+                String                                                            path,
+                InputStream                                                       inputStream,
+                @Nullable Date                                                    lastModifiedDate,
+                long                                                              size,
+                long                                                              crc32,
+                ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+            ) throws IOException {
+
+                if (!metrics.isEnabled()) {
+                    return delegate.process(path, inputStream, lastModifiedDate, size, crc32, opener);
+                }
+
+                Span span = metrics.start(Stage.CONTENTS, null);
+                try {
+                    return delegate.process(
+                        path,
+                        metrics.meteredInputStream(inputStream),
+                        lastModifiedDate,
+                        size,
+                        crc32,
+                        opener
+                    );
+                } catch (IOException ioe) {
+                    metrics.countError();
+                    throw ioe;
+                } catch (RuntimeException re) {
+                    metrics.countError();
+                    throw re;
+                } finally {
+                    span.end();
+                }
+            }
+
+            @Override public String
+            toString() { return "metering(" + delegate + ")"; }
+        };
+    }
+
+    /**
+     * Wraps the given <var>delegate</var> in a {@link ContentsProcessor} which processes identical contents only
+     * once: The contents are read completely while their digest is computed (and are spooled in memory or, iff they
+     * are large, in a temporary file). Iff the <var>cache</var> holds a result for that digest, then that result is
+     * returned; otherwise the <var>delegate</var> processes the spooled contents, and its result is cached.
+     * <p>
+     *   Notice that the cached result is re-used for identical contents under <em>any</em> path; thus the result of
+     *   the <var>delegate</var> must not depend on the <var>path</var> (nor on the modification time).
+     * </p>
+     * <p>
+     *   To memoize also the results for nested archives and compressed contents, pass the <var>cache</var> to {@link
+     *   #recursiveCompressedAndArchiveContentsProcessor(Predicate, Predicate, ArchiveCombiner, ContentsProcessor,
+     *   MemoizationCache, ExceptionHandler)}.
+     * </p>
+     *
+     * @see MemoizationCache
+     * @see #SYSTEM_PROPERTY_MEMOIZATION_SPOOL_THRESHOLD
+     */
+    public static <T> ContentsProcessor<T>
+    memoizingContentsProcessor(final ContentsProcessor<T> delegate, final MemoizationCache<T> cache) {
+
+        return new ContentsProcessor<T>() {
+
+            @Override @Nullable public T
+            process(
+                final String                                                      path,
+                InputStream                                                       inputStream,
+                @Nullable final Date                                              lastModifiedDate,
+                long                                                              size,
+                final long                                                        crc32,
+                ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+            ) throws IOException {
+
+                MessageDigest md    = MemoizationCache.messageDigest();
+                final Spool   spool = Spool.of(new DigestInputStream(inputStream, md));
+                try {
+                    return cache.get(MemoizationCache.toString(md), new Computation<T>() {
+
+                        @Override @Nullable public T
+                        compute() throws IOException {
+                            InputStream is = spool.open();
+                            try {
+                                return delegate.process(
+                                    path,                                                 // path
+                                    is,                                                   // inputStream
+                                    lastModifiedDate,                                     // lastModifiedDate
+                                    spool.size(),                                         // size
+                                    crc32,                                                // crc32
+                                    new ProducerWhichThrows<InputStream, IOException>() { // opener
+
+                                        @Override @Nullable public InputStream
+                                        produce() throws IOException { return spool.open(); }
+                                    }
+                                );
+                            } finally {
+                                is.close();
+                            }
+                        }
+                    });
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                } finally {
+                    spool.delete();
+                }
+            }
+
+            @Override public String
+            toString() { return "memoizing(" + delegate + ")"; }
+        };
+    }
+
+    /**
+     * Holds contents in memory or, iff they are larger than the {@link #MEMOIZATION_SPOOL_THRESHOLD}, in a temporary
+     * file.
+     */
+    private static final
+    class Spool {
+
+        private final byte[]         buffer;
+        private final long           size;
+        @Nullable private final File file;
+
+        private
+        Spool(byte[] buffer, long size, @Nullable File file) {
+            this.buffer = buffer;
+            this.size   = size;
+            this.file   = file;
+        }
+
+        /**
+         * Reads the <var>inputStream</var> until end-of-input, but does not close it.
+         */
+        static Spool
+        of(InputStream inputStream) throws IOException {
+
+            byte[] buffer = new byte[(int) Math.min(8192L, ContentsProcessings.MEMOIZATION_SPOOL_THRESHOLD + 1L)];
+            int    n      = 0;
+            for (;;) {
+
+                if (n == buffer.length) {
+                    if (n > ContentsProcessings.MEMOIZATION_SPOOL_THRESHOLD) break;
+                    buffer = Arrays.copyOf(
+                        buffer,
+                        (int) Math.min(2L * n, ContentsProcessings.MEMOIZATION_SPOOL_THRESHOLD + 1L)
+                    );
+                }
+
+                int m = inputStream.read(buffer, n, buffer.length - n);
+                if (m == -1) return new Spool(buffer, n, null);
+                n += m;
+            }
+
+            // The contents are too large for the memory buffer; spill them into a temporary file.
+            File file = File.createTempFile("spool", null);
+            try {
+                OutputStream os = new FileOutputStream(file);
+                try {
+                    os.write(buffer, 0, n);
+                    IoUtil.copy(inputStream, os);
+                    os.close();
+                } finally {
+                    try { os.close(); } catch (Exception e) {}
+                }
+            } catch (IOException ioe) {
+                file.delete();
+                throw ioe;
+            } catch (RuntimeException re) {
+                file.delete();
+                throw re;
+            }
+
+            return new Spool(new byte[0], file.length(), file);
+        }
+
+        InputStream
+        open() throws IOException {
+            File file = this.file;
+            return (
+                file != null
+                ? new FileInputStream(file)
+                : new ByteArrayInputStream(this.buffer, 0, (int) this.size)
+            );
+        }
+
+        long
+        size() { return this.size; }
+
+        void
+        delete() {
+            File file = this.file;
+            if (file != null) file.delete();
+        }
+    }
+
+    /**
+     * Process the given <var>archiveInputStream</var> by feeding the contents of each archive entry through the given
+     * <var>contentsProcessor</var>.
+     * <p>
+     *   "Directory archive entries" are silently ignored, because they have no contents and thus it makes no sense to
+     *   process them with the <var>contentsProcessor</var>.
+     * </p>
+     *
+     * @param archiveOpener    Re-produces the archive input stream
+     * @param exceptionHandler Invoked if the <var>contentsProcessor</var> throws an exception; if it completes
+     *                         normally, then processing continues with the next archive entry
+     */
+    @Nullable public static <T> T
+    processArchive(
+        String                                                                         archivePath,
+        ArchiveInputStream                                                             archiveInputStream,
+        ContentsProcessor<T>                                                           contentsProcessor,
+        ArchiveCombiner<T>                                                             entryCombiner,
+        final ProducerWhichThrows<? extends ArchiveInputStream, ? extends IOException> archiveOpener,
+        ExceptionHandler<IOException>                                                  exceptionHandler
+    ) throws IOException {
+        return ContentsProcessings.processArchive(
+            archivePath,
+            archiveInputStream,
+            contentsProcessor,
+            entryCombiner,
+            archiveOpener,
+            null,             // squadExecutor
+            exceptionHandler
+        );
+    }
+
     /**
      * Process the given <var>archiveInputStream</var> by feeding the contents of each archive entry through the given
      * <var>contentsProcessor</var>.
@@ -111,8 +385,16 @@ class ContentsProcessings {
      *   "Directory archive entries" are silently ignored, because they have no contents and thus it makes no sense to
      *   process them with the <var>contentsProcessor</var>.
      * </p>
+     * <p>
+     *   Iff a <var>squadExecutor</var> is given, and the archive has a central directory (i.e. the
+     *   <var>archiveInputStream</var> is a {@link ZipFileArchiveInputStream}), then the entries are processed
+     *   <em>concurrently</em>, each task reading its own entry stream from the shared {@link ZipFile}. Otherwise the
+     *   entries are processed sequentially. Either way, the <var>entryCombiner</var> receives the results in entry
+     *   order.
+     * </p>
      *
      * @param archiveOpener    Re-produces the archive input stream
+     * @param squadExecutor    Executes the processing of the individual archive entries, or {@code null}
      * @param exceptionHandler Invoked if the <var>contentsProcessor</var> throws an exception; if it completes
      *                         normally, then processing continues with the next archive entry
      */
@@ -123,9 +405,20 @@ class ContentsProcessings {
         ContentsProcessor<T>                                                           contentsProcessor,
         ArchiveCombiner<T>                                                             entryCombiner,
         final ProducerWhichThrows<? extends ArchiveInputStream, ? extends IOException> archiveOpener,
+        @Nullable SquadExecutor<T>                                                     squadExecutor,
         ExceptionHandler<IOException>                                                  exceptionHandler
     ) throws IOException {
 
+        if (squadExecutor != null && archiveInputStream instanceof ZipFileArchiveInputStream) {
+            return entryCombiner.combine(archivePath, ContentsProcessings.processZipFileConcurrently(
+                archivePath,
+                ((ZipFileArchiveInputStream) archiveInputStream).getZipFile(),
+                contentsProcessor,
+                squadExecutor,
+                exceptionHandler
+            ));
+        }
+
         List<T> combinables = new ArrayList<T>();
         for (ArchiveEntry ae = archiveInputStream.getNextEntry(); ae != null; ae = archiveInputStream.getNextEntry()) {
 
@@ -304,6 +597,45 @@ class ContentsProcessings {
         final ArchiveCombiner<T>        archiveEntryCombiner,
         final ContentsProcessor<T>      normalContentsProcessor,
         ExceptionHandler<IOException>   exceptionHandler
+    ) {
+        return ContentsProcessings.recursiveCompressedAndArchiveContentsProcessor(
+            lookIntoFormat,          // lookIntoFormat
+            pathPredicate,           // pathPredicate
+            archiveEntryCombiner,    // archiveEntryCombiner
+            normalContentsProcessor, // normalContentsProcessor
+            null,                    // cache
+            exceptionHandler         // exceptionHandler
+        );
+    }
+
+    /**
+     * Like {@link #recursiveCompressedAndArchiveContentsProcessor(Predicate, Predicate, ArchiveCombiner,
+     * ContentsProcessor, ExceptionHandler)}, but memoizes the results for archives and compressed contents (on all
+     * nesting levels) in the <var>cache</var>, so that identical contents, e.g. the same JAR nested in many WARs, are
+     * processed only once.
+     * <p>
+     *   Only contents that passes the <var>pathPredicate</var> and that is actually looked into (see
+     *   <var>lookIntoFormat</var>) is memoized; all other contents is not spooled and digested, but processed
+     *   directly.
+     * </p>
+     * <p>
+     *   Notice that a memoized result is re-used for identical contents under <em>any</em> path; thus the results of
+     *   the <var>normalContentsProcessor</var> and the <var>archiveEntryCombiner</var> must not depend on the path,
+     *   and the <var>pathPredicate</var> and the <var>lookIntoFormat</var> predicate must evaluate identically for
+     *   the entries of identical archives and compressed contents, wherever these are located.
+     * </p>
+     *
+     * @param cache {@code null} means no memoization
+     * @see         #memoizingContentsProcessor(ContentsProcessor, MemoizationCache)
+     */
+    public static <T> ContentsProcessor<T>
+    recursiveCompressedAndArchiveContentsProcessor(
+        final Predicate<? super String> lookIntoFormat,
+        final Predicate<? super String> pathPredicate,
+        final ArchiveCombiner<T>        archiveEntryCombiner,
+        final ContentsProcessor<T>      normalContentsProcessor,
+        @Nullable MemoizationCache<T>   cache,
+        ExceptionHandler<IOException>   exceptionHandler
     ) {
         final HardReference<ContentsProcessor<T>> loopback = new HardReference<ContentsProcessor<T>>();
 
@@ -326,20 +658,162 @@ class ContentsProcessings {
         };
 
         ContentsProcessor<T> result = ContentsProcessings.compressedAndArchiveContentsProcessor(
-            lookIntoFormat,          // lookIntoFormat
-            pathPredicate,           // pathPredicate
-            tmp,                     // archiveContentsProcessor
-            archiveEntryCombiner,    // archiveEntryCombiner
-            tmp,                     // compressedContentsProcessor
-            normalContentsProcessor, // normalContentsProcessor
-            exceptionHandler         // exceptionHandler
+            lookIntoFormat,                 // lookIntoFormat
+            PredicateUtil.<String>always(), // pathPredicate
+            tmp,                            // archiveContentsProcessor
+            archiveEntryCombiner,           // archiveEntryCombiner
+            tmp,                            // compressedContentsProcessor
+            normalContentsProcessor,        // normalContentsProcessor
+            exceptionHandler                // exceptionHandler
         );
 
+        // Memoize only AFTER the path has been checked, so that the cached result does not depend on the path.
+        if (cache != null) {
+            result = ContentsProcessings.memoizingContainerContentsProcessor(lookIntoFormat, result, cache);
+        }
+
+        result = ContentsProcessings.select(pathPredicate, result);
+
         loopback.set(result);
 
         return result;
     }
 
+    /**
+     * Wraps the <var>delegate</var> such that only archive contents and compressed contents which are looked into
+     * (as determined through <var>lookIntoFormat</var>) are {@link #memoizingContentsProcessor(ContentsProcessor,
+     * MemoizationCache) memoized}; all other contents is passed to the <var>delegate</var> directly, i.e. without
+     * being spooled and digested.
+     */
+    private static <T> ContentsProcessor<T>
+    memoizingContainerContentsProcessor(
+        final Predicate<? super String> lookIntoFormat,
+        final ContentsProcessor<T>      delegate,
+        MemoizationCache<T>             cache
+    ) {
+
+        final ContentsProcessor<T> memoizing = ContentsProcessings.memoizingContentsProcessor(delegate, cache);
+
+        return new ContentsProcessor<T>() {
+
+            @Override @Nullable public T
+            process(
+                String                                                            path,
+                InputStream                                                       inputStream,
+                @Nullable Date                                                    lastModifiedDate,
+                long                                                              size,
+                long                                                              crc32,
+                ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+            ) throws IOException {
+
+                if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream);
+
+                // Determine the format exactly like "CompressUtil.processStream()" does.
+                Signature signature  = FormatDetector.peek(inputStream);
+                String    formatName = null;
+
+                ArchiveFormat af = signature.archiveFormat();
+                if (af != null) {
+                    formatName = af.getName();
+                } else {
+                    CompressionFormat cf = signature.compressionFormat();
+                    if (cf != null) formatName = cf.getName();
+                }
+
+                return (
+                    formatName != null && lookIntoFormat.evaluate(formatName + ':' + path)
+                    ? memoizing
+                    : delegate
+                ).process(path, inputStream, lastModifiedDate, size, crc32, opener);
+            }
+
+            @Override public String
+            toString() { return "memoizingContainers(" + delegate + ")"; }
+        };
+    }
+
+    /**
+     * Submits one task per (non-directory) entry of the <var>zipFile</var> to the <var>squadExecutor</var>, and
+     * waits until they complete.
+     *
+     * @return The results of the <var>contentsProcessor</var>, in the physical order of the entries
+     */
+    private static <T> List<T>
+    processZipFileConcurrently(
+        final String                        archivePath,
+        final ZipFile                       zipFile,
+        final ContentsProcessor<T>          contentsProcessor,
+        SquadExecutor<T>                    squadExecutor,
+        final ExceptionHandler<IOException> exceptionHandler
+    ) throws IOException {
+
+        // Submit callables that do the actual work for each entry.
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (Enumeration<ZipArchiveEntry> en = zipFile.getEntriesInPhysicalOrder(); en.hasMoreElements();) {
+            final ZipArchiveEntry zae = en.nextElement();
+
+            if (zae.isDirectory()) continue;
+
+            final String entryPath = archivePath + '!' + ArchiveFormatFactory.normalizeEntryName(zae.getName());
+
+            futures.add(squadExecutor.submit(new Callable<T>() {
+
+                @Override @Nullable public T
+                call() throws IOException {
+
+                    ProducerWhichThrows<? extends InputStream, ? extends IOException>
+                    opener = new ProducerWhichThrows<InputStream, IOException>() {
+
+                        @Override @Nullable public InputStream
+                        produce() throws IOException { return zipFile.getInputStream(zae); }
+                    };
+
+                    try {
+                        InputStream is = zipFile.getInputStream(zae);
+                        try {
+                            T result = contentsProcessor.process(
+                                entryPath,                 // path
+                                is,                        // inputStream
+                                zae.getLastModifiedDate(), // lastModifiedDate
+                                zae.getSize(),             // size
+                                zae.getCrc(),              // crc32
+                                opener                     // opener
+                            );
+                            is.close();
+                            return result;
+                        } finally {
+                            try { is.close(); } catch (Exception e) {}
+                        }
+                    } catch (IOException ioe) {
+                        exceptionHandler.handle(entryPath, ioe);
+                    } catch (RuntimeException re) {
+                        exceptionHandler.handle(entryPath, re);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        // Now wait until the callables complete and pick their results.
+        List<T> combinables = new ArrayList<T>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                combinables.add(future.get());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(archivePath);
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause; // SUPPRESS CHECKSTYLE AvoidHidingCause
+                }
+                throw new IllegalStateException(ee);
+            }
+        }
+
+        return combinables;
+    }
+
     /**
      * Creates and returns an {@link ArchiveHandler} which processes {@link ArchiveInputStream}s by feeding their
      * entries into the <var>contentsProcessor</var>.
@@ -35,6 +35,8 @@ import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.CompressorOutputStream;
@@ -44,20 +46,29 @@ import de.unkrig.commons.file.CompressUtil.ArchiveHandler;
 import de.unkrig.commons.file.CompressUtil.CompressorHandler;
 import de.unkrig.commons.file.CompressUtil.NormalContentsHandler;
 import de.unkrig.commons.file.ExceptionHandler;
+import de.unkrig.commons.file.ProcessingMetrics;
+import de.unkrig.commons.file.ProcessingMetrics.Span;
+import de.unkrig.commons.file.ProcessingMetrics.Stage;
 import de.unkrig.commons.file.filetransformation.FileTransformations;
 import de.unkrig.commons.file.filetransformation.FileTransformations.ArchiveCombiner;
 import de.unkrig.commons.file.filetransformation.FileTransformations.NameAndContents;
+import de.unkrig.commons.file.filetransformation.FileTransformer;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.ZipFileArchiveInputStream;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
 import de.unkrig.commons.io.ByteFilterInputStream;
 import de.unkrig.commons.io.ByteFilterOutputStream;
+import de.unkrig.commons.io.InputStreams;
 import de.unkrig.commons.io.IoUtil;
+import de.unkrig.commons.io.OutputStreams;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.ExceptionUtil;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.HardReference;
 import de.unkrig.commons.lang.protocol.Predicate;
+import de.unkrig.commons.lang.protocol.PredicateUtil;
+import de.unkrig.commons.lang.protocol.RunnableUtil;
 import de.unkrig.commons.nullanalysis.Nullable;
 import de.unkrig.commons.text.pattern.Glob;
 
@@ -86,6 +97,45 @@ class ContentsTransformations {
         toString() { return "COPY"; }
     };
 
+    /**
+     * Wraps the given <var>delegate</var> in a {@link ContentsTransformer} which reports the transformation as the
+     * {@link Stage#CONTENTS CONTENTS} stage, and the reading of the contents as the {@link Stage#READ READ} stage
+     * to the <var>metrics</var>.
+     */
+    public static ContentsTransformer
+    meteringContentsTransformer(final ContentsTransformer delegate, final ProcessingMetrics metrics) {
+
+        return new ContentsTransformer() {
+
+            @Override public void
+            transform(String path, InputStream is, OutputStream os) throws IOException {
+
+                if (!metrics.isEnabled()) {
+                    delegate.transform(path, is, os);
+                    return;
+                }
+
+                Span span = metrics.start(Stage.CONTENTS, null);
+                try {
+                    delegate.transform(path, metrics.meteredInputStream(is), os);
+                } catch (IOException ioe) {
+                    metrics.countError();
+                    throw ioe;
+                } catch (RuntimeException re) {
+
+                    // "NOT_IDENTICAL" is not an error, but signals a non-identical transformation in mode CHECK.
+                    if (re != FileTransformer.NOT_IDENTICAL) metrics.countError();
+                    throw re;
+                } finally {
+                    span.end();
+                }
+            }
+
+            @Override public String
+            toString() { return "metering(" + delegate + ")"; }
+        };
+    }
+
     /**
      * Returns a {@link ContentsTransformer} which transforms contents by feeding it through the {@code
      * normalContentsTransformer}, but automagically detects various archive and compression formats and processes the
@@ -218,6 +268,61 @@ class ContentsTransformations {
         final ArchiveCombiner           archiveCombiner,
         ExceptionHandler<IOException>   exceptionHandler
     ) throws IOException {
+        ContentsTransformations.transformArchive(
+            path,                   // path
+            archiveInputStream,     // archiveInputStream
+            archiveOutputStream,    // archiveOutputStream
+            archiveEntryRemoval,    // archiveEntryRemoval
+            archiveEntryRenaming,   // archiveEntryRenaming
+            contentsTransformer,    // contentsTransformer
+            archiveCombiner,        // archiveCombiner
+            PredicateUtil.never(),  // archiveEntryPassThrough
+            false,                  // passThroughUnchangedEntries
+            exceptionHandler        // exceptionHandler
+        );
+    }
+
+    /**
+     * Transforms the given <var>archiveInputStream</var> into the given <var>archiveOutputStream</var>, honoring the
+     * given <var>archiveEntryRemoval</var>, <var>archiveEntryRenaming</var> and <var>archiveEntryAddition</var>, and
+     * using the given <var>contentsTransformer</var>.
+     * <p>
+     *   Iff the <var>archiveInputStream</var> is a {@link ZipFileArchiveInputStream} and the
+     *   <var>archiveOutputStream</var> is a {@link ZipArchiveOutputStream}, then entries can be "passed through",
+     *   i.e. their compressed data is copied verbatim (with the original CRC and sizes) instead of being
+     *   decompressed, transformed and re-compressed. That applies to entries that are not renamed and for which
+     *   the <var>archiveEntryPassThrough</var> evaluates to {@code true} (the <var>contentsTransformer</var> is then
+     *   not invoked at all), and, iff <var>passThroughUnchangedEntries</var> is {@code true}, to entries that the
+     *   <var>contentsTransformer</var> does not modify. The latter is detected by first transforming the entry in
+     *   "check" mode (much like {@link de.unkrig.commons.file.filetransformation.FileTransformer.Mode#CHECK}); only
+     *   if the transformed contents turn out to be different, the entry is transformed a second time and re-encoded.
+     * </p>
+     *
+     * @param archiveEntryPassThrough     Whether to copy an entry verbatim; the subject is the path of the entry
+     * @param passThroughUnchangedEntries Whether to copy entries verbatim which the <var>contentsTransformer</var>
+     *                                    does not modify
+     */
+    public static void
+    transformArchive(
+        final String                    path,
+        final ArchiveInputStream        archiveInputStream,
+        final ArchiveOutputStream       archiveOutputStream,
+        final Predicate<? super String> archiveEntryRemoval,
+        final Glob                      archiveEntryRenaming,
+        final ContentsTransformer       contentsTransformer,
+        final ArchiveCombiner           archiveCombiner,
+        Predicate<? super String>       archiveEntryPassThrough,
+        boolean                         passThroughUnchangedEntries,
+        ExceptionHandler<IOException>   exceptionHandler
+    ) throws IOException {
+
+        // Raw entry copying is only possible from a ZIP file to a ZIP output stream.
+        final ZipFileArchiveInputStream zfais = (
+            archiveInputStream instanceof ZipFileArchiveInputStream
+            && archiveOutputStream instanceof ZipArchiveOutputStream
+            ? (ZipFileArchiveInputStream) archiveInputStream
+            : null
+        );
 
         @SuppressWarnings("deprecation") final ArchiveFormat
         outputFormat = ArchiveFormatFactory.forArchiveOutputStream(archiveOutputStream);
@@ -253,6 +358,25 @@ class ContentsTransformations {
 
             // Now append the entry to the output.
             try {
+
+                if (zfais != null && newName == null && !ae.isDirectory() && (
+                    archiveEntryPassThrough.evaluate(entryPath)
+                    || (passThroughUnchangedEntries && ContentsTransformations.isIdentity(
+                        entryPath,
+                        zfais,
+                        contentsTransformer
+                    ))
+                )) {
+                    InputStream ris = zfais.getRawInputStream();
+                    try {
+                        ((ZipArchiveOutputStream) archiveOutputStream).addRawArchiveEntry((ZipArchiveEntry) ae, ris);
+                        ris.close();
+                    } finally {
+                        try { ris.close(); } catch (Exception e) {}
+                    }
+                    continue;
+                }
+
                 outputFormat.writeEntry(
                     archiveOutputStream,
                     ae,
@@ -300,6 +424,40 @@ class ContentsTransformations {
         );
     }
 
+    /**
+     * Transforms the current entry of the <var>zfais</var> in "check" mode, and then rewinds the <var>zfais</var> to
+     * the beginning of the entry.
+     *
+     * @return Whether the <var>contentsTransformer</var> reproduces the entry's contents exactly
+     */
+    private static boolean
+    isIdentity(String entryPath, ZipFileArchiveInputStream zfais, ContentsTransformer contentsTransformer)
+    throws IOException {
+
+        try {
+            OutputStream[] oss = OutputStreams.compareOutput(2, RunnableUtil.NOP, FileTransformer.THROW_NOT_IDENTICAL);
+
+            InputStream is = InputStreams.wye(zfais, oss[0]);
+
+            contentsTransformer.transform(entryPath, is, oss[1]);
+
+            // Notice: If the transformer did not consume all of its input, then the rest of the input counts as
+            // "not reproduced".
+            IoUtil.copy(is, OutputStreams.DISCARD);
+
+            oss[0].close();
+            oss[1].close();
+
+            return true;
+        } catch (RuntimeException re) {
+            if (re != FileTransformer.NOT_IDENTICAL) throw re;
+
+            return false;
+        } finally {
+            zfais.rewindEntry();
+        }
+    }
+
     /**
      * Creates and returns an {@link ArchiveHandler} which transforms {@link ArchiveInputStream}s into {@link
      * ArchiveOutputStream}s, honoring the given <var>archiveEntryRemoval</var>, <var>archiveEntryRenaming</var> and
@@ -31,10 +31,12 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import de.unkrig.commons.file.FileUtil;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessor;
 import de.unkrig.commons.io.EventCounter;
 import de.unkrig.commons.io.ExponentiallyLoggingEventCounter;
@@ -50,7 +52,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * @param <T> The type that {@link #process(String, File)} returns; use "{@code Void}" if not needed
  */
 public
-class FileContentsProcessor<T> implements FileProcessor<T> {
+class FileContentsProcessor<T> implements AttributedFileProcessor<T> {
 
     private static final Logger
     LOGGER_INPUT_STREAM_STATISTICS = Logger.getLogger(FileContentsProcessor.class.getName() + ".inputStreamStatistics");
@@ -78,8 +80,23 @@ class FileContentsProcessor<T> implements FileProcessor<T> {
     @Override @Nullable public T
     process(String path, final File file) throws FileNotFoundException, IOException {
 
-        long lastModified     = file.lastModified();
-        Date lastModifiedDate = lastModified == 0 ? null : new Date(lastModified);
+        long lastModified = file.lastModified();
+
+        return this.process(path, file, lastModified == 0 ? null : new Date(lastModified), file.length());
+    }
+
+    /**
+     * Equivalent with {@link #process(String, File)}, but takes the modification time and the size from the
+     * <var>attributes</var> instead of querying the file system.
+     */
+    @Override @Nullable public T
+    process(String path, File file, BasicFileAttributes attributes) throws FileNotFoundException, IOException {
+        return this.process(path, file, FileUtil.lastModifiedDate(attributes), attributes.size());
+    }
+
+    @Nullable private T
+    process(String path, final File file, @Nullable Date lastModifiedDate, long size)
+    throws FileNotFoundException, IOException {
 
         InputStream is = FileContentsProcessor.fileInputStream(file);
         try {
@@ -87,7 +104,7 @@ class FileContentsProcessor<T> implements FileProcessor<T> {
                 file.getPath(),                                       // path
                 is,                                                   // inputStream
                 lastModifiedDate,                                     // lastModifiedDate
-                file.length(),                                        // size
+                size,                                                 // size
                 -1L,                                                  // crc32
                 new ProducerWhichThrows<InputStream, IOException>() { // opener
 
@@ -31,15 +31,23 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -53,6 +61,13 @@ import de.unkrig.commons.file.CompressUtil.ArchiveHandler;
 import de.unkrig.commons.file.CompressUtil.CompressorHandler;
 import de.unkrig.commons.file.CompressUtil.NormalContentsHandler;
 import de.unkrig.commons.file.ExceptionHandler;
+import de.unkrig.commons.file.FileChangeIndex;
+import de.unkrig.commons.file.FileUtil;
+import de.unkrig.commons.file.MemoizationCache;
+import de.unkrig.commons.file.MemoizationCache.Computation;
+import de.unkrig.commons.file.ProcessingMetrics;
+import de.unkrig.commons.file.ProcessingMetrics.Span;
+import de.unkrig.commons.file.ProcessingMetrics.Stage;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessings;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessings.ArchiveCombiner;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessor;
@@ -176,7 +191,7 @@ class FileProcessings {
 
         final HardReference<FileProcessor<T>> loopback = new HardReference<FileProcessor<T>>();
 
-        FileProcessor<T> directoryMemberProcessor = new FileProcessor<T>() {
+        FileProcessor<T> directoryMemberProcessor = new AttributedFileProcessor<T>() {
 
             @Override @Nullable public T
             process(String path, File file) throws IOException, InterruptedException {
@@ -184,6 +199,14 @@ class FileProcessings {
                 assert fp != null;
                 return fp.process(path, file);
             }
+
+            @Override @Nullable public T
+            process(String path, File file, BasicFileAttributes attributes)
+            throws IOException, InterruptedException {
+                FileProcessor<T> fp = loopback.get();
+                assert fp != null;
+                return FileProcessings.process(fp, path, file, attributes);
+            }
         };
 
         FileProcessor<T> result = FileProcessings.directoryProcessor(
@@ -239,7 +262,9 @@ class FileProcessings {
      *     <ul>
      *       <li>
      *         Iff, according to the <var>pathPredicate</var>, the directory can impossibly contain relevant documents,
-     *         {@code null} is returned.
+     *         {@code null} is returned. (If the <var>pathPredicate</var> is a {@link Glob}, then {@link
+     *         Glob#mayMatchBelow(String)} answers that question, so that e.g. directories that no include can
+     *         match are not listed at all.)
      *       </li>
      *       <li>Otherwise, the directory members are listed.</li>
      *       <li>
@@ -306,17 +331,17 @@ class FileProcessings {
                     new Object[] { directory, directoryPath }
                 );
 
-                String[] memberNames = directory.list();
-                if (memberNames == null) throw new IOException("'" + directory + "' is not a listable directory");
-
-                if (directoryMemberNameComparator != null) Arrays.sort(memberNames, directoryMemberNameComparator);
+                Map<String, BasicFileAttributes> members = FileProcessings.listMembers(
+                    directory,
+                    directoryMemberNameComparator,
+                    directoryMemberProcessor instanceof AttributedFileProcessor // prefetchAttributes
+                );
 
                 // Submit callables that do the actual work for each member.
-                List<Future<T>> futures = new ArrayList<Future<T>>(memberNames.length);
-                for (final String mn : memberNames) {
-
-                    // JRE11+MS WINDOWS replace colons (#003A) in member names with #F03A, for whatever reason.
-                    final String memberName = mn.replace((char) 0xf031, ':');
+                List<Future<T>> futures = new ArrayList<Future<T>>(members.size());
+                for (Map.Entry<String, BasicFileAttributes> e : members.entrySet()) {
+                    final String                        memberName       = e.getKey();
+                    @Nullable final BasicFileAttributes memberAttributes = e.getValue();
 
                     futures.add(squadExecutor.submit(new Callable<T>() {
 
@@ -326,7 +351,12 @@ class FileProcessings {
                             String memberPath = directoryPath + File.separatorChar + memberName;
 
                             try {
-                                return directoryMemberProcessor.process(memberPath, new File(directory, memberName));
+                                return FileProcessings.process(
+                                    directoryMemberProcessor,
+                                    memberPath,
+                                    new File(directory, memberName),
+                                    memberAttributes
+                                );
                             } catch (IOException ioe) {
                                 exceptionHandler.handle(memberPath, ioe);
                             } catch (RuntimeException re) {
@@ -338,7 +368,7 @@ class FileProcessings {
                 }
 
                 // Now wait until the callables complete and pick their results.
-                final List<T> combinables = new ArrayList<T>(memberNames.length);
+                final List<T> combinables = new ArrayList<T>(members.size());
                 for (Future<T> future : futures) {
                     try {
                         combinables.add(future.get());
@@ -356,25 +386,629 @@ class FileProcessings {
             }
         };
 
-        return new FileProcessor<T>() {
+        return FileProcessings.directoryOrRegularFileProcessor(
+            pathPredicate,
+            regularFileProcessor,
+            directoryProcessor,
+            includeDirs
+        );
+    }
+
+    /**
+     * @return A {@link FileProcessor} which passes directories to the <var>directoryProcessor</var> (iff the
+     *         <var>pathPredicate</var> says that the directory may contain relevant documents), and any other file
+     *         to the <var>regularFileProcessor</var>
+     */
+    private static <T> AttributedFileProcessor<T>
+    directoryOrRegularFileProcessor(
+        final Predicate<? super String> pathPredicate,
+        final FileProcessor<T>          regularFileProcessor,
+        final FileProcessor<T>          directoryProcessor,
+        final boolean                   includeDirs
+    ) {
+
+        return new AttributedFileProcessor<T>() {
 
             @Override @Nullable public T
             process(String path, File file) throws IOException, InterruptedException {
+                return this.process(path, file, file.isDirectory(), null);
+            }
+
+            @Override @Nullable public T
+            process(String path, File file, BasicFileAttributes attributes) throws IOException, InterruptedException {
+                return this.process(path, file, attributes.isDirectory(), attributes);
+            }
 
-                if (file.isDirectory()) {
+            @Nullable private T
+            process(String path, File file, boolean isDirectory, @Nullable BasicFileAttributes attributes)
+            throws IOException, InterruptedException {
 
-                    if (includeDirs) regularFileProcessor.process(path, file);
+                if (isDirectory) {
 
-                    return pathPredicate.evaluate(path + '/') ? directoryProcessor.process(path, file) : null;
+                    if (includeDirs) FileProcessings.process(regularFileProcessor, path, file, attributes);
+
+                    return (
+                        pathPredicate instanceof Glob
+                        ? ((Glob) pathPredicate).mayMatchBelow(path + '/')
+                        : pathPredicate.evaluate(path + '/')
+                    ) ? directoryProcessor.process(path, file) : null;
                 } else {
 
                     // As described in the method JAVADOC, the "pathPredicate" is *not* applied here!
-                    return regularFileProcessor.process(path, file);
+                    return FileProcessings.process(regularFileProcessor, path, file, attributes);
                 }
             }
         };
     }
 
+    /**
+     * Invokes {@link AttributedFileProcessor#process(String, File, BasicFileAttributes)} iff the
+     * <var>fileProcessor</var> is an {@link AttributedFileProcessor} and the <var>attributes</var> are not {@code
+     * null}, otherwise {@link FileProcessor#process(String, File)}.
+     */
+    @Nullable public static <T> T
+    process(FileProcessor<T> fileProcessor, String path, File file, @Nullable BasicFileAttributes attributes)
+    throws IOException, InterruptedException {
+        return (
+            attributes != null && fileProcessor instanceof AttributedFileProcessor
+            ? ((AttributedFileProcessor<T>) fileProcessor).process(path, file, attributes)
+            : fileProcessor.process(path, file)
+        );
+    }
+
+    /**
+     * Lists the members of the <var>directory</var>, optionally sorts them, and optionally reads their attributes.
+     *
+     * @return Maps the member names to their attributes (or to {@code null} iff <var>prefetchAttributes</var> is
+     *         {@code false}), in iteration order
+     */
+    private static Map<String, BasicFileAttributes>
+    listMembers(
+        File                                 directory,
+        @Nullable Comparator<? super String> directoryMemberNameComparator,
+        boolean                              prefetchAttributes
+    ) throws IOException {
+
+        Map<String, BasicFileAttributes> result;
+        if (prefetchAttributes) {
+            try {
+                result = FileUtil.listMembers(directory, directoryMemberNameComparator);
+            } catch (IOException ioe) {
+                throw new IOException("'" + directory + "' is not a listable directory", ioe);
+            }
+        } else {
+            String[] memberNames = directory.list();
+            if (memberNames == null) throw new IOException("'" + directory + "' is not a listable directory");
+
+            FileUtil.sortNames(memberNames, directoryMemberNameComparator);
+
+            result = new LinkedHashMap<String, BasicFileAttributes>();
+            for (String memberName : memberNames) result.put(memberName, null);
+        }
+
+        // JRE11+MS WINDOWS replace colons (#003A) in member names with #F03A, for whatever reason.
+        boolean hasF031 = false;
+        for (String memberName : result.keySet()) hasF031 |= memberName.indexOf(0xf031) != -1;
+        if (hasF031) {
+            Map<String, BasicFileAttributes> tmp = new LinkedHashMap<String, BasicFileAttributes>();
+            for (Map.Entry<String, BasicFileAttributes> e : result.entrySet()) {
+                tmp.put(e.getKey().replace((char) 0xf031, ':'), e.getValue());
+            }
+            result = tmp;
+        }
+
+        return result;
+    }
+
+    /**
+     * Equivalent with {@link #directoryTreeProcessor(Predicate, FileProcessor, Comparator, DirectoryCombiner, boolean,
+     * SquadExecutor, ExceptionHandler)}, except that independent subtrees are processed by the given {@link
+     * ForkJoinPool}; see {@link #directoryProcessor(Predicate, FileProcessor, Comparator, FileProcessor,
+     * DirectoryCombiner, boolean, ForkJoinPool, int, ExceptionHandler)}.
+     */
+    public static <T> FileProcessor<T>
+    directoryTreeProcessor(
+        Predicate<? super String>            pathPredicate,
+        FileProcessor<T>                     regularFileProcessor,
+        @Nullable Comparator<? super String> directoryMemberNameComparator,
+        DirectoryCombiner<T>                 directoryCombiner,
+        boolean                              includeDirs,
+        ForkJoinPool                         forkJoinPool,
+        int                                  maxOpenFiles,
+        ExceptionHandler<IOException>        exceptionHandler
+    ) {
+
+        final HardReference<FileProcessor<T>> loopback = new HardReference<FileProcessor<T>>();
+
+        FileProcessor<T> directoryMemberProcessor = new AttributedFileProcessor<T>() {
+
+            @Override @Nullable public T
+            process(String path, File file) throws IOException, InterruptedException {
+                FileProcessor<T> fp = loopback.get();
+                assert fp != null;
+                return fp.process(path, file);
+            }
+
+            @Override @Nullable public T
+            process(String path, File file, BasicFileAttributes attributes)
+            throws IOException, InterruptedException {
+                FileProcessor<T> fp = loopback.get();
+                assert fp != null;
+                return FileProcessings.process(fp, path, file, attributes);
+            }
+        };
+
+        FileProcessor<T> result = FileProcessings.directoryProcessor(
+            pathPredicate,
+            regularFileProcessor,
+            directoryMemberNameComparator,
+            directoryMemberProcessor,
+            directoryCombiner,
+            includeDirs,
+            forkJoinPool,
+            maxOpenFiles,
+            exceptionHandler
+        );
+
+        loopback.set(result);
+
+        return result;
+    }
+
+    /**
+     * Equivalent with {@link #directoryProcessor(Predicate, FileProcessor, Comparator, FileProcessor,
+     * DirectoryCombiner, boolean, SquadExecutor, ExceptionHandler)}, except that the directory members are processed
+     * as {@link ForkJoinTask}s of the <var>forkJoinPool</var>.
+     * <p>
+     *   Other than with a {@link SquadExecutor}, a thread that waits for the members of a directory does not sit idle
+     *   (and, with a bounded thread pool, does not starve or deadlock the traversal), but executes pending tasks
+     *   itself ("work stealing"), so that even very deep and very wide trees are processed with a constant number of
+     *   threads.
+     * </p>
+     * <p>
+     *   The order of the results passed to the <var>directoryCombiner</var> is exactly the same as with the
+     *   sequential traversal, i.e. the order of the (optionally sorted) directory members.
+     * </p>
+     *
+     * @param maxOpenFiles The maximum number of concurrent invocations of the <var>regularFileProcessor</var>, which
+     *                     typically open the file; {@code 0} means "unlimited"
+     */
+    public static <T> FileProcessor<T>
+    directoryProcessor(
+        final Predicate<? super String>            pathPredicate,
+        FileProcessor<T>                           regularFileProcessor,
+        @Nullable final Comparator<? super String> directoryMemberNameComparator,
+        final FileProcessor<T>                     directoryMemberProcessor,
+        final DirectoryCombiner<T>                 directoryCombiner,
+        final boolean                              includeDirs,
+        final ForkJoinPool                         forkJoinPool,
+        int                                        maxOpenFiles,
+        final ExceptionHandler<IOException>        exceptionHandler
+    ) {
+
+        final FileProcessor<T>
+        regularFileProcessor2 = maxOpenFiles == 0 ? regularFileProcessor : FileProcessings.limitConcurrency(
+            regularFileProcessor,
+            new Semaphore(maxOpenFiles)
+        );
+
+        final FileProcessor<T> directoryProcessor = new FileProcessor<T>() {
+
+            @Override @Nullable public T
+            process(final String directoryPath, final File directory) throws IOException, InterruptedException {
+
+                FileProcessings.LOGGER.log(
+                    Level.FINER,
+                    "Processing directory \"{0}\" (path is \"{1}\")",
+                    new Object[] { directory, directoryPath }
+                );
+
+                Map<String, BasicFileAttributes> members = FileProcessings.listMembers(
+                    directory,
+                    directoryMemberNameComparator,
+                    directoryMemberProcessor instanceof AttributedFileProcessor // prefetchAttributes
+                );
+                String[]              memberNames      = members.keySet().toArray(new String[members.size()]);
+                BasicFileAttributes[] memberAttributes = members.values().toArray(
+                    new BasicFileAttributes[members.size()]
+                );
+
+                @SuppressWarnings("unchecked") T[] results = (T[]) new Object[memberNames.length];
+
+                FileProcessings.processMembers(
+                    directoryPath,
+                    directory,
+                    memberNames,
+                    memberAttributes,
+                    results,
+                    directoryMemberProcessor,
+                    forkJoinPool,
+                    exceptionHandler
+                );
+
+                // Now call the "directory combiner" with the directory members' results.
+                return directoryCombiner.combine(directoryPath, directory, Arrays.asList(results));
+            }
+        };
+
+        return FileProcessings.directoryOrRegularFileProcessor(
+            pathPredicate,
+            regularFileProcessor2,
+            directoryProcessor,
+            includeDirs
+        );
+    }
+
+    /**
+     * Processes the named members of the <var>directory</var> concurrently, as {@link ForkJoinTask}s of the
+     * <var>forkJoinPool</var>. Exceptions that the <var>directoryMemberProcessor</var> throws for a member are
+     * reported to the <var>exceptionHandler</var>, and the remaining members are processed nonetheless.
+     *
+     * @param memberAttributes The attributes of the members, or {@code null} elements
+     * @param results          Receives the members' results, or {@code null}
+     * @return                 The number of members that could not be processed (and were reported to the
+     *                         <var>exceptionHandler</var>) in <em>this</em> invocation
+     * @throws IOException     The <var>exceptionHandler</var> threw an exception
+     */
+    public static <T> int
+    processMembers(
+        String                        directoryPath,
+        File                          directory,
+        String[]                      memberNames,
+        BasicFileAttributes[]         memberAttributes,
+        @Nullable T[]                 results,
+        FileProcessor<T>              directoryMemberProcessor,
+        ForkJoinPool                  forkJoinPool,
+        ExceptionHandler<IOException> exceptionHandler
+    ) throws IOException, InterruptedException {
+
+        MembersTask<T> task = new MembersTask<T>(
+            directoryPath,
+            directory,
+            memberNames,
+            memberAttributes,
+            0,
+            memberNames.length,
+            results,
+            directoryMemberProcessor,
+            exceptionHandler,
+            new AtomicInteger()
+        );
+
+        try {
+
+            // Iff we're already executing in the pool, then process the members as subtasks, so that this thread
+            // "steals" work instead of blocking.
+            if (ForkJoinTask.getPool() == forkJoinPool) {
+                task.invoke();
+            } else {
+                forkJoinPool.invoke(task);
+            }
+        } catch (RuntimeException re) {
+            throw FileProcessings.unwrap(re);
+        }
+
+        return task.failures.get();
+    }
+
+    /**
+     * Processes the members <var>from</var> ... <var>to</var>-1 of a directory, by splitting the range in halves until
+     * only one member is left.
+     */
+    private static
+    class MembersTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String                        directoryPath;
+        private final File                          directory;
+        private final String[]                      memberNames;
+        private final BasicFileAttributes[]         memberAttributes;
+        private final int                           from, to;
+        @Nullable private final T[]                 results;
+        private final FileProcessor<T>              directoryMemberProcessor;
+        private final ExceptionHandler<IOException> exceptionHandler;
+
+        /**
+         * Shared by all subtasks; counts the members that could not be processed.
+         */
+        final AtomicInteger failures;
+
+        MembersTask(
+            String                        directoryPath,
+            File                          directory,
+            String[]                      memberNames,
+            BasicFileAttributes[]         memberAttributes,
+            int                           from,
+            int                           to,
+            @Nullable T[]                 results,
+            FileProcessor<T>              directoryMemberProcessor,
+            ExceptionHandler<IOException> exceptionHandler,
+            AtomicInteger                 failures
+        ) {
+            this.directoryPath            = directoryPath;
+            this.directory                = directory;
+            this.memberNames              = memberNames;
+            this.memberAttributes         = memberAttributes;
+            this.from                     = from;
+            this.to                       = to;
+            this.results                  = results;
+            this.directoryMemberProcessor = directoryMemberProcessor;
+            this.exceptionHandler         = exceptionHandler;
+            this.failures                 = failures;
+        }
+
+        @Override protected void
+        compute() {
+
+            if (this.to - this.from > 1) {
+                int mid = (this.from + this.to) >>> 1;
+                ForkJoinTask.invokeAll(this.subtask(this.from, mid), this.subtask(mid, this.to));
+                return;
+            }
+
+            if (this.to == this.from) return;
+
+            String memberName = this.memberNames[this.from];
+            String memberPath = this.directoryPath + File.separatorChar + memberName;
+
+            try {
+                try {
+                    T result = FileProcessings.process(
+                        this.directoryMemberProcessor,
+                        memberPath,
+                        new File(this.directory, memberName),
+                        this.memberAttributes[this.from]
+                    );
+
+                    T[] results = this.results;
+                    if (results != null) results[this.from] = result;
+                } catch (IOException ioe) {
+                    this.failures.incrementAndGet();
+                    this.exceptionHandler.handle(memberPath, ioe);
+                } catch (CheckedExceptionWrapper cew) {
+                    throw cew;
+                } catch (RuntimeException re) {
+                    this.failures.incrementAndGet();
+                    this.exceptionHandler.handle(memberPath, re);
+                }
+            } catch (IOException ioe) {
+                throw new CheckedExceptionWrapper(ioe);
+            } catch (InterruptedException ie) {
+                throw new CheckedExceptionWrapper(ie);
+            }
+        }
+
+        private MembersTask<T>
+        subtask(int from, int to) {
+            return new MembersTask<T>(
+                this.directoryPath,
+                this.directory,
+                this.memberNames,
+                this.memberAttributes,
+                from,
+                to,
+                this.results,
+                this.directoryMemberProcessor,
+                this.exceptionHandler,
+                this.failures
+            );
+        }
+    }
+
+    /**
+     * Transports an {@link IOException} or an {@link InterruptedException} out of a {@link ForkJoinTask}.
+     */
+    private static
+    class CheckedExceptionWrapper extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        CheckedExceptionWrapper(Exception cause) { super(cause); }
+    }
+
+    /**
+     * @return The <var>re</var>, or, iff it is a {@link CheckedExceptionWrapper}, throws the wrapped checked exception
+     */
+    private static RuntimeException
+    unwrap(RuntimeException re) throws IOException, InterruptedException {
+
+        // Notice: The fork/join framework may have re-created the exception in the joining thread, so walk the
+        // cause chain.
+        for (Throwable t = re; t != null; t = t.getCause()) {
+            if (t instanceof CheckedExceptionWrapper) {
+                Throwable cause = t.getCause();
+                if (cause instanceof IOException)          throw (IOException) cause;
+                if (cause instanceof InterruptedException) throw (InterruptedException) cause;
+            }
+        }
+
+        return re;
+    }
+
+    /**
+     * @return A {@link FileProcessor} which acquires a permit from the <var>semaphore</var> before it invokes the
+     *         <var>delegate</var>; when executing in a {@link ForkJoinPool}, the pool is notified of the blocking,
+     *         so that it can activate a spare thread
+     */
+    private static <T> FileProcessor<T>
+    limitConcurrency(final FileProcessor<T> delegate, final Semaphore semaphore) {
+
+        final ForkJoinPool.ManagedBlocker permitAcquirer = new ForkJoinPool.ManagedBlocker() {
+
+            @Override public boolean
+            block() throws InterruptedException {
+                semaphore.acquire();
+                return true;
+            }
+
+            @Override public boolean
+            isReleasable() { return semaphore.tryAcquire(); }
+        };
+
+        return new AttributedFileProcessor<T>() {
+
+            @Override @Nullable public T
+            process(String path, File file) throws IOException, InterruptedException {
+
+                ForkJoinPool.managedBlock(permitAcquirer);
+                try {
+                    return delegate.process(path, file);
+                } finally {
+                    semaphore.release();
+                }
+            }
+
+            @Override @Nullable public T
+            process(String path, File file, BasicFileAttributes attributes) throws IOException, InterruptedException {
+
+                ForkJoinPool.managedBlock(permitAcquirer);
+                try {
+                    return FileProcessings.process(delegate, path, file, attributes);
+                } finally {
+                    semaphore.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the given <var>delegate</var> in a {@link FileProcessor} which skips regular files that have not changed
+     * since they were last processed successfully, according to the <var>index</var>; for these files {@code null} is
+     * returned.
+     * <p>
+     *   Typically the returned processor is used as the <var>regularFileProcessor</var> of a {@link
+     *   #directoryTreeProcessor(Predicate, FileProcessor, Comparator, DirectoryCombiner, boolean, SquadExecutor,
+     *   ExceptionHandler) directory tree processor}; notice that the index must be {@link FileChangeIndex#commit()
+     *   committed} at the end of the run.
+     * </p>
+     */
+    public static <T> FileProcessor<T>
+    changeTrackingFileProcessor(final FileProcessor<T> delegate, final FileChangeIndex index) {
+
+        return new AttributedFileProcessor<T>() {
+
+            @Override @Nullable public T
+            process(String path, File file) throws IOException, InterruptedException {
+                return this.process(path, file, FileUtil.readAttributes(file));
+            }
+
+            @Override @Nullable public T
+            process(String path, File file, BasicFileAttributes attributes) throws IOException, InterruptedException {
+
+                if (!attributes.isRegularFile()) return FileProcessings.process(delegate, path, file, attributes);
+
+                if (index.isUnchanged(file, attributes)) return null;
+
+                T result = FileProcessings.process(delegate, path, file, attributes);
+
+                index.update(file, attributes);
+
+                return result;
+            }
+
+            @Override public String
+            toString() { return "changeTracking(" + delegate + ")"; }
+        };
+    }
+
+    /**
+     * Wraps the given <var>delegate</var> in a {@link FileProcessor} which processes regular files with identical
+     * contents only once, and returns the cached result for the others. The digest of a file's contents is computed
+     * only iff its path, size or modification time changed (see {@link MemoizationCache#fileDigest(File,
+     * BasicFileAttributes)}).
+     *
+     * @see MemoizationCache
+     */
+    public static <T> FileProcessor<T>
+    memoizingFileProcessor(final FileProcessor<T> delegate, final MemoizationCache<T> cache) {
+
+        return new AttributedFileProcessor<T>() {
+
+            @Override @Nullable public T
+            process(String path, File file) throws IOException, InterruptedException {
+                return this.process(path, file, FileUtil.readAttributes(file));
+            }
+
+            @Override @Nullable public T
+            process(final String path, final File file, final BasicFileAttributes attributes)
+            throws IOException, InterruptedException {
+
+                if (!attributes.isRegularFile()) return FileProcessings.process(delegate, path, file, attributes);
+
+                return cache.get(cache.fileDigest(file, attributes), new Computation<T>() {
+
+                    @Override @Nullable public T
+                    compute() throws IOException, InterruptedException {
+                        return FileProcessings.process(delegate, path, file, attributes);
+                    }
+                });
+            }
+
+            @Override public String
+            toString() { return "memoizing(" + delegate + ")"; }
+        };
+    }
+
+    /**
+     * Wraps the given <var>delegate</var> in a {@link FileProcessor} which reports the processing of each file as
+     * the {@link Stage#FILE FILE} stage to the <var>metrics</var>. Format detection, archive and compressed
+     * processing that the <var>delegate</var> executes through {@link CompressUtil} are reported to the same
+     * <var>metrics</var>.
+     * <p>
+     *   Typically the returned processor is used as the <var>regularFileProcessor</var> of a {@link
+     *   #directoryTreeProcessor(Predicate, FileProcessor, Comparator, DirectoryCombiner, boolean, SquadExecutor,
+     *   ExceptionHandler) directory tree processor}.
+     * </p>
+     */
+    public static <T> FileProcessor<T>
+    meteringFileProcessor(final FileProcessor<T> delegate, final ProcessingMetrics metrics) {
+
+        return new AttributedFileProcessor<T>() {
+
+            @Override @Nullable public T
+            process(String path, File file) throws IOException, InterruptedException {
+
+                if (!metrics.isEnabled()) return delegate.process(path, file);
+
+                Span span = metrics.start(Stage.FILE, path);
+                try {
+                    return delegate.process(path, file);
+                } catch (IOException ioe) {
+                    metrics.countError();
+                    throw ioe;
+                } catch (RuntimeException re) {
+                    metrics.countError();
+                    throw re;
+                } finally {
+                    span.end();
+                }
+            }
+
+            @Override @Nullable public T
+            process(String path, File file, BasicFileAttributes attributes) throws IOException, InterruptedException {
+
+                if (!metrics.isEnabled()) return FileProcessings.process(delegate, path, file, attributes);
+
+                Span span = metrics.start(Stage.FILE, path);
+                try {
+                    return FileProcessings.process(delegate, path, file, attributes);
+                } catch (IOException ioe) {
+                    metrics.countError();
+                    throw ioe;
+                } catch (RuntimeException re) {
+                    metrics.countError();
+                    throw re;
+                } finally {
+                    span.end();
+                }
+            }
+
+            @Override public String
+            toString() { return "metering(" + delegate + ")"; }
+        };
+    }
+
     /**
      * Transforms the return values of the invocations of <var>directoryMemberProcessor</var> for each member.
      *
@@ -443,21 +1077,63 @@ class FileProcessings {
         final ContentsProcessor<T>          normalContentsProcessor,
         final ExceptionHandler<IOException> exceptionHandler
     ) {
+        return FileProcessings.compressedAndArchiveFileProcessor(
+            lookIntoFormat,              // lookIntoFormat
+            pathPredicate,               // pathPredicate
+            archiveContentsProcessor,    // archiveContentsProcessor
+            archiveEntryCombiner,        // archiveEntryCombiner
+            compressedContentsProcessor, // compressedContentsProcessor
+            normalContentsProcessor,     // normalContentsProcessor
+            null,                        // archiveEntrySquadExecutor
+            exceptionHandler             // exceptionHandler
+        );
+    }
+
+    /**
+     * Like {@link #compressedAndArchiveFileProcessor(Predicate, Predicate, ContentsProcessor, ArchiveCombiner,
+     * ContentsProcessor, ContentsProcessor, ExceptionHandler)}, but processes the entries of ZIP and JAR files
+     * concurrently.
+     *
+     * @param archiveEntrySquadExecutor Processes the entries of archive files with a central directory; {@code null}
+     *                                  means to process all archive entries sequentially
+     * @see                             ContentsProcessings#processArchive(String, ArchiveInputStream,
+     *                                  ContentsProcessor, ArchiveCombiner, ProducerWhichThrows, SquadExecutor,
+     *                                  ExceptionHandler)
+     */
+    public static <T> FileProcessor<T>
+    compressedAndArchiveFileProcessor(
+        final Predicate<? super String>     lookIntoFormat,
+        Predicate<? super String>           pathPredicate,
+        final ContentsProcessor<T>          archiveContentsProcessor,
+        final ArchiveCombiner<T>            archiveEntryCombiner,
+        final ContentsProcessor<T>          compressedContentsProcessor,
+        final ContentsProcessor<T>          normalContentsProcessor,
+        @Nullable final SquadExecutor<T>    archiveEntrySquadExecutor,
+        final ExceptionHandler<IOException> exceptionHandler
+    ) {
+
+        return FileProcessings.select(pathPredicate, new AttributedFileProcessor<T>() {
 
-        return FileProcessings.select(pathPredicate, new FileProcessor<T>() {
+            @Override @Nullable public T
+            process(String path, File file) throws FileNotFoundException, IOException {
+                return this.process(path, file, null);
+            }
 
             @Override @Nullable public T
-            process(final String path, final File file) throws FileNotFoundException, IOException {
+            process(final String path, final File file, @Nullable BasicFileAttributes attributes)
+            throws FileNotFoundException, IOException {
 
                 return CompressUtil.<T>processFile(
                     path,
                     file,                                     // file
+                    attributes,                               // attributes
                     lookIntoFormat,                           // lookIntoFormat
                     FileProcessings.<T>archiveHandler(        // archiveHandler
                         path,
                         archiveContentsProcessor,
                         archiveEntryCombiner,
                         file,
+                        archiveEntrySquadExecutor,
                         exceptionHandler
                     ),
                     FileProcessings.<T>compressorHandler(     // compressorHandler
@@ -518,23 +1194,90 @@ class FileProcessings {
         final ContentsProcessor<T>          delegate,
         final ExceptionHandler<IOException> exceptionHandler
     ) {
+        return FileProcessings.recursiveCompressedAndArchiveFileProcessor(
+            lookIntoFormat,       // lookIntoFormat
+            pathPredicate,        // pathPredicate
+            archiveEntryCombiner, // archiveEntryCombiner
+            delegate,             // delegate
+            null,                 // archiveEntrySquadExecutor
+            exceptionHandler      // exceptionHandler
+        );
+    }
+
+    /**
+     * Like {@link #recursiveCompressedAndArchiveFileProcessor(Predicate, Predicate, ArchiveCombiner,
+     * ContentsProcessor, ExceptionHandler)}, but processes the entries of (top-level) ZIP and JAR files
+     * concurrently. (Entries of <em>nested</em> archives are always processed sequentially.)
+     *
+     * @param archiveEntrySquadExecutor {@code null} means to process all archive entries sequentially
+     */
+    public static <T> FileProcessor<T>
+    recursiveCompressedAndArchiveFileProcessor(
+        final Predicate<? super String>     lookIntoFormat,
+        final Predicate<? super String>     pathPredicate,
+        ArchiveCombiner<T>                  archiveEntryCombiner,
+        final ContentsProcessor<T>          delegate,
+        @Nullable SquadExecutor<T>          archiveEntrySquadExecutor,
+        final ExceptionHandler<IOException> exceptionHandler
+    ) {
+        return FileProcessings.recursiveCompressedAndArchiveFileProcessor(
+            lookIntoFormat,            // lookIntoFormat
+            pathPredicate,             // pathPredicate
+            archiveEntryCombiner,      // archiveEntryCombiner
+            delegate,                  // delegate
+            archiveEntrySquadExecutor, // archiveEntrySquadExecutor
+            null,                      // cache
+            exceptionHandler           // exceptionHandler
+        );
+    }
+
+    /**
+     * Like {@link #recursiveCompressedAndArchiveFileProcessor(Predicate, Predicate, ArchiveCombiner,
+     * ContentsProcessor, SquadExecutor, ExceptionHandler)}, but memoizes the results for files, and for nested
+     * archives and compressed contents (on all nesting levels) in the <var>cache</var>, so that identical contents,
+     * e.g. the same JAR as a file and nested in many WARs, are processed only once.
+     * <p>
+     *   Notice that a memoized result is re-used for identical contents under <em>any</em> path; see {@link
+     *   ContentsProcessings#recursiveCompressedAndArchiveContentsProcessor(Predicate, Predicate, ArchiveCombiner,
+     *   ContentsProcessor, MemoizationCache, ExceptionHandler)} for the implications.
+     * </p>
+     *
+     * @param cache {@code null} means no memoization
+     * @see         #memoizingFileProcessor(FileProcessor, MemoizationCache)
+     * @see         ContentsProcessings#memoizingContentsProcessor(ContentsProcessor, MemoizationCache)
+     */
+    public static <T> FileProcessor<T>
+    recursiveCompressedAndArchiveFileProcessor(
+        final Predicate<? super String>     lookIntoFormat,
+        final Predicate<? super String>     pathPredicate,
+        ArchiveCombiner<T>                  archiveEntryCombiner,
+        final ContentsProcessor<T>          delegate,
+        @Nullable SquadExecutor<T>          archiveEntrySquadExecutor,
+        @Nullable MemoizationCache<T>       cache,
+        final ExceptionHandler<IOException> exceptionHandler
+    ) {
 
         ContentsProcessor<T> tmp = ContentsProcessings.recursiveCompressedAndArchiveContentsProcessor(
             lookIntoFormat,
             pathPredicate,
             archiveEntryCombiner,
             delegate,
+            cache,
             exceptionHandler
         );
 
-        return FileProcessings.archiveCompressedAndNormalFileProcessor(
-            lookIntoFormat,       // lookIntoFormat
-            tmp,                  // archiveContentsProcessor
-            archiveEntryCombiner, // archiveEntryCombiner
-            tmp,                  // compressedContentsProcessor
-            delegate,             // normalContentsProcessor
-            exceptionHandler      // exceptionHandler
+        FileProcessor<T> result = FileProcessings.compressedAndArchiveFileProcessor(
+            lookIntoFormat,                 // lookIntoFormat
+            PredicateUtil.<String>always(), // pathPredicate
+            tmp,                            // archiveContentsProcessor
+            archiveEntryCombiner,           // archiveEntryCombiner
+            tmp,                            // compressedContentsProcessor
+            delegate,                       // normalContentsProcessor
+            archiveEntrySquadExecutor,      // archiveEntrySquadExecutor
+            exceptionHandler                // exceptionHandler
         );
+
+        return cache == null ? result : FileProcessings.memoizingFileProcessor(result, cache);
     }
 
     private static <T> ArchiveHandler<T>
@@ -543,6 +1286,7 @@ class FileProcessings {
         final ContentsProcessor<T>          contentsProcessor,
         final ArchiveCombiner<T>            archiveEntryCombiner,
         final File                          archiveFile,
+        @Nullable final SquadExecutor<T>    squadExecutor,
         final ExceptionHandler<IOException> exceptionHandler
     ) {
 
@@ -570,6 +1314,7 @@ class FileProcessings {
                             }
                         }
                     },
+                    squadExecutor,                                               // squadExecutor
                     exceptionHandler                                             // exceptionHandler
                 );
             }
@@ -28,6 +28,7 @@ package de.unkrig.commons.file.fileprocessing;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import de.unkrig.commons.lang.protocol.Predicate;
 import de.unkrig.commons.nullanalysis.Nullable;
@@ -38,7 +39,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * @param <T> Type returned by {@link #process(String, File)}
  */
 public
-class SelectiveFileProcessor<T> implements FileProcessor<T> {
+class SelectiveFileProcessor<T> implements AttributedFileProcessor<T> {
 
     private final Predicate<? super String> pathPredicate;
     private final FileProcessor<T>          delegate1, delegate2;
@@ -64,6 +65,16 @@ class SelectiveFileProcessor<T> implements FileProcessor<T> {
         }
     }
 
+    @Override @Nullable public T
+    process(String path, File file, BasicFileAttributes attributes) throws IOException, InterruptedException {
+
+        if (this.pathPredicate.evaluate(path)) {
+            return FileProcessings.process(this.delegate1, path, file, attributes);
+        } else {
+            return FileProcessings.process(this.delegate2, path, file, attributes);
+        }
+    }
+
     @Override public String
     toString() { return this.pathPredicate + " ? (" + this.delegate1 + ") : (" + this.delegate2 + ")"; }
 }
@@ -28,13 +28,22 @@ package de.unkrig.commons.file.filetransformation;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.Collator;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.unkrig.commons.file.ExceptionHandler;
 import de.unkrig.commons.file.FileUtil;
+import de.unkrig.commons.file.fileprocessing.AttributedFileProcessor;
+import de.unkrig.commons.file.fileprocessing.FileProcessings;
 import de.unkrig.commons.file.filetransformation.FileTransformations.DirectoryCombiner;
 import de.unkrig.commons.file.filetransformation.FileTransformations.NameAndContents;
 import de.unkrig.commons.io.IoUtil;
@@ -45,7 +54,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * @see #transform(String, File, File, de.unkrig.commons.file.filetransformation.FileTransformer.Mode)
  */
 public
-class DirectoryTransformer implements FileTransformer {
+class DirectoryTransformer implements AttributedFileTransformer {
 
     /**
      * Sorts ascendingly by name (for the default locale).
@@ -57,6 +66,7 @@ class DirectoryTransformer implements FileTransformer {
      *
      * @see #DirectoryTransformer(FileTransformer, Comparator, FileTransformer, FileTransformations.DirectoryCombiner,
      *      boolean, boolean, ExceptionHandler)
+     * @see FileUtil#sortNames(String[], Comparator)
      */
     public static final Collator DEFAULT_MEMBER_NAME_COMPARATOR = Collator.getInstance();
 
@@ -67,6 +77,13 @@ class DirectoryTransformer implements FileTransformer {
     @Nullable private final Comparator<Object>  directoryMemberNameComparator;
     private final boolean                       saveSpace;
     private final boolean                       keepOriginals;
+    @Nullable private final ForkJoinPool        forkJoinPool;
+
+    /**
+     * Maps the temporary directories of the pending in-place transformations to the number of members that could not
+     * be transformed in <em>nested</em> directories; see {@link #reportNestedFailures(File, int)}.
+     */
+    private final Map<File, AtomicInteger> nestedFailures = new ConcurrentHashMap<File, AtomicInteger>();
 
     /**
      * @param directoryMemberNameComparator The comparator used to sort a directory's members; a {@code null} value
@@ -84,6 +101,46 @@ class DirectoryTransformer implements FileTransformer {
         boolean                       saveSpace,
         boolean                       keepOriginals,
         ExceptionHandler<IOException> exceptionHandler
+    ) {
+        this(
+            regularFileTransformer,
+            directoryMemberNameComparator,
+            directoryMemberTransformer,
+            directoryCombiner,
+            saveSpace,
+            keepOriginals,
+            null, // forkJoinPool
+            exceptionHandler
+        );
+    }
+
+    /**
+     * Equivalent with {@link #DirectoryTransformer(FileTransformer, Comparator, FileTransformer, DirectoryCombiner,
+     * boolean, boolean, ExceptionHandler)}, except that the members of each directory are transformed concurrently,
+     * as {@link ForkJoinTask}s of the <var>forkJoinPool</var>.
+     * <p>
+     *   Each member is transformed into its own output file (for in-place transformations: into a temporary file or
+     *   directory), so the members are independent of each other. For an in-place transformation without
+     *   <var>saveSpace</var>, the new directory is committed (renamed over the original directory) only when all
+     *   members were transformed successfully.
+     * </p>
+     * <p>
+     *   The <var>regularFileTransformer</var>, the <var>directoryMemberTransformer</var> and the
+     *   <var>exceptionHandler</var> must be thread-safe.
+     * </p>
+     *
+     * @param forkJoinPool {@code null} means to transform the members sequentially
+     */
+    public
+    DirectoryTransformer(
+        FileTransformer               regularFileTransformer,
+        @Nullable Comparator<Object>  directoryMemberNameComparator,
+        FileTransformer               directoryMemberTransformer,
+        DirectoryCombiner             directoryCombiner,
+        boolean                       saveSpace,
+        boolean                       keepOriginals,
+        @Nullable ForkJoinPool        forkJoinPool,
+        ExceptionHandler<IOException> exceptionHandler
     ) {
         this.regularFileTransformer        = regularFileTransformer;
         this.directoryMemberNameComparator = directoryMemberNameComparator;
@@ -91,6 +148,7 @@ class DirectoryTransformer implements FileTransformer {
         this.directoryCombiner             = directoryCombiner;
         this.saveSpace                     = saveSpace;
         this.keepOriginals                 = keepOriginals;
+        this.forkJoinPool                  = forkJoinPool;
         this.exceptionHandler              = exceptionHandler;
     }
 
@@ -117,10 +175,31 @@ class DirectoryTransformer implements FileTransformer {
      */
     @Override public void
     transform(String path, File in, final File out, Mode mode) throws IOException {
+        this.transform(path, in, in.isDirectory(), null, out, mode);
+    }
+
+    /**
+     * Equivalent with {@link #transform(String, File, File, Mode)}, but takes the file type from the
+     * <var>inAttributes</var> instead of querying the file system.
+     */
+    @Override public void
+    transform(String path, File in, BasicFileAttributes inAttributes, File out, Mode mode) throws IOException {
+        this.transform(path, in, inAttributes.isDirectory(), inAttributes, out, mode);
+    }
+
+    private void
+    transform(
+        String                        path,
+        File                          in,
+        boolean                       inIsDirectory,
+        @Nullable BasicFileAttributes inAttributes,
+        File                          out,
+        Mode                          mode
+    ) throws IOException {
 
         // Delegate to "this.regularFileTransformer" if the "in" file is not a directory.
-        if (!in.isDirectory()) {
-            this.regularFileTransformer.transform(path, in, out, mode);
+        if (!inIsDirectory) {
+            FileTransformations.transform(this.regularFileTransformer, path, in, inAttributes, out, mode);
             return;
         }
 
@@ -148,14 +227,28 @@ class DirectoryTransformer implements FileTransformer {
         if (!newDirectory.mkdirs()) throw new IOException("Could not create directory '" + newDirectory + "'");
 
         // Transform the "directory" members into the "newDirectory".
+        AtomicInteger nestedFailures = new AtomicInteger();
+        this.nestedFailures.put(newDirectory, nestedFailures);
         try {
-            this.transformMembers(path, directory, newDirectory, mode);
+            int failures = this.transformMembers(path, directory, newDirectory, mode);
+
+            if (failures + nestedFailures.get() != 0) {
+
+                // At least one member (at any level of the subtree) could not be transformed; leave the "directory"
+                // untouched.
+                FileUtil.deleteRecursively(newDirectory);
+                return;
+            }
         } catch (IOException ioe) {
             try { FileUtil.deleteRecursively(newDirectory); } catch (Exception e) {}
             this.exceptionHandler.handle(path, ioe);
+            return;
         } catch (RuntimeException re) {
             try { FileUtil.deleteRecursively(newDirectory); } catch (Exception e) {}
             this.exceptionHandler.handle(path, re);
+            return;
+        } finally {
+            this.nestedFailures.remove(newDirectory);
         }
 
         // Rename the "directory" to "origDirectory".
@@ -206,41 +299,100 @@ class DirectoryTransformer implements FileTransformer {
         }
     }
 
-    private void
-    transformMembers(String path, File inputDirectory, final File outputDirectory, Mode mode) throws IOException {
-
-        // Transform all directory members.
-        String[] memberNames = inputDirectory.list();
-        if (memberNames == null) {
-
-            // MS WINDOWS 7: Read-protected directory produces:
-            // isDirectory() => true
-            // canRead()     => true
-            // list()        => null
-            // listFiles()   => null
-            throw new IOException(inputDirectory + ": Permission denied");
-        }
+    /**
+     * @return The number of members that could not be transformed (and were reported to the {@link
+     *         #exceptionHandler})
+     */
+    private int
+    transformMembers(String path, File inputDirectory, final File outputDirectory, final Mode mode)
+    throws IOException {
+
+        // List all directory members, and, iff the member transformer can use them, read their attributes in the same
+        // go.
+        Map<String, BasicFileAttributes> members;
+        if (this.directoryMemberTransformer instanceof AttributedFileTransformer) {
+            members = FileUtil.listMembers(inputDirectory, this.directoryMemberNameComparator);
+        } else {
+            String[] memberNames = inputDirectory.list();
+            if (memberNames == null) {
+
+                // MS WINDOWS 7: Read-protected directory produces:
+                // isDirectory() => true
+                // canRead()     => true
+                // list()        => null
+                // listFiles()   => null
+                throw new IOException(inputDirectory + ": Permission denied");
+            }
 
-        // Sort the members, if requested.
-        if (this.directoryMemberNameComparator != null) Arrays.sort(memberNames, this.directoryMemberNameComparator);
+            // Sort the members, if requested.
+            FileUtil.sortNames(memberNames, this.directoryMemberNameComparator);
 
-        for (String memberName : memberNames) {
-            String memberPath = path + File.separatorChar + memberName;
+            members = new LinkedHashMap<String, BasicFileAttributes>();
+            for (String memberName : memberNames) members.put(memberName, null);
+        }
 
-            // Now transform each member.
+        // Now transform each member.
+        int          failures     = 0;
+        ForkJoinPool forkJoinPool = this.forkJoinPool;
+        if (forkJoinPool == null) {
+            for (Map.Entry<String, BasicFileAttributes> e : members.entrySet()) {
+                String memberName = e.getKey();
+                String memberPath = path + File.separatorChar + memberName;
+                try {
+                    FileTransformations.transform(
+                        this.directoryMemberTransformer,
+                        memberPath,
+                        new File(inputDirectory, memberName),
+                        e.getValue(),
+                        new File(outputDirectory, memberName),
+                        mode
+                    );
+                } catch (IOException ioe) {
+                    failures++;
+                    this.exceptionHandler.handle(memberPath, ioe);
+                } catch (RuntimeException re) {
+                    failures++;
+                    this.exceptionHandler.handle(memberPath, re);
+                }
+            }
+        } else {
             try {
-                this.directoryMemberTransformer.transform(
-                    memberPath,
-                    new File(inputDirectory, memberName),
-                    new File(outputDirectory, memberName),
-                    mode
+                failures = FileProcessings.processMembers(
+                    path,
+                    inputDirectory,
+                    members.keySet().toArray(new String[members.size()]),
+                    members.values().toArray(new BasicFileAttributes[members.size()]),
+                    null,                                                    // results
+                    new AttributedFileProcessor<Void>() {                    // directoryMemberProcessor
+
+                        @Override @Nullable public Void
+                        process(String memberPath, File member) throws IOException {
+                            return this.process(memberPath, member, null);
+                        }
+
+                        @Override @Nullable public Void
+                        process(String memberPath, File member, @Nullable BasicFileAttributes memberAttributes)
+                        throws IOException {
+                            FileTransformations.transform(
+                                DirectoryTransformer.this.directoryMemberTransformer,
+                                memberPath,
+                                member,
+                                memberAttributes,
+                                new File(outputDirectory, member.getName()),
+                                mode
+                            );
+                            return null;
+                        }
+                    },
+                    forkJoinPool,
+                    this.exceptionHandler
                 );
-            } catch (IOException ioe) {
-                this.exceptionHandler.handle(memberPath, ioe);
-            } catch (RuntimeException re) {
-                this.exceptionHandler.handle(memberPath, re);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(path);
             }
         }
+        if (failures != 0) this.reportNestedFailures(outputDirectory, failures);
 
         this.directoryCombiner.combineDirectory(
             path,                                                                         // directoryPath
@@ -257,6 +409,20 @@ class DirectoryTransformer implements FileTransformer {
                 }
             }
         );
+
+        return failures;
+    }
+
+    /**
+     * Reports that <var>count</var> members of the <var>outputDirectory</var> could not be transformed to all pending
+     * in-place transformations whose temporary directory <em>encloses</em> the <var>outputDirectory</var>.
+     */
+    private void
+    reportNestedFailures(File outputDirectory, int count) {
+        for (File d = outputDirectory.getParentFile(); d != null; d = d.getParentFile()) {
+            AtomicInteger nestedFailures = this.nestedFailures.get(d);
+            if (nestedFailures != null) nestedFailures.addAndGet(count);
+        }
     }
 
     @Override public String
@@ -32,6 +32,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,12 +47,13 @@ import de.unkrig.commons.io.OutputStreams;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.ExceptionUtil;
 import de.unkrig.commons.lang.protocol.RunnableUtil;
+import de.unkrig.commons.nullanalysis.Nullable;
 
 /**
  * A {@link FileTransformer} that transforms a file be feeding its contents through a {@link ContentsTransformer}.
  */
 public
-class FileContentsTransformer implements FileTransformer {
+class FileContentsTransformer implements AttributedFileTransformer {
 
     @SuppressWarnings("unused")
     private static final Logger LOGGER                          = Logger.getLogger(FileContentsTransformer.class.getName()); // SUPPRESS CHECKSTYLE LineLength:2
@@ -76,6 +78,21 @@ class FileContentsTransformer implements FileTransformer {
      */
     @Override public void
     transform(String path, File in, File out, Mode mode) throws IOException {
+        this.transform2(path, in, null, out, mode);
+    }
+
+    /**
+     * Equivalent with {@link #transform(String, File, File, Mode)}, but takes the modification time of the
+     * <var>in</var> file from the <var>inAttributes</var> instead of querying the file system.
+     */
+    @Override public void
+    transform(String path, File in, BasicFileAttributes inAttributes, File out, Mode mode) throws IOException {
+        this.transform2(path, in, inAttributes, out, mode);
+    }
+
+    private void
+    transform2(String path, File in, @Nullable BasicFileAttributes inAttributes, File out, Mode mode)
+    throws IOException {
 
         switch (mode) {
 
@@ -90,39 +107,45 @@ class FileContentsTransformer implements FileTransformer {
 
         case CHECK_AND_TRANSFORM:
 
-            // Execute the transformation in CHECK mode to determine whether the transformed contents are
-            // identical with the contents of the input file.
-            try {
-                this.transform(path, in, out, Mode.CHECK);
+            // Execute the transformation only once, into a temporary file next to the output file, and compare the
+            // transformed contents with the contents of the input file on-the-fly.
+            File newFile = FileTransformations.newFile(out);
+            if (newFile.exists()) FileUtil.deleteRecursively(newFile);
 
-                // The transformed contents is identical with the contents of the input file.
-                if (in.equals(out)) {
+            if (this.transformOutOfPlaceAndCheckIdentity(in, newFile) && in.equals(out)) {
 
-                    if (this.keepOriginals) {
+                // The transformed contents is identical with the contents of the input file; discard it. (No need
+                // to create a '.orig' copy when the contents does not change.)
+                FileUtil.deleteRecursively(newFile);
+                return;
+            }
 
-                        // No need to create a '.orig' copy when the contents does not change.
-                        ;
-                    }
-                } else {
-                    IoUtil.copy(in, out);
-                }
-            } catch (RuntimeException re) {
-                if (re != FileTransformer.NOT_IDENTICAL) throw re;
+            long outLastModified = (
+                in.equals(out)
+                ? newFile.lastModified()
+                : inAttributes != null ? inAttributes.lastModifiedTime().toMillis() : in.lastModified()
+            );
+
+            FileTransformations.replaceWithNewFile(out, newFile, in.equals(out) && this.keepOriginals);
 
-                // The transformed contents is NOT identical with the contents of the input file.
-                // Execute the transformation again, but this time in TRANSFORM mode.
-                this.transform(path, in, out, Mode.TRANSFORM);
+            if (!out.setLastModified(outLastModified)) {
+                throw new IOException("Could not set modification time of '" + out + "'");
             }
             return;
 
         case TRANSFORM:
+            long lastModified;
             if (in.equals(out)) {
                 this.transformInPlace(in);
+
+                // Notice: "in" is now the NEW file.
+                lastModified = in.lastModified();
             } else {
                 this.transformOutOfPlace(in, out);
+                lastModified = inAttributes != null ? inAttributes.lastModifiedTime().toMillis() : in.lastModified();
             }
 
-            if (!out.setLastModified(in.lastModified())) {
+            if (!out.setLastModified(lastModified)) {
                 throw new IOException("Could not set modification time of '" + out + "'");
             }
             return;
@@ -186,6 +209,40 @@ class FileContentsTransformer implements FileTransformer {
      */
     private void
     transformOutOfPlace(File inputFile, File outputFile) throws  IOException {
+        this.transformOutOfPlace(inputFile, outputFile, null);
+    }
+
+    /**
+     * Like {@link #transformOutOfPlace(File, File)}, but additionally checks whether the transformed contents is
+     * identical with the contents of the <var>inputFile</var>, without reading the <var>inputFile</var> twice.
+     *
+     * @return Whether the contents of the <var>outputFile</var> is identical with that of the <var>inputFile</var>
+     */
+    private boolean
+    transformOutOfPlaceAndCheckIdentity(File inputFile, File outputFile) throws IOException {
+
+        final boolean[] identical = new boolean[1], notIdentical = new boolean[1];
+
+        OutputStream[] oss = OutputStreams.compareOutput(
+            2,
+            new Runnable() { @Override public void run() { identical[0] = true; } },   // whenIdentical
+            new Runnable() { @Override public void run() { notIdentical[0] = true; } } // whenNotIdentical
+        );
+
+        this.transformOutOfPlace(inputFile, outputFile, oss);
+
+        oss[0].close();
+        oss[1].close();
+
+        return identical[0] && !notIdentical[0];
+    }
+
+    /**
+     * @param comparison {@code null}, or two streams that receive the input resp. the output of the transformation,
+     *                   see {@link OutputStreams#compareOutput(int, Runnable, Runnable)}
+     */
+    private void
+    transformOutOfPlace(File inputFile, File outputFile, @Nullable OutputStream[] comparison) throws IOException {
 
         InputStream is = FileContentsTransformer.markableFileInputStream(inputFile);
         try {
@@ -193,7 +250,17 @@ class FileContentsTransformer implements FileTransformer {
             OutputStream os = FileContentsTransformer.fileOutputStream(outputFile);
             try {
 
-                this.contentsTransformer.transform(inputFile.getPath(), is, os);
+                if (comparison == null) {
+                    this.contentsTransformer.transform(inputFile.getPath(), is, os);
+                } else {
+                    InputStream is2 = InputStreams.wye(is, comparison[0]);
+
+                    this.contentsTransformer.transform(inputFile.getPath(), is2, OutputStreams.tee(os, comparison[1]));
+
+                    // Notice: If the transformer did not consume all of its input, then the rest of the input counts
+                    // as "not reproduced".
+                    IoUtil.copy(is2, OutputStreams.DISCARD);
+                }
                 os.close();
             } catch (IOException ioe) {
                 try { os.close(); } catch (Exception e) {}
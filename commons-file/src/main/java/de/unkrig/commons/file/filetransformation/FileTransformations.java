@@ -33,8 +33,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -47,15 +49,21 @@ import de.unkrig.commons.file.CompressUtil.ArchiveHandler;
 import de.unkrig.commons.file.CompressUtil.CompressorHandler;
 import de.unkrig.commons.file.CompressUtil.NormalContentsHandler;
 import de.unkrig.commons.file.ExceptionHandler;
+import de.unkrig.commons.file.FileChangeIndex;
 import de.unkrig.commons.file.FileUtil;
+import de.unkrig.commons.file.ProcessingMetrics;
+import de.unkrig.commons.file.ProcessingMetrics.Span;
+import de.unkrig.commons.file.ProcessingMetrics.Stage;
 import de.unkrig.commons.file.contentstransformation.ContentsTransformations;
 import de.unkrig.commons.file.contentstransformation.ContentsTransformer;
+import de.unkrig.commons.file.filetransformation.FileTransformer.Mode;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
 import de.unkrig.commons.io.IoUtil;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.Predicate;
+import de.unkrig.commons.lang.protocol.PredicateUtil;
 import de.unkrig.commons.nullanalysis.Nullable;
 import de.unkrig.commons.text.pattern.Glob;
 
@@ -91,6 +99,27 @@ class FileTransformations {
 
     static { AssertionUtil.enableAssertionsForThisClass(); }
 
+    /**
+     * Invokes {@link AttributedFileTransformer#transform(String, File, BasicFileAttributes, File, Mode)} iff the
+     * <var>fileTransformer</var> is an {@link AttributedFileTransformer} and the <var>inAttributes</var> are not
+     * {@code null}, otherwise {@link FileTransformer#transform(String, File, File, Mode)}.
+     */
+    public static void
+    transform(
+        FileTransformer               fileTransformer,
+        String                        path,
+        File                          in,
+        @Nullable BasicFileAttributes inAttributes,
+        File                          out,
+        Mode                          mode
+    ) throws IOException {
+        if (inAttributes != null && fileTransformer instanceof AttributedFileTransformer) {
+            ((AttributedFileTransformer) fileTransformer).transform(path, in, inAttributes, out, mode);
+        } else {
+            fileTransformer.transform(path, in, out, mode);
+        }
+    }
+
     /**
      * If <var>in</var> equals <var>out</var> ("in-place transformation"), then file <var>in</var> is deleted. Otherwise
      * ("out-of-place transformation") nothing is done, i.e. a file <var>out</var> is <i>not</i> created.
@@ -261,6 +290,47 @@ class FileTransformations {
         boolean                       saveSpace,
         boolean                       keepOriginals,
         ExceptionHandler<IOException> exceptionHandler
+    ) {
+        return FileTransformations.directoryTreeTransformer(
+            directoryMemberNameComparator, // directoryMemberNameComparator
+            directoryMemberRemoval,        // directoryMemberRemoval
+            directoryMemberRenaming,       // directoryMemberRenaming
+            directoryCombiner,             // directoryCombiner
+            regularFileTransformer,        // regularFileTransformer
+            saveSpace,                     // saveSpace
+            keepOriginals,                 // keepOriginals
+            null,                          // forkJoinPool
+            exceptionHandler               // exceptionHandler
+        );
+    }
+
+    /**
+     * Equivalent with {@link #directoryTreeTransformer(Comparator, Predicate, Glob, DirectoryCombiner, FileTransformer,
+     * boolean, boolean, ExceptionHandler)}, except that the members of each directory are transformed concurrently,
+     * as tasks of the <var>forkJoinPool</var>.
+     * <p>
+     *   For an in-place transformation without <var>saveSpace</var>, each directory is replaced only when all its
+     *   members were transformed successfully; otherwise it is left untouched.
+     * </p>
+     * <p>
+     *   The <var>regularFileTransformer</var> and the <var>exceptionHandler</var> must be thread-safe.
+     * </p>
+     *
+     * @param forkJoinPool {@code null} means to transform the members sequentially
+     * @see DirectoryTransformer#DirectoryTransformer(FileTransformer, Comparator, FileTransformer, DirectoryCombiner,
+     *      boolean, boolean, ForkJoinPool, ExceptionHandler)
+     */
+    public static DirectoryTransformer
+    directoryTreeTransformer(
+        @Nullable Comparator<Object>  directoryMemberNameComparator,
+        Predicate<? super String>     directoryMemberRemoval,
+        Glob                          directoryMemberRenaming,
+        DirectoryCombiner             directoryCombiner,
+        FileTransformer               regularFileTransformer,
+        boolean                       saveSpace,
+        boolean                       keepOriginals,
+        @Nullable ForkJoinPool        forkJoinPool,
+        ExceptionHandler<IOException> exceptionHandler
     ) {
         ProxyFileTransformer loopback = new ProxyFileTransformer();
 
@@ -273,6 +343,7 @@ class FileTransformations {
             directoryCombiner,             // directoryCombiner
             saveSpace,                     // saveSpace
             keepOriginals,                 // keepOriginals
+            forkJoinPool,                  // forkJoinPool
             exceptionHandler               // exceptionHandler
         );
 
@@ -294,6 +365,7 @@ class FileTransformations {
         final DirectoryCombiner         directoryCombiner,
         final boolean                   saveSpace,
         final boolean                   keepOriginals,
+        @Nullable ForkJoinPool          forkJoinPool,
         ExceptionHandler<IOException>   exceptionHandler
     ) {
 
@@ -309,10 +381,142 @@ class FileTransformations {
             directoryCombiner,                               // directoryCombiner
             saveSpace,                                       // saveSpace
             keepOriginals,                                   // keepOriginals
+            forkJoinPool,                                    // forkJoinPool
             exceptionHandler                                 // exceptionHandler
         );
     }
 
+    /**
+     * Wraps the given <var>delegate</var> in a {@link FileTransformer} which skips in-place transformations of
+     * regular files that have not changed since the preceding run, according to the <var>index</var>.
+     * <p>
+     *   The state of a file is recorded in the <var>index</var> iff the <var>delegate</var> leaves the file unchanged
+     *   (i.e. in mode {@link Mode#CHECK}, or in mode {@link Mode#CHECK_AND_TRANSFORM} when the file needs no
+     *   modification), because only then it is certain that transforming it again would have no effect.
+     * </p>
+     * <p>
+     *   Typically the returned transformer is used as the <var>regularFileTransformer</var> of a {@link
+     *   #directoryTreeTransformer(Comparator, Predicate, Glob, DirectoryCombiner, FileTransformer, boolean, boolean,
+     *   ExceptionHandler) directory tree transformer}; notice that only in-place transformations benefit from the
+     *   index, and that the index must be {@link FileChangeIndex#commit() committed} at the end of the run.
+     * </p>
+     */
+    public static FileTransformer
+    changeTrackingFileTransformer(final FileTransformer delegate, final FileChangeIndex index) {
+
+        return new AttributedFileTransformer() {
+
+            @Override public void
+            transform(String path, File in, File out, Mode mode) throws IOException {
+                if (!in.equals(out)) {
+                    delegate.transform(path, in, out, mode);
+                    return;
+                }
+                this.transform(path, in, FileUtil.readAttributes(in), out, mode);
+            }
+
+            @Override public void
+            transform(String path, File in, BasicFileAttributes inAttributes, File out, Mode mode)
+            throws IOException {
+
+                if (!in.equals(out) || !inAttributes.isRegularFile()) {
+                    FileTransformations.transform(delegate, path, in, inAttributes, out, mode);
+                    return;
+                }
+
+                if (index.isUnchanged(in, inAttributes)) return;
+
+                try {
+                    FileTransformations.transform(delegate, path, in, inAttributes, out, mode);
+                } catch (IOException ioe) {
+                    index.remove(in);
+                    throw ioe;
+                } catch (RuntimeException re) {
+                    index.remove(in);
+                    throw re;
+                }
+
+                // Iff the transformation left the file unchanged, then remember that in the index.
+                BasicFileAttributes attributes = FileUtil.readAttributes(in);
+                if (
+                    mode == Mode.CHECK
+                    || (
+                        attributes.size() == inAttributes.size()
+                        && attributes.lastModifiedTime().equals(inAttributes.lastModifiedTime())
+                    )
+                ) {
+                    index.update(in, attributes);
+                } else {
+                    index.remove(in);
+                }
+            }
+
+            @Override public String
+            toString() { return "changeTracking(" + delegate + ")"; }
+        };
+    }
+
+    /**
+     * Wraps the given <var>delegate</var> in a {@link FileTransformer} which reports the transformation of each file
+     * as the {@link Stage#FILE FILE} stage to the <var>metrics</var>. Format detection, archive and compressed
+     * processing that the <var>delegate</var> executes through {@link CompressUtil} are reported to the same
+     * <var>metrics</var>.
+     */
+    public static FileTransformer
+    meteringFileTransformer(final FileTransformer delegate, final ProcessingMetrics metrics) {
+
+        return new AttributedFileTransformer() {
+
+            @Override public void
+            transform(String path, File in, File out, Mode mode) throws IOException {
+
+                if (!metrics.isEnabled()) {
+                    delegate.transform(path, in, out, mode);
+                    return;
+                }
+
+                Span span = metrics.start(Stage.FILE, path);
+                try {
+                    delegate.transform(path, in, out, mode);
+                } catch (IOException ioe) {
+                    metrics.countError();
+                    throw ioe;
+                } catch (RuntimeException re) {
+                    if (re != FileTransformer.NOT_IDENTICAL) metrics.countError();
+                    throw re;
+                } finally {
+                    span.end();
+                }
+            }
+
+            @Override public void
+            transform(String path, File in, BasicFileAttributes inAttributes, File out, Mode mode)
+            throws IOException {
+
+                if (!metrics.isEnabled()) {
+                    FileTransformations.transform(delegate, path, in, inAttributes, out, mode);
+                    return;
+                }
+
+                Span span = metrics.start(Stage.FILE, path);
+                try {
+                    FileTransformations.transform(delegate, path, in, inAttributes, out, mode);
+                } catch (IOException ioe) {
+                    metrics.countError();
+                    throw ioe;
+                } catch (RuntimeException re) {
+                    if (re != FileTransformer.NOT_IDENTICAL) metrics.countError();
+                    throw re;
+                } finally {
+                    span.end();
+                }
+            }
+
+            @Override public String
+            toString() { return "metering(" + delegate + ")"; }
+        };
+    }
+
     /**
      * Wraps the given <var>delegate</var> in a {@link FileTransformer} which handles removal and renaming of files.
      *
@@ -326,10 +530,27 @@ class FileTransformations {
         final boolean                   keepOriginals
     ) {
 
-        return new FileTransformer() {
+        return new AttributedFileTransformer() {
 
             @Override public void
             transform(String path, File inputFile, File outputFile, Mode mode) throws IOException {
+                this.transform2(path, inputFile, null, outputFile, mode);
+            }
+
+            @Override public void
+            transform(String path, File inputFile, BasicFileAttributes inAttributes, File outputFile, Mode mode)
+            throws IOException {
+                this.transform2(path, inputFile, inAttributes, outputFile, mode);
+            }
+
+            private void
+            transform2(
+                String                        path,
+                File                          inputFile,
+                @Nullable BasicFileAttributes inAttributes,
+                File                          outputFile,
+                Mode                          mode
+            ) throws IOException {
 
                 boolean inPlace = inputFile.equals(outputFile);
 
@@ -364,7 +585,7 @@ class FileTransformations {
 
                         if (mode == FileTransformer.Mode.CHECK) throw FileTransformer.NOT_IDENTICAL;
 
-                        delegate.transform(path, inputFile, newOutputFile, mode);
+                        FileTransformations.transform(delegate, path, inputFile, inAttributes, newOutputFile, mode);
 
                         if (inPlace) {
                             if (keepOriginals) {
@@ -380,7 +601,7 @@ class FileTransformations {
                     }
                 }
 
-                delegate.transform(path, inputFile, outputFile, mode);
+                FileTransformations.transform(delegate, path, inputFile, inAttributes, outputFile, mode);
             }
         };
     }
@@ -408,6 +629,49 @@ class FileTransformations {
         final boolean                       keepOriginals,
         final ExceptionHandler<IOException> exceptionHandler
     ) {
+        return FileTransformations.compressedAndArchiveFileTransformer(
+            lookIntoFormat,                  // lookIntoFormat
+            archiveEntryRemoval,             // archiveEntryRemoval
+            archiveEntryRenaming,            // archiveEntryRenaming
+            archiveCombiner,                 // archiveCombiner
+            archiveEntryContentsTransformer, // archiveEntryContentsTransformer
+            compressedContentsTransformer,   // compressedContentsTransformer
+            normalContentsTransformer,       // normalContentsTransformer
+            PredicateUtil.never(),           // archiveEntryPassThrough
+            false,                           // passThroughUnchangedEntries
+            keepOriginals,                   // keepOriginals
+            exceptionHandler                 // exceptionHandler
+        );
+    }
+
+    /**
+     * Like {@link #compressedAndArchiveFileTransformer(Predicate, Predicate, Glob, ArchiveCombiner,
+     * ContentsTransformer, ContentsTransformer, ContentsTransformer, boolean, ExceptionHandler)}, but, when
+     * transforming a ZIP or JAR file, copies the compressed data of selected entries verbatim instead of
+     * re-encoding them.
+     *
+     * @param archiveEntryPassThrough     Whether to copy an archive entry verbatim, without transforming it; the
+     *                                    subject is the path of the archive entry
+     * @param passThroughUnchangedEntries Whether to copy archive entries verbatim which the {@code
+     *                                    archiveEntryContentsTransformer} does not modify
+     * @see                               ContentsTransformations#transformArchive(String, ArchiveInputStream,
+     *                                    ArchiveOutputStream, Predicate, Glob, ContentsTransformer,
+     *                                    ArchiveCombiner, Predicate, boolean, ExceptionHandler)
+     */
+    public static FileTransformer
+    compressedAndArchiveFileTransformer(
+        final Predicate<? super String>     lookIntoFormat,
+        final Predicate<? super String>     archiveEntryRemoval,
+        final Glob                          archiveEntryRenaming,
+        final ArchiveCombiner               archiveCombiner,
+        final ContentsTransformer           archiveEntryContentsTransformer,
+        final ContentsTransformer           compressedContentsTransformer,
+        final ContentsTransformer           normalContentsTransformer,
+        final Predicate<? super String>     archiveEntryPassThrough,
+        final boolean                       passThroughUnchangedEntries,
+        final boolean                       keepOriginals,
+        final ExceptionHandler<IOException> exceptionHandler
+    ) {
 
         return new FileTransformer() {
 
@@ -435,24 +699,49 @@ class FileTransformations {
                     return;
 
                 case CHECK_AND_TRANSFORM:
-                    try {
-
-                        // Transform in 'check identity' mode.
-                        this.transform(path, in, out, Mode.CHECK);
 
-                        if (!in.equals(out)) {
-                            IoUtil.copy(in, out);
+                    // A re-written archive or compressed file is practically never byte-identical with the original,
+                    // so for these, identity must be checked at the entry level (in CHECK mode) before transforming.
+                    if (this.isArchiveOrCompressed(path, in)) {
+                        try {
+                            this.transform(path, in, out, Mode.CHECK);
+                        } catch (RuntimeException re) {
+                            if (re != FileTransformer.NOT_IDENTICAL) throw re;
+
+                            // Non-identical transformation.
+                            this.transform(path, in, out, Mode.TRANSFORM);
+                            return;
                         }
 
+                        if (!in.equals(out)) IoUtil.copy(in, out);
                         return;
+                    }
+
+                    // For normal contents, transform only once, into a temporary file next to the output file, and
+                    // then either discard that file (identical transformation), or rename it over the output file.
+                    File tmpFile = FileTransformations.newFile(out);
+                    if (tmpFile.exists()) FileUtil.deleteRecursively(tmpFile);
+
+                    try {
+                        this.transform2(path, in, tmpFile);
+                    } catch (IOException ioe) {
+                        FileUtil.attemptToDeleteRecursively(tmpFile);
+                        throw ioe;
                     } catch (RuntimeException re) {
-                        if (re != FileTransformer.NOT_IDENTICAL) throw re;
+                        FileUtil.attemptToDeleteRecursively(tmpFile);
+                        throw re;
+                    }
 
-                        // Non-identical transformation.
-                        this.transform(path, in, out, Mode.TRANSFORM);
+                    if (in.equals(out) && FileUtil.contentsEqual(in, tmpFile)) {
+
+                        // Identical transformation; leave the file untouched (and create no ".orig" copy).
+                        FileUtil.deleteRecursively(tmpFile);
                         return;
                     }
 
+                    FileTransformations.replaceWithNewFile(out, tmpFile, in.equals(out) && keepOriginals);
+                    return;
+
                 case TRANSFORM:
                     if (!in.equals(out)) {
                         this.transform2(path, in, out);
@@ -481,6 +770,43 @@ class FileTransformations {
                 }
             }
 
+            /**
+             * @return Whether the <var>file</var> is an archive or compressed file that would be "looked into"
+             */
+            private boolean
+            isArchiveOrCompressed(String path, File file) throws IOException {
+
+                Boolean result = CompressUtil.<Boolean>processFile(
+                    path,                                      // path
+                    file,                                      // file
+                    lookIntoFormat,                            // lookIntoFormat
+                    new ArchiveHandler<Boolean>() {            // archiveHandler
+
+                        @Override @Nullable public Boolean
+                        handleArchive(ArchiveInputStream archiveInputStream, ArchiveFormat archiveFormat) {
+                            return true;
+                        }
+                    },
+                    new CompressorHandler<Boolean>() {         // compressorHandler
+
+                        @Override @Nullable public Boolean
+                        handleCompressor(
+                            CompressorInputStream compressorInputStream,
+                            CompressionFormat     compressionFormat
+                        ) { return true; }
+                    },
+                    new NormalContentsHandler<Boolean>() {     // normalContentsHandler
+
+                        @Override @Nullable public Boolean
+                        handleNormalContents(InputStream inputStream, @Nullable Date lastModifiedDate) {
+                            return false;
+                        }
+                    }
+                );
+
+                return Boolean.TRUE.equals(result);
+            }
+
             /**
              * Same as {@link #transform}, but does not care about in-place transformations and {@link Mode}.
              */
@@ -498,6 +824,8 @@ class FileTransformations {
                         archiveEntryRenaming,
                         archiveEntryContentsTransformer,
                         archiveCombiner,
+                        archiveEntryPassThrough,
+                        passThroughUnchangedEntries,
                         exceptionHandler
                     ),
                     FileTransformations.compressorHandler(     // compressorHandler
@@ -574,6 +902,8 @@ class FileTransformations {
         final Glob                          archiveEntryRenaming,
         final ContentsTransformer           contentsTransformer,
         final ArchiveCombiner               archiveCombiner,
+        final Predicate<? super String>     archiveEntryPassThrough,
+        final boolean                       passThroughUnchangedEntries,
         final ExceptionHandler<IOException> exceptionHandler
     ) {
 
@@ -599,6 +929,8 @@ class FileTransformations {
                         archiveEntryRenaming,
                         contentsTransformer,
                         archiveCombiner,
+                        archiveEntryPassThrough,
+                        passThroughUnchangedEntries,
                         exceptionHandler
                     );
 
@@ -967,4 +1299,37 @@ class FileTransformations {
      */
     public static File
     origFile(File file) { return new File(file.getParentFile(), "." + file.getName() + ".orig"); }
+
+    /**
+     * Replaces the <var>file</var> with the <var>newFile</var>, which was typically created as the {@link
+     * #newFile(File)} of the <var>file</var>.
+     * <p>
+     *   Iff <var>keepOriginals</var> is set, then the original <var>file</var> is kept as its {@link
+     *   #origFile(File)}; otherwise the <var>newFile</var> is (if possible: atomically) renamed over the
+     *   <var>file</var>.
+     * </p>
+     * <p>
+     *   Iff the replacement fails, then the <var>newFile</var> is deleted.
+     * </p>
+     */
+    static void
+    replaceWithNewFile(File file, File newFile, boolean keepOriginals) throws IOException {
+
+        try {
+            if (keepOriginals) {
+                File origFile = FileTransformations.origFile(file);
+                if (origFile.exists()) FileUtil.deleteRecursively(origFile);
+                FileUtil.rename(file, origFile);
+                FileUtil.rename(newFile, file);
+            } else {
+                FileUtil.replace(newFile, file);
+            }
+        } catch (IOException ioe) {
+            FileUtil.attemptToDeleteRecursively(newFile);
+            throw ioe;
+        } catch (RuntimeException re) {
+            FileUtil.attemptToDeleteRecursively(newFile);
+            throw re;
+        }
+    }
 }
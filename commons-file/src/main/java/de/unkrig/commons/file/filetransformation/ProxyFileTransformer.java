@@ -28,6 +28,7 @@ package de.unkrig.commons.file.filetransformation;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import de.unkrig.commons.lang.protocol.HardReference;
 
@@ -35,7 +36,7 @@ import de.unkrig.commons.lang.protocol.HardReference;
  * A file transformer which delegates to the file transformer specified by {@link #set(FileTransformer)}.
  */
 public
-class ProxyFileTransformer implements FileTransformer {
+class ProxyFileTransformer implements AttributedFileTransformer {
 
     private final HardReference<FileTransformer> ref = new HardReference<FileTransformer>();
 
@@ -46,6 +47,13 @@ class ProxyFileTransformer implements FileTransformer {
         delegate.transform(path, in, out, mode);
     }
 
+    @Override public void
+    transform(String path, File in, BasicFileAttributes inAttributes, File out, Mode mode) throws IOException {
+        FileTransformer delegate = this.ref.get();
+        assert delegate != null;
+        FileTransformations.transform(delegate, path, in, inAttributes, out, mode);
+    }
+
     /** @see ProxyFileTransformer */
     public void
     set(FileTransformer delegate) { this.ref.set(delegate); }
@@ -28,6 +28,7 @@ package de.unkrig.commons.file.filetransformation;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import de.unkrig.commons.lang.protocol.Predicate;
 
@@ -36,7 +37,7 @@ import de.unkrig.commons.lang.protocol.Predicate;
  * {@link Predicate}, and otherwise to the <var>falseDelegate</var>.
  */
 public
-class SelectiveFileTransformer implements FileTransformer {
+class SelectiveFileTransformer implements AttributedFileTransformer {
 
     private final Predicate<? super String> pathPredicate;
     private final FileTransformer           trueDelegate;
@@ -62,6 +63,15 @@ class SelectiveFileTransformer implements FileTransformer {
         }
     }
 
+    @Override public void
+    transform(String path, File in, BasicFileAttributes inAttributes, File out, Mode mode) throws IOException {
+        if (this.pathPredicate.evaluate(path)) {
+            FileTransformations.transform(this.trueDelegate, path, in, inAttributes, out, mode);
+        } else {
+            FileTransformations.transform(this.falseDelegate, path, in, inAttributes, out, mode);
+        }
+    }
+
     @Override public String
     toString() { return this.pathPredicate + " ? " + this.trueDelegate + " : " + this.falseDelegate; }
 }
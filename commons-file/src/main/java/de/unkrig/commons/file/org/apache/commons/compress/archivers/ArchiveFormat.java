@@ -178,6 +178,22 @@ interface ArchiveFormat {
     boolean
     matches(byte[] signature, int signatureLength);
 
+    /**
+     * Optionally implemented by {@link ArchiveFormat}s, so that {@link ArchiveFormatFactory#forSignature(byte[],
+     * int)} asks only those formats whether they {@link #matches(byte[], int) match} that could possibly match.
+     * Formats that do not implement this interface (e.g. because their signature is not at offset 0) are always
+     * asked.
+     */
+    interface FirstBytes {
+
+        /**
+         * @return All values that the first byte of the archive can have iff {@link #matches(byte[], int)}
+         *         returns {@code true}; an empty array iff the format is never detected from the contents
+         */
+        byte[]
+        firstBytes();
+    }
+
     /**
      * Some archive formats provide a per-entry "compression method" - these would return a non-{@code null} value.
      *
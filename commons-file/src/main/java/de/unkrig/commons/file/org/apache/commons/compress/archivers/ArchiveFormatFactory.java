@@ -161,6 +161,32 @@ class ArchiveFormatFactory {
         ALL_ARCHIVE_FORMATS = Collections.unmodifiableMap(m);
     }
 
+    /**
+     * For each value of the first byte of the contents: The formats that could possibly match, in the order of {@link
+     * #allFormats()}.
+     */
+    private static final List<List<ArchiveFormat>> CANDIDATES = new ArrayList<List<ArchiveFormat>>(256);
+
+    /**
+     * The formats that could possibly match empty contents.
+     */
+    private static final List<ArchiveFormat> UNKEYED_CANDIDATES = new ArrayList<ArchiveFormat>();
+
+    static {
+        for (int i = 0; i < 256; i++) ArchiveFormatFactory.CANDIDATES.add(new ArrayList<ArchiveFormat>());
+
+        for (ArchiveFormat af : ArchiveFormatFactory.ALL_ARCHIVE_FORMATS.values()) {
+            if (af instanceof ArchiveFormat.FirstBytes) {
+                for (byte b : ((ArchiveFormat.FirstBytes) af).firstBytes()) {
+                    ArchiveFormatFactory.CANDIDATES.get(0xff & b).add(af);
+                }
+            } else {
+                for (List<ArchiveFormat> l : ArchiveFormatFactory.CANDIDATES) l.add(af);
+                ArchiveFormatFactory.UNKEYED_CANDIDATES.add(af);
+            }
+        }
+    }
+
     /**
      * Register this package for {@link java.net.URLStreamHandler}s for the supported archive formats.
      *
@@ -225,7 +251,27 @@ class ArchiveFormatFactory {
         int signatureLength = IOUtils.readFully(is, signature);
         is.reset();
 
-        for (ArchiveFormat af : ArchiveFormatFactory.ALL_ARCHIVE_FORMATS.values()) {
+        return ArchiveFormatFactory.forSignature(signature, signatureLength);
+    }
+
+    /**
+     * Determines the archive format from the first few bytes of some contents. Only those formats are asked whether
+     * they {@link ArchiveFormat#matches(byte[], int) match} that could possibly match (see {@link
+     * ArchiveFormat.FirstBytes}).
+     *
+     * @return One of {@link #allFormats()}, or {@code null} iff the <var>signature</var> matches none of the known
+     *         archive formats
+     */
+    @Nullable public static ArchiveFormat
+    forSignature(byte[] signature, int signatureLength) {
+
+        List<ArchiveFormat> candidates = (
+            signatureLength == 0
+            ? ArchiveFormatFactory.UNKEYED_CANDIDATES
+            : ArchiveFormatFactory.CANDIDATES.get(0xff & signature[0])
+        );
+
+        for (ArchiveFormat af : candidates) {
             if (af.matches(signature, signatureLength)) return af;
         }
 
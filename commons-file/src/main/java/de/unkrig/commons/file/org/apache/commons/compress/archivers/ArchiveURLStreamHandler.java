@@ -26,17 +26,30 @@
 
 package de.unkrig.commons.file.org.apache.commons.compress.archivers;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 
+import de.unkrig.commons.io.FixedLengthInputStream;
 import de.unkrig.commons.nullanalysis.Nullable;
 
 /**
@@ -46,15 +59,79 @@ import de.unkrig.commons.nullanalysis.Nullable;
  *   The path component is interpreted as follows:
  * </p>
  * <quote><code><i>container-url</i>!<i>entry-name</i></code></quote>
+ * <p>
+ *   Iff the container is a local file, and the handler supports it (see {@link #openZipFile(File)} and {@link
+ *   #isEntryDataContiguous()}), then an index of the container's entries is cached, so that looking up another
+ *   entry of the same container requires no scanning of the container. The index is invalidated when the
+ *   modification time or the size of the container file changes.
+ * </p>
  */
 public abstract
 class ArchiveURLStreamHandler extends URLStreamHandler {
 
+    /**
+     * Iff a system property with this name is set, then its (integer) value configures how many container indexes
+     * are cached (least recently used first out). The default is 16.
+     */
+    public static final String SYSTEM_PROPERTY_INDEX_CACHE_SIZE = "ArchiveURLStreamHandler.indexCacheSize";
+
+    private static final int INDEX_CACHE_SIZE = Math.max(
+        1,
+        Integer.getInteger(ArchiveURLStreamHandler.SYSTEM_PROPERTY_INDEX_CACHE_SIZE, 16)
+    );
+
+    /**
+     * Maps "handler class and container file" to {@link ContainerIndex}. Access must be synchronized on the map.
+     */
+    private static final Map<Object, ContainerIndex>
+    INDEX_CACHE = new LinkedHashMap<Object, ContainerIndex>(16, .75F, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override protected boolean
+        removeEldestEntry(@Nullable Entry<Object, ContainerIndex> eldest) {
+            assert eldest != null;
+
+            if (this.size() <= ArchiveURLStreamHandler.INDEX_CACHE_SIZE) return false;
+
+            eldest.getValue().evict();
+            return true;
+        }
+    };
+
     /**
      * Wraps the <var>containerInputStream</var> in an {@link ArchiveInputStream}.
      */
     protected abstract ArchiveInputStream open(InputStream containerInputStream) throws ArchiveException;
 
+    /**
+     * Iff the archive format of this handler allows random access to the entries of a container file, then this
+     * method opens the <var>containerFile</var> as a {@link ZipFile}, which is then cached.
+     *
+     * @return {@code null} iff the archive format does not support random access through a {@link ZipFile}
+     */
+    @Nullable protected ZipFile
+    openZipFile(File containerFile) throws IOException { return null; }
+
+    /**
+     * @return Whether the {@link ArchiveInputStream}s that {@link #open(InputStream)} creates store the data of
+     *         each entry uncompressed and contiguously, and never read ahead, so that the offsets of the entries'
+     *         data within a container file can be cached
+     */
+    protected boolean
+    isEntryDataContiguous() { return false; }
+
+    /**
+     * Closes all cached container indexes; streams that are currently open remain usable until they are closed.
+     */
+    public static void
+    clearIndexCache() {
+        synchronized (ArchiveURLStreamHandler.INDEX_CACHE) {
+            for (ContainerIndex ci : ArchiveURLStreamHandler.INDEX_CACHE.values()) ci.evict();
+            ArchiveURLStreamHandler.INDEX_CACHE.clear();
+        }
+    }
+
     @Override protected URLConnection
     openConnection(@Nullable URL url) {
         assert url != null;
@@ -106,6 +183,45 @@ class ArchiveURLStreamHandler extends URLStreamHandler {
 
                 String relativeEntryName = ArchiveURLStreamHandler.stripLeadingSlashes(entryName);
 
+                // Iff the container is a local file, then look up the entry in the (cached) container index.
+                File containerFile = ArchiveURLStreamHandler.toFile(container);
+                if (containerFile != null) {
+                    final ContainerIndex ci = ArchiveURLStreamHandler.this.acquireIndex(containerFile);
+                    if (ci != null) {
+                        InputStream is;
+                        try {
+                            is = ci.open(relativeEntryName);
+                        } catch (IOException ioe) {
+                            ci.release();
+                            throw ioe;
+                        } catch (RuntimeException re) {
+                            ci.release();
+                            throw re;
+                        }
+
+                        if (is == null) {
+                            ci.release();
+                            throw new FileNotFoundException(container.toString() + '!' + entryName);
+                        }
+
+                        return new FilterInputStream(is) {
+
+                            private boolean closed;
+
+                            @Override public void
+                            close() throws IOException {
+                                if (this.closed) return;
+                                this.closed = true;
+                                try {
+                                    super.close();
+                                } finally {
+                                    ci.release();
+                                }
+                            }
+                        };
+                    }
+                }
+
                 ArchiveInputStream ais;
                 try {
                     ais = ArchiveURLStreamHandler.this.open(container.openStream());
@@ -132,6 +248,229 @@ class ArchiveURLStreamHandler extends URLStreamHandler {
         };
     }
 
+    /**
+     * @return The cached, {@link ContainerIndex#acquire() acquired} index of the <var>containerFile</var>, or {@code
+     *         null} iff this handler does not support indexing
+     */
+    @Nullable private ContainerIndex
+    acquireIndex(File containerFile) throws IOException {
+
+        Object key          = Arrays.asList(this.getClass(), containerFile.getAbsolutePath());
+        long   lastModified = containerFile.lastModified();
+        long   length       = containerFile.length();
+
+        synchronized (ArchiveURLStreamHandler.INDEX_CACHE) {
+            ContainerIndex ci = ArchiveURLStreamHandler.INDEX_CACHE.get(key);
+            if (ci != null) {
+                if (ci.lastModified == lastModified && ci.length == length) {
+                    ci.acquire();
+                    return ci;
+                }
+
+                // The container file has changed since it was indexed.
+                ArchiveURLStreamHandler.INDEX_CACHE.remove(key);
+                ci.evict();
+            }
+        }
+
+        // Notice: The index is created outside of the cache's lock, so concurrent callers that look up the same
+        // container may both create an index; the first one wins.
+        ContainerIndex ci = this.createIndex(containerFile, lastModified, length);
+        if (ci == null) return null;
+
+        synchronized (ArchiveURLStreamHandler.INDEX_CACHE) {
+            ContainerIndex other = ArchiveURLStreamHandler.INDEX_CACHE.get(key);
+            if (other != null && other.lastModified == lastModified && other.length == length) {
+                ci.evict();
+                other.acquire();
+                return other;
+            }
+            if (other != null) other.evict();
+
+            ArchiveURLStreamHandler.INDEX_CACHE.put(key, ci);
+            ci.acquire();
+            return ci;
+        }
+    }
+
+    @Nullable private ContainerIndex
+    createIndex(File containerFile, long lastModified, long length) throws IOException {
+
+        ZipFile zipFile = this.openZipFile(containerFile);
+        if (zipFile != null) {
+            Map<String, ZipArchiveEntry> entries = new HashMap<String, ZipArchiveEntry>();
+            for (Enumeration<ZipArchiveEntry> en = zipFile.getEntries(); en.hasMoreElements();) {
+                ZipArchiveEntry zae  = en.nextElement();
+                String          name = ArchiveURLStreamHandler.stripLeadingSlashes(zae.getName());
+                if (!entries.containsKey(name)) entries.put(name, zae);
+            }
+            return new ZipFileIndex(lastModified, length, zipFile, entries);
+        }
+
+        if (!this.isEntryDataContiguous()) return null;
+
+        // Scan the container once, and remember where the data of each entry starts.
+        Map<String, long[]> entries = new HashMap<String, long[]>();
+        FileInputStream     fis     = new FileInputStream(containerFile);
+        try {
+            ArchiveInputStream ais;
+            try {
+                ais = this.open(fis);
+            } catch (ArchiveException ae) {
+                throw new IOException(ae);
+            }
+
+            for (ArchiveEntry ae = ais.getNextEntry(); ae != null; ae = ais.getNextEntry()) {
+                String name = ArchiveURLStreamHandler.stripLeadingSlashes(ae.getName());
+                long   size = ae.getSize();
+
+                // Entries with unknown size cannot be indexed, so the index would be incomplete.
+                if (size < 0) return null;
+
+                if (!entries.containsKey(name)) entries.put(name, new long[] { fis.getChannel().position(), size });
+            }
+            fis.close();
+        } finally {
+            try { fis.close(); } catch (Exception e) {}
+        }
+
+        return new OffsetIndex(lastModified, length, containerFile, entries);
+    }
+
+    /**
+     * A cached index of the entries of one container file. It is reference-counted, so that resources (like an open
+     * {@link ZipFile}) are released only after the index was evicted from the cache <em>and</em> all streams that
+     * were opened through it were closed.
+     */
+    private abstract static
+    class ContainerIndex {
+
+        final long lastModified, length;
+
+        private int     users;
+        private boolean evicted;
+
+        ContainerIndex(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length       = length;
+        }
+
+        /**
+         * @return An input stream that produces the contents of the named entry, or {@code null} iff the container
+         *         has no entry with that name
+         */
+        @Nullable abstract InputStream
+        open(String relativeEntryName) throws IOException;
+
+        /**
+         * Releases any resources that this index holds.
+         */
+        abstract void
+        dispose() throws IOException;
+
+        synchronized void
+        acquire() { this.users++; }
+
+        synchronized void
+        release() {
+            if (--this.users == 0 && this.evicted) this.attemptToDispose();
+        }
+
+        synchronized void
+        evict() {
+            this.evicted = true;
+            if (this.users == 0) this.attemptToDispose();
+        }
+
+        private void
+        attemptToDispose() {
+            try { this.dispose(); } catch (Exception e) {}
+        }
+    }
+
+    /**
+     * Indexes a container through an open {@link ZipFile}, which allows for random access to its entries.
+     */
+    private static
+    class ZipFileIndex extends ContainerIndex {
+
+        private final ZipFile                      zipFile;
+        private final Map<String, ZipArchiveEntry> entries;
+
+        ZipFileIndex(long lastModified, long length, ZipFile zipFile, Map<String, ZipArchiveEntry> entries) {
+            super(lastModified, length);
+            this.zipFile = zipFile;
+            this.entries = entries;
+        }
+
+        @Override @Nullable InputStream
+        open(String relativeEntryName) throws IOException {
+            ZipArchiveEntry zae = this.entries.get(relativeEntryName);
+            return zae == null ? null : this.zipFile.getInputStream(zae);
+        }
+
+        @Override void
+        dispose() throws IOException { this.zipFile.close(); }
+    }
+
+    /**
+     * Indexes a container by the offsets and sizes of the entries' data within the container file.
+     */
+    private static
+    class OffsetIndex extends ContainerIndex {
+
+        private final File                containerFile;
+        private final Map<String, long[]> entries; // { offset, size }
+
+        OffsetIndex(long lastModified, long length, File containerFile, Map<String, long[]> entries) {
+            super(lastModified, length);
+            this.containerFile = containerFile;
+            this.entries       = entries;
+        }
+
+        @Override @Nullable InputStream
+        open(String relativeEntryName) throws IOException {
+
+            long[] offsetAndSize = this.entries.get(relativeEntryName);
+            if (offsetAndSize == null) return null;
+
+            final FileInputStream fis = new FileInputStream(this.containerFile);
+            try {
+                fis.getChannel().position(offsetAndSize[0]);
+            } catch (IOException ioe) {
+                try { fis.close(); } catch (Exception e) {}
+                throw ioe;
+            }
+
+            return new FilterInputStream(new FixedLengthInputStream(fis, offsetAndSize[1])) {
+
+                @Override public void
+                close() throws IOException { fis.close(); }
+            };
+        }
+
+        @Override void
+        dispose() {}
+    }
+
+    /**
+     * @return The local file that the <var>url</var> designates, or {@code null} iff the <var>url</var> does not
+     *         designate a local file
+     */
+    @Nullable private static File
+    toFile(URL url) {
+
+        if (!"file".equals(url.getProtocol())) return null;
+
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException use) {
+            return null;
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
     private static String
     stripLeadingSlashes(String s) {
         if (s.isEmpty() || s.charAt(0) != '/') return s;
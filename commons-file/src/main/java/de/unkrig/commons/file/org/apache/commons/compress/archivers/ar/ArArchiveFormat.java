@@ -42,6 +42,7 @@ import org.apache.commons.compress.compressors.FileNameUtil;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.io.IoUtil;
 import de.unkrig.commons.io.OutputStreams;
@@ -58,7 +59,7 @@ import de.unkrig.commons.util.collections.MapUtil;
  * Representation of the 'ar' archive format.
  */
 public final
-class ArArchiveFormat extends AbstractArchiveFormat {
+class ArArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     private static final FileNameUtil
     FILE_NAME_UTIL = new FileNameUtil(MapUtil.<String, String>map(".a", "", ".ar", ""), ".a");
@@ -256,6 +257,9 @@ class ArArchiveFormat extends AbstractArchiveFormat {
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return ArArchiveInputStream.matches(signature, signatureLength); }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { '!' }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
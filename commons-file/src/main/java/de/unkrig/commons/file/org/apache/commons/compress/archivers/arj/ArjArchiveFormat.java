@@ -40,6 +40,7 @@ import org.apache.commons.compress.compressors.FileNameUtil;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.nullanalysis.Nullable;
 
@@ -47,7 +48,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * Representation of the 'ar' archive format.
  */
 public final
-class ArjArchiveFormat extends AbstractArchiveFormat {
+class ArjArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     private static final FileNameUtil  FILE_NAME_UTIL = new FileNameUtil(Collections.singletonMap(".arj", ""), ".arj");
 
@@ -78,6 +79,9 @@ class ArjArchiveFormat extends AbstractArchiveFormat {
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return ArjArchiveInputStream.matches(signature, signatureLength); }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 0x60 }; }
+
     @Override @Nullable public String
     getCompressionMethod(ArchiveEntry ae) {
 
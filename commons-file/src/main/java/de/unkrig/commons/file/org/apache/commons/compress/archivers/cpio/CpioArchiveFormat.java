@@ -47,6 +47,7 @@ import org.apache.commons.compress.compressors.FileNameUtil;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.io.IoUtil;
 import de.unkrig.commons.io.OutputStreams;
@@ -59,7 +60,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * Representation of the 'ar' archive format.
  */
 public final
-class CpioArchiveFormat extends AbstractArchiveFormat {
+class CpioArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     private static final FileNameUtil
     FILE_NAME_UTIL = new FileNameUtil(Collections.singletonMap(".cpio", ""), ".cpio");
@@ -211,6 +212,9 @@ class CpioArchiveFormat extends AbstractArchiveFormat {
         return CpioArchiveInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 0x71, (byte) 0xc7, '0' }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
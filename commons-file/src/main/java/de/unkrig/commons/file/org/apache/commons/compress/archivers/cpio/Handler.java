@@ -55,4 +55,7 @@ class Handler extends ArchiveURLStreamHandler {
     open(InputStream containerInputStream) {
         return new CpioArchiveInputStream(containerInputStream);
     }
+
+    @Override protected boolean
+    isEntryDataContiguous() { return true; }
 }
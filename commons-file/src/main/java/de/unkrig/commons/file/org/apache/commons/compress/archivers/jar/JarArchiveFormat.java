@@ -41,11 +41,14 @@ import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.jar.JarArchiveEntry;
 import org.apache.commons.compress.archivers.jar.JarArchiveInputStream;
 import org.apache.commons.compress.archivers.jar.JarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.compressors.FileNameUtil;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.ZipFileArchiveInputStream;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.nullanalysis.Nullable;
 
@@ -53,7 +56,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * Representation of the 'ar' archive format.
  */
 public final
-class JarArchiveFormat extends AbstractArchiveFormat {
+class JarArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     private static final FileNameUtil FILE_NAME_UTIL = new FileNameUtil(Collections.singletonMap(".jar", ""), ".jar");
 
@@ -76,6 +79,9 @@ class JarArchiveFormat extends AbstractArchiveFormat {
     @Override public ArchiveInputStream
     archiveInputStream(InputStream is) { return new JarArchiveInputStream(is); }
 
+    @Override public ArchiveInputStream
+    open(File archiveFile) throws IOException { return new ZipFileArchiveInputStream(archiveFile); }
+
     @Override public ArchiveOutputStream
     archiveOutputStream(OutputStream os) { return new JarArchiveOutputStream(os); }
 
@@ -139,8 +145,9 @@ class JarArchiveFormat extends AbstractArchiveFormat {
         }
 
 
-        if (archiveEntry instanceof JarArchiveEntry) {
-            JarArchiveEntry jae = (JarArchiveEntry) archiveEntry;
+        // Notice: JAR files are read through "ZipFile", so the entries are "ZipArchiveEntry"s.
+        if (archiveEntry instanceof ZipArchiveEntry) {
+            ZipArchiveEntry jae = (ZipArchiveEntry) archiveEntry;
 
             njae.setComment(jae.getComment());
             njae.setExternalAttributes(jae.getExternalAttributes());
@@ -160,6 +167,9 @@ class JarArchiveFormat extends AbstractArchiveFormat {
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return JarArchiveInputStream.matches(signature, signatureLength); }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 'P' }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
@@ -43,6 +43,7 @@ import org.apache.commons.compress.compressors.FileNameUtil;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.lang.ExceptionUtil;
 
@@ -50,7 +51,7 @@ import de.unkrig.commons.lang.ExceptionUtil;
  * Representation of the 'rpm' archive format.
  */
 public final
-class RpmArchiveFormat extends AbstractArchiveFormat {
+class RpmArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     private static final FileNameUtil
     FILE_NAME_UTIL = new FileNameUtil(Collections.singletonMap(".rpm", ""), ".rpm");
@@ -124,6 +125,9 @@ class RpmArchiveFormat extends AbstractArchiveFormat {
         );
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { (byte) 0xed }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
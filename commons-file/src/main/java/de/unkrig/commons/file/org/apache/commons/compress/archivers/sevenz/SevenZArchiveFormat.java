@@ -46,6 +46,7 @@ import org.apache.commons.compress.utils.Charsets;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.nullanalysis.Nullable;
@@ -54,7 +55,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * Representation of the '7z' archive format.
  */
 public final
-class SevenZArchiveFormat extends AbstractArchiveFormat {
+class SevenZArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     /**
      * Iff a system property with this name is set, then its value is used to decrypt 7ZIP input files. That password
@@ -180,6 +181,9 @@ class SevenZArchiveFormat extends AbstractArchiveFormat {
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return SevenZFile.matches(signature, signatureLength); }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { '7' }; }
+
     @Override @Nullable public String
     getCompressionMethod(ArchiveEntry ae) {
 
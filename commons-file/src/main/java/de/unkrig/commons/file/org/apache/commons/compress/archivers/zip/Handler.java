@@ -26,11 +26,14 @@
 
 package de.unkrig.commons.file.org.apache.commons.compress.archivers.zip;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLStreamHandler;
 
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveURLStreamHandler;
@@ -55,4 +58,7 @@ class Handler extends ArchiveURLStreamHandler {
     open(InputStream containerInputStream) {
         return new ZipArchiveInputStream(containerInputStream);
     }
+
+    @Override protected ZipFile
+    openZipFile(File containerFile) throws IOException { return new ZipFile(containerFile); }
 }
@@ -32,7 +32,6 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.zip.CRC32;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
@@ -42,12 +41,12 @@ import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
-import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.archivers.zip.ZipMethod;
 import org.apache.commons.compress.compressors.FileNameUtil;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.AbstractArchiveFormat;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.io.OutputStreams;
 import de.unkrig.commons.io.pipe.Pipe;
@@ -61,7 +60,7 @@ import de.unkrig.commons.nullanalysis.Nullable;
  * Representation of the 'zip' archive format.
  */
 public final
-class ZipArchiveFormat extends AbstractArchiveFormat {
+class ZipArchiveFormat extends AbstractArchiveFormat implements FirstBytes {
 
     static { AssertionUtil.enableAssertionsForThisClass(); }
 
@@ -88,7 +87,7 @@ class ZipArchiveFormat extends AbstractArchiveFormat {
 
     @Override public ArchiveInputStream
     open(File archiveFile)
-    throws IOException { return ZipArchiveFormat.zipArchiveInputStream(archiveFile); }
+    throws IOException { return new ZipFileArchiveInputStream(archiveFile); }
 
     @Override public ArchiveOutputStream
     archiveOutputStream(OutputStream os) { return new ZipArchiveOutputStream(os); }
@@ -227,54 +226,14 @@ class ZipArchiveFormat extends AbstractArchiveFormat {
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return ZipArchiveInputStream.matches(signature, signatureLength); }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 'P' }; }
+
     @Override @Nullable public String
     getCompressionMethod(ArchiveEntry ae) {
         return ZipMethod.getMethodByCode(((ZipArchiveEntry) ae).getMethod()).toString();
     }
 
-    private static ArchiveInputStream
-    zipArchiveInputStream(final File file) throws IOException {
-
-        return new ArchiveInputStream() {
-
-            final ZipFile                      zipFile = new ZipFile(file);
-            final Enumeration<ZipArchiveEntry> entries = this.zipFile.getEntriesInPhysicalOrder();
-            @Nullable private InputStream      stream;
-
-            @Override public int
-            getCount() { throw new UnsupportedOperationException("getCount"); }
-
-            @Override public long
-            getBytesRead() { throw new UnsupportedOperationException("getBytesRead"); }
-
-            @Override public int
-            read(@Nullable byte[] b, int off, int len) throws IOException {
-                InputStream is = this.stream;
-                if (is == null) throw new IllegalStateException();
-                return is.read(b, off, len);
-            }
-
-            @Override public void
-            close() throws IOException { this.zipFile.close(); }
-
-            @Override @Nullable public ArchiveEntry
-            getNextEntry() throws IOException {
-
-                if (!this.entries.hasMoreElements()) {
-                    this.stream = null;
-                    return null;
-                }
-
-                ZipArchiveEntry zae = this.entries.nextElement();
-                this.stream = this.zipFile.getInputStream(zae);
-                return zae;
-            }
-
-            @Override public String
-            toString() { return file.toString(); }
-        };
-    }
-
     @Override public String
     toString() { return this.getName(); }
 }
@@ -0,0 +1,152 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file.org.apache.commons.compress.archivers.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * An {@link ArchiveInputStream} that reads the entries of a ZIP file through a {@link ZipFile}, i.e. with random
+ * access. Unlike the streaming {@link org.apache.commons.compress.archivers.zip.ZipArchiveInputStream}, it can
+ * re-read the current entry, and provide the entry's <em>raw</em> (still compressed) data, which allows for copying
+ * unmodified entries verbatim into a {@link org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream}.
+ * <p>
+ *   The entries are returned in their <em>physical</em> order.
+ * </p>
+ * <p>
+ *   The underlying {@link ZipFile} is accessible through {@link #getZipFile()}; its {@link
+ *   ZipFile#getInputStream(ZipArchiveEntry)} streams can be read concurrently by multiple threads.
+ * </p>
+ */
+public
+class ZipFileArchiveInputStream extends ArchiveInputStream {
+
+    private final File                         file;
+    private final ZipFile                      zipFile;
+    private final Enumeration<ZipArchiveEntry> entries;
+
+    @Nullable private ZipArchiveEntry currentEntry;
+    @Nullable private InputStream     stream;
+
+    public
+    ZipFileArchiveInputStream(File file) throws IOException {
+        this.file    = file;
+        this.zipFile = new ZipFile(file);
+        this.entries = this.zipFile.getEntriesInPhysicalOrder();
+    }
+
+    @Override public int
+    getCount() { throw new UnsupportedOperationException("getCount"); }
+
+    @Override public long
+    getBytesRead() { throw new UnsupportedOperationException("getBytesRead"); }
+
+    @Override public int
+    read(@Nullable byte[] b, int off, int len) throws IOException {
+        InputStream is = this.stream;
+        if (is == null) throw new IllegalStateException();
+        return is.read(b, off, len);
+    }
+
+    @Override public void
+    close() throws IOException { this.zipFile.close(); }
+
+    @Override @Nullable public ArchiveEntry
+    getNextEntry() throws IOException {
+
+        this.closeStream();
+
+        if (!this.entries.hasMoreElements()) {
+            this.currentEntry = null;
+            return null;
+        }
+
+        ZipArchiveEntry zae = (this.currentEntry = this.entries.nextElement());
+        this.stream = this.zipFile.getInputStream(zae);
+        return zae;
+    }
+
+    /**
+     * @return The {@link ZipFile} that this stream reads from; is closed when this stream is closed
+     */
+    public ZipFile
+    getZipFile() { return this.zipFile; }
+
+    /**
+     * Positions this stream back to the beginning of the (uncompressed) contents of the current entry.
+     *
+     * @throws IllegalStateException There is no current entry
+     */
+    public void
+    rewindEntry() throws IOException {
+
+        ZipArchiveEntry zae = this.currentEntry;
+        if (zae == null) throw new IllegalStateException();
+
+        this.closeStream();
+        this.stream = this.zipFile.getInputStream(zae);
+    }
+
+    /**
+     * @return                       The raw (i.e. still compressed) data of the current entry; the caller is
+     *                               responsible for closing that stream
+     * @throws IllegalStateException There is no current entry
+     */
+    public InputStream
+    getRawInputStream() {
+
+        ZipArchiveEntry zae = this.currentEntry;
+        if (zae == null) throw new IllegalStateException();
+
+        InputStream result = this.zipFile.getRawInputStream(zae);
+        if (result == null) throw new IllegalStateException(zae.getName());
+
+        return result;
+    }
+
+    @Override public String
+    toString() { return this.file.toString(); }
+
+    private void
+    closeStream() throws IOException {
+
+        InputStream is = this.stream;
+        if (is == null) return;
+
+        this.stream = null;
+        is.close();
+    }
+}
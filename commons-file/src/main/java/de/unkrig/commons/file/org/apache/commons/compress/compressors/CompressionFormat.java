@@ -100,4 +100,19 @@ interface CompressionFormat {
     /** @return Whether the first few bytes of compressed data match what is expected for this format */
     boolean
     matches(byte[] signature, int signatureLength);
+
+    /**
+     * Optionally implemented by {@link CompressionFormat}s, so that {@link
+     * CompressionFormatFactory#forSignature(byte[], int)} asks only those formats whether they {@link #matches(byte[],
+     * int) match} that could possibly match. Formats that do not implement this interface are always asked.
+     */
+    interface FirstBytes {
+
+        /**
+         * @return All values that the first byte of the compressed data can have iff {@link #matches(byte[], int)}
+         *         returns {@code true}; an empty array iff the format is never detected from the contents
+         */
+        byte[]
+        firstBytes();
+    }
 }
@@ -36,19 +36,21 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.CompressorOutputStream;
 import org.apache.commons.compress.compressors.FileNameUtil;
-import org.apache.commons.compress.compressors.snappy.SnappyCompressorInputStream;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.compressors.snappy.SnappyCompressorInputStream;
 
 import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
 import de.unkrig.commons.io.MarkableFileInputStream;
@@ -128,6 +130,32 @@ class CompressionFormatFactory {
         ALL_COMPRESSION_FORMATS = Collections.unmodifiableMap(m);
     }
 
+    /**
+     * For each value of the first byte of the contents: The formats that could possibly match, in the order of {@link
+     * #allFormats()}.
+     */
+    private static final List<List<CompressionFormat>> CANDIDATES = new ArrayList<List<CompressionFormat>>(256);
+
+    /**
+     * The formats that could possibly match empty contents.
+     */
+    private static final List<CompressionFormat> UNKEYED_CANDIDATES = new ArrayList<CompressionFormat>();
+
+    static {
+        for (int i = 0; i < 256; i++) CompressionFormatFactory.CANDIDATES.add(new ArrayList<CompressionFormat>());
+
+        for (CompressionFormat cf : CompressionFormatFactory.ALL_COMPRESSION_FORMATS.values()) {
+            if (cf instanceof CompressionFormat.FirstBytes) {
+                for (byte b : ((CompressionFormat.FirstBytes) cf).firstBytes()) {
+                    CompressionFormatFactory.CANDIDATES.get(0xff & b).add(cf);
+                }
+            } else {
+                for (List<CompressionFormat> l : CompressionFormatFactory.CANDIDATES) l.add(cf);
+                CompressionFormatFactory.UNKEYED_CANDIDATES.add(cf);
+            }
+        }
+    }
+
     /**
      * Register this package for {@link java.net.URLStreamHandler}s for the supported compressor formats.
      *
@@ -195,8 +223,28 @@ class CompressionFormatFactory {
         int signatureLength = IOUtils.readFully(is, signature);
         is.reset();
 
-        for (CompressionFormat af : CompressionFormatFactory.ALL_COMPRESSION_FORMATS.values()) {
-            if (af.matches(signature, signatureLength)) return af;
+        return CompressionFormatFactory.forSignature(signature, signatureLength);
+    }
+
+    /**
+     * Determines the compression format from the first few bytes of some contents. Only those formats are asked whether
+     * they {@link CompressionFormat#matches(byte[], int) match} that could possibly match (see {@link
+     * CompressionFormat.FirstBytes}).
+     *
+     * @return One of {@link #allFormats()}, or {@code null} iff the <var>signature</var> matches none of the known
+     *         compression formats
+     */
+    @Nullable public static CompressionFormat
+    forSignature(byte[] signature, int signatureLength) {
+
+        List<CompressionFormat> candidates = (
+            signatureLength == 0
+            ? CompressionFormatFactory.UNKEYED_CANDIDATES
+            : CompressionFormatFactory.CANDIDATES.get(0xff & signature[0])
+        );
+
+        for (CompressionFormat cf : candidates) {
+            if (cf.matches(signature, signatureLength)) return cf;
         }
 
         return null;
@@ -0,0 +1,261 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file.org.apache.commons.compress.compressors;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.CompressorOutputStream;
+
+import de.unkrig.commons.nullanalysis.NotNullByDefault;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A {@link CompressorOutputStream} that splits its input into blocks of fixed size, and compresses these blocks
+ * concurrently with a pool of threads. The compressed blocks are written to the underlying output stream in their
+ * original order.
+ * <p>
+ *   The memory consumption is bounded: At most <var>2 * threadCount</var> blocks are "in flight" at any time; when
+ *   that limit is reached, {@link #write(byte[], int, int)} blocks until the oldest block is compressed and written.
+ * </p>
+ * <p>
+ *   The blocks are compressed by an {@link ExecutorService} which is shared with other tasks and is never shut down
+ *   by this stream; by default that is the {@link ForkJoinPool#commonPool() common pool}.
+ * </p>
+ */
+public abstract
+class ParallelCompressorOutputStream extends CompressorOutputStream {
+
+    // CONFIGURATION
+    private final OutputStream    out;
+    private final int             blockSize;
+    private final ExecutorService executorService;
+    private final int             threadCount;
+
+    // STATE
+    @Nullable private byte[]              block;
+    private int                           blockLength;
+    @Nullable private byte[]              previousBlock;
+    private final Queue<Future<byte[]>>   pending = new ArrayDeque<Future<byte[]>>();
+    private boolean                       headerWritten;
+    private boolean                       finished;
+
+    /**
+     * Equivalent with {@link #ParallelCompressorOutputStream(OutputStream, int, ExecutorService, int)
+     * ParallelCompressorOutputStream}{@code (}<var>out</var>{@code ,} <var>blockSize</var>{@code ,
+     * ForkJoinPool.commonPool(),} <var>threadCount</var>{@code )}.
+     */
+    protected
+    ParallelCompressorOutputStream(OutputStream out, int blockSize, int threadCount) {
+        this(out, blockSize, ForkJoinPool.commonPool(), threadCount);
+    }
+
+    /**
+     * @param blockSize       The number of uncompressed bytes per block
+     * @param executorService Compresses the blocks; is not shut down by this stream
+     * @param threadCount     The maximum number of blocks that are compressed concurrently
+     */
+    protected
+    ParallelCompressorOutputStream(OutputStream out, int blockSize, ExecutorService executorService, int threadCount) {
+
+        if (blockSize < 1)   throw new IllegalArgumentException("blockSize");
+        if (threadCount < 1) throw new IllegalArgumentException("threadCount");
+
+        this.out             = out;
+        this.blockSize       = blockSize;
+        this.executorService = executorService;
+        this.threadCount     = threadCount;
+    }
+
+    /**
+     * Compresses one block. Is invoked by the pool threads, so implementations must not access any mutable state of
+     * this object.
+     *
+     * @param data          Holds the uncompressed data of the block, starting at offset 0
+     * @param previousBlock The (complete) preceding block, or {@code null} iff this is the first block; useful for
+     *                      "priming" the compressor
+     * @param last          Whether this is the last block of the stream
+     * @return              The compressed block
+     */
+    protected abstract byte[]
+    compressBlock(byte[] data, int length, @Nullable byte[] previousBlock, boolean last) throws IOException;
+
+    /**
+     * Is invoked (in the caller's thread) with all uncompressed data, in order; the default implementation does
+     * nothing.
+     */
+    protected void
+    update(byte[] b, int off, int len) {}
+
+    /**
+     * Writes the stream header, if any; the default implementation does nothing.
+     */
+    protected void
+    writeHeader(OutputStream out) throws IOException {}
+
+    /**
+     * Writes the stream trailer, if any; the default implementation does nothing.
+     */
+    protected void
+    writeTrailer(OutputStream out) throws IOException {}
+
+    @Override public void
+    write(int b) throws IOException { this.write(new byte[] { (byte) b }, 0, 1); }
+
+    @NotNullByDefault(false) @Override public void
+    write(byte[] b, int off, int len) throws IOException {
+
+        if (this.finished) throw new IOException("Stream is finished");
+
+        this.update(b, off, len);
+
+        while (len > 0) {
+
+            byte[] block = this.block;
+            if (block == null) {
+                block = (this.block = new byte[this.blockSize]);
+            } else
+            if (this.blockLength == this.blockSize) {
+
+                // Notice: A full block is submitted only when more data arrives, because "finish()" must submit
+                // the LAST block with "last=true".
+                this.submitBlock(false);
+                block = (this.block = new byte[this.blockSize]);
+            }
+
+            int n = Math.min(len, this.blockSize - this.blockLength);
+            System.arraycopy(b, off, block, this.blockLength, n);
+            this.blockLength += n;
+            off              += n;
+            len              -= n;
+        }
+    }
+
+    /**
+     * Compresses and writes all remaining data, and the trailer, without closing the underlying output stream.
+     * Afterwards, no more data can be written to this stream.
+     */
+    public void
+    finish() throws IOException {
+
+        if (this.finished) return;
+
+        try {
+            if (this.block == null) this.block = new byte[0];
+            this.submitBlock(true);
+
+            while (!this.pending.isEmpty()) this.writeOldestBlock();
+
+            if (!this.headerWritten) {
+                this.writeHeader(this.out);
+                this.headerWritten = true;
+            }
+            this.writeTrailer(this.out);
+            this.out.flush();
+        } finally {
+            this.finished = true;
+            this.block    = null;
+
+            // Iff an exception occurred, then discard the blocks that are still "in flight".
+            for (Future<byte[]> f : this.pending) f.cancel(true);
+            this.pending.clear();
+        }
+    }
+
+    @Override public void
+    flush() throws IOException { this.out.flush(); }
+
+    @Override public void
+    close() throws IOException {
+        try {
+            this.finish();
+            this.out.close();
+        } finally {
+            try { this.out.close(); } catch (Exception e) {}
+        }
+    }
+
+    private void
+    submitBlock(final boolean last) throws IOException {
+
+        final byte[] data          = this.block;
+        final int    length        = this.blockLength;
+        final byte[] previousBlock = this.previousBlock;
+        assert data != null;
+
+        // Enforce the memory bound.
+        while (this.pending.size() >= 2 * this.threadCount) this.writeOldestBlock();
+
+        this.pending.add(this.executorService.submit(new Callable<byte[]>() {
+
+            @Override public byte[]
+            call() throws IOException {
+                return ParallelCompressorOutputStream.this.compressBlock(data, length, previousBlock, last);
+            }
+        }));
+
+        this.previousBlock = data;
+        this.block         = null;
+        this.blockLength   = 0;
+    }
+
+    private void
+    writeOldestBlock() throws IOException {
+
+        Future<byte[]> future = this.pending.remove();
+
+        byte[] compressedBlock;
+        try {
+            compressedBlock = future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+
+            // SUPPRESS CHECKSTYLE AvoidHidingCause:3
+            if (cause instanceof IOException)      throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error)            throw (Error) cause;
+            throw new IOException(cause);
+        }
+
+        if (!this.headerWritten) {
+            this.writeHeader(this.out);
+            this.headerWritten = true;
+        }
+        this.out.write(compressedBlock);
+    }
+}
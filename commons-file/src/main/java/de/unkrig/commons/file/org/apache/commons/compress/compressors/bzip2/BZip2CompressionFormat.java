@@ -42,11 +42,19 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream
 import org.apache.commons.compress.compressors.bzip2.BZip2Utils;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 
 /** Representation of the 'bzip2' compression format. */
 public final
-class BZip2CompressionFormat implements CompressionFormat {
+class BZip2CompressionFormat implements CompressionFormat, FirstBytes {
+
+    /**
+     * Iff a system property with this name is set, then its (integer) value configures the number of threads that
+     * are used for compression (which are taken from the {@link java.util.concurrent.ForkJoinPool#commonPool() common
+     * pool}). That value can be overridden with {@link #setCompressorThreadCount(int)}.
+     */
+    public static final String SYSTEM_PROPERTY_COMPRESSOR_THREAD_COUNT = "BZip2CompressionFormat.compressorThreadCount";
 
     private BZip2CompressionFormat() {}
 
@@ -68,13 +76,13 @@ class BZip2CompressionFormat implements CompressionFormat {
     getUncompressedFileName(String fileName) { return BZip2Utils.getUncompressedFilename(fileName); }
 
     @Override public CompressorInputStream
-    compressorInputStream(InputStream is) throws IOException { return new BZip2CompressorInputStream(is); }
+    compressorInputStream(InputStream is) throws IOException { return new BZip2CompressorInputStream(is, true); }
 
     @Override public CompressorInputStream
     open(File compressedFile) throws IOException {
         InputStream is = new BufferedInputStream(new FileInputStream(compressedFile));
         try {
-            return new BZip2CompressorInputStream(is);
+            return new BZip2CompressorInputStream(is, true);
         } catch (IOException ioe) {
             try { is.close(); } catch (Exception e) {}
             throw ioe;
@@ -82,13 +90,47 @@ class BZip2CompressionFormat implements CompressionFormat {
     }
 
     @Override public CompressorOutputStream
-    compressorOutputStream(OutputStream os) throws IOException { return new BZip2CompressorOutputStream(os); }
+    compressorOutputStream(OutputStream os) throws IOException {
+        int threadCount = BZip2CompressionFormat.getCompressorThreadCount();
+        return (
+            threadCount > 1
+            ? new ParallelBZip2CompressorOutputStream(os, threadCount)
+            : new BZip2CompressorOutputStream(os)
+        );
+    }
+
+    /**
+     * Configures the number of threads that {@link #compressorOutputStream(OutputStream)} and {@link
+     * #create(File)} use; overrides the system property {@value #SYSTEM_PROPERTY_COMPRESSOR_THREAD_COUNT}.
+     *
+     * @param threadCount 1 means single-threaded compression, which is the default
+     * @see               ParallelBZip2CompressorOutputStream
+     */
+    public static void
+    setCompressorThreadCount(int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("threadCount");
+        BZip2CompressionFormat.compressorThreadCount = threadCount;
+    }
+
+    private static int
+    getCompressorThreadCount() {
+
+        if (BZip2CompressionFormat.compressorThreadCount == -1) {
+            BZip2CompressionFormat.compressorThreadCount = Integer.getInteger(
+                BZip2CompressionFormat.SYSTEM_PROPERTY_COMPRESSOR_THREAD_COUNT,
+                1
+            );
+        }
+
+        return BZip2CompressionFormat.compressorThreadCount;
+    }
+    private static int compressorThreadCount = -1;
 
     @Override public CompressorOutputStream
     create(File compressedFile) throws IOException {
         OutputStream os = new FileOutputStream(compressedFile);
         try {
-            return new BZip2CompressorOutputStream(os);
+            return this.compressorOutputStream(os);
         } catch (IOException ioe) {
             try { os.close(); } catch (Exception e) {}
             throw ioe;
@@ -100,6 +142,9 @@ class BZip2CompressionFormat implements CompressionFormat {
         return BZip2CompressorInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 'B' }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
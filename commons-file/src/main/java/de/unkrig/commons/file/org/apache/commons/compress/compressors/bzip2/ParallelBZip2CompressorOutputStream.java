@@ -0,0 +1,97 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file.org.apache.commons.compress.compressors.bzip2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.ParallelCompressorOutputStream;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Compresses the data in chunks of the BZIP2 block size on multiple threads, much like the "pbzip2" tool does. Each
+ * chunk is written as a complete BZIP2 stream, so the result is a sequence of <em>concatenated</em> BZIP2 streams,
+ * which the "bzip2" tool and {@code BZip2CompressorInputStream(InputStream, true)} decompress transparently.
+ * <p>
+ *   Because BZIP2 compresses each block independently anyway, the compression ratio is practically the same as that
+ *   of single-threaded compression.
+ * </p>
+ */
+public
+class ParallelBZip2CompressorOutputStream extends ParallelCompressorOutputStream {
+
+    // CONFIGURATION
+    private final int blockSize100k;
+
+    public
+    ParallelBZip2CompressorOutputStream(OutputStream out, int threadCount) {
+        this(out, BZip2CompressorOutputStream.MAX_BLOCKSIZE, threadCount);
+    }
+
+    /**
+     * @param blockSize100k See {@link BZip2CompressorOutputStream#BZip2CompressorOutputStream(OutputStream, int)}
+     */
+    public
+    ParallelBZip2CompressorOutputStream(OutputStream out, int blockSize100k, int threadCount) {
+        super(out, 100000 * blockSize100k, threadCount);
+        this.blockSize100k = blockSize100k;
+    }
+
+    /**
+     * @param blockSize100k   See {@link BZip2CompressorOutputStream#BZip2CompressorOutputStream(OutputStream, int)}
+     * @param executorService Compresses the blocks; is not shut down by this stream
+     */
+    public
+    ParallelBZip2CompressorOutputStream(
+        OutputStream    out,
+        int             blockSize100k,
+        ExecutorService executorService,
+        int             threadCount
+    ) {
+        super(out, 100000 * blockSize100k, executorService, threadCount);
+        this.blockSize100k = blockSize100k;
+    }
+
+    @Override protected byte[]
+    compressBlock(byte[] data, int length, @Nullable byte[] previousBlock, boolean last) throws IOException {
+
+        // Avoid an empty trailing stream when the data size is a multiple of the block size.
+        if (length == 0 && previousBlock != null) return new byte[0];
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(length / 4 + 64);
+
+        BZip2CompressorOutputStream bzos = new BZip2CompressorOutputStream(baos, this.blockSize100k);
+        bzos.write(data, 0, length);
+        bzos.close();
+
+        return baos.toByteArray();
+    }
+}
@@ -42,11 +42,19 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipUtils;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 
 /** Representation of the 'gzip' compression format. */
 public final
-class GzipCompressionFormat implements CompressionFormat {
+class GzipCompressionFormat implements CompressionFormat, FirstBytes {
+
+    /**
+     * Iff a system property with this name is set, then its (integer) value configures the number of threads that
+     * are used for compression (which are taken from the {@link java.util.concurrent.ForkJoinPool#commonPool() common
+     * pool}). That value can be overridden with {@link #setCompressorThreadCount(int)}.
+     */
+    public static final String SYSTEM_PROPERTY_COMPRESSOR_THREAD_COUNT = "GzipCompressionFormat.compressorThreadCount";
 
     private GzipCompressionFormat() {}
 
@@ -82,13 +90,47 @@ class GzipCompressionFormat implements CompressionFormat {
     }
 
     @Override public CompressorOutputStream
-    compressorOutputStream(OutputStream os) throws IOException { return new GzipCompressorOutputStream(os); }
+    compressorOutputStream(OutputStream os) throws IOException {
+        int threadCount = GzipCompressionFormat.getCompressorThreadCount();
+        return (
+            threadCount > 1
+            ? new ParallelGzipCompressorOutputStream(os, threadCount)
+            : new GzipCompressorOutputStream(os)
+        );
+    }
+
+    /**
+     * Configures the number of threads that {@link #compressorOutputStream(OutputStream)} and {@link
+     * #create(File)} use; overrides the system property {@value #SYSTEM_PROPERTY_COMPRESSOR_THREAD_COUNT}.
+     *
+     * @param threadCount 1 means single-threaded compression, which is the default
+     * @see               ParallelGzipCompressorOutputStream
+     */
+    public static void
+    setCompressorThreadCount(int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("threadCount");
+        GzipCompressionFormat.compressorThreadCount = threadCount;
+    }
+
+    private static int
+    getCompressorThreadCount() {
+
+        if (GzipCompressionFormat.compressorThreadCount == -1) {
+            GzipCompressionFormat.compressorThreadCount = Integer.getInteger(
+                GzipCompressionFormat.SYSTEM_PROPERTY_COMPRESSOR_THREAD_COUNT,
+                1
+            );
+        }
+
+        return GzipCompressionFormat.compressorThreadCount;
+    }
+    private static int compressorThreadCount = -1;
 
     @Override public CompressorOutputStream
     create(File compressedFile) throws IOException {
         OutputStream os = new FileOutputStream(compressedFile);
         try {
-            return new GzipCompressorOutputStream(os);
+            return this.compressorOutputStream(os);
         } catch (IOException ioe) {
             try { os.close(); } catch (Exception e) {}
             throw ioe;
@@ -100,6 +142,9 @@ class GzipCompressionFormat implements CompressionFormat {
         return GzipCompressorInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 0x1f }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
@@ -0,0 +1,154 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.file.org.apache.commons.compress.compressors.gzip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.ParallelCompressorOutputStream;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Produces a standard, single-member GZIP stream (RFC 1952), but deflates the data block by block on multiple
+ * threads, much like the "pigz" tool does. Each block is "primed" with the last 32 KiB of the preceding block as the
+ * preset dictionary, and all but the last block are terminated with a "sync flush", so the concatenated blocks form
+ * one valid DEFLATE stream, and the compression ratio is close to that of single-threaded compression.
+ */
+public
+class ParallelGzipCompressorOutputStream extends ParallelCompressorOutputStream {
+
+    /** The number of uncompressed bytes per block; same as the "pigz" default. */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    // CONFIGURATION
+    private final int level;
+
+    // STATE
+    private final CRC32 crc32 = new CRC32();
+    private long        uncompressedSize;
+
+    public
+    ParallelGzipCompressorOutputStream(OutputStream out, int threadCount) {
+        this(out, Deflater.DEFAULT_COMPRESSION, ParallelGzipCompressorOutputStream.DEFAULT_BLOCK_SIZE, threadCount);
+    }
+
+    /**
+     * @param level See {@link Deflater#setLevel(int)}
+     */
+    public
+    ParallelGzipCompressorOutputStream(OutputStream out, int level, int blockSize, int threadCount) {
+        super(out, blockSize, threadCount);
+        this.level = level;
+    }
+
+    /**
+     * @param level           See {@link Deflater#setLevel(int)}
+     * @param executorService Compresses the blocks; is not shut down by this stream
+     */
+    public
+    ParallelGzipCompressorOutputStream(
+        OutputStream    out,
+        int             level,
+        int             blockSize,
+        ExecutorService executorService,
+        int             threadCount
+    ) {
+        super(out, blockSize, executorService, threadCount);
+        this.level = level;
+    }
+
+    @Override protected void
+    update(byte[] b, int off, int len) {
+        this.crc32.update(b, off, len);
+        this.uncompressedSize += len;
+    }
+
+    @Override protected void
+    writeHeader(OutputStream out) throws IOException {
+        out.write(new byte[] {
+            0x1f, (byte) 0x8b, // ID1, ID2
+            Deflater.DEFLATED, // CM
+            0,                 // FLG
+            0, 0, 0, 0,        // MTIME
+            0,                 // XFL
+            (byte) 255,        // OS = "unknown"
+        });
+    }
+
+    @Override protected byte[]
+    compressBlock(byte[] data, int length, @Nullable byte[] previousBlock, boolean last) {
+
+        Deflater deflater = new Deflater(this.level, true);
+        try {
+            if (previousBlock != null) {
+                int dictionarySize = Math.min(previousBlock.length, ParallelGzipCompressorOutputStream.DICTIONARY_SIZE);
+                deflater.setDictionary(previousBlock, previousBlock.length - dictionarySize, dictionarySize);
+            }
+
+            deflater.setInput(data, 0, length);
+            if (last) deflater.finish();
+
+            ByteArrayOutputStream baos   = new ByteArrayOutputStream(length / 2 + 64);
+            byte[]                buffer = new byte[8192];
+            if (last) {
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    baos.write(buffer, 0, n);
+                }
+            } else {
+
+                // Notice: "SYNC_FLUSH" must be repeated as long as it fills the output buffer completely.
+                for (;;) {
+                    int n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    baos.write(buffer, 0, n);
+                    if (n < buffer.length) break;
+                }
+            }
+
+            return baos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override protected void
+    writeTrailer(OutputStream out) throws IOException {
+        ParallelGzipCompressorOutputStream.writeIntLe(out, (int) this.crc32.getValue());
+        ParallelGzipCompressorOutputStream.writeIntLe(out, (int) this.uncompressedSize);
+    }
+
+    private static void
+    writeIntLe(OutputStream out, int value) throws IOException {
+        out.write(new byte[] { (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24) });
+    }
+}
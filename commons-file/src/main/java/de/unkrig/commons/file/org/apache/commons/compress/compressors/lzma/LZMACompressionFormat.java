@@ -41,12 +41,13 @@ import org.apache.commons.compress.compressors.FileNameUtil;
 import org.apache.commons.compress.compressors.lzma.LZMACompressorInputStream;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 import de.unkrig.commons.util.collections.MapUtil;
 
 /** Representation of the 'lzma' compression format. */
 public final
-class LZMACompressionFormat implements CompressionFormat { // SUPPRESS CHECKSTYLE AbbreviationAsWord
+class LZMACompressionFormat implements CompressionFormat, FirstBytes { // SUPPRESS CHECKSTYLE AbbreviationAsWord
 
     private static final FileNameUtil
     FILE_NAME_UTIL = new FileNameUtil(MapUtil.<String, String>map(".lzma", "", ".tlz", ".tar"), ".lzma");
@@ -103,6 +104,9 @@ class LZMACompressionFormat implements CompressionFormat { // SUPPRESS CHECKSTYL
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return false; }
 
+    @Override public byte[]
+    firstBytes() { return new byte[0]; }
+
     @Override public String
     toString() { return this.getName(); }
 }
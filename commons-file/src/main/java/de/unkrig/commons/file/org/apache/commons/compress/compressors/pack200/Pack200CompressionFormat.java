@@ -41,11 +41,12 @@ import org.apache.commons.compress.compressors.pack200.Pack200CompressorInputStr
 import org.apache.commons.compress.compressors.pack200.Pack200CompressorOutputStream;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 
 /** Representation of the 'pack200' compression format. */
 public final
-class Pack200CompressionFormat implements CompressionFormat {
+class Pack200CompressionFormat implements CompressionFormat, FirstBytes {
 
     private Pack200CompressionFormat() {}
 
@@ -99,6 +100,9 @@ class Pack200CompressionFormat implements CompressionFormat {
         return Pack200CompressorInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { (byte) 0xca }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
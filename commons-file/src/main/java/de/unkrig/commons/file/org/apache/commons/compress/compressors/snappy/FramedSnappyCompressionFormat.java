@@ -40,11 +40,12 @@ import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 
 /** Representation of the 'framed snappy' compression format. */
 public final
-class FramedSnappyCompressionFormat implements CompressionFormat {
+class FramedSnappyCompressionFormat implements CompressionFormat, FirstBytes {
 
     private FramedSnappyCompressionFormat() {}
 
@@ -94,6 +95,9 @@ class FramedSnappyCompressionFormat implements CompressionFormat {
         return FramedSnappyCompressorInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { (byte) 0xff }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
@@ -40,11 +40,12 @@ import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.snappy.SnappyCompressorInputStream;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 
 /** Representation of the (raw) 'snappy' compression format. */
 public final
-class SnappyCompressionFormat implements CompressionFormat {
+class SnappyCompressionFormat implements CompressionFormat, FirstBytes {
 
     private SnappyCompressionFormat() {}
 
@@ -92,6 +93,9 @@ class SnappyCompressionFormat implements CompressionFormat {
     @Override public boolean
     matches(byte[] signature, int signatureLength) { return false; }
 
+    @Override public byte[]
+    firstBytes() { return new byte[0]; }
+
     @Override public String
     toString() { return this.getName(); }
 }
@@ -42,11 +42,12 @@ import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
 import org.apache.commons.compress.compressors.xz.XZUtils;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 
 /** Representation of the 'xz' compression format. */
 public final
-class XZCompressionFormat implements CompressionFormat { // SUPPRESS CHECKSTYLE AbbreviationAsWord
+class XZCompressionFormat implements CompressionFormat, FirstBytes { // SUPPRESS CHECKSTYLE AbbreviationAsWord
 
     private XZCompressionFormat() {}
 
@@ -100,6 +101,9 @@ class XZCompressionFormat implements CompressionFormat { // SUPPRESS CHECKSTYLE
         return XZCompressorInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { (byte) 0xfd }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
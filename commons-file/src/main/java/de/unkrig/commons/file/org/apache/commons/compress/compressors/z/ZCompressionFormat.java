@@ -41,12 +41,13 @@ import org.apache.commons.compress.compressors.FileNameUtil;
 import org.apache.commons.compress.compressors.z.ZCompressorInputStream;
 
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat.FirstBytes;
 import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
 import de.unkrig.commons.util.collections.MapUtil;
 
 /** Representation of the 'Z' (UNIX 'compress') compression format. */
 public final
-class ZCompressionFormat implements CompressionFormat {
+class ZCompressionFormat implements CompressionFormat, FirstBytes {
 
     private static final FileNameUtil
     FILE_NAME_UTIL = new FileNameUtil(
@@ -104,6 +105,9 @@ class ZCompressionFormat implements CompressionFormat {
         return ZCompressorInputStream.matches(signature, signatureLength);
     }
 
+    @Override public byte[]
+    firstBytes() { return new byte[] { 0x1f }; }
+
     @Override public String
     toString() { return this.getName(); }
 }
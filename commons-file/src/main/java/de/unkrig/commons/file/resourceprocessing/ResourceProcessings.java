@@ -39,6 +39,7 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
 
 import de.unkrig.commons.file.ExceptionHandler;
@@ -53,6 +54,7 @@ import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.protocol.Predicate;
 import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
 import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.pattern.IncludeExclude;
 import de.unkrig.commons.util.concurrent.ConcurrentUtil;
 import de.unkrig.commons.util.concurrent.SquadExecutor;
 
@@ -82,7 +84,7 @@ class ResourceProcessings {
     public static <T> ResourceProcessor<T>
     compressedAndArchiveResourceProcessor(
         final Predicate<? super String>     lookIntoFormat,
-        final Predicate<? super String>     pathPredicate,
+        Predicate<? super String>           pathPredicate,
         final ContentsProcessor<T>          archiveContentsProcessor,
         final ArchiveCombiner<T>            archiveEntryCombiner,
         final ContentsProcessor<T>          compressedContentsProcessor,
@@ -90,6 +92,8 @@ class ResourceProcessings {
         final ExceptionHandler<IOException> exceptionHandler
     ) {
 
+        pathPredicate = ResourceProcessings.compile(pathPredicate);
+
         return ResourceProcessings.fromContentsProcessorAndFileProcessor(
             ContentsProcessings.compressedAndArchiveContentsProcessor(
                 lookIntoFormat,
@@ -133,7 +137,7 @@ class ResourceProcessings {
     public static <T> ResourceProcessor<T>
     recursiveCompressedAndArchiveResourceProcessor(
         final Predicate<? super String>    lookIntoFormat,
-        final Predicate<? super String>    pathPredicate,
+        Predicate<? super String>          pathPredicate,
         @Nullable final Comparator<Object> directoryMemberNameComparator,
         boolean                            recurseSubdirectories,
         final DirectoryCombiner<T>         directoryEntryCombiner,
@@ -143,6 +147,8 @@ class ResourceProcessings {
         ExceptionHandler<IOException>      exceptionHandler
     ) {
 
+        pathPredicate = ResourceProcessings.compile(pathPredicate);
+
         FileProcessor<T> fp = FileProcessings.recursiveCompressedAndArchiveFileProcessor(
             lookIntoFormat,
             pathPredicate,
@@ -183,6 +189,84 @@ class ResourceProcessings {
         return ResourceProcessings.fromContentsProcessorAndFileProcessor(cp, fp);
     }
 
+    /**
+     * Equivalent with {@link #recursiveCompressedAndArchiveResourceProcessor(Predicate, Predicate, Comparator,
+     * boolean, DirectoryCombiner, ArchiveCombiner, ContentsProcessor, SquadExecutor, ExceptionHandler)}, except that
+     * directory trees are traversed by the <var>forkJoinPool</var>.
+     *
+     * @param maxOpenFiles The maximum number of files that are processed concurrently; {@code 0} means "unlimited"
+     * @see                FileProcessings#directoryProcessor(Predicate, FileProcessor, Comparator, FileProcessor,
+     *                     DirectoryCombiner, boolean, ForkJoinPool, int, ExceptionHandler)
+     */
+    public static <T> ResourceProcessor<T>
+    recursiveCompressedAndArchiveResourceProcessor(
+        final Predicate<? super String>    lookIntoFormat,
+        Predicate<? super String>          pathPredicate,
+        @Nullable final Comparator<Object> directoryMemberNameComparator,
+        boolean                            recurseSubdirectories,
+        final DirectoryCombiner<T>         directoryEntryCombiner,
+        final ArchiveCombiner<T>           archiveEntryCombiner,
+        final ContentsProcessor<T>         normalContentsProcessor,
+        ForkJoinPool                       forkJoinPool,
+        int                                maxOpenFiles,
+        ExceptionHandler<IOException>      exceptionHandler
+    ) {
+
+        pathPredicate = ResourceProcessings.compile(pathPredicate);
+
+        FileProcessor<T> fp = FileProcessings.recursiveCompressedAndArchiveFileProcessor(
+            lookIntoFormat,
+            pathPredicate,
+            archiveEntryCombiner,
+            normalContentsProcessor,
+            exceptionHandler
+        );
+
+        if (recurseSubdirectories) {
+            fp = FileProcessings.directoryTreeProcessor(
+                pathPredicate,
+                fp,                            // regularFileProcessor
+                directoryMemberNameComparator,
+                directoryEntryCombiner,
+                false,                         // includeDirs
+                forkJoinPool,
+                maxOpenFiles,
+                exceptionHandler
+            );
+        } else {
+            fp = FileProcessings.directoryProcessor(
+                pathPredicate,
+                fp,                            // regularFileProcessor
+                directoryMemberNameComparator,
+                fp,                            // directoryMemberProcessor
+                directoryEntryCombiner,
+                false,                         // includeDirs
+                forkJoinPool,
+                maxOpenFiles,
+                exceptionHandler
+            );
+        }
+
+        ContentsProcessor<T> cp = ContentsProcessings.recursiveCompressedAndArchiveContentsProcessor(
+            lookIntoFormat,
+            pathPredicate,
+            archiveEntryCombiner,
+            normalContentsProcessor,
+            exceptionHandler
+        );
+
+        return ResourceProcessings.fromContentsProcessorAndFileProcessor(cp, fp);
+    }
+
+    /**
+     * The <var>pathPredicate</var> is typically evaluated for each and every file, directory and archive entry, so
+     * it pays off to {@link IncludeExclude#compile() compile} it once.
+     */
+    private static Predicate<? super String>
+    compile(Predicate<? super String> pathPredicate) {
+        return pathPredicate instanceof IncludeExclude ? ((IncludeExclude) pathPredicate).compile() : pathPredicate;
+    }
+
     /**
      * @return A {@link ResourceProcessor} that wraps the <var>delegateCp</var> and the (optional) <var>delegateFp</var>
      */
@@ -0,0 +1,195 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.archivers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLStreamHandler;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unkrig.commons.file.FileUtil;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveURLStreamHandler;
+import de.unkrig.commons.io.InputStreams;
+
+public
+class ArchiveURLStreamHandlerTest {
+
+    private static final File TEST_FILES = new File("./.test_files");
+
+    @Before public void
+    setUp() throws Exception {
+        if (ArchiveURLStreamHandlerTest.TEST_FILES.exists()) {
+            FileUtil.deleteRecursively(ArchiveURLStreamHandlerTest.TEST_FILES);
+        }
+        if (!ArchiveURLStreamHandlerTest.TEST_FILES.mkdirs()) throw new IOException();
+    }
+
+    @After public void
+    tearDown() throws Exception {
+        ArchiveURLStreamHandler.clearIndexCache();
+        if (ArchiveURLStreamHandlerTest.TEST_FILES.exists()) {
+            FileUtil.deleteRecursively(ArchiveURLStreamHandlerTest.TEST_FILES);
+        }
+    }
+
+    @Test public void
+    testTar() throws Exception {
+        File tarFile = new File(ArchiveURLStreamHandlerTest.TEST_FILES, "test.tar");
+
+        ArchiveURLStreamHandlerTest.createTar(tarFile, "one");
+        this.assertEntries(
+            tarFile,
+            new de.unkrig.commons.file.org.apache.commons.compress.archivers.tar.Handler(),
+            "one"
+        );
+
+        // Modify the container; the cached index must be invalidated.
+        ArchiveURLStreamHandlerTest.createTar(tarFile, "two");
+        if (!tarFile.setLastModified(tarFile.lastModified() - 10000)) throw new IOException();
+        this.assertEntries(
+            tarFile,
+            new de.unkrig.commons.file.org.apache.commons.compress.archivers.tar.Handler(),
+            "two"
+        );
+    }
+
+    @Test public void
+    testZip() throws Exception {
+        File zipFile = new File(ArchiveURLStreamHandlerTest.TEST_FILES, "test.zip");
+
+        ArchiveURLStreamHandlerTest.createZip(zipFile, "one");
+        this.assertEntries(
+            zipFile,
+            new de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.Handler(),
+            "one"
+        );
+
+        ArchiveURLStreamHandlerTest.createZip(zipFile, "two");
+        if (!zipFile.setLastModified(zipFile.lastModified() - 10000)) throw new IOException();
+        this.assertEntries(
+            zipFile,
+            new de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.Handler(),
+            "two"
+        );
+    }
+
+    private void
+    assertEntries(File container, URLStreamHandler handler, String version) throws IOException {
+
+        // Look up the entries repeatedly and in varying order.
+        for (int i = 0; i < 3; i++) {
+            for (int j = 9; j >= 0; j--) {
+                Assert.assertEquals(
+                    ArchiveURLStreamHandlerTest.contents(version, j),
+                    ArchiveURLStreamHandlerTest.read(container, handler, "dir/entry" + j)
+                );
+            }
+        }
+        Assert.assertEquals(
+            ArchiveURLStreamHandlerTest.contents(version, 3),
+            ArchiveURLStreamHandlerTest.read(container, handler, "/dir/entry3")
+        );
+
+        try {
+            ArchiveURLStreamHandlerTest.read(container, handler, "dir/entry10");
+            Assert.fail();
+        } catch (FileNotFoundException fnfe) {
+            ;
+        }
+    }
+
+    private static String
+    read(File container, URLStreamHandler handler, String entryName) throws IOException {
+
+        InputStream is = new URL(null, "x:" + container.toURI() + '!' + entryName, handler).openStream();
+        try {
+            return new String(InputStreams.readAll(is), "US-ASCII");
+        } finally {
+            is.close();
+        }
+    }
+
+    private static void
+    createTar(File file, String version) throws IOException {
+        TarArchiveOutputStream tos = new TarArchiveOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < 10; i++) {
+                byte[] data = ArchiveURLStreamHandlerTest.contents(version, i).getBytes("US-ASCII");
+
+                TarArchiveEntry tae = new TarArchiveEntry("dir/entry" + i);
+                tae.setSize(data.length);
+                tos.putArchiveEntry(tae);
+                tos.write(data);
+                tos.closeArchiveEntry();
+            }
+        } finally {
+            tos.close();
+        }
+    }
+
+    private static void
+    createZip(File file, String version) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < 10; i++) {
+                zos.putNextEntry(new ZipEntry("dir/entry" + i));
+                ArchiveURLStreamHandlerTest.write(zos, ArchiveURLStreamHandlerTest.contents(version, i));
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+    }
+
+    private static void
+    write(OutputStream os, String s) throws IOException { os.write(s.getBytes("US-ASCII")); }
+
+    /**
+     * @return Text of varying length, so that the entries' data are not aligned
+     */
+    private static String
+    contents(String version, int index) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < index * 77; i++) sb.append(version).append(i).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,147 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.compressors;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.bzip2.BZip2CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.bzip2.ParallelBZip2CompressorOutputStream;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.gzip.ParallelGzipCompressorOutputStream;
+import de.unkrig.commons.io.IoUtil;
+
+public
+class ParallelCompressorOutputStreamTest {
+
+    @Test public void
+    testGzip() throws Exception {
+        for (int size : new int[] { 0, 1, 1000, 4096, 100000 }) {
+            byte[] data = ParallelCompressorOutputStreamTest.testData(size);
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ParallelCompressorOutputStreamTest.write(
+                new ParallelGzipCompressorOutputStream(baos, 6, 4096, 3),
+                data
+            );
+
+            Assert.assertArrayEquals(
+                data,
+                ParallelCompressorOutputStreamTest.readAll(new GZIPInputStream(
+                    new ByteArrayInputStream(baos.toByteArray())
+                ))
+            );
+        }
+    }
+
+    @Test public void
+    testBZip2() throws Exception {
+        for (int size : new int[] { 0, 1, 100000, 250000 }) {
+            byte[] data = ParallelCompressorOutputStreamTest.testData(size);
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ParallelCompressorOutputStreamTest.write(new ParallelBZip2CompressorOutputStream(baos, 1, 2), data);
+
+            Assert.assertArrayEquals(
+                data,
+                ParallelCompressorOutputStreamTest.readAll(BZip2CompressionFormat.get().compressorInputStream(
+                    new ByteArrayInputStream(baos.toByteArray())
+                ))
+            );
+        }
+    }
+
+    @Test public void
+    testExecutorService() throws Exception {
+
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        try {
+            byte[] data = ParallelCompressorOutputStreamTest.testData(100000);
+
+            // Two streams share the same executor service, which is not shut down by them.
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ParallelCompressorOutputStreamTest.write(
+                    new ParallelGzipCompressorOutputStream(baos, 6, 4096, es, 3),
+                    data
+                );
+                Assert.assertFalse(es.isShutdown());
+
+                Assert.assertArrayEquals(
+                    data,
+                    ParallelCompressorOutputStreamTest.readAll(new GZIPInputStream(
+                        new ByteArrayInputStream(baos.toByteArray())
+                    ))
+                );
+            }
+        } finally {
+            es.shutdown();
+        }
+    }
+
+    /**
+     * @return Compressible, but not trivially compressible data
+     */
+    private static byte[]
+    testData(int size) {
+        byte[] result = new byte[size];
+        Random r      = new Random(size);
+        for (int i = 0; i < size; i++) result[i] = (byte) ('a' + r.nextInt(8));
+        return result;
+    }
+
+    /**
+     * Writes the <var>data</var> in chunks of odd sizes, and closes the <var>os</var>.
+     */
+    private static void
+    write(OutputStream os, byte[] data) throws IOException {
+        for (int off = 0; off < data.length;) {
+            int n = Math.min(data.length - off, 777);
+            os.write(data, off, n);
+            off += n;
+        }
+        os.close();
+    }
+
+    private static byte[]
+    readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IoUtil.copy(is, true, baos, false);
+        return baos.toByteArray();
+    }
+}
@@ -28,25 +28,44 @@
 
 package test.contentsprocessing;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.utils.Charsets;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.unkrig.commons.file.ArchiveSpooler;
+import de.unkrig.commons.file.ExceptionHandler;
 import de.unkrig.commons.file.FileUtil;
+import de.unkrig.commons.file.MemoizationCache;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessings;
+import de.unkrig.commons.file.contentsprocessing.ContentsProcessings.ArchiveCombiner;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessor;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.sevenz.SevenZArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.tar.TarArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.zip.ZipArchiveFormat;
 import de.unkrig.commons.io.InputStreams;
+import de.unkrig.commons.io.IoUtil;
+import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
+import de.unkrig.commons.lang.protocol.Predicate;
+import de.unkrig.commons.lang.protocol.PredicateUtil;
 import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
 import de.unkrig.commons.nullanalysis.Nullable;
 import de.unkrig.commons.text.pattern.Pattern2;
@@ -91,6 +110,213 @@ class ContentsProcessingTests {
         if (ContentsProcessingTests.TEST_FILES.exists()) FileUtil.deleteRecursively(ContentsProcessingTests.TEST_FILES);
     }
 
+    @Test public void
+    testNestedArchiveSpooling() throws Exception {
+
+        // A 7Z archive (which cannot be streamed) ...
+        final File sevenZ = new File(ContentsProcessingTests.TEST_FILES, "inner.7z");
+        ArchiveOutputStream aos = SevenZArchiveFormat.get().create(sevenZ);
+        try {
+            SevenZArchiveFormat.get().writeEntry(aos, "a", ContentsProcessingTests.writer("AAA"));
+        } finally {
+            aos.close();
+        }
+
+        // ... and a ZIP archive with data descriptors (because it is written to a stream) ...
+        final ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        aos = ZipArchiveFormat.get().archiveOutputStream(zip);
+        try {
+            ZipArchiveFormat.get().writeEntry(aos, "b", ContentsProcessingTests.writer("BBB"));
+        } finally {
+            aos.close();
+        }
+
+        // ... nested in a TAR archive.
+        File         tar = new File(ContentsProcessingTests.TEST_FILES, "outer.tar");
+        OutputStream os  = new FileOutputStream(tar);
+        try {
+            ArchiveFormat tf = TarArchiveFormat.get();
+            aos = tf.archiveOutputStream(os);
+            tf.writeEntry(aos, "inner.7z", new ConsumerWhichThrows<OutputStream, IOException>() {
+
+                @Override public void
+                consume(OutputStream os) throws IOException { IoUtil.copy(sevenZ, os, false); }
+            });
+            tf.writeEntry(aos, "inner.zip", ContentsProcessingTests.writer(zip.toString("ISO-8859-1")));
+            aos.close();
+        } finally {
+            os.close();
+        }
+
+        // The 7Z archive is spooled, and the small ZIP archive is read from memory...
+        Assert.assertEquals(
+            Arrays.asList("outer.tar!inner.7z!a=AAA", "outer.tar!inner.zip!b=BBB"),
+            ContentsProcessingTests.processNested(tar)
+        );
+
+        ArchiveSpooler.setMaxInMemorySize(10);
+        try {
+
+            // ... but a larger one is spooled by default, and is then read through its central directory...
+            Assert.assertEquals(
+                Arrays.asList("outer.tar!inner.7z!a=AAA", "outer.tar!inner.zip!b=BBB (crc known)"),
+                ContentsProcessingTests.processNested(tar)
+            );
+
+            // ... unless spooling of ZIP archives is disabled.
+            ArchiveSpooler.setSpoolZipArchives(false);
+            try {
+                Assert.assertEquals(
+                    Arrays.asList("outer.tar!inner.7z!a=AAA", "outer.tar!inner.zip!b=BBB"),
+                    ContentsProcessingTests.processNested(tar)
+                );
+            } finally {
+                ArchiveSpooler.setSpoolZipArchives(true);
+            }
+        } finally {
+            ArchiveSpooler.setMaxInMemorySize(1L << 20);
+        }
+        Assert.assertEquals(0, ArchiveSpooler.getSpooledBytes());
+
+        // A 7Z archive that exceeds the spool size limit cannot be processed.
+        ArchiveSpooler.setMaxSpoolSize(10);
+        try {
+            ContentsProcessingTests.processNested(tar);
+            Assert.fail();
+        } catch (IOException ioe) {
+            String message = String.valueOf(ioe.getMessage());
+            Assert.assertTrue(message, message.contains("would exceed the spool size limit of 10 bytes"));
+        } finally {
+            ArchiveSpooler.setMaxSpoolSize(1L << 30);
+        }
+        Assert.assertEquals(0, ArchiveSpooler.getSpooledBytes());
+    }
+
+    private static List<String>
+    processNested(File archive) throws IOException {
+
+        final List<String> result = new ArrayList<String>();
+        ContentsProcessor<Void> cp = ContentsProcessings.recursiveCompressedAndArchiveContentsProcessor(
+            PredicateUtil.<String>always(),                  // lookIntoFormat
+            PredicateUtil.<String>always(),                  // pathPredicate
+            ContentsProcessings.<Void>nopArchiveCombiner(),  // archiveEntryCombiner
+            new ContentsProcessor<Void>() {                  // normalContentsProcessor
+
+                @Override @Nullable public Void
+                process(
+                    String                                                            path,
+                    InputStream                                                       inputStream,
+                    @Nullable Date                                                    lastModifiedDate,
+                    long                                                              size,
+                    long                                                              crc32,
+                    ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+                ) throws IOException {
+                    result.add(
+                        path
+                        + "="
+                        + InputStreams.readAll(inputStream, Charsets.UTF_8, false)
+                        + (crc32 == -1 ? "" : " (crc known)")
+                    );
+                    return null;
+                }
+            },
+            ExceptionHandler.<IOException>defaultHandler()   // exceptionHandler
+        );
+
+        InputStream is = new FileInputStream(archive);
+        try {
+            cp.process(archive.getName(), is, null, -1, -1, new ProducerWhichThrows<InputStream, IOException>() {
+
+                @Override @Nullable public InputStream
+                produce() { throw new UnsupportedOperationException(); }
+            });
+        } finally {
+            is.close();
+        }
+
+        return result;
+    }
+
+    private static ConsumerWhichThrows<OutputStream, IOException>
+    writer(final String contents) {
+
+        return new ConsumerWhichThrows<OutputStream, IOException>() {
+
+            @Override public void
+            consume(OutputStream os) throws IOException { os.write(contents.getBytes("ISO-8859-1")); }
+        };
+    }
+
+    @Test public void
+    testMemoizationAfterPathPredicate() throws Exception {
+
+        // A JAR file with one entry.
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        ArchiveOutputStream   aos = ZipArchiveFormat.get().archiveOutputStream(jar);
+        try {
+            ZipArchiveFormat.get().writeEntry(aos, "a", ContentsProcessingTests.writer("AAA"));
+        } finally {
+            aos.close();
+        }
+
+        final AtomicInteger       count = new AtomicInteger();
+        ContentsProcessor<String> cp    = ContentsProcessings.recursiveCompressedAndArchiveContentsProcessor(
+            PredicateUtil.<String>always(),                // lookIntoFormat
+            new Predicate<String>() {                      // pathPredicate
+
+                @Override public boolean
+                evaluate(String subject) { return !subject.startsWith("excluded/"); }
+            },
+            new ArchiveCombiner<String>() {                // archiveEntryCombiner
+
+                @Override @Nullable public String
+                combine(String archivePath, List<String> combinables) { return combinables.toString(); }
+            },
+            new ContentsProcessor<String>() {              // normalContentsProcessor
+
+                @Override @Nullable public String
+                process(
+                    String                                                            path,
+                    InputStream                                                       inputStream,
+                    @Nullable Date                                                    lastModifiedDate,
+                    long                                                              size,
+                    long                                                              crc32,
+                    ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+                ) throws IOException {
+                    count.incrementAndGet();
+                    return InputStreams.readAll(inputStream, Charsets.UTF_8, false);
+                }
+            },
+            new MemoizationCache<String>(100),             // cache
+            ExceptionHandler.<IOException>defaultHandler() // exceptionHandler
+        );
+
+        // The same JAR under an excluded path must not "poison" the result for the same JAR under included paths.
+        Assert.assertNull(ContentsProcessingTests.process(cp, "excluded/x.jar", jar.toByteArray()));
+        Assert.assertEquals("[AAA]", ContentsProcessingTests.process(cp, "included/x.jar", jar.toByteArray()));
+        Assert.assertEquals("[AAA]", ContentsProcessingTests.process(cp, "included/y.jar", jar.toByteArray()));
+
+        // The entry of the JAR was processed only once.
+        Assert.assertEquals(1, count.get());
+    }
+
+    @Nullable private static <T> T
+    process(ContentsProcessor<T> cp, String path, final byte[] contents) throws IOException {
+
+        return cp.process(
+            path,                                                 // path
+            new ByteArrayInputStream(contents),                   // inputStream
+            null,                                                 // lastModifiedDate
+            contents.length,                                      // size
+            -1,                                                   // crc32
+            new ProducerWhichThrows<InputStream, IOException>() { // opener
+
+                @Override @Nullable public InputStream
+                produce() { return new ByteArrayInputStream(contents); }
+            }
+        );
+    }
+
     @Test public void
     globTest() throws IOException, InterruptedException {
         File   tf   = ContentsProcessingTests.TEST_FILES;
@@ -0,0 +1,211 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.contentsprocessing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.file.FormatDetector;
+import de.unkrig.commons.file.FormatDetector.Signature;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.archivers.ArchiveFormatFactory;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormat;
+import de.unkrig.commons.file.org.apache.commons.compress.compressors.CompressionFormatFactory;
+import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Verifies that the {@link FormatDetector} yields the same results as a scan of all registered formats. Run {@link
+ * #main(String[])} to measure the per-file detection overhead of both over a mixed corpus.
+ */
+public
+class FormatDetectorTest {
+
+    @Test public void
+    testEquivalence() throws Exception {
+        for (byte[] contents : FormatDetectorTest.corpus()) {
+            InputStream is = new ByteArrayInputStream(contents);
+
+            Signature signature = FormatDetector.peek(is);
+            Assert.assertSame(FormatDetectorTest.scanArchiveFormats(is),     signature.archiveFormat());
+            Assert.assertSame(FormatDetectorTest.scanCompressionFormats(is), signature.compressionFormat());
+        }
+    }
+
+    public static void
+    main(String[] args) throws Exception {
+
+        List<byte[]> corpus = FormatDetectorTest.corpus();
+
+        for (int run = 0; run < 5; run++) {
+
+            long begin = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                for (byte[] contents : corpus) {
+                    InputStream is = new BufferedInputStream(new ByteArrayInputStream(contents));
+                    if (FormatDetectorTest.scanArchiveFormats(is) == null) {
+                        FormatDetectorTest.scanCompressionFormats(is);
+                    }
+                }
+            }
+            long middle = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                for (byte[] contents : corpus) {
+                    InputStream is        = new BufferedInputStream(new ByteArrayInputStream(contents));
+                    Signature   signature = FormatDetector.peek(is);
+                    if (signature.archiveFormat() == null) signature.compressionFormat();
+                }
+            }
+            long end = System.nanoTime();
+
+            int n = 100 * corpus.size();
+            System.err.printf(
+                "Full scan: %6d ns/file    FormatDetector: %6d ns/file%n",
+                (middle - begin) / n,
+                (end - middle) / n
+            );
+        }
+    }
+
+    /**
+     * The "classic" detection strategy.
+     */
+    @Nullable private static ArchiveFormat
+    scanArchiveFormats(InputStream is) throws IOException {
+
+        byte[] signature = new byte[512];
+        is.mark(signature.length);
+        int signatureLength = IOUtils.readFully(is, signature);
+        is.reset();
+
+        for (ArchiveFormat af : ArchiveFormatFactory.allFormats()) {
+            if (af.matches(signature, signatureLength)) return af;
+        }
+        return null;
+    }
+
+    /**
+     * The "classic" detection strategy.
+     */
+    @Nullable private static CompressionFormat
+    scanCompressionFormats(InputStream is) throws IOException {
+
+        byte[] signature = new byte[512];
+        is.mark(signature.length);
+        int signatureLength = IOUtils.readFully(is, signature);
+        is.reset();
+
+        for (CompressionFormat cf : CompressionFormatFactory.allFormats()) {
+            if (cf.matches(signature, signatureLength)) return cf;
+        }
+        return null;
+    }
+
+    /**
+     * @return Archives and compressed contents of all formats that can be written, plus plain text, plus "noise"
+     *         with each possible first byte
+     */
+    private static List<byte[]>
+    corpus() throws IOException, ArchiveException, CompressorException {
+
+        List<byte[]> result = new ArrayList<byte[]>();
+
+        for (ArchiveFormat af : ArchiveFormatFactory.allFormats()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            ArchiveOutputStream aos;
+            try {
+                aos = af.archiveOutputStream(baos);
+            } catch (ArchiveException ae) {
+                continue;
+            } catch (UnsupportedOperationException uoe) {
+                continue;
+            }
+            af.writeEntry(aos, "file.txt", null, FormatDetectorTest.writeText());
+            aos.close();
+            result.add(baos.toByteArray());
+        }
+
+        for (CompressionFormat cf : CompressionFormatFactory.allFormats()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            OutputStream cos;
+            try {
+                cos = cf.compressorOutputStream(baos);
+            } catch (CompressorException ce) {
+                continue;
+            } catch (UnsupportedOperationException uoe) {
+                continue;
+            } catch (NoClassDefFoundError ncdfe) {
+                continue;
+            }
+            cos.write("The quick brown fox jumps over the lazy dog.\n".getBytes("US-ASCII"));
+            cos.close();
+            result.add(baos.toByteArray());
+        }
+
+        result.add(new byte[0]);
+        result.add("The quick brown fox jumps over the lazy dog.\n".getBytes("US-ASCII"));
+
+        Random r = new Random(0);
+        for (int b = 0; b < 256; b++) {
+            byte[] noise = new byte[1 + r.nextInt(1000)];
+            r.nextBytes(noise);
+            noise[0] = (byte) b;
+            result.add(noise);
+        }
+
+        return result;
+    }
+
+    private static ConsumerWhichThrows<OutputStream, IOException>
+    writeText() {
+        return new ConsumerWhichThrows<OutputStream, IOException>() {
+
+            @Override public void
+            consume(OutputStream os) throws IOException {
+                os.write("The quick brown fox jumps over the lazy dog.\n".getBytes("US-ASCII"));
+            }
+        };
+    }
+}
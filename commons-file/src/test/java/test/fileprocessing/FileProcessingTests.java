@@ -29,14 +29,30 @@
 package test.fileprocessing;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -44,10 +60,25 @@ import org.junit.Before;
 import org.junit.Test;
 
 import de.unkrig.commons.file.ExceptionHandler;
+import de.unkrig.commons.file.FileChangeIndex;
 import de.unkrig.commons.file.FileUtil;
+import de.unkrig.commons.file.MemoizationCache;
+import de.unkrig.commons.file.ProcessingMetrics;
+import de.unkrig.commons.file.ProcessingMetrics.Stage;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessings;
 import de.unkrig.commons.file.contentsprocessing.ContentsProcessor;
+import de.unkrig.commons.file.contentstransformation.ContentsTransformations;
+import de.unkrig.commons.file.contentstransformation.ContentsTransformer;
+import de.unkrig.commons.file.fileprocessing.AttributedFileProcessor;
 import de.unkrig.commons.file.fileprocessing.FileProcessings;
+import de.unkrig.commons.file.fileprocessing.FileProcessings.DirectoryCombiner;
+import de.unkrig.commons.file.fileprocessing.FileProcessor;
+import de.unkrig.commons.file.filetransformation.FileContentsTransformer;
+import de.unkrig.commons.file.filetransformation.FileTransformations;
+import de.unkrig.commons.file.filetransformation.FileTransformations.ArchiveCombiner;
+import de.unkrig.commons.file.filetransformation.FileTransformer;
+import de.unkrig.commons.file.filetransformation.FileTransformer.Mode;
+import de.unkrig.commons.io.InputStreams;
 import de.unkrig.commons.lang.protocol.PredicateUtil;
 import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
 import de.unkrig.commons.nullanalysis.Nullable;
@@ -215,4 +246,758 @@ class FileProcessingTests {
         Assert.assertEquals(new File("C:/tmp"),         FileProcessings.starterFile("C:/tmp/abc.*\\.txt"));
         Assert.assertEquals(new File("C:/tmp/foo.zip"), FileProcessings.starterFile("C:/tmp/foo\\.zip!dir/.*"));
     }
+
+    @Test public void
+    testForkJoin() throws Exception {
+
+        File root = new File(FileProcessingTests.TEST_FILES, "tree");
+        FileProcessingTests.createTree(root, 5);
+
+        final AtomicInteger openFiles    = new AtomicInteger();
+        final AtomicInteger maxOpenFiles = new AtomicInteger();
+
+        FileProcessor<String> regularFileProcessor = new FileProcessor<String>() {
+
+            @Override @Nullable public String
+            process(String path, File file) {
+                int n = openFiles.incrementAndGet();
+                for (int m = maxOpenFiles.get(); n > m && !maxOpenFiles.compareAndSet(m, n); m = maxOpenFiles.get());
+                Thread.yield();
+                openFiles.decrementAndGet();
+                return file.getName();
+            }
+        };
+
+        DirectoryCombiner<String> directoryCombiner = new DirectoryCombiner<String>() {
+
+            @Override @Nullable public String
+            combine(String directoryPath, File directory, List<String> combinables) {
+                return directory.getName() + combinables;
+            }
+        };
+
+        String expected = FileProcessings.directoryTreeProcessor(
+            PredicateUtil.<String>always(),                                        // pathPredicate
+            regularFileProcessor,                                                  // regularFileProcessor
+            Collator.getInstance(),                                                // directoryMemberNameComparator
+            directoryCombiner,                                                     // directoryCombiner
+            false,                                                                 // includeDirs
+            new SquadExecutor<String>(ConcurrentUtil.SEQUENTIAL_EXECUTOR_SERVICE), // squadExecutor
+            ExceptionHandler.<IOException>defaultHandler()                         // exceptionHandler
+        ).process("", root);
+
+        // Notice: With a SquadExecutor, a pool of only two threads would deadlock on a tree this deep.
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            String actual = FileProcessings.directoryTreeProcessor(
+                PredicateUtil.<String>always(),                // pathPredicate
+                regularFileProcessor,                          // regularFileProcessor
+                Collator.getInstance(),                        // directoryMemberNameComparator
+                directoryCombiner,                             // directoryCombiner
+                false,                                         // includeDirs
+                pool,                                          // forkJoinPool
+                1,                                             // maxOpenFiles
+                ExceptionHandler.<IOException>defaultHandler() // exceptionHandler
+            ).process("", root);
+
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(1, maxOpenFiles.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void
+    testForkJoinException() throws Exception {
+
+        File root = new File(FileProcessingTests.TEST_FILES, "tree");
+        FileProcessingTests.createTree(root, 3);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileProcessings.directoryTreeProcessor(
+                PredicateUtil.<String>always(),                // pathPredicate
+                new FileProcessor<String>() {                  // regularFileProcessor
+
+                    @Override @Nullable public String
+                    process(String path, File file) throws IOException {
+                        if (path.endsWith("file2")) throw new IOException(path);
+                        return null;
+                    }
+                },
+                null,                                          // directoryMemberNameComparator
+                FileProcessings.<String>nopDirectoryCombiner(), // directoryCombiner
+                false,                                         // includeDirs
+                pool,                                          // forkJoinPool
+                0,                                             // maxOpenFiles
+                ExceptionHandler.<IOException>defaultHandler() // exceptionHandler
+            ).process("", root);
+            Assert.fail();
+        } catch (IOException ioe) {
+            Assert.assertTrue(ioe.getMessage(), ioe.getMessage().endsWith("file2"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void
+    testAttributes() throws Exception {
+
+        File root = new File(FileProcessingTests.TEST_FILES, "tree");
+        FileProcessingTests.createTree(root, 1);
+        OutputStream os = new FileOutputStream(new File(root, "dir2/file3"));
+        try {
+            os.write(new byte[5]);
+        } finally {
+            os.close();
+        }
+
+        // The attributes are passed down through the directory traversal, so that the regular file processor
+        // needs not "stat" the file again.
+        String result = FileProcessings.directoryTreeProcessor(
+            PredicateUtil.<String>always(),                                        // pathPredicate
+            new AttributedFileProcessor<String>() {                                // regularFileProcessor
+
+                @Override @Nullable public String
+                process(String path, File file) {
+                    throw new AssertionError(path);
+                }
+
+                @Override @Nullable public String
+                process(String path, File file, BasicFileAttributes attributes) {
+                    Assert.assertTrue(attributes.isRegularFile());
+                    return file.getName() + "=" + attributes.size();
+                }
+            },
+            Collator.getInstance(),                                                // directoryMemberNameComparator
+            new DirectoryCombiner<String>() {                                      // directoryCombiner
+
+                @Override @Nullable public String
+                combine(String directoryPath, File directory, List<String> combinables) {
+                    return directory.getName() + combinables;
+                }
+            },
+            false,                                                                 // includeDirs
+            new SquadExecutor<String>(ConcurrentUtil.SEQUENTIAL_EXECUTOR_SERVICE), // squadExecutor
+            ExceptionHandler.<IOException>defaultHandler()                         // exceptionHandler
+        ).process("", root);
+
+        Assert.assertEquals((
+            "tree["
+            + "dir1[file1=0, file2=0, file3=0], "
+            + "dir2[file1=0, file2=0, file3=5], "
+            + "dir3[file1=0, file2=0, file3=0], "
+            + "file1=0, file2=0, file3=0"
+            + "]"
+        ), result);
+    }
+
+    @Test public void
+    testChangeTracking() throws Exception {
+
+        File root      = new File(FileProcessingTests.TEST_FILES, "tree");
+        File indexFile = new File(FileProcessingTests.TEST_FILES, "index");
+        FileProcessingTests.createTree(root, 1);
+
+        // Initially, all files are processed.
+        Assert.assertEquals(12, FileProcessingTests.processChanged(root, indexFile, "fp1"));
+
+        // Unchanged files are skipped.
+        Assert.assertEquals(0, FileProcessingTests.processChanged(root, indexFile, "fp1"));
+
+        // Modified files are processed.
+        File file = new File(root, "dir2/file3");
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(new byte[5]);
+        } finally {
+            fos.close();
+        }
+        Assert.assertEquals(1, FileProcessingTests.processChanged(root, indexFile, "fp1"));
+
+        // "Touched" files are skipped iff their contents is unchanged.
+        Assert.assertTrue(file.setLastModified(file.lastModified() - 10000));
+        Assert.assertEquals(0, FileProcessingTests.processChanged(root, indexFile, "fp1"));
+
+        // Uncommitted records at the end of the index file are ignored.
+        fos = new FileOutputStream(indexFile, true);
+        try {
+            fos.write(new byte[] { 'E', 0, 3, 'a', 'b' });
+        } finally {
+            fos.close();
+        }
+        Assert.assertEquals(0, FileProcessingTests.processChanged(root, indexFile, "fp1"));
+
+        // A different fingerprint invalidates the index.
+        Assert.assertEquals(12, FileProcessingTests.processChanged(root, indexFile, "fp2"));
+    }
+
+    @Test public void
+    testChangeTrackingReusesFileDigests() throws Exception {
+
+        File root = new File(FileProcessingTests.TEST_FILES, "tree");
+        FileProcessingTests.createTree(root, 0);
+
+        MemoizationCache<Void> cache = new MemoizationCache<Void>(100);
+        FileChangeIndex        index = FileChangeIndex.load(
+            new File(FileProcessingTests.TEST_FILES, "index"),
+            "fp1",
+            cache
+        );
+
+        // Have the digest computed, e.g. by a memoizing file processor.
+        File                file       = new File(root, "file1");
+        BasicFileAttributes attributes = java.nio.file.Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        cache.fileDigest(file, attributes);
+
+        // The index must reuse that digest instead of reading the file again.
+        Assert.assertTrue(file.delete());
+        index.update(file, attributes);
+        Assert.assertTrue(index.isUnchanged(file, attributes));
+    }
+
+    @Test public void
+    testRawEntryPassThrough() throws Exception {
+
+        // Create a ZIP file with two DEFLATED, but uncompressed entries.
+        File in = new File(FileProcessingTests.TEST_FILES, "in.zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(in));
+        try {
+            zos.setLevel(Deflater.NO_COMPRESSION);
+            for (String name : new String[] { "keep", "change" }) {
+                zos.putNextEntry(new ZipEntry(name));
+                for (int i = 0; i < 100; i++) zos.write("hello world\n".getBytes("US-ASCII"));
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+
+        // Transform only the contents of entry "change".
+        File out = new File(FileProcessingTests.TEST_FILES, "out.zip");
+        FileTransformations.compressedAndArchiveFileTransformer(
+            PredicateUtil.<String>always(),                // lookIntoFormat
+            PredicateUtil.<String>never(),                 // archiveEntryRemoval
+            Glob.NONE,                                     // archiveEntryRenaming
+            ArchiveCombiner.NOP,                           // archiveCombiner
+            new ContentsTransformer() {                    // archiveEntryContentsTransformer
+
+                @Override public void
+                transform(String path, InputStream is, OutputStream os) throws IOException {
+                    for (int b = is.read(); b != -1; b = is.read()) {
+                        os.write(path.endsWith("!change") ? Character.toUpperCase(b) : b);
+                    }
+                }
+            },
+            ContentsTransformations.COPY,                  // compressedContentsTransformer
+            ContentsTransformations.COPY,                  // normalContentsTransformer
+            PredicateUtil.<String>never(),                 // archiveEntryPassThrough
+            true,                                          // passThroughUnchangedEntries
+            false,                                         // keepOriginals
+            ExceptionHandler.<IOException>defaultHandler() // exceptionHandler
+        ).transform("in.zip", in, out, Mode.TRANSFORM);
+
+        ZipFile inZip = new ZipFile(in), outZip = new ZipFile(out);
+        try {
+
+            // The unchanged entry was copied verbatim, i.e. is still uncompressed...
+            ZipEntry keepIn = inZip.getEntry("keep"), keepOut = outZip.getEntry("keep");
+            Assert.assertEquals(keepIn.getCrc(), keepOut.getCrc());
+            Assert.assertEquals(keepIn.getCompressedSize(), keepOut.getCompressedSize());
+
+            // ... while the changed entry was re-encoded.
+            ZipEntry changeIn = inZip.getEntry("change"), changeOut = outZip.getEntry("change");
+            Assert.assertTrue(changeOut.getCompressedSize() < changeIn.getCompressedSize());
+            Assert.assertEquals(
+                "HELLO WORLD\n",
+                FileProcessingTests.readFirstLine(outZip.getInputStream(changeOut))
+            );
+            Assert.assertEquals(
+                "hello world\n",
+                FileProcessingTests.readFirstLine(outZip.getInputStream(keepOut))
+            );
+        } finally {
+            inZip.close();
+            outZip.close();
+        }
+    }
+
+    @Test public void
+    testConcurrentArchiveEntries() throws Exception {
+
+        File zipFile = new File(FileProcessingTests.TEST_FILES, "many.zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile));
+        try {
+            for (int i = 0; i < 50; i++) {
+                zos.putNextEntry(new ZipEntry("dir/entry" + i));
+                zos.write(("contents" + i).getBytes("US-ASCII"));
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            String result = FileProcessings.recursiveCompressedAndArchiveFileProcessor(
+                PredicateUtil.<String>always(),                      // lookIntoFormat
+                PredicateUtil.<String>always(),                      // pathPredicate
+                new ContentsProcessings.ArchiveCombiner<String>() {  // archiveEntryCombiner
+
+                    @Override @Nullable public String
+                    combine(String archivePath, List<String> combinables) { return combinables.toString(); }
+                },
+                new ContentsProcessor<String>() {                    // delegate
+
+                    @Override @Nullable public String
+                    process(
+                        String                                                            path,
+                        InputStream                                                       inputStream,
+                        @Nullable Date                                                    lastModifiedDate,
+                        long                                                              size,
+                        long                                                              crc32,
+                        ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+                    ) throws IOException {
+                        return FileProcessingTests.readFirstLine(inputStream);
+                    }
+                },
+                new SquadExecutor<String>(executorService),          // archiveEntrySquadExecutor
+                ExceptionHandler.<IOException>defaultHandler()       // exceptionHandler
+            ).process("many.zip", zipFile);
+
+            StringBuilder expected = new StringBuilder("[");
+            for (int i = 0; i < 50; i++) expected.append(i == 0 ? "" : ", ").append("contents").append(i);
+            Assert.assertEquals(expected.append(']').toString(), result);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test public void
+    testSpeculativeCheckAndTransform() throws Exception {
+
+        final AtomicInteger count = new AtomicInteger();
+        ContentsTransformer toUpperCase = new ContentsTransformer() {
+
+            @Override public void
+            transform(String path, InputStream is, OutputStream os) throws IOException {
+                count.incrementAndGet();
+                for (int b = is.read(); b != -1; b = is.read()) os.write(Character.toUpperCase(b));
+            }
+        };
+
+        File lower = new File(FileProcessingTests.TEST_FILES, "dir1/dir3/file1");
+        File upper = new File(FileProcessingTests.TEST_FILES, "dir1/dir3/file2");
+        OutputStream os = new FileOutputStream(upper);
+        try {
+            os.write("LINE1\n".getBytes("US-ASCII"));
+        } finally {
+            os.close();
+        }
+
+        FileContentsTransformer fct = new FileContentsTransformer(toUpperCase, true);
+        fct.transform("file1", lower, lower, Mode.CHECK_AND_TRANSFORM);
+        fct.transform("file2", upper, upper, Mode.CHECK_AND_TRANSFORM);
+
+        // Each file was transformed exactly once.
+        Assert.assertEquals(2, count.get());
+
+        // The changed file was replaced, and its original was kept.
+        Assert.assertEquals("LINE1\n", FileProcessingTests.readFirstLine(new FileInputStream(lower)));
+        Assert.assertTrue(FileTransformations.origFile(lower).exists());
+        Assert.assertFalse(FileTransformations.newFile(lower).exists());
+
+        // The unchanged file was left alone.
+        Assert.assertFalse(FileTransformations.origFile(upper).exists());
+        Assert.assertFalse(FileTransformations.newFile(upper).exists());
+
+        // Archives are first checked at the entry level, and then transformed.
+        File zip = new File(FileProcessingTests.TEST_FILES, "dir1/dir2/file.zip");
+        count.set(0);
+        FileTransformations.compressedAndArchiveFileTransformer(
+            PredicateUtil.<String>always(),                // lookIntoFormat
+            PredicateUtil.<String>never(),                 // archiveEntryRemoval
+            Glob.NONE,                                     // archiveEntryRenaming
+            ArchiveCombiner.NOP,                           // archiveCombiner
+            toUpperCase,                                   // archiveEntryContentsTransformer
+            ContentsTransformations.COPY,                  // compressedContentsTransformer
+            ContentsTransformations.COPY,                  // normalContentsTransformer
+            true,                                          // keepOriginals
+            ExceptionHandler.<IOException>defaultHandler() // exceptionHandler
+        ).transform("file.zip", zip, zip, Mode.CHECK_AND_TRANSFORM);
+
+        Assert.assertEquals(4, count.get());
+        Assert.assertTrue(FileTransformations.origFile(zip).exists());
+        Assert.assertFalse(FileTransformations.newFile(zip).exists());
+        ZipFile zf = new ZipFile(zip);
+        try {
+            Assert.assertEquals(
+                "LINE1\n",
+                FileProcessingTests.readFirstLine(zf.getInputStream(zf.getEntry("dir1/dir2/file1")))
+            );
+        } finally {
+            zf.close();
+        }
+    }
+
+    @Test public void
+    testCheckAndTransformIdenticalArchive() throws Exception {
+
+        // A one-entry ZIP file written by "java.util.zip" (i.e. with data descriptors).
+        File            zip = new File(FileProcessingTests.TEST_FILES, "one.zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            zos.putNextEntry(new ZipEntry("file1"));
+            zos.write("line1\n".getBytes("US-ASCII"));
+        } finally {
+            zos.close();
+        }
+
+        byte[] before       = java.nio.file.Files.readAllBytes(zip.toPath());
+        long   lastModified = zip.lastModified() - 10000;
+        Assert.assertTrue(zip.setLastModified(lastModified));
+
+        FileTransformations.compressedAndArchiveFileTransformer(
+            PredicateUtil.<String>always(),                // lookIntoFormat
+            PredicateUtil.<String>never(),                 // archiveEntryRemoval
+            Glob.NONE,                                     // archiveEntryRenaming
+            ArchiveCombiner.NOP,                           // archiveCombiner
+            ContentsTransformations.COPY,                  // archiveEntryContentsTransformer
+            ContentsTransformations.COPY,                  // compressedContentsTransformer
+            ContentsTransformations.COPY,                  // normalContentsTransformer
+            true,                                          // keepOriginals
+            ExceptionHandler.<IOException>defaultHandler() // exceptionHandler
+        ).transform("file.zip", zip, zip, Mode.CHECK_AND_TRANSFORM);
+
+        // The archive is unchanged, so it must be left alone.
+        Assert.assertArrayEquals(before, java.nio.file.Files.readAllBytes(zip.toPath()));
+        Assert.assertEquals(lastModified, zip.lastModified());
+        Assert.assertFalse(FileTransformations.origFile(zip).exists());
+        Assert.assertFalse(FileTransformations.newFile(zip).exists());
+    }
+
+    @Test public void
+    testConcurrentDirectoryTransformation() throws Exception {
+
+        final AtomicInteger failures = new AtomicInteger();
+        ExceptionHandler<IOException> exceptionHandler = new ExceptionHandler<IOException>() {
+            @Override public void handle(String path, IOException ioe)     { failures.incrementAndGet(); }
+            @Override public void handle(String path, RuntimeException re) { failures.incrementAndGet(); }
+        };
+
+        final String[] failingMember = { "file2" };
+        FileContentsTransformer toUpperCase = new FileContentsTransformer(new ContentsTransformer() {
+
+            @Override public void
+            transform(String path, InputStream is, OutputStream os) throws IOException {
+                if (path.endsWith(File.separatorChar + failingMember[0])) throw new IOException(path);
+                for (int b = is.read(); b != -1; b = is.read()) os.write(Character.toUpperCase(b));
+            }
+        }, false);
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            FileTransformer ft = FileTransformations.directoryTreeTransformer(
+                Collator.getInstance(),                    // directoryMemberNameComparator
+                PredicateUtil.<String>never(),             // directoryMemberRemoval
+                Glob.NONE,                                 // directoryMemberRenaming
+                FileTransformations.DirectoryCombiner.NOP, // directoryCombiner
+                toUpperCase,                               // regularFileTransformer
+                false,                                     // saveSpace
+                false,                                     // keepOriginals
+                forkJoinPool,                              // forkJoinPool
+                exceptionHandler                           // exceptionHandler
+            );
+
+            // One member fails, so the directory tree must be left untouched.
+            ft.transform("", FileProcessingTests.TEST_FILES, FileProcessingTests.TEST_FILES, Mode.TRANSFORM);
+            Assert.assertEquals(1, failures.get());
+            File file1 = new File(FileProcessingTests.TEST_FILES, "dir1/file1");
+            Assert.assertEquals("line1\n", FileProcessingTests.readFirstLine(new FileInputStream(file1)));
+            Assert.assertFalse(FileTransformations.newFile(FileProcessingTests.TEST_FILES).exists());
+
+            // Now all members succeed, and the directory tree is replaced.
+            failingMember[0] = "no-such-file";
+            ft.transform("", FileProcessingTests.TEST_FILES, FileProcessingTests.TEST_FILES, Mode.TRANSFORM);
+            Assert.assertEquals(1, failures.get());
+            for (String path : new String[] { "dir1/file1", "dir1/dir2/file2", "dir1/dir3/file1" }) {
+                File file = new File(FileProcessingTests.TEST_FILES, path);
+                Assert.assertEquals("LINE1\n", FileProcessingTests.readFirstLine(new FileInputStream(file)));
+            }
+            Assert.assertFalse(FileTransformations.newFile(FileProcessingTests.TEST_FILES).exists());
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test public void
+    testConcurrentInPlaceTransformationsAreIndependent() throws Exception {
+
+        // Is counted down after "dir2/file2" failed, and awaited before "dir3/file1" completes, so that the failure
+        // happens while the transformation of "dir3" is pending.
+        final CountDownLatch failed = new CountDownLatch(1);
+        ExceptionHandler<IOException> exceptionHandler = new ExceptionHandler<IOException>() {
+            @Override public void handle(String path, IOException ioe)     { failed.countDown(); }
+            @Override public void handle(String path, RuntimeException re) { failed.countDown(); }
+        };
+
+        FileContentsTransformer toUpperCase = new FileContentsTransformer(new ContentsTransformer() {
+
+            @Override public void
+            transform(String path, InputStream is, OutputStream os) throws IOException {
+                if (path.endsWith("dir2" + File.separatorChar + "file2")) throw new IOException(path);
+                if (path.endsWith("dir3" + File.separatorChar + "file1")) {
+                    try {
+                        failed.await();
+                    } catch (InterruptedException ie) {
+                        throw new AssertionError(ie);
+                    }
+                }
+                for (int b = is.read(); b != -1; b = is.read()) os.write(Character.toUpperCase(b));
+            }
+        }, false);
+
+        final FileTransformer ft = FileTransformations.directoryTreeTransformer(
+            Collator.getInstance(),                    // directoryMemberNameComparator
+            PredicateUtil.<String>never(),             // directoryMemberRemoval
+            Glob.NONE,                                 // directoryMemberRenaming
+            FileTransformations.DirectoryCombiner.NOP, // directoryCombiner
+            toUpperCase,                               // regularFileTransformer
+            false,                                     // saveSpace
+            false,                                     // keepOriginals
+            null,                                      // forkJoinPool
+            exceptionHandler                           // exceptionHandler
+        );
+
+        // Transform "dir3" and "dir2" in-place and concurrently, with the same transformer.
+        final File dir3 = new File(FileProcessingTests.TEST_FILES, "dir1/dir3");
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> dir3Transformation = executorService.submit(new Callable<Void>() {
+
+                @Override @Nullable public Void
+                call() throws Exception {
+                    ft.transform("dir3", dir3, dir3, Mode.TRANSFORM);
+                    return null;
+                }
+            });
+
+            File dir2 = new File(FileProcessingTests.TEST_FILES, "dir1/dir2");
+            ft.transform("dir2", dir2, dir2, Mode.TRANSFORM);
+
+            dir3Transformation.get();
+        } finally {
+            executorService.shutdown();
+        }
+
+        // The failure in "dir2" must not keep "dir3" from being committed.
+        File file1 = new File(dir3, "file1");
+        Assert.assertEquals("LINE1\n", FileProcessingTests.readFirstLine(new FileInputStream(file1)));
+        File file2 = new File(FileProcessingTests.TEST_FILES, "dir1/dir2/file2");
+        Assert.assertEquals("line1\n", FileProcessingTests.readFirstLine(new FileInputStream(file2)));
+    }
+
+    @Test public void
+    testSortNames() {
+
+        String[] names = { "b", "A", "c", "a" };
+        FileUtil.sortNames(names, Collator.getInstance(Locale.ENGLISH));
+        Assert.assertEquals(Arrays.asList("a", "A", "b", "c"), Arrays.asList(names));
+
+        FileUtil.sortNames(names, null);
+        Assert.assertEquals(Arrays.asList("a", "A", "b", "c"), Arrays.asList(names));
+    }
+
+    @Test public void
+    testMetrics() throws Exception {
+
+        ProcessingMetrics metrics = new ProcessingMetrics();
+
+        FileProcessor<Void> fp = FileProcessings.directoryTreeProcessor(
+            PredicateUtil.<String>always(),                                      // pathPredicate
+            FileProcessings.meteringFileProcessor(                               // regularFileProcessor
+                FileProcessings.recursiveCompressedAndArchiveFileProcessor(
+                    PredicateUtil.<String>always(),                  // lookIntoFormat
+                    PredicateUtil.<String>always(),                  // pathPredicate
+                    ContentsProcessings.<Void>nopArchiveCombiner(),  // archiveEntryCombiner
+                    ContentsProcessings.meteringContentsProcessor(   // contentsProcessor
+                        new ContentsProcessor<Void>() {
+
+                            @Override @Nullable public Void
+                            process(
+                                String                                                            path,
+                                InputStream                                                       inputStream,
+                                @Nullable Date                                                    lastModifiedDate,
+                                long                                                              size,
+                                long                                                              crc32,
+                                ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+                            ) throws IOException {
+                                while (inputStream.read() != -1);
+                                return null;
+                            }
+                        },
+                        metrics
+                    ),
+                    ExceptionHandler.<IOException>defaultHandler()   // exceptionHandler
+                ),
+                metrics
+            ),
+            Collator.getInstance(),                                              // directoryMemberNameComparator
+            FileProcessings.<Void>nopDirectoryCombiner(),                        // directoryCombiner
+            new SquadExecutor<Void>(ConcurrentUtil.SEQUENTIAL_EXECUTOR_SERVICE), // squadExecutor
+            ExceptionHandler.<IOException>defaultHandler()                       // exceptionHandler
+        );
+        fp.process("", FileProcessingTests.TEST_FILES);
+
+        ProcessingMetrics.Snapshot snapshot = metrics.snapshot();
+        Assert.assertEquals(6, snapshot.getFiles());
+        Assert.assertEquals(9, snapshot.getContents());
+        Assert.assertEquals(9 * "line1\nline2\nline3\n".length(), snapshot.getBytes());
+        Assert.assertEquals(0, snapshot.getErrors());
+        Assert.assertEquals(6, snapshot.getSlowestFiles().size());
+        Assert.assertTrue(snapshot.getStageNanos(Stage.DETECTION) > 0);
+        Assert.assertTrue(snapshot.getStageNanos(Stage.ARCHIVE) > 0);
+        Assert.assertTrue(snapshot.getStageNanos(Stage.COMPRESSED) > 0);
+        Assert.assertTrue(snapshot.getStageNanos(Stage.READ) > 0);
+
+        // Disabled metrics are not updated.
+        metrics.setEnabled(false);
+        fp.process("", FileProcessingTests.TEST_FILES);
+        Assert.assertEquals(6, metrics.snapshot().getFiles());
+        Assert.assertEquals(9, metrics.snapshot().getContents());
+    }
+
+    @Test public void
+    testMemoization() throws Exception {
+
+        File cacheFile = new File(FileProcessingTests.TEST_FILES, "memo");
+
+        // The three plain files are identical, so they must be processed only once. Archive entries and
+        // compressed contents that are not archives or compressed themselves are not memoized (that's five), but
+        // "file3.tgz!dir3/dir4/file3.gz" is identical with "file2.gz" and thus not processed again.
+        Assert.assertEquals(6, FileProcessingTests.processMemoized(cacheFile));
+
+        // The persisted cache avoids any processing.
+        Assert.assertEquals(0, FileProcessingTests.processMemoized(cacheFile));
+    }
+
+    /**
+     * @return The number of contents that were actually processed
+     */
+    private static int
+    processMemoized(File cacheFile) throws Exception {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        MemoizationCache<String> cache = MemoizationCache.load(cacheFile, "test", 100);
+
+        final List<String> results = new ArrayList<String>();
+        FileProcessings.directoryTreeProcessor(
+            PredicateUtil.<String>always(),                                        // pathPredicate
+            FileProcessings.recursiveCompressedAndArchiveFileProcessor(            // regularFileProcessor
+                PredicateUtil.<String>always(),                   // lookIntoFormat
+                PredicateUtil.<String>always(),                   // pathPredicate
+                ContentsProcessings.<String>nopArchiveCombiner(), // archiveEntryCombiner
+                new ContentsProcessor<String>() {                 // delegate
+
+                    @Override @Nullable public String
+                    process(
+                        String                                                            path,
+                        InputStream                                                       inputStream,
+                        @Nullable Date                                                    lastModifiedDate,
+                        long                                                              size,
+                        long                                                              crc32,
+                        ProducerWhichThrows<? extends InputStream, ? extends IOException> opener
+                    ) throws IOException {
+                        count.incrementAndGet();
+                        return FileProcessingTests.readFirstLine(InputStreams.unclosable(inputStream));
+                    }
+                },
+                null,                                             // archiveEntrySquadExecutor
+                cache,                                            // cache
+                ExceptionHandler.<IOException>defaultHandler()    // exceptionHandler
+            ),
+            Collator.getInstance(),                                                // directoryMemberNameComparator
+            new DirectoryCombiner<String>() {                                      // directoryCombiner
+
+                @Override @Nullable public String
+                combine(String directoryPath, File directory, List<String> combinables) {
+                    for (String s : combinables) if (s != null) results.add(s);
+                    return null;
+                }
+            },
+            new SquadExecutor<String>(ConcurrentUtil.SEQUENTIAL_EXECUTOR_SERVICE), // squadExecutor
+            ExceptionHandler.<IOException>defaultHandler()                         // exceptionHandler
+        ).process("", new File(FileProcessingTests.TEST_FILES, "dir1"));
+        cache.commit();
+
+        // The memoized results are the same as the computed ones.
+        Assert.assertEquals(Arrays.asList("line1\n", "line1\n", "line1\n", "line1\n"), results);
+
+        return count.get();
+    }
+
+    private static String
+    readFirstLine(InputStream is) throws IOException {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int c = is.read(); c != -1; c = is.read()) {
+                sb.append((char) c);
+                if (c == '\n') break;
+            }
+            return sb.toString();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * @return The number of files that were actually processed
+     */
+    private static int
+    processChanged(File root, File indexFile, String fingerprint) throws Exception {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        FileChangeIndex index = FileChangeIndex.load(indexFile, fingerprint);
+        FileProcessings.directoryTreeProcessor(
+            PredicateUtil.<String>always(),                                       // pathPredicate
+            FileProcessings.changeTrackingFileProcessor(                          // regularFileProcessor
+                new FileProcessor<Void>() {
+
+                    @Override @Nullable public Void
+                    process(String path, File file) {
+                        count.incrementAndGet();
+                        return null;
+                    }
+                },
+                index
+            ),
+            null,                                                                 // directoryMemberNameComparator
+            FileProcessings.<Void>nopDirectoryCombiner(),                         // directoryCombiner
+            false,                                                                // includeDirs
+            new SquadExecutor<Void>(ConcurrentUtil.SEQUENTIAL_EXECUTOR_SERVICE),  // squadExecutor
+            ExceptionHandler.<IOException>defaultHandler()                        // exceptionHandler
+        ).process("", root);
+        index.commit();
+
+        Assert.assertEquals(count.get(), index.getProcessedFiles());
+        Assert.assertEquals(12 - count.get(), index.getSkippedFiles());
+
+        return count.get();
+    }
+
+    /**
+     * Creates a tree of the given <var>depth</var>, where each directory has three subdirectories and three files.
+     */
+    private static void
+    createTree(File directory, int depth) throws IOException {
+
+        if (!directory.mkdirs()) throw new IOException(directory.getPath());
+
+        for (int i = 1; i <= 3; i++) {
+            if (!new File(directory, "file" + i).createNewFile()) throw new IOException();
+            if (depth > 0) FileProcessingTests.createTree(new File(directory, "dir" + i), depth - 1);
+        }
+    }
 }
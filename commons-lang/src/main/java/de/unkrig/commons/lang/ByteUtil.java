@@ -0,0 +1,435 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.lang;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Search primitives that operate on bytes rather than on characters, so that file contents need not be decoded
+ * before searching.
+ * <p>
+ *   For charsets where each character maps to exactly one byte (e.g. ISO-8859-1), and for UTF-8 (where no encoded
+ *   character is a part of the encoding of another character), a byte-wise match of the encoded needle is a
+ *   character-wise match of the needle, see {@link #indexOf(CharSequence, Charset)}.
+ * </p>
+ * <p>
+ *   All offsets are byte offsets from the beginning of the haystack (<em>not</em> relative to the {@link
+ *   ByteBuffer#position() position} of a {@link ByteBuffer}); use {@link #countLineBreaks(ByteBuffer, int, int)} to
+ *   compute the line number of an offset.
+ * </p>
+ * <p>
+ *   The methods examine eight bytes at a time ("SWAR", SIMD within a register), for byte arrays and heap buffers as
+ *   well as for direct byte buffers (including memory-mapped files): Even where reading a {@code long} is not
+ *   cheaper than reading eight bytes, one comparison per word instead of one per byte saves most of the branches.
+ * </p>
+ */
+public final
+class ByteUtil {
+
+    private ByteUtil() {}
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7f7f7f7f7f7f7f7fL;
+
+    /**
+     * The byte-level counterpart of {@link StringUtil.IndexOf}.
+     */
+    public
+    interface IndexOf {
+
+        /**
+         * Equivalent with {@link #indexOf(ByteBuffer, int, int) indexOf}{@code (haystack, haystack.position(),
+         * haystack.limit())}.
+         */
+        int indexOf(ByteBuffer haystack);
+
+        /**
+         * Finds the first occurrence of the needle in the <var>haystack</var> that starts at or after
+         * <var>minIndex</var>, and at or before <var>maxIndex</var>, and ends at or before the {@link
+         * ByteBuffer#limit() limit} of the <var>haystack</var>.
+         *
+         * @return The (absolute) offset of the occurrence, or -1
+         */
+        int indexOf(ByteBuffer haystack, int minIndex, int maxIndex);
+
+        /**
+         * Equivalent with {@link #indexOf(ByteBuffer, int, int) indexOf}{@code (ByteBuffer.wrap(haystack), 0,
+         * haystack.length)}.
+         */
+        int indexOf(byte[] haystack);
+    }
+
+    /**
+     * The byte-level counterpart of {@link StringUtil.MultiNeedleIndexOf}.
+     */
+    public
+    interface MultiNeedleIndexOf {
+
+        /**
+         * Equivalent with {@link #indexOf(ByteBuffer, BitSet, int, int) indexOf}{@code (haystack,
+         * matchingNeedleIndices, haystack.position(), haystack.limit())}.
+         */
+        int indexOf(ByteBuffer haystack, BitSet matchingNeedleIndices);
+
+        /**
+         * Finds the first position in the <var>haystack</var>, at or after <var>minIndex</var>, and at or before
+         * <var>maxIndex</var>, where any of the needles occurs (and ends at or before the {@link ByteBuffer#limit()
+         * limit} of the <var>haystack</var>). If there is such a position, then it sets the indices of <em>all</em>
+         * needles that occur there in the <var>matchingNeedleIndices</var> bit set.
+         *
+         * @return The (absolute) offset of the occurrence, or -1
+         */
+        int indexOf(ByteBuffer haystack, BitSet matchingNeedleIndices, int minIndex, int maxIndex);
+
+        /**
+         * Equivalent with {@link #indexOf(ByteBuffer, BitSet, int, int) indexOf}{@code (ByteBuffer.wrap(haystack),
+         * matchingNeedleIndices, 0, haystack.length)}.
+         */
+        int indexOf(byte[] haystack, BitSet matchingNeedleIndices);
+    }
+
+    /**
+     * @return Whether a byte-wise search for needles encoded with the <var>charset</var> yields exactly the
+     *         character-wise matches within text encoded with the same <var>charset</var>, and LF and CR are
+     *         encoded as 0x0A and 0x0D (which is, e.g., not the case for EBCDIC)
+     */
+    public static boolean
+    isByteSearchable(Charset charset) {
+
+        if ("UTF-8".equals(charset.name())) return true;
+
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1) return false;
+
+        return Arrays.equals("\n\r".getBytes(charset), new byte[] { 0x0a, 0x0d });
+    }
+
+    /**
+     * Encodes the <var>needle</var> with the <var>charset</var> and returns an {@link IndexOf} for it.
+     *
+     * @throws IllegalArgumentException The <var>charset</var> is not {@link #isByteSearchable(Charset) byte
+     *                                  searchable}, or cannot encode the <var>needle</var>
+     */
+    public static IndexOf
+    indexOf(CharSequence needle, Charset charset) { return ByteUtil.indexOf(ByteUtil.encode(needle, charset)); }
+
+    /**
+     * Encodes the <var>needles</var> with the <var>charset</var> and returns a {@link MultiNeedleIndexOf} for them.
+     *
+     * @throws IllegalArgumentException The <var>charset</var> is not {@link #isByteSearchable(Charset) byte
+     *                                  searchable}, or cannot encode one of the <var>needles</var>
+     */
+    public static MultiNeedleIndexOf
+    indexOf(CharSequence[] needles, Charset charset) {
+
+        byte[][] encodedNeedles = new byte[needles.length][];
+        for (int i = 0; i < needles.length; i++) encodedNeedles[i] = ByteUtil.encode(needles[i], charset);
+
+        return ByteUtil.indexOf(encodedNeedles);
+    }
+
+    /**
+     * @return An {@link IndexOf} that scans the haystack for the first byte of the <var>needle</var>, and verifies the
+     *         remaining bytes at each candidate position
+     */
+    public static IndexOf
+    indexOf(final byte[] needle) {
+
+        final byte[] needle2 = needle.clone();
+
+        return new IndexOf() {
+
+            @Override public int
+            indexOf(ByteBuffer haystack) {
+                return this.indexOf(haystack, haystack.position(), haystack.limit());
+            }
+
+            @Override public int
+            indexOf(byte[] haystack) { return this.indexOf(ByteBuffer.wrap(haystack), 0, haystack.length); }
+
+            @Override public int
+            indexOf(ByteBuffer haystack, int minIndex, int maxIndex) {
+
+                int nl   = needle2.length;
+                int last = Math.min(maxIndex, haystack.limit() - nl);
+                if (minIndex < 0) minIndex = 0;
+                if (minIndex > last) return -1;
+                if (nl == 0) return minIndex;
+
+                long[] patterns = { ByteUtil.ONES * (needle2[0] & 0xff) };
+
+                ByteBuffer hs = ByteUtil.littleEndian(haystack);
+                for (int i = minIndex;; i++) {
+
+                    i = ByteUtil.indexOfAny(hs, patterns, i, last + 1);
+                    if (i == -1) return -1;
+
+                    if (ByteUtil.startsWith(hs, i, needle2)) return i;
+                }
+            }
+
+            @Override public String
+            toString() { return "byteIndexOf(" + Arrays.toString(needle2) + ")"; }
+        };
+    }
+
+    /**
+     * @return A {@link MultiNeedleIndexOf} that scans the haystack for the first bytes of the <var>needles</var>
+     *         (eight bytes at a time iff there are no more than three distinct first bytes), and verifies the
+     *         needles that start with that byte at each candidate position
+     */
+    public static MultiNeedleIndexOf
+    indexOf(byte[][] needles) {
+
+        final byte[][] needles2 = new byte[needles.length][];
+        for (int i = 0; i < needles.length; i++) needles2[i] = needles[i].clone();
+
+        // Group the needles by their first byte.
+        final int[][] needlesByFirstByte = new int[256][];
+        final long[]  patterns;
+        boolean       hasEmptyNeedle     = false;
+        int           minNeedleLength    = Integer.MAX_VALUE;
+        {
+            List<Long> ps = new ArrayList<Long>();
+            for (int i = 0; i < needles2.length; i++) {
+                byte[] needle = needles2[i];
+
+                if (needle.length < minNeedleLength) minNeedleLength = needle.length;
+                if (needle.length == 0) {
+                    hasEmptyNeedle = true;
+                    continue;
+                }
+
+                int   fb = needle[0] & 0xff;
+                int[] ns = needlesByFirstByte[fb];
+                if (ns == null) {
+                    ns = new int[0];
+                    ps.add(ByteUtil.ONES * fb);
+                }
+                ns                     = Arrays.copyOf(ns, ns.length + 1);
+                ns[ns.length - 1]      = i;
+                needlesByFirstByte[fb] = ns;
+            }
+
+            // With more than three distinct first bytes, the SWAR scan would be slower than a byte-wise scan.
+            if (ps.size() <= 3) {
+                patterns = new long[ps.size()];
+                for (int i = 0; i < patterns.length; i++) patterns[i] = ps.get(i);
+            } else {
+                patterns = null;
+            }
+        }
+        final boolean hasEmptyNeedle2  = hasEmptyNeedle;
+        final int     minNeedleLength2 = minNeedleLength;
+
+        return new MultiNeedleIndexOf() {
+
+            @Override public int
+            indexOf(ByteBuffer haystack, BitSet matchingNeedleIndices) {
+                return this.indexOf(haystack, matchingNeedleIndices, haystack.position(), haystack.limit());
+            }
+
+            @Override public int
+            indexOf(byte[] haystack, BitSet matchingNeedleIndices) {
+                return this.indexOf(ByteBuffer.wrap(haystack), matchingNeedleIndices, 0, haystack.length);
+            }
+
+            @Override public int
+            indexOf(ByteBuffer haystack, BitSet matchingNeedleIndices, int minIndex, int maxIndex) {
+
+                if (needles2.length == 0) return -1;
+
+                int last = Math.min(maxIndex, haystack.limit() - minNeedleLength2);
+                if (minIndex < 0) minIndex = 0;
+                if (minIndex > last) return -1;
+
+                ByteBuffer hs    = ByteUtil.littleEndian(haystack);
+                int        limit = hs.limit();
+                for (int i = minIndex;; i++) {
+
+                    if (!hasEmptyNeedle2) {
+                        i = (
+                            patterns != null
+                            ? ByteUtil.indexOfAny(hs, patterns, i, last + 1)
+                            : ByteUtil.indexOfAny(hs, needlesByFirstByte, i, last + 1)
+                        );
+                        if (i == -1) return -1;
+                    } else
+                    if (i > last) {
+                        return -1;
+                    }
+
+                    boolean found = false;
+                    if (hasEmptyNeedle2) {
+                        for (int ni = 0; ni < needles2.length; ni++) {
+                            if (needles2[ni].length == 0) {
+                                matchingNeedleIndices.set(ni);
+                                found = true;
+                            }
+                        }
+                    }
+                    if (i < limit) {
+                        int[] candidates = needlesByFirstByte[hs.get(i) & 0xff];
+                        if (candidates != null) {
+                            for (int ni : candidates) {
+                                byte[] needle = needles2[ni];
+                                if (i + needle.length <= limit && ByteUtil.startsWith(hs, i, needle)) {
+                                    matchingNeedleIndices.set(ni);
+                                    found = true;
+                                }
+                            }
+                        }
+                    }
+                    if (found) return i;
+                }
+            }
+
+            @Override public String
+            toString() {
+                StringBuilder sb = new StringBuilder("byteIndexOf(");
+                for (int i = 0; i < needles2.length; i++) {
+                    if (i > 0) sb.append('|');
+                    sb.append(Arrays.toString(needles2[i]));
+                }
+                return sb.append(')').toString();
+            }
+        };
+    }
+
+    /**
+     * Counts the line feeds ({@code '\n'}) in the given range of the <var>haystack</var>; thus the line number of the
+     * byte at offset <var>o</var> is {@code countLineBreaks(haystack, 0, o) + 1}. (Notice that "CR" line separators
+     * are not counted, but "CR LF" separators are, which is correct for UTF-8 and ISO-8859-x encoded text.)
+     *
+     * @param from The (absolute) offset of the first byte to examine
+     * @param to   The (absolute) offset after the last byte to examine
+     */
+    public static int
+    countLineBreaks(ByteBuffer haystack, int from, int to) {
+
+        long pattern = ByteUtil.ONES * '\n';
+        int  result  = 0;
+
+        ByteBuffer hs = ByteUtil.littleEndian(haystack);
+
+        int i = from;
+        for (; i + 8 <= to; i += 8) result += Long.bitCount(ByteUtil.zeroBytes(hs.getLong(i) ^ pattern));
+        for (; i < to; i++) {
+            if (haystack.get(i) == '\n') result++;
+        }
+
+        return result;
+    }
+
+    // ------------------------------------------------------
+
+    private static byte[]
+    encode(CharSequence needle, Charset charset) {
+
+        if (!ByteUtil.isByteSearchable(charset)) {
+            throw new IllegalArgumentException("Charset \"" + charset + "\" does not allow byte-wise search");
+        }
+
+        if (!charset.newEncoder().canEncode(needle)) {
+            throw new IllegalArgumentException("Charset \"" + charset + "\" cannot encode \"" + needle + "\"");
+        }
+
+        return needle.toString().getBytes(charset);
+    }
+
+    /**
+     * @return A view of the <var>bb</var> with little-endian byte order, so that the lowest byte of a {@link
+     *         ByteBuffer#getLong(int) long} is the first one in the buffer
+     */
+    private static ByteBuffer
+    littleEndian(ByteBuffer bb) {
+        return bb.order() == ByteOrder.LITTLE_ENDIAN ? bb : bb.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return A value with the top bit set in exactly those bytes that are zero in <var>x</var>
+     */
+    private static long
+    zeroBytes(long x) { return ~(((x & ByteUtil.LOW7) + ByteUtil.LOW7) | x | ByteUtil.LOW7); }
+
+    /**
+     * @param patterns Each element consists of eight copies of the byte to look for
+     * @return         The offset of the first byte in the range <var>from</var> (inclusive) through <var>to</var>
+     *                 (exclusive) that equals any of the bytes of the <var>patterns</var>, or -1
+     */
+    private static int
+    indexOfAny(ByteBuffer hs, long[] patterns, int from, int to) {
+
+        int i = from;
+
+        for (int end = Math.min(to, hs.limit() - 7); i < end; i += 8) {
+            long word = hs.getLong(i);
+
+            long zbs = 0;
+            for (long p : patterns) zbs |= ByteUtil.zeroBytes(word ^ p);
+
+            if (zbs != 0) {
+                int result = i + (Long.numberOfTrailingZeros(zbs) >>> 3);
+                return result < to ? result : -1;
+            }
+        }
+
+        for (; i < to; i++) {
+            byte b = hs.get(i);
+            for (long p : patterns) {
+                if (b == (byte) p) return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return The offset of the first byte in the range <var>from</var> (inclusive) through <var>to</var>
+     *         (exclusive) for which the <var>table</var> has a non-{@code null} element, or -1
+     */
+    private static int
+    indexOfAny(ByteBuffer hs, Object[] table, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (table[hs.get(i) & 0xff] != null) return i;
+        }
+        return -1;
+    }
+
+    private static boolean
+    startsWith(ByteBuffer hs, int offset, byte[] needle) {
+        for (int j = 0; j < needle.length; j++) {
+            if (hs.get(offset + j) != needle[j]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,229 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.lang;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A "window" of characters that grows at its end through {@link #append(CharSequence)} and shrinks at its beginning
+ * through {@link #discard(int)}, both in amortized constant time. The characters are stored in a circular array, so
+ * discarding characters does not shift the remaining characters (as {@link StringBuilder#delete(int, int)} would).
+ * <p>
+ *   Because it implements {@link CharSequence}, the window can directly be used as the subject of a {@link
+ *   java.util.regex.Matcher}. Notice, however, that the matcher must be {@link java.util.regex.Matcher#reset(
+ *   CharSequence) reset} after each modification of the window.
+ * </p>
+ * <p>
+ *   Not thread-safe.
+ * </p>
+ */
+public
+class CharRingBuffer implements CharSequence, Appendable {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final int minCapacity;
+
+    /**
+     * The length of this array is always a power of two.
+     */
+    private char[] buffer;
+
+    /**
+     * Index of the first character of the window in the {@link #buffer}.
+     */
+    private int head;
+
+    private int length;
+
+    public
+    CharRingBuffer() { this(CharRingBuffer.DEFAULT_INITIAL_CAPACITY); }
+
+    /**
+     * @param initialCapacity The capacity of the window will never be less than this value
+     */
+    public
+    CharRingBuffer(int initialCapacity) {
+        this.minCapacity = CharRingBuffer.powerOfTwo(initialCapacity);
+        this.buffer      = new char[this.minCapacity];
+    }
+
+    @Override public int
+    length() { return this.length; }
+
+    @Override public char
+    charAt(int index) {
+
+        if (index < 0 || index >= this.length) throw new IndexOutOfBoundsException(Integer.toString(index));
+
+        return this.buffer[(this.head + index) & (this.buffer.length - 1)];
+    }
+
+    /**
+     * @return A {@link String} (and not a view of this window!), because the window is mutable
+     */
+    @Override public String
+    subSequence(int start, int end) {
+
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException("start=" + start + ", end=" + end + ", length=" + this.length);
+        }
+
+        return new String(this.toCharArray(start, end));
+    }
+
+    @Override public String
+    toString() { return new String(this.toCharArray(0, this.length)); }
+
+    @Override public CharRingBuffer
+    append(@Nullable CharSequence csq) {
+        if (csq == null) csq = "null";
+        return this.append(csq, 0, csq.length());
+    }
+
+    @Override public CharRingBuffer
+    append(@Nullable CharSequence csq, int start, int end) {
+
+        if (csq == null) csq = "null";
+
+        int n = end - start;
+        this.ensureCapacity(this.length + n);
+
+        char[] buf  = this.buffer;
+        int    mask = buf.length - 1;
+        int    tail = (this.head + this.length) & mask;
+
+        // The appended characters may wrap around the end of the array.
+        int n1 = Math.min(n, buf.length - tail);
+        CharRingBuffer.getChars(csq, start, start + n1, buf, tail);
+        CharRingBuffer.getChars(csq, start + n1, end, buf, 0);
+
+        this.length += n;
+        return this;
+    }
+
+    @Override public CharRingBuffer
+    append(char c) {
+
+        this.ensureCapacity(this.length + 1);
+
+        this.buffer[(this.head + this.length) & (this.buffer.length - 1)] = c;
+        this.length++;
+        return this;
+    }
+
+    /**
+     * Removes the first <var>n</var> characters from this window.
+     */
+    public void
+    discard(int n) {
+
+        if (n < 0 || n > this.length) throw new IndexOutOfBoundsException("n=" + n + ", length=" + this.length);
+
+        this.head   =  (this.head + n) & (this.buffer.length - 1);
+        this.length -= n;
+
+        // Release memory after the window has shrunk significantly, e.g. after a long match.
+        if (this.length < this.buffer.length / 8 && this.buffer.length > this.minCapacity) {
+            this.reallocate(Math.max(this.minCapacity, CharRingBuffer.powerOfTwo(2 * this.length)));
+        }
+    }
+
+    /**
+     * Removes all characters from this window.
+     */
+    public void
+    clear() { this.discard(this.length); }
+
+    /**
+     * @return The number of characters this window can hold without allocating more memory
+     */
+    public int
+    capacity() { return this.buffer.length; }
+
+    /**
+     * Copies the characters <var>start</var>...<var>end</var> of this window into a new array.
+     */
+    public char[]
+    toCharArray(int start, int end) {
+
+        char[] result = new char[end - start];
+
+        int from = (this.head + start) & (this.buffer.length - 1);
+        int n1   = Math.min(end - start, this.buffer.length - from);
+        System.arraycopy(this.buffer, from, result, 0, n1);
+        System.arraycopy(this.buffer, 0, result, n1, end - start - n1);
+
+        return result;
+    }
+
+    private void
+    ensureCapacity(int minimumCapacity) {
+        if (minimumCapacity > this.buffer.length) this.reallocate(CharRingBuffer.powerOfTwo(minimumCapacity));
+    }
+
+    private void
+    reallocate(int newCapacity) {
+        char[] newBuffer = this.toCharArray(0, this.length);
+        this.buffer = newCapacity == newBuffer.length ? newBuffer : Arrays.copyOf(newBuffer, newCapacity);
+        this.head   = 0;
+    }
+
+    private static void
+    getChars(CharSequence src, int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+
+        if (src instanceof String) {
+            ((String) src).getChars(srcBegin, srcEnd, dst, dstBegin);
+        } else
+        if (src instanceof StringBuilder) {
+            ((StringBuilder) src).getChars(srcBegin, srcEnd, dst, dstBegin);
+        } else
+        if (src instanceof StringBuffer) {
+            ((StringBuffer) src).getChars(srcBegin, srcEnd, dst, dstBegin);
+        } else
+        if (src instanceof CharBuffer) {
+            CharBuffer cb = ((CharBuffer) src).duplicate();
+            cb.position(cb.position() + srcBegin);
+            cb.get(dst, dstBegin, srcEnd - srcBegin);
+        } else
+        {
+            for (int i = srcBegin; i < srcEnd; i++) dst[dstBegin++] = src.charAt(i);
+        }
+    }
+
+    /**
+     * @return The smallest power of two that is greater than or equal to <var>n</var> (and at least 1)
+     */
+    private static int
+    powerOfTwo(int n) {
+        if (n < 0 || n > 1 << 30) throw new IllegalArgumentException(Integer.toString(n));
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+}
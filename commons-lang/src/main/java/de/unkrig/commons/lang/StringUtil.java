@@ -27,10 +27,14 @@
 package de.unkrig.commons.lang;
 
 import java.io.BufferedReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import de.unkrig.commons.lang.protocol.Predicate;
@@ -933,8 +937,9 @@ class StringUtil {
                         return firstPossibleMatchOffset;
                     }
 
-                    // Step 3: Avance the pivot offset.
-                    pivot += this.shortestNeedleLength;
+                    // Step 3: Advance the pivot offset. Notice that the next match may start only one position
+                    // after the failed match, e.g. needle "aa" and haystack "baa".
+                    pivot = firstPossibleMatchOffset + this.shortestNeedleLength;
                 }
             }
 
@@ -1250,8 +1255,9 @@ class StringUtil {
                         return firstPossibleMatchOffset;
                     }
 
-                    // Step 3: Avance the pivot offset.
-                    pivot += this.shortestNeedleLength;
+                    // Step 3: Advance the pivot offset. Notice that the next match may start only one position
+                    // after the failed match, e.g. needle "aa" and haystack "baa".
+                    pivot = firstPossibleMatchOffset + this.shortestNeedleLength;
                 }
             }
 
@@ -1272,6 +1278,373 @@ class StringUtil {
         };
     }
 
+    /**
+     * If there are at least this many needles, then {@link #indexOf(CharSequence[])} and {@link
+     * #indexOf(char[][][])} use the Aho-Corasick algorithm instead of the Boyer-Moore-Horspool algorithm.
+     */
+    public static final int AHO_CORASICK_THRESHOLD = 16;
+
+    /**
+     * Runtime-optimized search for multiple needles.
+     * <p>
+     *   For few needles, this method returns a {@link #boyerMooreHorspoolIndexOf(CharSequence[]) Boyer-Moore-Horspool
+     *   implementation}, otherwise (at least {@value #AHO_CORASICK_THRESHOLD} needles, where the shift distance of
+     *   Boyer-Moore-Horspool degrades to one or two characters) an {@link #ahoCorasickIndexOf(CharSequence[])
+     *   Aho-Corasick implementation}.
+     * </p>
+     */
+    public static MultiNeedleIndexOf
+    indexOf(CharSequence[] needles) {
+
+        if (needles.length >= StringUtil.AHO_CORASICK_THRESHOLD) return StringUtil.ahoCorasickIndexOf(needles);
+
+        return StringUtil.boyerMooreHorspoolIndexOf(needles);
+    }
+
+    /**
+     * Runtime-optimized search for multiple, "multivalent" needles; see {@link #indexOf(CharSequence[])}.
+     *
+     * @param needles {@code [needleIndex][offset][multivalence]}
+     */
+    public static MultiNeedleIndexOf
+    indexOf(char[][][] needles) {
+
+        if (needles.length >= StringUtil.AHO_CORASICK_THRESHOLD) {
+            MultiNeedleIndexOf result = StringUtil.ahoCorasickIndexOf2(needles);
+            if (result != null) return result;
+        }
+
+        return StringUtil.boyerMooreHorspoolIndexOf(needles);
+    }
+
+    /**
+     * Implementation of the Aho-Corasick string search algorithm, which finds the needles in time proportional to the
+     * length of the haystack, independent from the number of needles.
+     *
+     * @see <a href="https://en.wikipedia.org/wiki/Aho%E2%80%93Corasick_algorithm">The Aho–Corasick algorithm</a>
+     */
+    public static MultiNeedleIndexOf
+    ahoCorasickIndexOf(CharSequence[] needles) {
+
+        char[][][] needles2 = new char[needles.length][][];
+        for (int i = 0; i < needles.length; i++) {
+            CharSequence needle = needles[i];
+
+            char[][] needle2 = new char[needle.length()][];
+            for (int j = 0; j < needle2.length; j++) needle2[j] = new char[] { needle.charAt(j) };
+            needles2[i] = needle2;
+        }
+
+        MultiNeedleIndexOf result = StringUtil.ahoCorasickIndexOf2(needles2);
+        assert result != null;
+        return result;
+    }
+
+    /**
+     * Implementation of the Aho-Corasick string search algorithm for "multivalent" needles.
+     * <p>
+     *   Notice that the algorithm requires that any two of the {@code needles[needleIndex][offset]} character sets
+     *   are either equal or disjoint (which is, e.g., the case for case-insensitive search); otherwise the
+     *   (slower) {@link #boyerMooreHorspoolIndexOf(char[][][]) Boyer-Moore-Horspool implementation} is returned.
+     * </p>
+     *
+     * @param needles {@code [needleIndex][offset][multivalence]}
+     * @see           <a href="https://en.wikipedia.org/wiki/Aho%E2%80%93Corasick_algorithm">The Aho–Corasick
+     *                algorithm</a>
+     */
+    public static MultiNeedleIndexOf
+    ahoCorasickIndexOf(char[][][] needles) {
+
+        MultiNeedleIndexOf result = StringUtil.ahoCorasickIndexOf2(needles);
+        return result != null ? result : StringUtil.boyerMooreHorspoolIndexOf(needles);
+    }
+
+    /**
+     * Leaves the <var>needles</var> unmodified.
+     *
+     * @return {@code null} iff the character sets of the <var>needles</var> are not pairwise equal or disjoint
+     */
+    @Nullable private static MultiNeedleIndexOf
+    ahoCorasickIndexOf2(char[][][] needles) {
+
+        // Normalize (a copy of) the character sets, and verify that any two of them are equal or disjoint; only then
+        // the trie is a tree.
+        char[][][] needles2 = new char[needles.length][][];
+        {
+            Map<Character, char[]> charSets = new HashMap<Character, char[]>();
+            for (int needleIndex = 0; needleIndex < needles.length; needleIndex++) {
+                char[][] needle  = needles[needleIndex];
+                char[][] needle2 = (needles2[needleIndex] = new char[needle.length][]);
+
+                for (int offset = 0; offset < needle.length; offset++) {
+
+                    char[] cs = StringUtil.removeDuplicates(needle[offset]);
+                    if (cs == needle[offset]) cs = cs.clone();
+                    Arrays.sort(cs);
+                    needle2[offset] = cs;
+
+                    for (char c : cs) {
+                        char[] prev = charSets.put(c, cs);
+                        if (prev != null && !Arrays.equals(prev, cs)) return null;
+                    }
+                }
+            }
+        }
+
+        return new AhoCorasickIndexOf(needles2);
+    }
+
+    private static final
+    class AhoCorasickIndexOf extends AbstractMultiNeedleIndexOf {
+
+        private static final int[] NO_OUTPUTS = new int[0];
+
+        private final char[][][] needles;
+
+        private final int maxNeedleLength;
+
+        // The automaton; state #0 is the root.
+
+        /**
+         * The (sorted) characters of the transitions of each state.
+         */
+        private final char[][] labels;
+
+        /**
+         * The target states of the transitions of each state.
+         */
+        private final int[][] targets;
+
+        /**
+         * The "failure" transition of each state, i.e. the state for the longest proper suffix of the state's
+         * string that is also a prefix of one of the needles.
+         */
+        private final int[] fail;
+
+        /**
+         * The indices of the needles that end in each state; for one state, these needles are all of equal length.
+         */
+        private final int[][] outputs;
+
+        /**
+         * The next state on the failure chain of each state that has outputs, or -1.
+         */
+        private final int[] dictionaryLink;
+
+        /**
+         * The length of the string that leads to each state.
+         */
+        private final int[] depth;
+
+        AhoCorasickIndexOf(char[][][] needles) {
+            this.needles = needles;
+
+            // Build the trie.
+            List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+            List<int[]>                   outputs     = new ArrayList<int[]>();
+            List<Integer>                 depths      = new ArrayList<Integer>();
+            transitions.add(new HashMap<Character, Integer>());
+            outputs.add(AhoCorasickIndexOf.NO_OUTPUTS);
+            depths.add(0);
+
+            int maxNeedleLength = 0;
+            for (int needleIndex = 0; needleIndex < needles.length; needleIndex++) {
+                char[][] needle = needles[needleIndex];
+
+                int state = 0;
+                for (char[] cs : needle) {
+                    Integer next = transitions.get(state).get(cs[0]);
+                    if (next == null) {
+                        next = transitions.size();
+                        transitions.add(new HashMap<Character, Integer>());
+                        outputs.add(AhoCorasickIndexOf.NO_OUTPUTS);
+                        depths.add(depths.get(state) + 1);
+
+                        // Because the character sets are equal or disjoint, all characters of the set lead to the
+                        // same state.
+                        for (char c : cs) transitions.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+
+                int[] o = outputs.get(state);
+                o = Arrays.copyOf(o, o.length + 1);
+                o[o.length - 1] = needleIndex;
+                outputs.set(state, o);
+
+                if (needle.length > maxNeedleLength) maxNeedleLength = needle.length;
+            }
+            this.maxNeedleLength = maxNeedleLength;
+
+            int stateCount = transitions.size();
+            this.labels         = new char[stateCount][];
+            this.targets        = new int[stateCount][];
+            this.fail           = new int[stateCount];
+            this.outputs        = outputs.toArray(new int[stateCount][]);
+            this.dictionaryLink = new int[stateCount];
+            this.depth          = new int[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                Map<Character, Integer> t = transitions.get(state);
+
+                char[] l = new char[t.size()];
+                int    i = 0;
+                for (Character c : t.keySet()) l[i++] = c;
+                Arrays.sort(l);
+
+                int[] ts = new int[l.length];
+                for (i = 0; i < l.length; i++) ts[i] = t.get(l[i]);
+
+                this.labels[state]  = l;
+                this.targets[state] = ts;
+                this.depth[state]   = depths.get(state);
+            }
+
+            // Compute the failure transitions and the dictionary links, in breadth-first order.
+            this.dictionaryLink[0] = -1;
+            int[]     queue    = new int[stateCount];
+            int       head     = 0, tail = 0;
+            boolean[] enqueued = new boolean[stateCount];
+            queue[tail++] = 0;
+            while (head < tail) {
+                int state = queue[head++];
+
+                char[] l  = this.labels[state];
+                int[]  ts = this.targets[state];
+                for (int i = 0; i < l.length; i++) {
+                    int next = ts[i];
+
+                    // Multivalent transitions appear more than once.
+                    if (enqueued[next]) continue;
+                    enqueued[next] = true;
+                    queue[tail++]  = next;
+
+                    int f = 0;
+                    if (state != 0) {
+                        for (f = this.fail[state];; f = this.fail[f]) {
+                            int x = this.transition(f, l[i]);
+                            if (x != -1) {
+                                f = x;
+                                break;
+                            }
+                            if (f == 0) break;
+                        }
+                    }
+                    this.fail[next]           = f;
+                    this.dictionaryLink[next] = this.outputs[f].length > 0 ? f : this.dictionaryLink[f];
+                }
+            }
+        }
+
+        @Override public boolean
+        startsWith(CharSequence haystack, BitSet matchingNeedleIndices, int offset, int limit) {
+
+            boolean result = false;
+            for (int state = 0, i = offset;; i++) {
+
+                for (int needleIndex : this.outputs[state]) {
+                    matchingNeedleIndices.set(needleIndex);
+                    result = true;
+                }
+
+                if (i >= limit || (state = this.transition(state, haystack.charAt(i))) == -1) return result;
+            }
+        }
+
+        @Override public int
+        indexOf(CharSequence haystack, BitSet matchingNeedleIndices, int minIndex, int maxIndex, int limit) {
+
+            assert limit <= haystack.length();
+
+            if (minIndex < 0) minIndex = 0;
+            if (minIndex > maxIndex || minIndex > limit) return -1;
+
+            // Special case: Empty needle.
+            if (this.outputs[0].length > 0) {
+                this.startsWith(haystack, matchingNeedleIndices, minIndex, limit);
+                return minIndex;
+            }
+
+            BitSet matches = new BitSet();
+            int    result  = -1;
+
+            // Because a longer needle that starts earlier may end after a shorter needle, the scan must continue
+            // until no needle can start at or before the leftmost match found so far.
+            long end = Math.min((long) maxIndex + this.maxNeedleLength, limit);
+
+            for (int i = minIndex, state = 0; i < end; i++) {
+                char c = haystack.charAt(i);
+
+                for (;;) {
+                    int next = this.transition(state, c);
+                    if (next != -1) {
+                        state = next;
+                        break;
+                    }
+                    if (state == 0) break;
+                    state = this.fail[state];
+                }
+
+                for (
+                    int s = this.outputs[state].length > 0 ? state : this.dictionaryLink[state];
+                    s != -1;
+                    s = this.dictionaryLink[s]
+                ) {
+                    int start = i - this.depth[s] + 1;
+                    if (start > maxIndex || (result != -1 && start > result)) continue;
+
+                    if (start != result) {
+                        matches.clear();
+                        result = start;
+                        end    = Math.min((long) start + this.maxNeedleLength, end);
+                    }
+                    for (int needleIndex : this.outputs[s]) matches.set(needleIndex);
+                }
+            }
+
+            matchingNeedleIndices.or(matches);
+            return result;
+        }
+
+        /**
+         * @return The target state of the transition of the <var>state</var> for character <var>c</var>, or -1
+         */
+        private int
+        transition(int state, char c) {
+            char[] l   = this.labels[state];
+            int    idx = l.length < 8 ? AhoCorasickIndexOf.linearSearch(l, c) : Arrays.binarySearch(l, c);
+            return idx < 0 ? -1 : this.targets[state][idx];
+        }
+
+        private static int
+        linearSearch(char[] a, char key) {
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == key) return i;
+            }
+            return -1;
+        }
+
+        @Override public String
+        toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("ahoCorasick(");
+            if (this.needles.length > 0) {
+                for (int ni = 0;;) {
+                    for (char[] o : this.needles[ni]) {
+                        if (o.length == 1) {
+                            sb.append(o[0]);
+                        } else {
+                            sb.append('[').append(o).append(']');
+                        }
+                    }
+                    if (++ni >= this.needles.length) break;
+                    sb.append('|');
+                }
+            }
+            sb.append(')');
+            return sb.toString();
+        }
+    }
+
     private static char[]
     removeDuplicates(char[] subject) {
 
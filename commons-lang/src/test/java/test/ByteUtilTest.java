@@ -0,0 +1,185 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.lang.ByteUtil;
+import de.unkrig.commons.lang.ByteUtil.IndexOf;
+import de.unkrig.commons.lang.ByteUtil.MultiNeedleIndexOf;
+
+public
+class ByteUtilTest {
+
+    private static final Charset UTF_8      = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    @Test public void
+    testIndexOf() {
+        Random r = new Random(3);
+        for (int i = 0; i < 3000; i++) {
+
+            byte[] needle   = ByteUtilTest.randomBytes(r, r.nextInt(4));
+            byte[] haystack = ByteUtilTest.randomBytes(r, r.nextInt(50));
+
+            int minIndex = r.nextInt(haystack.length + 1);
+            int maxIndex = minIndex + r.nextInt(haystack.length + 1);
+
+            int expected = -1;
+            for (int o = minIndex; o <= maxIndex && o + needle.length <= haystack.length; o++) {
+                if (ByteUtilTest.startsWith(haystack, o, needle)) {
+                    expected = o;
+                    break;
+                }
+            }
+
+            IndexOf io = ByteUtil.indexOf(needle);
+            for (ByteBuffer bb : ByteUtilTest.buffers(haystack)) {
+                Assert.assertEquals(io + " " + bb, expected, io.indexOf(bb, minIndex, maxIndex));
+            }
+        }
+    }
+
+    @Test public void
+    testMultiNeedleIndexOf() {
+        Random r = new Random(4);
+        for (int i = 0; i < 3000; i++) {
+
+            // Few needles => SWAR scan; many needles => table-driven scan.
+            byte[][] needles = new byte[1 + r.nextInt(i % 2 == 0 ? 3 : 10)][];
+            for (int j = 0; j < needles.length; j++) needles[j] = ByteUtilTest.randomBytes(r, 1 + r.nextInt(3));
+            byte[] haystack = ByteUtilTest.randomBytes(r, r.nextInt(50));
+
+            int minIndex = r.nextInt(haystack.length + 1);
+            int maxIndex = minIndex + r.nextInt(haystack.length + 1);
+
+            BitSet expectedIndices = new BitSet();
+            int    expected        = -1;
+            for (int o = minIndex; o <= maxIndex && expected == -1; o++) {
+                for (int j = 0; j < needles.length; j++) {
+                    if (o + needles[j].length <= haystack.length && ByteUtilTest.startsWith(haystack, o, needles[j])) {
+                        expectedIndices.set(j);
+                        expected = o;
+                    }
+                }
+            }
+
+            MultiNeedleIndexOf mnio = ByteUtil.indexOf(needles);
+            for (ByteBuffer bb : ByteUtilTest.buffers(haystack)) {
+                BitSet actualIndices = new BitSet();
+                Assert.assertEquals(mnio + " " + bb, expected, mnio.indexOf(bb, actualIndices, minIndex, maxIndex));
+                Assert.assertEquals(mnio + " " + bb, expectedIndices, actualIndices);
+            }
+        }
+    }
+
+    @Test public void
+    testCharsets() {
+        Assert.assertTrue(ByteUtil.isByteSearchable(ByteUtilTest.UTF_8));
+        Assert.assertTrue(ByteUtil.isByteSearchable(ByteUtilTest.ISO_8859_1));
+        Assert.assertFalse(ByteUtil.isByteSearchable(Charset.forName("UTF-16")));
+        if (Charset.isSupported("IBM037")) Assert.assertFalse(ByteUtil.isByteSearchable(Charset.forName("IBM037")));
+
+        String text = "Grüße aus Köln\nund €-Zeichen";
+        for (Charset cs : new Charset[] { ByteUtilTest.UTF_8, ByteUtilTest.ISO_8859_1 }) {
+            if (!cs.newEncoder().canEncode(text)) continue;
+
+            byte[] bytes = text.getBytes(cs);
+            int    o     = ByteUtil.indexOf("Köln", cs).indexOf(bytes);
+            Assert.assertEquals(cs.name(), "Grüße aus ", new String(bytes, 0, o, cs));
+        }
+
+        ByteBuffer bb = ByteBuffer.wrap(text.getBytes(ByteUtilTest.UTF_8));
+        Assert.assertEquals(
+            "und €-Zeichen".getBytes(ByteUtilTest.UTF_8).length,
+            bb.limit() - ByteUtil.indexOf("und", ByteUtilTest.UTF_8).indexOf(bb)
+        );
+
+        try {
+            ByteUtil.indexOf("€", ByteUtilTest.ISO_8859_1);
+            Assert.fail();
+        } catch (IllegalArgumentException iae) {
+            ;
+        }
+    }
+
+    @Test public void
+    testCountLineBreaks() {
+        byte[] bytes = "line 1\nline 2\r\nline 3\n\nline 5 is a little longer\nline 6".getBytes(ByteUtilTest.UTF_8);
+        for (ByteBuffer bb : ByteUtilTest.buffers(bytes)) {
+            int o = ByteUtil.indexOf("line 5", ByteUtilTest.UTF_8).indexOf(bb);
+            Assert.assertEquals(5, ByteUtil.countLineBreaks(bb, 0, o) + 1);
+            Assert.assertEquals(5, ByteUtil.countLineBreaks(bb, 0, bb.limit()));
+            Assert.assertEquals(2, ByteUtil.countLineBreaks(bb, 3, 15));
+        }
+    }
+
+    /**
+     * @return Heap, read-only and direct buffers, in both byte orders, with the <var>bytes</var>
+     */
+    private static ByteBuffer[]
+    buffers(byte[] bytes) {
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+
+        return new ByteBuffer[] {
+            ByteBuffer.wrap(bytes),
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN),
+            ByteBuffer.wrap(bytes).asReadOnlyBuffer(),
+            direct,
+            direct.duplicate().order(ByteOrder.LITTLE_ENDIAN),
+        };
+    }
+
+    /**
+     * @return Random bytes from a small "alphabet", so that there are many matches
+     */
+    private static byte[]
+    randomBytes(Random r, int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) result[i] = (byte) (r.nextBoolean() ? 'a' + r.nextInt(3) : 0xf0 + r.nextInt(2));
+        return result;
+    }
+
+    private static boolean
+    startsWith(byte[] haystack, int offset, byte[] needle) {
+        for (int i = 0; i < needle.length; i++) {
+            if (haystack[offset + i] != needle[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.lang.CharRingBuffer;
+
+public
+class CharRingBufferTest {
+
+    @Test public void
+    testAppendAndDiscard() {
+        CharRingBuffer crb = new CharRingBuffer(4);
+
+        crb.append("abc");
+        Assert.assertEquals("abc", crb.toString());
+        Assert.assertEquals(4, crb.capacity());
+
+        // Wrap around the end of the underlying array.
+        crb.discard(2);
+        crb.append("def");
+        Assert.assertEquals("cdef", crb.toString());
+        Assert.assertEquals(4, crb.capacity());
+        Assert.assertEquals('f', crb.charAt(3));
+        Assert.assertEquals("de", crb.subSequence(1, 3));
+
+        // Grow.
+        crb.append(new StringBuilder("ghi")).append('j');
+        Assert.assertEquals("cdefghij", crb.toString());
+        Assert.assertEquals(8, crb.capacity());
+
+        crb.clear();
+        Assert.assertEquals(0, crb.length());
+        Assert.assertEquals(4, crb.capacity());
+    }
+
+    @Test public void
+    testRandom() {
+        Random         r   = new Random(123);
+        CharRingBuffer crb = new CharRingBuffer();
+        StringBuilder  sb  = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            if (r.nextBoolean()) {
+                String s = Integer.toString(r.nextInt(), 36);
+                crb.append(s);
+                sb.append(s);
+            } else {
+                int n = r.nextInt(sb.length() + 1);
+                crb.discard(n);
+                sb.delete(0, n);
+            }
+            Assert.assertEquals(sb.toString(), crb.toString());
+        }
+    }
+
+    @Test public void
+    testMatcher() {
+        CharRingBuffer crb = new CharRingBuffer(8);
+        crb.append("xxxxxx");
+        crb.discard(5);
+        crb.append("foo123bar");
+
+        Matcher m = Pattern.compile("o(\\d+)").matcher(crb);
+        Assert.assertTrue(m.find());
+        Assert.assertEquals(3, m.start());
+        Assert.assertEquals("123", m.group(1));
+    }
+}
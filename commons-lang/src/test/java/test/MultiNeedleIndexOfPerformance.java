@@ -0,0 +1,125 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.lang.StringUtil;
+import de.unkrig.commons.lang.StringUtil.MultiNeedleIndexOf;
+
+/**
+ * Compares the Boyer-Moore-Horspool and the Aho-Corasick implementations of {@link MultiNeedleIndexOf}, by number of
+ * needles and alphabet size. Not executed by the regular build (the class name does not end with "Test").
+ */
+public
+class MultiNeedleIndexOfPerformance {
+
+    private static final int HAYSTACK_LENGTH = 4000000;
+
+    private static final int[] NEEDLE_COUNTS = { 1, 2, 4, 8, 16, 64, 256, 1024 };
+
+    @Test public void
+    dna() { MultiNeedleIndexOfPerformance.compare("ACGT"); }
+
+    @Test public void
+    lowerCaseLetters() { MultiNeedleIndexOfPerformance.compare("abcdefghijklmnopqrstuvwxyz"); }
+
+    @Test public void
+    printableAscii() {
+        StringBuilder sb = new StringBuilder();
+        for (char c = ' '; c <= '~'; c++) sb.append(c);
+        MultiNeedleIndexOfPerformance.compare(sb.toString());
+    }
+
+    // ------------------------------------------------------
+
+    private static void
+    compare(String alphabet) {
+
+        Random r        = new Random(MultiNeedleIndexOfPerformance.HAYSTACK_LENGTH);
+        String haystack = MultiNeedleIndexOfPerformance.randomString(r, MultiNeedleIndexOfPerformance.HAYSTACK_LENGTH, alphabet);
+
+        System.err.printf("Alphabet size %d:%n", alphabet.length());
+        System.err.printf("  %8s %12s %12s %10s%n", "needles", "BMH [ms]", "AC [ms]", "matches");
+
+        for (int needleCount : MultiNeedleIndexOfPerformance.NEEDLE_COUNTS) {
+
+            // Needles of length 6...12, half of which are taken from the haystack, so that there are some matches.
+            CharSequence[] needles = new CharSequence[needleCount];
+            for (int i = 0; i < needleCount; i++) {
+                int length = 6 + r.nextInt(7);
+                if (i % 2 == 0) {
+                    int offset = r.nextInt(haystack.length() - length);
+                    needles[i] = haystack.substring(offset, offset + length);
+                } else {
+                    needles[i] = MultiNeedleIndexOfPerformance.randomString(r, length, alphabet);
+                }
+            }
+
+            long[] bmh = MultiNeedleIndexOfPerformance.measure(StringUtil.boyerMooreHorspoolIndexOf(needles), haystack);
+            long[] ac  = MultiNeedleIndexOfPerformance.measure(StringUtil.ahoCorasickIndexOf(needles), haystack);
+            Assert.assertEquals(bmh[1], ac[1]);
+
+            System.err.printf("  %8d %12d %12d %10d%n", needleCount, bmh[0], ac[0], ac[1]);
+        }
+    }
+
+    /**
+     * @return The duration (ms) and the number of match positions
+     */
+    private static long[]
+    measure(MultiNeedleIndexOf mnio, String haystack) {
+
+        long   begin   = System.currentTimeMillis();
+        long   count   = 0;
+        BitSet indices = new BitSet();
+        for (int i = 0; (i = mnio.indexOf(haystack, indices, i)) != -1; i++) count++;
+        long   end     = System.currentTimeMillis();
+
+        return new long[] { end - begin, count };
+    }
+
+    private static String
+    randomString(Random r, int length, String alphabet) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) result[i] = alphabet.charAt(r.nextInt(alphabet.length()));
+        return new String(result);
+    }
+
+    public static void
+    main(String[] args) {
+        new MultiNeedleIndexOfPerformance().dna();
+        new MultiNeedleIndexOfPerformance().lowerCaseLetters();
+        new MultiNeedleIndexOfPerformance().printableAscii();
+    }
+}
@@ -30,6 +30,7 @@ package test;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Random;
@@ -389,6 +390,106 @@ class StringUtilTest {
         }
     }
 
+    @Test public void
+    testBoyerMooreHorspoolIndexMulti__overlap() {
+        Assert.assertEquals(1, StringUtil.boyerMooreHorspoolIndexOf(new CharSequence[] { "aa" }).indexOf("baa"));
+        Assert.assertEquals(2, StringUtil.boyerMooreHorspoolIndexOf(new CharSequence[] { "ab", "bc" }).indexOf("xbbc"));
+    }
+
+    @Test public void
+    testAhoCorasickIndexOf() {
+        Random r = new Random(77);
+        for (int i = 0; i < 2000; i++) {
+
+            // A small alphabet makes for many overlapping matches.
+            String[] needles = new String[1 + r.nextInt(20)];
+            for (int j = 0; j < needles.length; j++) needles[j] = StringUtilTest.randomString(r, 1 + r.nextInt(5), "abc");
+
+            String haystack = StringUtilTest.randomString(r, r.nextInt(40), "abcd");
+
+            int minIndex = r.nextInt(haystack.length() + 1);
+            int maxIndex = minIndex + r.nextInt(haystack.length() + 1);
+            int limit    = r.nextInt(haystack.length() + 1);
+
+            MultiNeedleIndexOf[] strategies = {
+                StringUtil.ahoCorasickIndexOf(needles),
+                StringUtil.boyerMooreHorspoolIndexOf(needles),
+            };
+            for (MultiNeedleIndexOf mnio : strategies) {
+                String message = mnio + ".indexOf(\"" + haystack + "\", " + minIndex + ", " + maxIndex + ", " + limit + ")";
+
+                BitSet expectedIndices = new BitSet();
+                int    expected        = -1;
+                for (int o = minIndex; o <= maxIndex && expected == -1; o++) {
+                    for (int j = 0; j < needles.length; j++) {
+                        if (o + needles[j].length() <= limit && haystack.startsWith(needles[j], o)) {
+                            expectedIndices.set(j);
+                            expected = o;
+                        }
+                    }
+                }
+
+                BitSet actualIndices = new BitSet();
+                Assert.assertEquals(message, expected, mnio.indexOf(haystack, actualIndices, minIndex, maxIndex, limit));
+                Assert.assertEquals(message, expectedIndices, actualIndices);
+            }
+        }
+    }
+
+    @Test public void
+    testAhoCorasickIndexOfMultivalent() {
+
+        // Case-insensitive needles; the character sets are equal or disjoint.
+        String[]   words   = {
+            "tom", "phantomas", "phantom", "mas", "as", "ant", "x", "antomas", "b", "c", "d", "f", "g", "i", "j", "k",
+        };
+        char[][][] needles = new char[words.length][][];
+        char[][][] copy    = new char[words.length][][];
+        for (int i = 0; i < words.length; i++) {
+            needles[i] = new char[words[i].length()][];
+            copy[i]    = new char[words[i].length()][];
+            for (int j = 0; j < words[i].length(); j++) {
+                char c = words[i].charAt(j);
+                needles[i][j] = new char[] { c, Character.toUpperCase(c), c };
+                copy[i][j]    = needles[i][j].clone();
+            }
+        }
+
+        MultiNeedleIndexOf mnio = StringUtil.indexOf(needles);
+        Assert.assertTrue(mnio.toString(), mnio.toString().startsWith("ahoCorasick("));
+
+        // The needles must not have been modified (e.g. sorted or de-duplicated).
+        Assert.assertTrue(Arrays.deepEquals(copy, needles));
+
+        BitSet mnis = new BitSet();
+        Assert.assertEquals(4, mnio.indexOf("The PhanTomas", mnis));
+        Assert.assertEquals(StringUtilTest.bitSet(1, 2), mnis);
+
+        mnis.clear();
+        Assert.assertEquals(6, mnio.indexOf("The PhanTomas", mnis, 5));
+        Assert.assertEquals(StringUtilTest.bitSet(5, 7), mnis);
+
+        // "{ 't', 'T' }" and "{ 't' }" are neither equal nor disjoint, so Boyer-Moore-Horspool must be used.
+        needles[needles.length - 1] = new char[][] { { 't' } };
+        mnio = StringUtil.indexOf(needles);
+        Assert.assertTrue(mnio.toString(), mnio.toString().startsWith("boyerMooreHorspool("));
+        Assert.assertEquals(4, mnio.indexOf("The PhanTomas"));
+    }
+
+    private static String
+    randomString(Random r, int length, String alphabet) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+
+    private static BitSet
+    bitSet(int... indices) {
+        BitSet result = new BitSet();
+        for (int i : indices) result.set(i);
+        return result;
+    }
+
     private static void
     addFiller(Random r, StringBuilder lb) {
         for (int i = r.nextInt(7); i > 0; i--) lb.append((char) ('a' + r.nextInt(26)));
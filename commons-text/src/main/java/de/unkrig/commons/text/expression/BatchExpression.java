@@ -0,0 +1,997 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.expression;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import de.unkrig.commons.lang.AssertionUtil;
+import de.unkrig.commons.lang.protocol.Mapping;
+import de.unkrig.commons.lang.protocol.NoException;
+import de.unkrig.commons.lang.protocol.PredicateWhichThrows;
+import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.expression.Parser.BinaryOperator;
+import de.unkrig.commons.text.expression.Parser.UnaryOperator;
+import de.unkrig.commons.text.expression.Scanner.TokenType;
+import de.unkrig.commons.text.parser.ParseException;
+import de.unkrig.commons.text.pattern.Glob;
+import de.unkrig.commons.text.pattern.Pattern2;
+import de.unkrig.commons.text.scanner.AbstractScanner.Token;
+import de.unkrig.commons.text.scanner.ScanException;
+
+/**
+ * An {@link Expression} that can, in addition to the usual row-at-a-time evaluation, efficiently be evaluated
+ * against many rows at once, see {@link #evaluate(ColumnBatch)} and {@link #filter(ColumnBatch)}.
+ * <p>
+ *   Batch evaluation processes each sub-expression for all rows before it proceeds to the next sub-expression.
+ *   Arithmetic operations and comparisons on {@code int}, {@code long} and {@code double} columns are executed on
+ *   primitive arrays, without boxing. The operators {@code &&} and {@code ||} evaluate their right-hand-side operand
+ *   only for the rows that require it ("selection vectors").
+ * </p>
+ * <p>
+ *   The results are identical with those of row-at-a-time evaluation; however if row-at-a-time evaluation would
+ *   throw an exception for any row, then batch evaluation also throws an exception, but not necessarily the same.
+ * </p>
+ * <p>
+ *   Instances are created through {@link ExpressionEvaluator#parseBatch(String)}.
+ * </p>
+ */
+public final
+class BatchExpression extends AbstractExpression {
+
+    static {
+        AssertionUtil.enableAssertionsForThisClass();
+    }
+
+    private final Expression expression;
+    private final Node       root;
+
+    BatchExpression(Expression expression, Node root) {
+        this.expression = expression;
+        this.root       = root;
+    }
+
+    /**
+     * Row-at-a-time evaluation; equivalent with evaluating the {@link Expression} that {@link
+     * ExpressionEvaluator#parse(String)} produces.
+     */
+    @Override @Nullable public Object
+    evaluate(Mapping<String, ?> variables) throws EvaluationException { return this.expression.evaluate(variables); }
+
+    /**
+     * Evaluates this expression for all rows of the <var>batch</var>.
+     *
+     * @return The values of the expression, one per row
+     */
+    public Object[]
+    evaluate(ColumnBatch batch) throws EvaluationException {
+
+        int   n   = batch.size();
+        int[] sel = BatchExpression.all(n);
+        Vec   v   = this.root.evaluate(batch, sel, n);
+
+        Object[] result = new Object[n];
+        for (int row = 0; row < n; row++) result[row] = v.get(row);
+
+        return result;
+    }
+
+    /**
+     * Evaluates this expression for all rows of the <var>batch</var>, and determines the rows for which it evaluates
+     * to {@code true} (in the sense of {@link ExpressionEvaluator#toBoolean(Object)}).
+     * <p>
+     *   For a batch created through {@link ColumnBatch#fromRows(String, Object[])}, the result is identical with
+     *   applying the predicate created by {@link ExpressionUtil#toPredicate(Expression, String)} to each row.
+     * </p>
+     *
+     * @return The indexes of the rows for which this expression evaluates to {@code true}
+     */
+    public BitSet
+    filter(ColumnBatch batch) throws EvaluationException {
+
+        int   n   = batch.size();
+        int[] sel = BatchExpression.all(n);
+        int   m   = this.root.filter(batch, sel, n);
+
+        BitSet result = new BitSet(n);
+        for (int i = 0; i < m; i++) result.set(sel[i]);
+
+        return result;
+    }
+
+    @Override public String
+    toString() { return this.expression.toString(); }
+
+    /**
+     * A node of the batch expression tree.
+     */
+    abstract static
+    class Node {
+
+        /**
+         * Evaluates this node for the <var>n</var> rows designated by the first elements of the <var>sel</var>
+         * ("selection vector"), which are in ascending order.
+         *
+         * @return A vector whose elements are only valid for the selected rows
+         */
+        abstract Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException;
+
+        /**
+         * Reduces the selection to the rows for which this node evaluates to {@code true}, preserving their order.
+         *
+         * @return The number of rows that remain selected
+         */
+        int
+        filter(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            Vec v = this.evaluate(batch, sel, n);
+
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int row = sel[i];
+                if (v.isTrue(row)) sel[m++] = row;
+            }
+            return m;
+        }
+
+        /**
+         * @return Whether this node always evaluates to the given <var>value</var>
+         */
+        boolean
+        isConstant(Object value) { return false; }
+    }
+
+    /**
+     * The result of evaluating a {@link Node}; indexed by row.
+     */
+    abstract static
+    class Vec {
+
+        /**
+         * @return The value for the given <var>row</var>, exactly like row-at-a-time evaluation would produce it
+         */
+        @Nullable abstract Object
+        get(int row);
+
+        boolean
+        isTrue(int row) { return ExpressionEvaluator.toBoolean(this.get(row)); }
+    }
+
+    static final
+    class IntVec extends Vec {
+
+        final int[] values;
+
+        IntVec(int[] values) { this.values = values; }
+
+        @Override Object  get(int row)    { return this.values[row];      }
+        @Override boolean isTrue(int row) { return this.values[row] != 0; }
+    }
+
+    static final
+    class LongVec extends Vec {
+
+        final long[] values;
+
+        LongVec(long[] values) { this.values = values; }
+
+        @Override Object  get(int row)    { return this.values[row];       }
+        @Override boolean isTrue(int row) { return this.values[row] != 0L; }
+    }
+
+    static final
+    class DoubleVec extends Vec {
+
+        final double[] values;
+
+        DoubleVec(double[] values) { this.values = values; }
+
+        @Override Object  get(int row)    { return this.values[row]; }
+        @Override boolean isTrue(int row) { return true;             }
+    }
+
+    static final
+    class BooleanVec extends Vec {
+
+        final boolean[] values;
+
+        BooleanVec(boolean[] values) { this.values = values; }
+
+        @Override Object  get(int row)    { return this.values[row]; }
+        @Override boolean isTrue(int row) { return this.values[row]; }
+    }
+
+    static final
+    class ObjectVec extends Vec {
+
+        final Object[] values;
+
+        ObjectVec(Object[] values) { this.values = values; }
+
+        @Override @Nullable Object get(int row) { return this.values[row]; }
+    }
+
+    static final
+    class ConstantVec extends Vec {
+
+        @Nullable final Object  value;
+        private final boolean   isTrue;
+
+        ConstantVec(@Nullable Object value) {
+            this.value  = value;
+            this.isTrue = ExpressionEvaluator.toBoolean(value);
+        }
+
+        @Override @Nullable Object get(int row)    { return this.value;  }
+        @Override boolean          isTrue(int row) { return this.isTrue; }
+    }
+
+    // Numeric "kinds" of vectors, in the order of binary numeric promotion.
+    private static final int NOT_NUMERIC = 0;
+    private static final int INT         = 1;
+    private static final int LONG        = 2;
+    private static final int DOUBLE      = 3;
+
+    private static int
+    kind(Vec v) {
+
+        if (v instanceof IntVec)    return BatchExpression.INT;
+        if (v instanceof LongVec)   return BatchExpression.LONG;
+        if (v instanceof DoubleVec) return BatchExpression.DOUBLE;
+
+        if (v instanceof ConstantVec) {
+            Object value = ((ConstantVec) v).value;
+            if (value instanceof Integer) return BatchExpression.INT;
+            if (value instanceof Long)    return BatchExpression.LONG;
+            if (value instanceof Double)  return BatchExpression.DOUBLE;
+        }
+
+        return BatchExpression.NOT_NUMERIC;
+    }
+
+    @SuppressWarnings("null") private static int
+    getInt(Vec v, int row) {
+        return v instanceof IntVec ? ((IntVec) v).values[row] : (Integer) ((ConstantVec) v).value;
+    }
+
+    @SuppressWarnings("null") private static long
+    getLong(Vec v, int row) {
+        if (v instanceof LongVec) return ((LongVec) v).values[row];
+        if (v instanceof IntVec)  return ((IntVec) v).values[row];
+        return ((Number) ((ConstantVec) v).value).longValue();
+    }
+
+    @SuppressWarnings("null") private static double
+    getDouble(Vec v, int row) {
+        if (v instanceof DoubleVec) return ((DoubleVec) v).values[row];
+        if (v instanceof LongVec)   return ((LongVec) v).values[row];
+        if (v instanceof IntVec)    return ((IntVec) v).values[row];
+        return ((Number) ((ConstantVec) v).value).doubleValue();
+    }
+
+    private static int[]
+    all(int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) result[i] = i;
+        return result;
+    }
+
+    /**
+     * @return A {@link Parser} that produces a tree of batch {@link Node}s
+     */
+    static Parser<Node, RuntimeException>
+    parser(
+        ProducerWhichThrows<? extends Token<TokenType>, ? extends ScanException> tokenProducer,
+        final PredicateWhichThrows<? super String, NoException>                  isValidVariableName
+    ) {
+
+        return new Parser<Node, RuntimeException>(tokenProducer) {
+
+            @Override protected Node
+            conditional(Node lhs, Node mhs, Node rhs) {
+                return new RowWiseNode(lhs, mhs, rhs) {
+
+                    @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        return ExpressionEvaluator.conditional(operands[0], operands[1], operands[2]);
+                    }
+                };
+            }
+
+            @Override protected Node
+            unaryOperation(final UnaryOperator operator, Node operand) {
+
+                if (operator == UnaryOperator.LOGICAL_COMPLEMENT) return new LogicalComplementNode(operand);
+
+                return new UnaryNode(operator, operand);
+            }
+
+            @Override protected Node
+            binaryOperation(Node lhs, BinaryOperator op, Node rhs) {
+
+                // Mimic the optimizations of "ExpressionUtil.logicalAnd()/logicalOr()", which also apply for
+                // row-at-a-time evaluation.
+                switch (op) {
+
+                case LOGICAL_AND:
+                    if (lhs.isConstant(Boolean.FALSE)) return lhs;
+                    if (lhs.isConstant(Boolean.TRUE))  return rhs;
+                    if (rhs.isConstant(Boolean.TRUE))  return lhs;
+                    return new LogicalAndNode(lhs, rhs);
+
+                case LOGICAL_OR:
+                    if (lhs.isConstant(Boolean.TRUE))  return lhs;
+                    if (lhs.isConstant(Boolean.FALSE)) return rhs;
+                    if (rhs.isConstant(Boolean.FALSE)) return lhs;
+                    return new LogicalOrNode(lhs, rhs);
+
+                default:
+                    return new BinaryNode(lhs, op, rhs);
+                }
+            }
+
+            @Override protected Node
+            fieldReference(Node target, final String fieldName) {
+                return new RowWiseNode(target) {
+
+                    @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        return ExpressionEvaluator.<EvaluationException>getAttributeValue(operands[0], fieldName);
+                    }
+                };
+            }
+
+            @Override protected Node
+            staticFieldReference(final Class<?> type, final String fieldName) {
+                return new RowWiseNode() {
+
+                    @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        return ExpressionEvaluator.<EvaluationException>getStaticAttributeValue(type, fieldName);
+                    }
+                };
+            }
+
+            @Override protected Node
+            methodInvocation(Node target, final String methodName, List<Node> arguments) {
+
+                List<Node> operands = new ArrayList<Node>();
+                operands.add(target);
+                operands.addAll(arguments);
+
+                return new RowWiseNode(operands.toArray(new Node[operands.size()])) {
+
+                    @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+
+                        List<Object> argumentValues = new ArrayList<Object>(operands.length - 1);
+                        for (int i = 1; i < operands.length; i++) argumentValues.add(operands[i]);
+
+                        return ExpressionEvaluator.invokeMethod(operands[0], methodName, argumentValues);
+                    }
+                };
+            }
+
+            @Override protected Node
+            staticMethodInvocation(final Class<?> target, final String methodName, List<Node> arguments) {
+                return new RowWiseNode(arguments.toArray(new Node[arguments.size()])) {
+
+                    @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        List<Object> argumentValues = new ArrayList<Object>(operands.length);
+                        for (Object o : operands) argumentValues.add(o);
+                        return ExpressionEvaluator.invokeStaticMethod(target, methodName, argumentValues);
+                    }
+                };
+            }
+
+            @Override protected Node
+            variableReference(String variableName) throws ParseException {
+
+                if (!isValidVariableName.evaluate(variableName)) {
+                    throw new ParseException("Unknown variable '" + variableName + "'");
+                }
+
+                return new VariableNode(variableName);
+            }
+
+            @Override protected Node
+            literal(@Nullable Object value) { return new ConstantNode(value); }
+
+            @Override protected Node
+            parenthesized(Node value) { return value; }
+
+            @Override protected Node
+            instanceoF(Node lhs, final Class<?> rhs) {
+                return new RowWiseNode(lhs) {
+
+                    @Override Object
+                    evaluate(Object[] operands) { return ExpressionEvaluator.isInstanceOf(operands[0], rhs); }
+                };
+            }
+
+            @Override protected Node
+            newClass(final Class<?> clasS, List<Node> arguments) {
+                return new RowWiseNode(arguments.toArray(new Node[arguments.size()])) {
+
+                    @Override Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        List<Object> argumentValues = new ArrayList<Object>(operands.length);
+                        for (Object o : operands) argumentValues.add(o);
+                        return ExpressionEvaluator.instantiateClass(clasS, argumentValues);
+                    }
+                };
+            }
+
+            @Override protected Node
+            newArray(final Class<?> clasS, List<Node> dimensions) {
+                return new RowWiseNode(dimensions.toArray(new Node[dimensions.size()])) {
+
+                    @Override Object
+                    evaluate(Object[] operands) throws EvaluationException {
+
+                        int[] dimensionValues = new int[operands.length];
+                        for (int i = 0; i < operands.length; i++) {
+                            @SuppressWarnings("null") int dv = ExpressionEvaluator.to(operands[i], Integer.class);
+                            dimensionValues[i] = dv;
+                        }
+
+                        return ExpressionEvaluator.newArrayInstance(clasS, dimensionValues);
+                    }
+                };
+            }
+
+            @Override protected Node
+            cast(final Class<?> targetType, Node operand) {
+                return new RowWiseNode(operand) {
+
+                    @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        return ExpressionEvaluator.cast(targetType, operands[0]);
+                    }
+                };
+            }
+
+            @Override protected Node
+            arrayAccess(Node lhs, Node rhs) {
+                return new RowWiseNode(lhs, rhs) {
+
+                    @SuppressWarnings("null") @Override @Nullable Object
+                    evaluate(Object[] operands) throws EvaluationException {
+                        return ExpressionEvaluator.arrayAccess(operands[0], operands[1]);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Evaluates its operands column-wise, and then computes its value row by row.
+     */
+    abstract static
+    class RowWiseNode extends Node {
+
+        private final Node[] operands;
+
+        RowWiseNode(Node... operands) { this.operands = operands; }
+
+        @Nullable abstract Object
+        evaluate(Object[] operandValues) throws EvaluationException;
+
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            Vec[] operandVecs = new Vec[this.operands.length];
+            for (int i = 0; i < operandVecs.length; i++) operandVecs[i] = this.operands[i].evaluate(batch, sel, n);
+
+            Object[] result        = new Object[batch.size()];
+            Object[] operandValues = new Object[operandVecs.length];
+            for (int i = 0; i < n; i++) {
+                int row = sel[i];
+                for (int j = 0; j < operandVecs.length; j++) operandValues[j] = operandVecs[j].get(row);
+                result[row] = this.evaluate(operandValues);
+            }
+
+            return new ObjectVec(result);
+        }
+    }
+
+    static final
+    class ConstantNode extends Node {
+
+        @Nullable private final Object value;
+        private final ConstantVec      vec;
+
+        ConstantNode(@Nullable Object value) {
+            this.value = value;
+            this.vec   = new ConstantVec(value);
+        }
+
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) { return this.vec; }
+
+        @Override int
+        filter(ColumnBatch batch, int[] sel, int n) { return this.vec.isTrue ? n : 0; }
+
+        @Override boolean
+        isConstant(Object value) { return value.equals(this.value); }
+    }
+
+    static final
+    class VariableNode extends Node {
+
+        private final String variableName;
+
+        VariableNode(String variableName) { this.variableName = variableName; }
+
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            Object column = batch.getColumn(this.variableName);
+            if (column == null) throw new EvaluationException("Unknown variable \"" + this.variableName + "\"");
+
+            if (column instanceof int[])     return new IntVec((int[]) column);
+            if (column instanceof long[])    return new LongVec((long[]) column);
+            if (column instanceof double[])  return new DoubleVec((double[]) column);
+            if (column instanceof boolean[]) return new BooleanVec((boolean[]) column);
+            if (column instanceof Object[])  return new ObjectVec((Object[]) column);
+
+            // Other primitive arrays, e.g. "byte[]", are boxed element by element, like in row-at-a-time evaluation.
+            Object[] values = new Object[batch.size()];
+            for (int i = 0; i < n; i++) values[sel[i]] = Array.get(column, sel[i]);
+
+            return new ObjectVec(values);
+        }
+    }
+
+    static final
+    class LogicalComplementNode extends Node {
+
+        private final Node operand;
+
+        LogicalComplementNode(Node operand) { this.operand = operand; }
+
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            Vec v = this.operand.evaluate(batch, sel, n);
+
+            boolean[] result = new boolean[batch.size()];
+            for (int i = 0; i < n; i++) {
+                int row = sel[i];
+                result[row] = !v.isTrue(row);
+            }
+
+            return new BooleanVec(result);
+        }
+
+        @Override int
+        filter(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            int[] trues = new int[n];
+            System.arraycopy(sel, 0, trues, 0, n);
+            int nt = this.operand.filter(batch, trues, n);
+
+            return BatchExpression.difference(sel, n, trues, nt);
+        }
+    }
+
+    static final
+    class UnaryNode extends Node {
+
+        private final UnaryOperator operator;
+        private final Node          operand;
+
+        UnaryNode(UnaryOperator operator, Node operand) {
+            this.operator = operator;
+            this.operand  = operand;
+        }
+
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            Vec v = this.operand.evaluate(batch, sel, n);
+
+            if (v instanceof IntVec) {
+                int[] values = ((IntVec) v).values;
+                int[] result = new int[batch.size()];
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    result[row] = this.operator == UnaryOperator.MINUS ? -values[row] : ~values[row];
+                }
+                return new IntVec(result);
+            }
+
+            if (v instanceof LongVec) {
+                long[] values = ((LongVec) v).values;
+                long[] result = new long[batch.size()];
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    result[row] = this.operator == UnaryOperator.MINUS ? -values[row] : ~values[row];
+                }
+                return new LongVec(result);
+            }
+
+            if (v instanceof DoubleVec && this.operator == UnaryOperator.MINUS) {
+                double[] values = ((DoubleVec) v).values;
+                double[] result = new double[batch.size()];
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    result[row] = -values[row];
+                }
+                return new DoubleVec(result);
+            }
+
+            Object[] result = new Object[batch.size()];
+            for (int i = 0; i < n; i++) {
+                int row = sel[i];
+                result[row] = ExpressionEvaluator.unaryOperation(this.operator, v.get(row));
+            }
+            return new ObjectVec(result);
+        }
+    }
+
+    static final
+    class LogicalAndNode extends Node {
+
+        private final Node lhs, rhs;
+
+        LogicalAndNode(Node lhs, Node rhs) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        /**
+         * Evaluates the <var>lhs</var> for all selected rows, and the <var>rhs</var> only for those rows where the
+         * <var>lhs</var> is {@code true}.
+         */
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            int[] trues = new int[n];
+            System.arraycopy(sel, 0, trues, 0, n);
+            int nt = this.lhs.filter(batch, trues, n);
+
+            Vec r = this.rhs.evaluate(batch, trues, nt);
+
+            if (r instanceof BooleanVec) {
+                boolean[] rvalues = ((BooleanVec) r).values;
+                boolean[] result  = new boolean[batch.size()];
+                for (int i = 0; i < nt; i++) {
+                    int row = trues[i];
+                    result[row] = rvalues[row];
+                }
+                return new BooleanVec(result);
+            }
+
+            Object[] result = new Object[batch.size()];
+            for (int i = 0; i < n; i++) result[sel[i]] = Boolean.FALSE;
+            for (int i = 0; i < nt; i++) {
+                int row = trues[i];
+                result[row] = r.get(row);
+            }
+            return new ObjectVec(result);
+        }
+
+        @Override int
+        filter(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+            return this.rhs.filter(batch, sel, this.lhs.filter(batch, sel, n));
+        }
+    }
+
+    static final
+    class LogicalOrNode extends Node {
+
+        private final Node lhs, rhs;
+
+        LogicalOrNode(Node lhs, Node rhs) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        /**
+         * Evaluates the <var>lhs</var> for all selected rows, and the <var>rhs</var> only for those rows where the
+         * <var>lhs</var> is {@code false}.
+         */
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            int[] trues = new int[n];
+            System.arraycopy(sel, 0, trues, 0, n);
+            int nt = this.lhs.filter(batch, trues, n);
+
+            int[] falses = new int[n];
+            System.arraycopy(sel, 0, falses, 0, n);
+            int nf = BatchExpression.difference(falses, n, trues, nt);
+
+            Vec r = this.rhs.evaluate(batch, falses, nf);
+
+            if (r instanceof BooleanVec) {
+                boolean[] rvalues = ((BooleanVec) r).values;
+                boolean[] result  = new boolean[batch.size()];
+                for (int i = 0; i < nt; i++) result[trues[i]] = true;
+                for (int i = 0; i < nf; i++) {
+                    int row = falses[i];
+                    result[row] = rvalues[row];
+                }
+                return new BooleanVec(result);
+            }
+
+            Object[] result = new Object[batch.size()];
+            for (int i = 0; i < nt; i++) result[trues[i]] = Boolean.TRUE;
+            for (int i = 0; i < nf; i++) {
+                int row = falses[i];
+                result[row] = r.get(row);
+            }
+            return new ObjectVec(result);
+        }
+
+        @Override int
+        filter(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            int[] trues = new int[n];
+            System.arraycopy(sel, 0, trues, 0, n);
+            int nt = this.lhs.filter(batch, trues, n);
+
+            int[] falses = new int[n];
+            System.arraycopy(sel, 0, falses, 0, n);
+            int nf = BatchExpression.difference(falses, n, trues, nt);
+
+            nf = this.rhs.filter(batch, falses, nf);
+
+            return BatchExpression.union(trues, nt, falses, nf, sel);
+        }
+    }
+
+    static final
+    class BinaryNode extends Node {
+
+        private final Node           lhs, rhs;
+        private final BinaryOperator op;
+
+        BinaryNode(Node lhs, BinaryOperator op, Node rhs) {
+            this.lhs = lhs;
+            this.op  = op;
+            this.rhs = rhs;
+        }
+
+        @Override Vec
+        evaluate(ColumnBatch batch, int[] sel, int n) throws EvaluationException {
+
+            Vec l = this.lhs.evaluate(batch, sel, n);
+            Vec r = this.rhs.evaluate(batch, sel, n);
+
+            int lk = BatchExpression.kind(l), rk = BatchExpression.kind(r);
+            if (lk != BatchExpression.NOT_NUMERIC && rk != BatchExpression.NOT_NUMERIC) {
+                Vec result = this.evaluateNumeric(Math.max(lk, rk), l, r, batch.size(), sel, n);
+                if (result != null) return result;
+            }
+
+            // Wildcard and regex matching against a constant pattern: Compile the pattern only once.
+            if (
+                (this.op == BinaryOperator.GLOB || this.op == BinaryOperator.REGEX)
+                && r instanceof ConstantVec
+                && ((ConstantVec) r).value instanceof String
+            ) {
+                Glob glob = Glob.compile(
+                    (String) ((ConstantVec) r).value,
+                    this.op == BinaryOperator.GLOB
+                    ? Glob.INCLUDES_EXCLUDES | Glob.REPLACEMENT | Pattern2.WILDCARD
+                    : Glob.REPLACEMENT | Pattern.DOTALL
+                );
+
+                Object[] result = new Object[batch.size()];
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    result[row] = glob.replace(ExpressionEvaluator.toString(l.get(row)));
+                }
+                return new ObjectVec(result);
+            }
+
+            Object[] result = new Object[batch.size()];
+            for (int i = 0; i < n; i++) {
+                int row = sel[i];
+                result[row] = ExpressionEvaluator.binaryOperation(l.get(row), this.op, r.get(row));
+            }
+            return new ObjectVec(result);
+        }
+
+        /**
+         * Implements the subset of {@link ExpressionEvaluator#binaryOperation(Object, BinaryOperator, Object)} that
+         * applies to two numeric operands, after binary numeric promotion to the given <var>kind</var>.
+         *
+         * @return {@code null} iff the operator is not applicable to numeric operands of that kind
+         */
+        @Nullable private Vec
+        evaluateNumeric(int kind, Vec l, Vec r, int size, int[] sel, int n) {
+
+            switch (this.op) {
+
+            case EQUAL:
+            case NOT_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+                {
+                    boolean[] result = new boolean[size];
+                    for (int i = 0; i < n; i++) {
+                        int row = sel[i];
+
+                        // Notice: Row-at-a-time evaluation uses "equals()" and "compareTo()", which are equivalent
+                        // with "Double.compare()", but not with the primitive double comparison operators.
+                        int c = (
+                            kind == BatchExpression.INT
+                            ? Integer.compare(BatchExpression.getInt(l, row), BatchExpression.getInt(r, row))
+                            : kind == BatchExpression.LONG
+                            ? Long.compare(BatchExpression.getLong(l, row), BatchExpression.getLong(r, row))
+                            : Double.compare(BatchExpression.getDouble(l, row), BatchExpression.getDouble(r, row))
+                        );
+                        result[row] = BatchExpression.comparisonResult(this.op, c);
+                    }
+                    return new BooleanVec(result);
+                }
+
+            case BITWISE_OR:
+            case BITWISE_XOR:
+            case BITWISE_AND:
+            case LEFT_SHIFT:
+            case RIGHT_SHIFT:
+            case RIGHT_USHIFT:
+                if (kind == BatchExpression.DOUBLE) return null;
+                break;
+
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+            case PLUS:
+            case MINUS:
+                break;
+
+            default:
+                return null;
+            }
+
+            if (kind == BatchExpression.INT) {
+                int[] result = new int[size];
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    int a = BatchExpression.getInt(l, row), b = BatchExpression.getInt(r, row);
+                    switch (this.op) {
+                    case BITWISE_OR:   result[row] = a |   b; break;
+                    case BITWISE_XOR:  result[row] = a ^   b; break;
+                    case BITWISE_AND:  result[row] = a &   b; break;
+                    case LEFT_SHIFT:   result[row] = a <<  b; break;
+                    case RIGHT_SHIFT:  result[row] = a >>  b; break;
+                    case RIGHT_USHIFT: result[row] = a >>> b; break;
+                    case MULTIPLY:     result[row] = a *   b; break;
+                    case DIVIDE:       result[row] = a /   b; break;
+                    case MODULO:       result[row] = a %   b; break;
+                    case PLUS:         result[row] = a +   b; break;
+                    case MINUS:        result[row] = a -   b; break;
+                    default:           throw new AssertionError(this.op);
+                    }
+                }
+                return new IntVec(result);
+            }
+
+            if (kind == BatchExpression.LONG) {
+                long[] result = new long[size];
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    long a = BatchExpression.getLong(l, row), b = BatchExpression.getLong(r, row);
+                    switch (this.op) {
+                    case BITWISE_OR:   result[row] = a |   b; break;
+                    case BITWISE_XOR:  result[row] = a ^   b; break;
+                    case BITWISE_AND:  result[row] = a &   b; break;
+                    case LEFT_SHIFT:   result[row] = a <<  b; break;
+                    case RIGHT_SHIFT:  result[row] = a >>  b; break;
+                    case RIGHT_USHIFT: result[row] = a >>> b; break;
+                    case MULTIPLY:     result[row] = a *   b; break;
+                    case DIVIDE:       result[row] = a /   b; break;
+                    case MODULO:       result[row] = a %   b; break;
+                    case PLUS:         result[row] = a +   b; break;
+                    case MINUS:        result[row] = a -   b; break;
+                    default:           throw new AssertionError(this.op);
+                    }
+                }
+                return new LongVec(result);
+            }
+
+            double[] result = new double[size];
+            for (int i = 0; i < n; i++) {
+                int row = sel[i];
+                double a = BatchExpression.getDouble(l, row), b = BatchExpression.getDouble(r, row);
+                switch (this.op) {
+                case MULTIPLY: result[row] = a * b; break;
+                case DIVIDE:   result[row] = a / b; break;
+                case MODULO:   result[row] = a % b; break;
+                case PLUS:     result[row] = a + b; break;
+                case MINUS:    result[row] = a - b; break;
+                default:       throw new AssertionError(this.op);
+                }
+            }
+            return new DoubleVec(result);
+        }
+    }
+
+    private static boolean
+    comparisonResult(BinaryOperator op, int c) {
+        switch (op) {
+        case EQUAL:         return c == 0;
+        case NOT_EQUAL:     return c != 0;
+        case LESS:          return c < 0;
+        case LESS_EQUAL:    return c <= 0;
+        case GREATER:       return c > 0;
+        case GREATER_EQUAL: return c >= 0;
+        default:            throw new AssertionError(op);
+        }
+    }
+
+    /**
+     * Removes the <var>nb</var> elements of <var>b</var> from the <var>na</var> elements of <var>a</var>; both must
+     * be in ascending order, and <var>b</var> must be a subset of <var>a</var>.
+     *
+     * @return The number of remaining elements of <var>a</var>
+     */
+    private static int
+    difference(int[] a, int na, int[] b, int nb) {
+
+        int m = 0;
+        for (int i = 0, j = 0; i < na; i++) {
+            int row = a[i];
+            if (j < nb && b[j] == row) {
+                j++;
+            } else {
+                a[m++] = row;
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Merges the <var>na</var> elements of <var>a</var> and the <var>nb</var> elements of <var>b</var> into
+     * <var>result</var>; both must be in ascending order and disjoint.
+     *
+     * @return The number of elements stored in <var>result</var>
+     */
+    private static int
+    union(int[] a, int na, int[] b, int nb, int[] result) {
+
+        int i = 0, j = 0, m = 0;
+        while (i < na && j < nb) result[m++] = a[i] < b[j] ? a[i++] : b[j++];
+        while (i < na) result[m++] = a[i++];
+        while (j < nb) result[m++] = b[j++];
+        return m;
+    }
+
+}
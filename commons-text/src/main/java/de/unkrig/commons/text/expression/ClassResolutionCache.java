@@ -0,0 +1,181 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.expression;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.unkrig.commons.lang.AssertionUtil;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Remembers which class names could be loaded through a given {@link ClassLoader}, so that the {@link Parser}, which
+ * probes many names (typically every identifier against every import), does not have to load them again and again.
+ * <p>
+ *   Names that could <em>not</em> be loaded are not remembered here, because the class loader may be able to load
+ *   them later (e.g. after classes were generated or URLs were added). Instead, they are remembered in a set of
+ *   "misses" with a shorter lifetime, which the caller passes in, so that the caller does not have to throw and catch
+ *   a {@link ClassNotFoundException} for each of them again and again.
+ * </p>
+ */
+final
+class ClassResolutionCache {
+
+    static {
+        AssertionUtil.enableAssertionsForThisClass();
+    }
+
+    private ClassResolutionCache() {}
+
+    /**
+     * When the cache for one class loader grows beyond this size, it is cleared.
+     */
+    private static final int MAX_SIZE = 10000;
+
+    /**
+     * Class loader => name or (imports, simple name) => {@code WeakReference<Class<?>>}. The references to the classes
+     * must be weak, because classes reference their class loader, which would otherwise never be garbage-collected.
+     */
+    private static final Map<ClassLoader, Map<Object, Object>>
+    CACHES = new WeakHashMap<ClassLoader, Map<Object, Object>>();
+
+    /**
+     * @param misses The names that could not be loaded through the <var>classLoader</var> before; is updated by this
+     *               method
+     * @return       {@code null} iff a class with the given name cannot be loaded
+     */
+    @Nullable static Class<?>
+    loadClass(ClassLoader classLoader, String qualifiedClassName, Set<Object> misses) {
+
+        if (misses.contains(qualifiedClassName)) return null;
+
+        Map<Object, Object> cache = ClassResolutionCache.cache(classLoader);
+
+        {
+            Object cached = cache.get(qualifiedClassName);
+            if (cached != null) {
+                Class<?> result = (Class<?>) ((WeakReference<?>) cached).get();
+                if (result != null) return result;
+            }
+        }
+
+        Class<?> result;
+        try {
+            result = classLoader.loadClass(qualifiedClassName);
+        } catch (ClassNotFoundException cnfe) {
+            misses.add(qualifiedClassName);
+            return null;
+        }
+
+        ClassResolutionCache.put(cache, qualifiedClassName, result);
+
+        return result;
+    }
+
+    /**
+     * Resolves a simple class name against the <var>singleImports</var> (fully qualified class names) and the
+     * <var>onDemandImports</var> (package names).
+     *
+     * @param importsKey Must change whenever the <var>singleImports</var> or the <var>onDemandImports</var> change
+     * @param misses     The names that could not be loaded or resolved through the <var>classLoader</var> before; is
+     *                   updated by this method
+     * @return           {@code null} iff none of the imports yields a loadable class
+     */
+    @Nullable static Class<?>
+    loadImportedClass(
+        ClassLoader      classLoader,
+        Object           importsKey,
+        Iterable<String> singleImports,
+        Iterable<String> onDemandImports,
+        String           simpleClassName,
+        Set<Object>      misses
+    ) {
+
+        Object key = Arrays.asList(importsKey, simpleClassName);
+        if (misses.contains(key)) return null;
+
+        Map<Object, Object> cache = ClassResolutionCache.cache(classLoader);
+
+        {
+            Object cached = cache.get(key);
+            if (cached != null) {
+                Class<?> result = (Class<?>) ((WeakReference<?>) cached).get();
+                if (result != null) return result;
+            }
+        }
+
+        Class<?> result = null;
+        for (String si : singleImports) {
+            if (si.endsWith("." + simpleClassName)) {
+                result = ClassResolutionCache.loadClass(classLoader, si, misses);
+                if (result != null) break;
+            }
+        }
+
+        if (result == null) {
+            for (String iod : onDemandImports) {
+                result = ClassResolutionCache.loadClass(classLoader, iod + '.' + simpleClassName, misses);
+                if (result != null) break;
+            }
+        }
+
+        if (result == null) {
+            misses.add(key);
+            return null;
+        }
+
+        ClassResolutionCache.put(cache, key, result);
+
+        return result;
+    }
+
+    private static Map<Object, Object>
+    cache(ClassLoader classLoader) {
+
+        synchronized (ClassResolutionCache.CACHES) {
+
+            Map<Object, Object> result = ClassResolutionCache.CACHES.get(classLoader);
+            if (result == null) {
+                ClassResolutionCache.CACHES.put(classLoader, (result = new ConcurrentHashMap<Object, Object>()));
+            }
+
+            return result;
+        }
+    }
+
+    private static void
+    put(Map<Object, Object> cache, Object key, Class<?> value) {
+
+        if (cache.size() >= ClassResolutionCache.MAX_SIZE) cache.clear();
+
+        cache.put(key, new WeakReference<Class<?>>(value));
+    }
+}
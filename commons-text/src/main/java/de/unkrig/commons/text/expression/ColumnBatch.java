@@ -0,0 +1,128 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.expression;
+
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.unkrig.commons.lang.AssertionUtil;
+import de.unkrig.commons.lang.protocol.Mapping;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A set of equally-sized, named <em>columns</em> (arrays), where each index represents one "row", i.e. one set of
+ * variable values for an {@link Expression}.
+ * <p>
+ *   Columns of types {@code int[]}, {@code long[]}, {@code double[]} and {@code boolean[]} are processed without
+ *   boxing by {@link BatchExpression}; all other arrays (including {@code Object[]}) are processed element by element.
+ * </p>
+ *
+ * @see BatchExpression
+ */
+public final
+class ColumnBatch {
+
+    static {
+        AssertionUtil.enableAssertionsForThisClass();
+    }
+
+    private final int                 size;
+    private final Map<String, Object> columns = new HashMap<String, Object>();
+
+    /**
+     * @param size The number of rows
+     */
+    public
+    ColumnBatch(int size) {
+        if (size < 0) throw new IllegalArgumentException("size");
+        this.size = size;
+    }
+
+    /**
+     * @return A batch with exactly one column, which contains the given <var>rows</var>, e.g. records; thus the
+     *         evaluation of an expression against this batch is equivalent with evaluating a predicate created
+     *         through {@link ExpressionUtil#toPredicate(Expression, String)} for each row
+     */
+    public static ColumnBatch
+    fromRows(String variableName, Object[] rows) { return new ColumnBatch(rows.length).put(variableName, rows); }
+
+    /**
+     * Adds or replaces the named column.
+     *
+     * @param column                    An array with at least {@link #size()} elements; only the first {@link
+     *                                  #size()} elements are relevant
+     * @throws IllegalArgumentException The <var>column</var> is not an array, or is too short
+     */
+    public ColumnBatch
+    put(String variableName, Object column) {
+
+        if (!column.getClass().isArray()) {
+            throw new IllegalArgumentException("Column '" + variableName + "' is not an array");
+        }
+        if (Array.getLength(column) < this.size) {
+            throw new IllegalArgumentException("Column '" + variableName + "' has fewer than " + this.size + " rows");
+        }
+
+        this.columns.put(variableName, column);
+        return this;
+    }
+
+    /**
+     * @return The number of rows of this batch
+     */
+    public int
+    size() { return this.size; }
+
+    /**
+     * @return The named column, or {@code null} iff this batch has no such column
+     */
+    @Nullable public Object
+    getColumn(String variableName) { return this.columns.get(variableName); }
+
+    /**
+     * @return The variables of the <var>index</var>th row, as they would be passed to {@link
+     *         Expression#evaluate(Mapping)} in row-at-a-time evaluation; primitive elements are boxed
+     */
+    public Mapping<String, Object>
+    row(final int index) {
+
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException(Integer.toString(index));
+
+        return new Mapping<String, Object>() {
+
+            @Override public boolean
+            containsKey(@Nullable Object key) { return ColumnBatch.this.columns.containsKey(key); }
+
+            @Override @Nullable public Object
+            get(@Nullable Object key) {
+                Object column = ColumnBatch.this.columns.get(key);
+                return column == null ? null : Array.get(column, index);
+            }
+        };
+    }
+}
@@ -91,6 +91,13 @@ class ExpressionEvaluator {
 
     private final PredicateWhichThrows<? super String, NoException> isValidVariableName;
 
+    /**
+     * The set of valid variable names, or {@code null} iff they are defined by a predicate.
+     */
+    @Nullable private final Collection<String> variableNames;
+
+    @Nullable private ParseCache parseCache;
+
     /**
      * @param isValidVariableName Evaluates whether a string is a valid variable name; if not, then the parser will
      *                            throw a {@link ParseException}
@@ -98,6 +105,7 @@ class ExpressionEvaluator {
     public <EX extends Throwable>
     ExpressionEvaluator(PredicateWhichThrows<? super String, NoException> isValidVariableName) {
         this.isValidVariableName = isValidVariableName;
+        this.variableNames       = null;
     }
 
     /**
@@ -106,6 +114,7 @@ class ExpressionEvaluator {
     public
     ExpressionEvaluator(Collection<String> variableNames) {
         this.isValidVariableName = PredicateUtil.contains(variableNames);
+        this.variableNames       = variableNames;
     }
 
     /**
@@ -113,7 +122,7 @@ class ExpressionEvaluator {
      */
     public
     ExpressionEvaluator(String... variableNames) {
-        this.isValidVariableName = PredicateUtil.contains(Arrays.asList(variableNames));
+        this(Arrays.asList(variableNames));
     }
 
     /**
@@ -150,6 +159,29 @@ class ExpressionEvaluator {
         return this;
     }
 
+    /**
+     * @return The {@link ParseCache} that {@link #parse(String)} and {@link #parseExt(String)} use, or {@code null}
+     */
+    @Nullable public ParseCache
+    getParseCache() { return this.parseCache; }
+
+    /**
+     * Makes {@link #parse(String)}, {@link #parseExt(String)} and {@link #parseBatch(String)} cache their results in
+     * the given <var>parseCache</var> (e.g. {@link ParseCache#DEFAULT}), keyed by the spec, the imports, the valid
+     * variable names and the class loader. By default, nothing is cached.
+     * <p>
+     *   Iff the set of valid variable names is defined by a predicate, then the cache is keyed by the <em>identity</em>
+     *   of that predicate, so the predicate should not change its results over time; otherwise do not cache.
+     * </p>
+     *
+     * @param parseCache {@code null} disables caching
+     */
+    public ExpressionEvaluator
+    setParseCache(@Nullable ParseCache parseCache) {
+        this.parseCache = parseCache;
+        return this;
+    }
+
     /**
      * Parses an expression.
      *
@@ -160,8 +192,71 @@ class ExpressionEvaluator {
      * @see Parser The expression syntax
      */
     public Expression
-    parse(String spec) throws ParseException {
-        return this.parser(Scanner.stringScanner().setInput(spec)).parse();
+    parse(final String spec) throws ParseException {
+
+        ParseCache pc = this.parseCache;
+        if (pc == null) return this.parser(Scanner.stringScanner().setInput(spec)).parse();
+
+        return pc.get(this.cacheKey("parse", spec), new ProducerWhichThrows<Expression, ParseException>() {
+
+            @Override @Nullable public Expression
+            produce() throws ParseException {
+                return ExpressionEvaluator.this.parser(Scanner.stringScanner().setInput(spec)).parse();
+            }
+        });
+    }
+
+    /**
+     * Parses an expression for efficient evaluation against many rows at once.
+     *
+     * @param spec The text to be parsed
+     * @see Parser The expression syntax
+     * @see        BatchExpression#evaluate(ColumnBatch)
+     * @see        BatchExpression#filter(ColumnBatch)
+     */
+    public BatchExpression
+    parseBatch(final String spec) throws ParseException {
+
+        ParseCache pc = this.parseCache;
+        if (pc == null) return this.parseBatch2(spec);
+
+        return pc.get(this.cacheKey("parseBatch", spec), new ProducerWhichThrows<BatchExpression, ParseException>() {
+
+            @Override @Nullable public BatchExpression
+            produce() throws ParseException { return ExpressionEvaluator.this.parseBatch2(spec); }
+        });
+    }
+
+    private BatchExpression
+    parseBatch2(String spec) throws ParseException {
+
+        Expression expression = this.parser(Scanner.stringScanner().setInput(spec)).parse();
+
+        BatchExpression.Node root = (
+            BatchExpression.parser(Scanner.stringScanner().setInput(spec), this.isValidVariableName)
+            .addOnDemandImports(this.onDemandImports.toArray(new String[this.onDemandImports.size()]))
+            .setClassLoader(this.classLoader)
+            .parse()
+        );
+
+        return new BatchExpression(expression, root);
+    }
+
+    /**
+     * @return A key for the {@link #parseCache} that reflects the entire configuration of this evaluator
+     */
+    private Object
+    cacheKey(String kind, String spec) {
+
+        Collection<String> vns = this.variableNames;
+
+        return ParseCache.key(
+            kind,
+            spec,
+            new ArrayList<String>(this.onDemandImports),
+            vns != null ? new HashSet<String>(vns) : ParseCache.identityKey(this.isValidVariableName),
+            this.classLoader
+        );
     }
 
     /**
@@ -235,6 +330,19 @@ class ExpressionEvaluator {
      */
     public Expression
     parseExt(final String spec) throws ParseException {
+
+        ParseCache pc = this.parseCache;
+        if (pc == null) return this.parseExt2(spec);
+
+        return pc.get(this.cacheKey("parseExt", spec), new ProducerWhichThrows<Expression, ParseException>() {
+
+            @Override @Nullable public Expression
+            produce() throws ParseException { return ExpressionEvaluator.this.parseExt2(spec); }
+        });
+    }
+
+    private Expression
+    parseExt2(final String spec) throws ParseException {
         int specLength = spec.length();
 
         // Parse the spec into a sequence of "segments".
@@ -623,7 +731,9 @@ class ExpressionEvaluator {
                     toString() { return lhs.toString() + '[' + rhs.toString() + ']'; }
                 };
             }
-        }.addOnDemandImports(this.onDemandImports.toArray(new String[this.onDemandImports.size()]));
+        }
+        .addOnDemandImports(this.onDemandImports.toArray(new String[this.onDemandImports.size()]))
+        .setClassLoader(this.classLoader);
     }
 
     /**
@@ -735,18 +845,21 @@ class ExpressionEvaluator {
             arrayAccess(Object lhs, Object rhs) throws EvaluationException {
                 return ExpressionEvaluator.arrayAccess(lhs, rhs);
             }
-        }.addOnDemandImports(this.onDemandImports.toArray(new String[this.onDemandImports.size()])).parse();
+        }
+        .addOnDemandImports(this.onDemandImports.toArray(new String[this.onDemandImports.size()]))
+        .setClassLoader(this.classLoader)
+        .parse();
     }
 
-    private static Object
+    static Object
     newArrayInstance(Class<?> type, int[] dimensionValues) { return Array.newInstance(type, dimensionValues); }
 
-    private static boolean
+    static boolean
     isInstanceOf(@Nullable Object value, Class<?> type) {
         return value != null && type.isAssignableFrom(value.getClass());
     }
 
-    private static Object
+    static Object
     instantiateClass(Class<?> clasS, List<Object> argumentValues) throws EvaluationException {
         try {
 
@@ -763,7 +876,7 @@ class ExpressionEvaluator {
         }
     }
 
-    @Nullable private static Object
+    @Nullable static Object
     cast(Class<?> targetClass, @Nullable Object operand) throws EvaluationException {
         if (operand == null) return null;
 
@@ -780,7 +893,7 @@ class ExpressionEvaluator {
         return operand;
     }
 
-    @Nullable private static Object
+    @Nullable static Object
     arrayAccess(Object lhs, Object rhs) throws EvaluationException {
 
         Object  lhsv = ExpressionEvaluator.to(lhs, Object.class);
@@ -795,7 +908,7 @@ class ExpressionEvaluator {
     public static String
     toString(@Nullable Object subject) { return subject == null ? "" : ObjectUtil.arrayToString(subject); }
 
-    @Nullable private static Object
+    @Nullable static Object
     invokeMethod(@Nullable Object lhsv, String methodName, List<Object> argumentValues) throws EvaluationException {
         if (lhsv == null) return null;
 
@@ -821,7 +934,7 @@ class ExpressionEvaluator {
         }
     }
 
-    @Nullable private static Object
+    @Nullable static Object
     invokeStaticMethod(Class<?> clasS, String methodName, List<Object> argumentValues) throws EvaluationException {
 
         // Determine arguments' types.
@@ -862,7 +975,7 @@ class ExpressionEvaluator {
      *   <em>static</em> attributes' names.
      * </p>
      */
-    @Nullable private static <E extends Exception> Object
+    @Nullable static <E extends Exception> Object
     getAttributeValue(@Nullable Object target, String attributeName) throws EvaluationException {
         if (target == null) return null;
 
@@ -949,7 +1062,7 @@ class ExpressionEvaluator {
      * Return the value of the given attribute of the given <var>target</var> object. An attribute is either a PUBLIC
      * field, or it is retrieved by invoking a getter ("xyz()" or "getXyz()").
      */
-    @Nullable private static <E extends Exception> Object
+    @Nullable static <E extends Exception> Object
     getStaticAttributeValue(Class<?> target, String attributeName) throws EvaluationException {
 
         try {
@@ -992,12 +1105,12 @@ class ExpressionEvaluator {
     private static String
     capitalizeFirstCharacter(String s) { return Character.toUpperCase(s.charAt(0)) + s.substring(1); }
 
-    @Nullable private static Object
+    @Nullable static Object
     conditional(@Nullable Object lhs, @Nullable Object mhs, @Nullable Object rhs) throws EvaluationException {
         return ExpressionEvaluator.to(lhs, Boolean.class) ? mhs : rhs;
     }
 
-    @Nullable private static Object
+    @Nullable static Object
     unaryOperation(UnaryOperator operator, @Nullable Object operand) throws EvaluationException {
         switch (operator) {
         case LOGICAL_COMPLEMENT:
@@ -1027,7 +1140,7 @@ class ExpressionEvaluator {
         }
     }
 
-    @Nullable private static Object
+    @Nullable static Object
     binaryOperation(@Nullable Object lhsv, BinaryOperator op, @Nullable Object rhsv) throws EvaluationException {
 
         lhsv = ExpressionEvaluator.binaryNumericPromotion(lhsv, rhsv);
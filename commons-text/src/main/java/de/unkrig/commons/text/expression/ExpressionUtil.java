@@ -150,6 +150,51 @@ class ExpressionUtil {
         return ExpressionUtil.expand(s, PredicateUtil.contains(variableNames));
     }
 
+    /**
+     * Equivalent with {@link #expand(String, Set)}, except that the result is cached in the given
+     * <var>parseCache</var>, keyed by the string and the variable names.
+     */
+    public static Expression
+    expand(String s, Set<String> variableNames, ParseCache parseCache) throws ParseException {
+        return ExpressionUtil.expand(
+            s,
+            PredicateUtil.contains(variableNames),
+            new HashSet<String>(variableNames),
+            parseCache
+        );
+    }
+
+    /**
+     * Equivalent with {@link #expand(String, Predicate)}, except that the result is cached in the given
+     * <var>parseCache</var>, keyed by the string and the <em>identity</em> of the <var>isValidVariableName</var>
+     * predicate (which should therefore not change its results over time).
+     */
+    public static Expression
+    expand(String s, Predicate<? super String> isValidVariableName, ParseCache parseCache) throws ParseException {
+        return ExpressionUtil.expand(s, isValidVariableName, ParseCache.identityKey(isValidVariableName), parseCache);
+    }
+
+    /**
+     * @param variableNamesKey Identifies the set of valid variable names in the <var>parseCache</var>
+     */
+    private static Expression
+    expand(
+        final String                    s,
+        final Predicate<? super String> isValidVariableName,
+        Object                          variableNamesKey,
+        ParseCache                      parseCache
+    ) throws ParseException {
+
+        return parseCache.get(
+            ParseCache.key("expand", s, variableNamesKey),
+            new ProducerWhichThrows<Expression, ParseException>() {
+
+                @Override @Nullable public Expression
+                produce() throws ParseException { return ExpressionUtil.expand(s, isValidVariableName); }
+            }
+        );
+    }
+
     /**
      * Turns the given string into an expression. If the string contains '#' characters, then the text between two
      * '#' characters is parsed as an expression.
@@ -279,6 +324,7 @@ class ExpressionUtil {
      *                      {@code true};
      *                      {@link Expression#FALSE} iff the <var>expression</var> is constant and evaluates to
      *                      {@code false}
+     * @see                 BatchExpression#filter(ColumnBatch) Efficient evaluation for many subjects
      */
     public static <T> Predicate<T>
     toPredicate(final Expression expression, final String parameterName) {
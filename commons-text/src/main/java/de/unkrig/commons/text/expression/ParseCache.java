@@ -0,0 +1,188 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.expression;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.unkrig.commons.lang.AssertionUtil;
+import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.parser.ParseException;
+
+/**
+ * A thread-safe, size-bounded cache of parse results, e.g. {@link Expression}s. The least recently used entry is
+ * evicted when the cache is full.
+ * <p>
+ *   Cached values must be immutable (which is true for all {@link Expression}s that the {@link ExpressionEvaluator}
+ *   produces), because they are shared between all callers that parse the same spec.
+ * </p>
+ * <p>
+ *   Notice that the parsing itself takes place outside of the cache's lock, so concurrent callers that parse the
+ *   same spec may both parse it; the first result wins.
+ * </p>
+ * <p>
+ *   Caching is always opt-in: The parse methods that cache take a {@link ParseCache} argument (or, for {@link
+ *   ExpressionEvaluator}, {@link ExpressionEvaluator#setParseCache(ParseCache)}). Notice that a cached value
+ *   typically references the predicate and the class loader that it was parsed with, so a cache keeps these
+ *   reachable until the entry is evicted. Hence, use a cache whose lifetime matches that of your predicates and
+ *   class loader, and use {@link #DEFAULT} only if these live as long as this class.
+ * </p>
+ *
+ * @see #DEFAULT
+ */
+public final
+class ParseCache {
+
+    static {
+        AssertionUtil.enableAssertionsForThisClass();
+    }
+
+    /**
+     * A cache that is shared by all callers that pass it explicitly, e.g. to {@link
+     * ExpressionEvaluator#setParseCache(ParseCache)}, {@link ExpressionUtil#expand(String,
+     * de.unkrig.commons.lang.protocol.Predicate, ParseCache)} or {@link
+     * de.unkrig.commons.text.pattern.ExpressionMatchReplacer#parse(String, de.unkrig.commons.lang.protocol.Predicate,
+     * ParseCache)}.
+     */
+    public static final ParseCache DEFAULT = new ParseCache(1000);
+
+    private final Map<Object, Object> entries;
+    private final AtomicLong          hits   = new AtomicLong();
+    private final AtomicLong          misses = new AtomicLong();
+
+    /**
+     * @param maxSize The maximum number of entries that the cache retains
+     */
+    public
+    ParseCache(final int maxSize) {
+
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize");
+
+        this.entries = new LinkedHashMap<Object, Object>(16, .75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override protected boolean
+            removeEldestEntry(@Nullable Entry<Object, Object> eldest) { return this.size() > maxSize; }
+        };
+    }
+
+    /**
+     * Returns the value that was previously cached under the given <var>key</var>, or, iff there is none, invokes
+     * the <var>parser</var> and caches its product.
+     *
+     * @param key             Must implement {@link Object#equals(Object)} and {@link Object#hashCode()} properly;
+     *                        see {@link #key(Object...)}
+     * @param parser          Must produce a non-{@code null}, immutable value
+     * @throws ParseException The <var>parser</var> threw it; nothing is cached in this case
+     */
+    public <T> T
+    get(Object key, ProducerWhichThrows<? extends T, ? extends ParseException> parser) throws ParseException {
+
+        synchronized (this.entries) {
+
+            @SuppressWarnings("unchecked") T result = (T) this.entries.get(key);
+
+            if (result != null) {
+                this.hits.incrementAndGet();
+                return result;
+            }
+        }
+
+        this.misses.incrementAndGet();
+
+        T result = parser.produce();
+        assert result != null;
+
+        synchronized (this.entries) {
+
+            @SuppressWarnings("unchecked") T other = (T) this.entries.get(key);
+            if (other != null) return other;
+
+            this.entries.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return A cache key that equals any other key with equal <var>components</var>
+     */
+    public static Object
+    key(@Nullable Object... components) { return Arrays.asList(components); }
+
+    /**
+     * @return A cache key component that equals only keys for the identical <var>subject</var>; useful for objects
+     *         that do not implement {@link Object#equals(Object)}, e.g. predicates
+     */
+    public static Object
+    identityKey(Object subject) { return new IdentityKey(subject); }
+
+    private static final
+    class IdentityKey {
+
+        private final Object subject;
+
+        IdentityKey(Object subject) { this.subject = subject; }
+
+        @Override public boolean
+        equals(@Nullable Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey) obj).subject == this.subject;
+        }
+
+        @Override public int
+        hashCode() { return System.identityHashCode(this.subject); }
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public void
+    clear() { synchronized (this.entries) { this.entries.clear(); } }
+
+    /**
+     * @return The number of entries currently in the cache
+     */
+    public int
+    size() { synchronized (this.entries) { return this.entries.size(); } }
+
+    /**
+     * @return How often {@link #get(Object, ProducerWhichThrows)} found an entry in the cache
+     */
+    public long
+    getHits() { return this.hits.get(); }
+
+    /**
+     * @return How often {@link #get(Object, ProducerWhichThrows)} had to parse
+     */
+    public long
+    getMisses() { return this.misses.get(); }
+}
@@ -35,10 +35,13 @@ import static de.unkrig.commons.text.expression.Scanner.TokenType.STRING_LITERAL
 import java.io.Reader;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import de.unkrig.commons.lang.AssertionUtil;
@@ -286,6 +289,7 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
     public Parser<T, EX>
     addSingleImports(String... singleImports) {
         for (String si : singleImports) this.singleImports.add(si);
+        this.importsKey = null;
         return this;
     }
 
@@ -303,6 +307,7 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
     public Parser<T, EX>
     addOnDemandImports(String... onDemandImports) {
         for (String si : onDemandImports) this.onDemandImports.add(si);
+        this.importsKey = null;
         return this;
     }
 
@@ -319,6 +324,7 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
     public Parser<T, EX>
     setClassLoader(ClassLoader classLoader) {
         this.classLoader = classLoader;
+        this.classMisses.clear();
         return this;
     }
 
@@ -504,6 +510,19 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
     private ClassLoader        classLoader = this.getClass().getClassLoader();
     private EnumSet<Extension> extensions  = EnumSet.allOf(Extension.class);
 
+    /**
+     * A snapshot of the current imports, for {@link ClassResolutionCache}; {@code null} after any change of the
+     * imports.
+     */
+    @Nullable private Object importsKey;
+
+    /**
+     * The names that could not be loaded or resolved through the {@link #classLoader}, see {@link
+     * ClassResolutionCache}. Is kept per parser (and thus per input), so that classes that become loadable later are
+     * found by later parsers.
+     */
+    private final Set<Object> classMisses = new HashSet<Object>();
+
     /**
      * It is generally difficult to distinguish between values, types and packages, e.g. "a.b.c" could represent
      * <ul>
@@ -600,11 +619,13 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
                 switch (this.read(";", ".")) {
                 case 0: // ';'
                     this.singleImports.add(qn);
+                    this.importsKey = null;
                     break QN;
                 case 1: // '.'
                     if (this.peekRead("*")) {
                         this.read(";");
                         this.onDemandImports.add(qn);
+                        this.importsKey = null;
                         break QN;
                     }
                     qn += "." + this.read(TokenType.IDENTIFIER);
@@ -1249,19 +1270,22 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
     @Nullable private Class<?>
     loadImportedClass(String simpleClassName) {
 
-        for (String si : this.singleImports) {
-            if (si.endsWith("." + simpleClassName)) {
-                Class<?> clasS = this.loadClass(si);
-                if (clasS != null) return clasS;
-            }
-        }
-
-        for (String iod : this.onDemandImports) {
-            Class<?> clasS = this.loadClass(iod + '.' + simpleClassName);
-            if (clasS != null) return clasS;
+        Object ik = this.importsKey;
+        if (ik == null) {
+            this.importsKey = (ik = Arrays.asList(
+                new ArrayList<String>(this.singleImports),
+                new ArrayList<String>(this.onDemandImports)
+            ));
         }
 
-        return null;
+        return ClassResolutionCache.loadImportedClass(
+            this.classLoader,
+            ik,
+            this.singleImports,
+            this.onDemandImports,
+            simpleClassName,
+            this.classMisses
+        );
     }
 
     /**
@@ -1269,10 +1293,6 @@ class Parser<T, EX extends Throwable> extends AbstractParser<TokenType> {
      */
     @Nullable private Class<?>
     loadClass(String qualifiedClassName) {
-        try {
-            return this.classLoader.loadClass(qualifiedClassName);
-        } catch (ClassNotFoundException cnfe) {
-            return null;
-        }
+        return ClassResolutionCache.loadClass(this.classLoader, qualifiedClassName, this.classMisses);
     }
 }
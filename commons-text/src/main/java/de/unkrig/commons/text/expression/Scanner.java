@@ -130,6 +130,8 @@ class Scanner {
         // In order to avoid ScanExceptions, which would break "ExpressionEvaluator.parsePart()":
         scanner.addRule(".", INVALID_CHARACTER);
 
+        scanner.compile(true);
+
         return ScannerUtil.filter(scanner, new Predicate<Token<TokenType>>() {
 
             @Override public boolean
@@ -28,7 +28,9 @@ package de.unkrig.commons.text.json;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import de.unkrig.commons.nullanalysis.Nullable;
 
@@ -144,9 +146,41 @@ class Json {
         /** The (unmodifiable and constant) list of object members. */
         public final List<Member> members;
 
+        /**
+         * Maps member names to member values; {@code null} iff not (yet) created. Volatile, so that the contents of
+         * the map are safely published to other threads.
+         */
+        @Nullable private volatile Map<String, Value> index;
+
         public
-        ObjecT(List<Member> stringValuePairs) {
-            this.members = Collections.unmodifiableList(new ArrayList<Member>(stringValuePairs));
+        ObjecT(List<Member> stringValuePairs) { this(stringValuePairs, true); }
+
+        /**
+         * @param copy Whether to copy the <var>members</var>; if {@code false}, then the list is used as is (e.g. a
+         *             list that materializes lazily) and must be unmodifiable and constant
+         */
+        ObjecT(List<Member> members, boolean copy) {
+            this.members = copy ? Collections.unmodifiableList(new ArrayList<Member>(members)) : members;
+        }
+
+        /**
+         * Looks up a member by name in constant time; the necessary index is built on the first invocation.
+         *
+         * @return The value of the (first) member with the given <var>name</var>, or {@code null}
+         */
+        @Nullable public Value
+        get(String name) {
+
+            Map<String, Value> m = this.index;
+            if (m == null) {
+                m = new HashMap<String, Value>(2 * this.members.size());
+                for (Member member : this.members) {
+                    if (!m.containsKey(member.name.text)) m.put(member.name.text, member.value);
+                }
+                this.index = m; // Benign race: Concurrent invocations would create equal maps.
+            }
+
+            return m.get(name);
         }
 
         @Override public void
@@ -167,7 +201,15 @@ class Json {
         public final List<Value> elements;
 
         public
-        Array(List<Value> values) { this.elements = Collections.unmodifiableList(new ArrayList<Value>(values)); }
+        Array(List<Value> values) { this(values, true); }
+
+        /**
+         * @param copy Whether to copy the <var>elements</var>; if {@code false}, then the list is used as is (e.g. a
+         *             list that materializes lazily) and must be unmodifiable and constant
+         */
+        Array(List<Value> elements, boolean copy) {
+            this.elements = copy ? Collections.unmodifiableList(new ArrayList<Value>(elements)) : elements;
+        }
 
         @Override public void
         accept(ValueVisitor visitor) { visitor.visit(this); }
@@ -52,10 +52,60 @@ public
 class JsonParser extends AbstractParser<TokenType> {
 
     public
-    JsonParser(ProducerWhichThrows<? extends Token<TokenType>, ? extends ScanException> scanner) { super(scanner); }
+    JsonParser(ProducerWhichThrows<? extends Token<TokenType>, ? extends ScanException> scanner) {
+        super(scanner);
+    }
 
+    /**
+     * Scans the JSON document read from <var>r</var> with the {@link JsonScanner}.
+     *
+     * @see #parseValue(JsonPullParser)
+     */
     public
-    JsonParser(Reader r) { super(ScannerUtil.toDocumentScanner(JsonScanner.stringScanner(), r)); }
+    JsonParser(Reader r) {
+        super(ScannerUtil.toDocumentScanner(JsonScanner.stringScanner(), r));
+    }
+
+    /**
+     * Parses the next value through the <var>pullParser</var>, which is much faster than scanning it with the {@link
+     * JsonScanner}.
+     *
+     * @throws ParseException The end of input is reached, or the value is not well-formed
+     */
+    public static Json.Value
+    parseValue(JsonPullParser pullParser) throws IOException, ParseException {
+        return pullParser.readValue(pullParser.nextNotNull());
+    }
+
+    /**
+     * Parses the next value through the <var>pullParser</var>, which must be an object.
+     *
+     * @throws ParseException The next value is not an object, or is not well-formed
+     * @see                   #parseValue(JsonPullParser)
+     */
+    public static Json.ObjecT
+    parseObject(JsonPullParser pullParser) throws IOException, ParseException {
+
+        JsonPullParser.Event e = pullParser.nextNotNull();
+        if (e != JsonPullParser.Event.START_OBJECT) throw pullParser.parseException("Object expected");
+
+        return (Json.ObjecT) pullParser.readValue(e);
+    }
+
+    /**
+     * Parses the next value through the <var>pullParser</var>, which must be an array.
+     *
+     * @throws ParseException The next value is not an array, or is not well-formed
+     * @see                   #parseValue(JsonPullParser)
+     */
+    public static Json.Array
+    parseArray(JsonPullParser pullParser) throws IOException, ParseException {
+
+        JsonPullParser.Event e = pullParser.nextNotNull();
+        if (e != JsonPullParser.Event.START_ARRAY) throw pullParser.parseException("Array expected");
+
+        return (Json.Array) pullParser.readValue(e);
+    }
 
     /**
      * <pre>
@@ -66,6 +116,7 @@ class JsonParser extends AbstractParser<TokenType> {
      */
     public Json.ObjecT
     parseObject() throws IOException, ParseException {
+
         this.read("{");
         List<Json.Member> svps = new ArrayList<Json.Member>();
         if (!this.peekRead("}")) {
@@ -168,6 +219,7 @@ class JsonParser extends AbstractParser<TokenType> {
      */
     public Json.Value
     parseArray() throws IOException, ParseException {
+
         this.read("[");
         if (this.peekRead("]")) {
             List<Value> noValues = Collections.<Json.Value>emptyList();
@@ -0,0 +1,929 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.parser.ParseException;
+
+/**
+ * A hand-written, streaming JSON parser with a "pull" API: Each invocation of {@link #next()} parses only as much of
+ * the document as is necessary to determine the next {@link Event}. Thus, arbitrarily large documents can be
+ * processed with bounded memory.
+ * <p>
+ *   The parser accepts the same syntax as {@link JsonParser}, i.e. JSON as defined on <a
+ *   href="http://json.org/">json.org</a>, plus C and C++ style comments. A document may consist of more than one
+ *   top-level value.
+ * </p>
+ * <p>
+ *   Strings and numbers are decoded lazily, i.e. only when {@link #getText()}, {@link #getNumber()}, {@link
+ *   #getLong()} or {@link #getDouble()} is invoked; {@link #skipSubtree()} skips objects and arrays without parsing
+ *   their contents in detail.
+ * </p>
+ * <p>
+ *   Example:
+ * </p>
+ * <pre>
+ *   JsonPullParser pp = new JsonPullParser(reader);
+ *   for (JsonPullParser.Event e = pp.next(); e != null; e = pp.next()) {
+ *       if (e == JsonPullParser.Event.FIELD_NAME &amp;&amp; "id".equals(pp.getText())) {
+ *           pp.next();
+ *           System.out.println(pp.getLong());
+ *       }
+ *   }
+ * </pre>
+ */
+public
+class JsonPullParser implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The syntactic elements of a JSON document, as returned by {@link #next()}.
+     */
+    public
+    enum Event {
+
+        /** A <code>'{'</code>. */
+        START_OBJECT,
+
+        /** A <code>'}'</code>. */
+        END_OBJECT,
+
+        /** A <code>'['</code>. */
+        START_ARRAY,
+
+        /** A <code>']'</code>. */
+        END_ARRAY,
+
+        /** The name of an object member; see {@link #getText()}. */
+        FIELD_NAME,
+
+        /** A string value; see {@link #getText()}. */
+        VALUE_STRING,
+
+        /** A number value; see {@link #getNumber()}, {@link #getLong()} and {@link #getDouble()}. */
+        VALUE_NUMBER,
+
+        /** The literal "{@code true}". */
+        VALUE_TRUE,
+
+        /** The literal "{@code false}". */
+        VALUE_FALSE,
+
+        /** The literal "{@code null}". */
+        VALUE_NULL,
+    }
+
+    // The states of an enclosing object or array.
+    private static final int OBJECT_FIRST = 0; // After "{"; expecting a field name or "}".
+    private static final int OBJECT_COLON = 1; // After a field name; expecting ":" and a value.
+    private static final int OBJECT_NEXT  = 2; // After a member value; expecting "," or "}".
+    private static final int ARRAY_FIRST  = 3; // After "["; expecting a value or "]".
+    private static final int ARRAY_NEXT   = 4; // After an element; expecting "," or "]".
+
+    /**
+     * Parses the JSON document read from the <var>reader</var>.
+     */
+    public
+    JsonPullParser(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[JsonPullParser.BUFFER_SIZE];
+    }
+
+    /**
+     * Parses the JSON document read from the <var>inputStream</var>, which must be UTF-8 encoded.
+     */
+    public
+    JsonPullParser(InputStream inputStream) { this(new InputStreamReader(inputStream, JsonPullParser.UTF_8)); }
+
+    /**
+     * Parses the JSON document in the UTF-8 encoded <var>bytes</var>; the document is decoded completely, so that
+     * {@link #readLazyValue()} can be used.
+     */
+    public
+    JsonPullParser(byte[] bytes) { this(new String(bytes, JsonPullParser.UTF_8)); }
+
+    /**
+     * Parses the JSON document in the given string.
+     */
+    public
+    JsonPullParser(String document) { this(document.toCharArray(), 0, document.length()); }
+
+    /**
+     * Parses the JSON document in the given section of the <var>document</var> array, which must not be modified
+     * afterwards (because it is used by {@link #readLazyValue()}).
+     */
+    public
+    JsonPullParser(char[] document, int offset, int length) {
+        this.reader     = null;
+        this.buffer     = document;
+        this.position   = offset;
+        this.limit      = offset + length;
+        this.endOfInput = true;
+        this.lineStart  = offset;
+    }
+
+    /**
+     * Parses the next syntactic element of the document.
+     *
+     * @return                {@code null} iff the end of the document is reached
+     * @throws ParseException The document is not well-formed JSON
+     */
+    @Nullable public Event
+    next() throws IOException, ParseException {
+
+        this.text = null;
+
+        int c = this.skipSpace();
+
+        if (this.depth == 0) {
+            if (c == -1) return (this.event = null);
+            return this.value(c);
+        }
+
+        int top = this.depth - 1;
+        switch (this.states[top]) {
+
+        case OBJECT_FIRST:
+            if (c == '}') return this.end(Event.END_OBJECT);
+            return this.fieldName(c);
+
+        case OBJECT_COLON:
+            if (c != ':') throw this.parseException("\":\" expected");
+            this.position++;
+            this.states[top] = JsonPullParser.OBJECT_NEXT;
+            return this.value(this.skipSpace());
+
+        case OBJECT_NEXT:
+            if (c == '}') return this.end(Event.END_OBJECT);
+            if (c != ',') throw this.parseException("\",\" or \"}\" expected");
+            this.position++;
+            return this.fieldName(this.skipSpace());
+
+        case ARRAY_FIRST:
+            if (c == ']') return this.end(Event.END_ARRAY);
+            this.states[top] = JsonPullParser.ARRAY_NEXT;
+            return this.value(c);
+
+        case ARRAY_NEXT:
+            if (c == ']') return this.end(Event.END_ARRAY);
+            if (c != ',') throw this.parseException("\",\" or \"]\" expected");
+            this.position++;
+            return this.value(this.skipSpace());
+
+        default:
+            throw new AssertionError(this.states[top]);
+        }
+    }
+
+    /**
+     * @return The event most recently returned by {@link #next()}
+     */
+    @Nullable public Event
+    getEvent() { return this.event; }
+
+    /**
+     * @return The number of objects and arrays that enclose the current position; e.g. 1 after the {@link
+     *         Event#START_OBJECT} of the top-level object
+     */
+    public int
+    getDepth() { return this.depth; }
+
+    /**
+     * @return For {@link Event#FIELD_NAME} and {@link Event#VALUE_STRING}: The (decoded) string; for all other
+     *         events: The text of the element as it appears in the document
+     * @throws IllegalStateException {@link #next()} was not yet invoked, or returned {@code null}
+     */
+    public String
+    getText() throws ParseException {
+
+        String result = this.text;
+        if (result != null) return result;
+
+        Event e = this.event;
+        if (e == null) throw new IllegalStateException("No current event");
+
+        switch (e) {
+
+        case START_OBJECT: return "{";
+        case END_OBJECT:   return "}";
+        case START_ARRAY:  return "[";
+        case END_ARRAY:    return "]";
+        case VALUE_TRUE:   return "true";
+        case VALUE_FALSE:  return "false";
+        case VALUE_NULL:   return "null";
+
+        case VALUE_NUMBER:
+            result = new String(this.buffer, this.textStart, this.textEnd - this.textStart);
+            break;
+
+        case FIELD_NAME:
+        case VALUE_STRING:
+            result = (
+                this.textHasEscapes
+                ? this.unescape()
+                : new String(this.buffer, this.textStart, this.textEnd - this.textStart)
+            );
+            break;
+
+        default:
+            throw new AssertionError(e);
+        }
+
+        return (this.text = result);
+    }
+
+    /**
+     * @return A {@link Long}, or, iff the number has a fraction or an exponent, a {@link Double} (exactly like
+     *         {@link Json.NumbeR#value})
+     * @throws IllegalStateException The current event is not {@link Event#VALUE_NUMBER}
+     * @throws ParseException        The number is malformed
+     */
+    public Number
+    getNumber() throws ParseException {
+
+        if (this.isIntegral()) return this.getLong();
+
+        return this.getDouble();
+    }
+
+    /**
+     * @throws IllegalStateException The current event is not {@link Event#VALUE_NUMBER}
+     * @throws ParseException        The number is malformed, has a fraction or an exponent, or is out of range
+     */
+    public long
+    getLong() throws ParseException {
+
+        if (this.event != Event.VALUE_NUMBER) throw new IllegalStateException("Current event is not a number");
+
+        char[]  b        = this.buffer;
+        int     i        = this.textStart;
+        int     end      = this.textEnd;
+        boolean negative = b[i] == '-';
+        if (negative) i++;
+
+        // Fast path for up to 18 digits, which cannot overflow.
+        if (i < end && end - i <= 18) {
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = b[i] - '0';
+                if (digit < 0 || digit > 9) break;
+                result = 10 * result + digit;
+            }
+            if (i == end) return negative ? -result : result;
+        }
+
+        try {
+            return Long.parseLong(this.getText());
+        } catch (NumberFormatException nfe) {
+            throw this.parseException("Invalid integral number \"" + this.getText() + "\"");
+        }
+    }
+
+    /**
+     * @throws IllegalStateException The current event is not {@link Event#VALUE_NUMBER}
+     * @throws ParseException        The number is malformed
+     */
+    public double
+    getDouble() throws ParseException {
+
+        if (this.event != Event.VALUE_NUMBER) throw new IllegalStateException("Current event is not a number");
+
+        try {
+            return Double.parseDouble(this.getText());
+        } catch (NumberFormatException nfe) {
+            throw this.parseException("Invalid number \"" + this.getText() + "\"");
+        }
+    }
+
+    /**
+     * If the current event is {@link Event#START_OBJECT} or {@link Event#START_ARRAY}, then this method skips the
+     * object's or array's contents (without decoding them), so that the current event becomes the matching {@link
+     * Event#END_OBJECT} or {@link Event#END_ARRAY}. Otherwise, this method does nothing.
+     */
+    public void
+    skipSubtree() throws IOException, ParseException {
+
+        if (this.event != Event.START_OBJECT && this.event != Event.START_ARRAY) return;
+
+        this.text = null;
+
+        for (int nesting = 1;;) {
+
+            int c = this.skipSpace();
+            if (c == -1) throw this.parseException("Unexpected end of input");
+
+            switch (c) {
+
+            case '{':
+            case '[':
+                this.position++;
+                nesting++;
+                break;
+
+            case '}':
+            case ']':
+                this.position++;
+                if (--nesting == 0) {
+                    this.depth--;
+                    this.event = c == '}' ? Event.END_OBJECT : Event.END_ARRAY;
+                    return;
+                }
+                break;
+
+            case '"':
+                this.position++;
+                this.string();
+                break;
+
+            default:
+                this.position++;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the next value (and, for an object or an array, all of its children) and returns it as a DOM tree.
+     *
+     * @return                {@code null} iff the end of the document is reached
+     * @throws ParseException The next element is not the start of a value, e.g. a field name
+     */
+    @Nullable public Json.Value
+    readValue() throws IOException, ParseException {
+
+        Event e = this.next();
+        if (e == null) return null;
+
+        return this.readValue(e);
+    }
+
+    /**
+     * Like {@link #readValue()}, but objects and arrays are materialized lazily: Only when the {@link
+     * Json.ObjecT#members} or {@link Json.Array#elements} are accessed for the first time, they are parsed from the
+     * document, and then only one level deep. Thus, only those parts of a document are materialized that are actually
+     * accessed.
+     * <p>
+     *   The value is validated completely (including its numbers and the escape sequences of its strings) before this
+     *   method returns, so the lazy materialization cannot fail.
+     * </p>
+     * <p>
+     *   This method is only applicable if the document is held in memory, i.e. if this parser was created through
+     *   {@link #JsonPullParser(String)}, {@link #JsonPullParser(char[], int, int)} or {@link
+     *   #JsonPullParser(byte[])}.
+     * </p>
+     *
+     * @return                       {@code null} iff the end of the document is reached
+     * @throws ParseException        The next element is not the start of a value, e.g. a field name
+     * @throws IllegalStateException This parser was created through {@link #JsonPullParser(Reader)} or {@link
+     *                               #JsonPullParser(InputStream)}
+     */
+    @Nullable public Json.Value
+    readLazyValue() throws IOException, ParseException {
+
+        if (this.reader != null) {
+            throw new IllegalStateException(
+                "Lazy values are not supported when parsing from a Reader or an InputStream"
+            );
+        }
+
+        Event e = this.next();
+        if (e == null) return null;
+
+        return this.readLazyValue(e, true);
+    }
+
+    /**
+     * @param validate Whether to validate the contents of objects and arrays (as opposed to just skipping them)
+     */
+    Json.Value
+    readLazyValue(Event e, boolean validate) throws IOException, ParseException {
+
+        if (e != Event.START_OBJECT && e != Event.START_ARRAY) return this.readValue(e);
+
+        int start = this.position - 1;
+        if (validate) {
+            for (int depth = this.depth; this.depth >= depth;) {
+                this.nextNotNull();
+                this.decode();
+            }
+        } else {
+            this.skipSubtree();
+        }
+
+        return (
+            e == Event.START_OBJECT
+            ? LazyJson.object(this.buffer, start, this.position)
+            : LazyJson.array(this.buffer, start, this.position)
+        );
+    }
+
+    Json.Value
+    readValue(Event e) throws IOException, ParseException {
+
+        switch (e) {
+
+        case START_OBJECT:
+            {
+                List<Json.Member> members = new ArrayList<Json.Member>();
+                while (this.next() == Event.FIELD_NAME) {
+                    Json.StrinG name = new Json.StrinG(this.getText());
+                    members.add(new Json.Member(name, this.readValue(this.nextNotNull())));
+                }
+                return new Json.ObjecT(members);
+            }
+
+        case START_ARRAY:
+            {
+                List<Json.Value> elements = new ArrayList<Json.Value>();
+                for (Event e2 = this.nextNotNull(); e2 != Event.END_ARRAY; e2 = this.nextNotNull()) {
+                    elements.add(this.readValue(e2));
+                }
+                return new Json.Array(elements);
+            }
+
+        case VALUE_STRING:
+            return new Json.StrinG(this.getText());
+
+        case VALUE_NUMBER:
+            try {
+                return new Json.NumbeR(this.getText());
+            } catch (NumberFormatException nfe) {
+                throw this.parseException("Invalid number \"" + this.getText() + "\"");
+            }
+
+        case VALUE_TRUE:
+            return new Json.True();
+
+        case VALUE_FALSE:
+            return new Json.False();
+
+        case VALUE_NULL:
+            return new Json.Null();
+
+        default:
+            throw this.parseException("Unexpected " + e);
+        }
+    }
+
+    @Override public void
+    close() throws IOException {
+        if (this.reader != null) this.reader.close();
+    }
+
+    /**
+     * @return The line number (counting from one) and the column number (counting from one) of the current parsing
+     *         position
+     */
+    @Override public String
+    toString() {
+        return (
+            "Line "
+            + this.lineNumber
+            + ", column "
+            + (this.discarded + this.position - this.lineStart + 1)
+        );
+    }
+
+    // IMPLEMENTATION
+
+    /**
+     * @return Whether the current number has neither a fraction nor an exponent
+     */
+    private boolean
+    isIntegral() {
+
+        if (this.event != Event.VALUE_NUMBER) throw new IllegalStateException("Current event is not a number");
+
+        char[] b = this.buffer;
+        for (int i = this.textStart; i < this.textEnd; i++) {
+            char c = b[i];
+            if (c == '.' || c == 'e' || c == 'E') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the current number, or the current string iff it contains escape sequences, so that a malformed number
+     * or escape sequence is reported now, and with the current location.
+     */
+    private void
+    decode() throws ParseException {
+
+        if (this.event == Event.VALUE_NUMBER) {
+            this.getNumber();
+        } else
+        if ((this.event == Event.FIELD_NAME || this.event == Event.VALUE_STRING) && this.textHasEscapes) {
+            this.getText();
+        }
+    }
+
+    Event
+    nextNotNull() throws IOException, ParseException {
+        Event result = this.next();
+        if (result == null) throw this.parseException("Unexpected end of input");
+        return result;
+    }
+
+    private Event
+    fieldName(int c) throws IOException, ParseException {
+
+        if (c != '"') throw this.parseException("Field name expected");
+        this.position++;
+        this.string();
+
+        this.states[this.depth - 1] = JsonPullParser.OBJECT_COLON;
+        return (this.event = Event.FIELD_NAME);
+    }
+
+    private Event
+    value(int c) throws IOException, ParseException {
+
+        switch (c) {
+
+        case '{':
+            this.position++;
+            this.push(JsonPullParser.OBJECT_FIRST);
+            return (this.event = Event.START_OBJECT);
+
+        case '[':
+            this.position++;
+            this.push(JsonPullParser.ARRAY_FIRST);
+            return (this.event = Event.START_ARRAY);
+
+        case '"':
+            this.position++;
+            this.string();
+            return (this.event = Event.VALUE_STRING);
+
+        case '-':
+        case '.':
+        case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9': // SUPPRESS CHECKSTYLE OneStatementPerLine
+            this.number();
+            return (this.event = Event.VALUE_NUMBER);
+
+        case -1:
+            throw this.parseException("Unexpected end of input");
+
+        default:
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) return (this.event = this.keyword());
+            throw this.parseException("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private Event
+    end(Event event) {
+        this.position++;
+        this.depth--;
+        return (this.event = event);
+    }
+
+    private void
+    push(int state) {
+        if (this.depth == this.states.length) this.states = Arrays.copyOf(this.states, 2 * this.depth);
+        this.states[this.depth++] = state;
+    }
+
+    /**
+     * Scans the rest of a string literal (after the opening double quote) and remembers the location of its
+     * contents.
+     */
+    private void
+    string() throws IOException, ParseException {
+
+        this.textStart      = this.position;
+        this.textHasEscapes = false;
+
+        char[] b = this.buffer;
+        int    i = this.position, n = this.limit;
+        for (;;) {
+
+            if (i == n) {
+                this.position = i;
+                if (!this.fill(this.textStart)) throw this.parseException("Unterminated string");
+                b = this.buffer;
+                i = this.position;
+                n = this.limit;
+                continue;
+            }
+
+            char c = b[i++];
+            if (c == '"') break;
+
+            if (c == '\\') {
+
+                // Skip the escaped character, so that it is not mistaken for the terminating double quote.
+                this.textHasEscapes = true;
+                if (i == n) {
+                    this.position = i;
+                    if (!this.fill(this.textStart)) throw this.parseException("Unterminated string");
+                    b = this.buffer;
+                    i = this.position;
+                    n = this.limit;
+                }
+                i++;
+            } else
+            if (c < 0x20) {
+                this.position = i - 1;
+                throw this.parseException("Control character " + (int) c + " not allowed in string");
+            }
+        }
+
+        this.textEnd  = i - 1;
+        this.position = i;
+    }
+
+    /**
+     * Decodes the current string, which contains escape sequences.
+     */
+    private String
+    unescape() throws ParseException {
+
+        char[]        b   = this.buffer;
+        int           end = this.textEnd;
+        StringBuilder sb  = new StringBuilder(end - this.textStart);
+        for (int i = this.textStart; i < end;) {
+
+            char c = b[i++];
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+
+            c = b[i++];
+            if (c == 'u') {
+                int cp = 0;
+                for (int j = 0; j < 4; j++) {
+                    int digit = i < end ? Character.digit(b[i++], 16) : -1;
+                    if (digit == -1) throw this.parseException("Invalid unicode escape sequence in string");
+                    cp = (cp << 4) + digit;
+                }
+                sb.append((char) cp);
+            } else {
+                int idx = "bfnrt".indexOf(c);
+                sb.append(idx == -1 ? c : "\b\f\n\r\t".charAt(idx));
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Scans a number literal and remembers its location. The number is validated only when it is decoded.
+     */
+    private void
+    number() throws IOException {
+
+        this.textStart = this.position;
+
+        char[] b = this.buffer;
+        int    i = this.position, n = this.limit;
+        for (;;) {
+
+            if (i == n) {
+                this.position = i;
+                if (!this.fill(this.textStart)) break;
+                b = this.buffer;
+                i = this.position;
+                n = this.limit;
+                continue;
+            }
+
+            char c = b[i];
+            if ((c < '0' || c > '9') && c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+') break;
+            i++;
+        }
+
+        this.textEnd  = i;
+        this.position = i;
+    }
+
+    private Event
+    keyword() throws IOException, ParseException {
+
+        this.textStart = this.position;
+        for (;;) {
+            if (this.position == this.limit && !this.fill(this.textStart)) break;
+            char c = this.buffer[this.position];
+            if ((c < 'a' || c > 'z') && (c < 'A' || c > 'Z')) break;
+            this.position++;
+        }
+
+        String keyword = new String(this.buffer, this.textStart, this.position - this.textStart);
+        if ("true".equals(keyword))  return Event.VALUE_TRUE;
+        if ("false".equals(keyword)) return Event.VALUE_FALSE;
+        if ("null".equals(keyword))  return Event.VALUE_NULL;
+
+        this.position = this.textStart;
+        throw this.parseException("Invalid keyword \"" + keyword + "\"");
+    }
+
+    /**
+     * Skips whitespace and comments.
+     *
+     * @return The next character (which is not consumed), or -1 at end-of-input
+     */
+    private int
+    skipSpace() throws IOException, ParseException {
+
+        char[] b = this.buffer;
+        int    i = this.position, n = this.limit;
+        for (;;) {
+
+            if (i == n) {
+                this.position = i;
+                if (!this.fill(i)) return -1;
+                b = this.buffer;
+                i = this.position;
+                n = this.limit;
+                continue;
+            }
+
+            char c = b[i];
+            switch (c) {
+
+            case ' ':
+            case '\t':
+            case '\f':
+            case 0x0B:
+                i++;
+                break;
+
+            case '\r':
+            case '\n':
+                this.newline(c, i++);
+                break;
+
+            case '/':
+                this.position = i;
+                this.skipComment();
+                b = this.buffer;
+                i = this.position;
+                n = this.limit;
+                break;
+
+            default:
+                this.position = i;
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Skips a C or C++ style comment.
+     */
+    private void
+    skipComment() throws IOException, ParseException {
+
+        int c = this.peek(1);
+        if (c == '/') {
+            this.position += 2;
+            while ((c = this.peek(0)) != -1 && c != '\r' && c != '\n') this.position++;
+        } else
+        if (c == '*') {
+            this.position += 2;
+            for (;;) {
+                c = this.peek(0);
+                if (c == -1) throw this.parseException("Unterminated comment");
+                if (c == '*' && this.peek(1) == '/') break;
+                if (c == '\r' || c == '\n') this.newline((char) c, this.position);
+                this.position++;
+            }
+            this.position += 2;
+        } else
+        {
+            throw this.parseException("Unexpected character '/'");
+        }
+    }
+
+    /**
+     * @return The character at {@code position + offset}, or -1 at end-of-input
+     */
+    private int
+    peek(int offset) throws IOException {
+        while (this.position + offset >= this.limit) {
+            if (!this.fill(this.position)) return -1;
+        }
+        return this.buffer[this.position + offset];
+    }
+
+    /**
+     * Counts the line separator character <var>c</var> at buffer index <var>i</var>; CR, LF and CR-LF count as one
+     * line separator.
+     */
+    private void
+    newline(char c, int i) {
+        if (c == '\n' && this.afterCr) {
+            this.afterCr = false;
+        } else {
+            this.lineNumber++;
+            this.afterCr = c == '\r';
+        }
+        this.lineStart = this.discarded + i + 1;
+    }
+
+    /**
+     * Discards the buffer contents before <var>keep</var>, and reads more characters.
+     *
+     * @return {@code false} iff the end of input is reached
+     */
+    private boolean
+    fill(int keep) throws IOException {
+
+        Reader r = this.reader;
+        if (r == null || this.endOfInput) return false;
+
+        if (keep > 0) {
+            System.arraycopy(this.buffer, keep, this.buffer, 0, this.limit - keep);
+            this.discarded += keep;
+            this.limit     -= keep;
+            this.position  -= keep;
+            this.textStart -= keep;
+        }
+
+        if (this.limit == this.buffer.length) this.buffer = Arrays.copyOf(this.buffer, 2 * this.limit);
+
+        int n = r.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (n == -1) {
+            this.endOfInput = true;
+            return false;
+        }
+
+        this.limit += n;
+        return true;
+    }
+
+    ParseException
+    parseException(String message) {
+        return new ParseException(this.toString() + ": " + message);
+    }
+
+    // CONFIGURATION
+
+    @Nullable private final Reader reader;
+
+    // STATE
+
+    private char[]  buffer;
+    private int     position, limit;
+    private boolean endOfInput;
+
+    /**
+     * The number of characters that were discarded from the beginning of the {@link #buffer}; used to compute
+     * column numbers.
+     */
+    private long discarded;
+
+    private int     lineNumber = 1;
+    private long    lineStart; // The offset of the start of the current line.
+    private boolean afterCr;
+
+    /**
+     * The states of the enclosing objects and arrays.
+     */
+    private int[] states = new int[16];
+    private int   depth;
+
+    @Nullable private Event event;
+
+    // The location of the current string or number within the buffer; the decoded text is cached.
+    private int              textStart, textEnd;
+    private boolean          textHasEscapes;
+    @Nullable private String text;
+}
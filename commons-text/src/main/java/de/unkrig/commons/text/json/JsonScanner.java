@@ -49,7 +49,7 @@ class JsonScanner {
         SPACE,
 
         CXX_COMMENT,
-        SINGLE_LINE_C_COMMENT,
+        SINGLE_LINE_C_COMMENT, C_COMMENT,
         MULTI_LINE_C_COMMENT_BEGINNING, MULTI_LINE_C_COMMENT_MIDDLE, MULTI_LINE_C_COMMENT_END,
 
         END_OF_IGNORABLES,
@@ -64,26 +64,50 @@ class JsonScanner {
 
     /**
      * Returns a Java scanner that also produces SPACE and COMMENT tokens.
+     * <p>
+     *   This scanner is designed for line-by-line scanning; to scan an entire document as one string, or through
+     *   {@link ScannerUtil#toStreamingDocumentScanner(StringScanner, java.io.Reader)}, use {@link
+     *   #rawStreamingStringScanner()}.
+     * </p>
      */
     public static StringScanner<TokenType>
-    rawStringScanner() {
+    rawStringScanner() { return JsonScanner.rawStringScanner(false); }
+
+    /**
+     * Returns a JSON scanner that also produces SPACE and COMMENT tokens, and that is designed for scanning entire
+     * documents. Each C-style comment, also when it spans multiple lines, is returned as <em>one</em> {@link
+     * TokenType#C_COMMENT} token.
+     */
+    public static StringScanner<TokenType>
+    rawStreamingStringScanner() { return JsonScanner.rawStringScanner(true); }
+
+    private static StringScanner<TokenType>
+    rawStringScanner(boolean streaming) {
         StatefulScanner<TokenType, State> scanner = new StatefulScanner<TokenType, State>(State.class);
 
         scanner.addRule("\\s+", TokenType.SPACE);
 
         scanner.addRule("//.*(?:\r|\r\n|\n)?", TokenType.CXX_COMMENT);
-        scanner.addRule("/\\*.*?\\*/",         TokenType.SINGLE_LINE_C_COMMENT);
 
-        // Multi-line C-style comments require special treatment, i.e. a special scanner state
-        // 'IN_MULTI_LINE_C_COMMENT'.
-        scanner.addRule("/\\*.*", TokenType.MULTI_LINE_C_COMMENT_BEGINNING).goTo(State.IN_MULTI_LINE_C_COMMENT);
-        {
-            scanner.addRule(State.IN_MULTI_LINE_C_COMMENT, ".*?\\*/", TokenType.MULTI_LINE_C_COMMENT_END);
+        if (streaming) {
+            scanner.addRule("(?s)/\\*.*?\\*/", TokenType.C_COMMENT);
+        } else {
+            scanner.addRule("/\\*.*?\\*/", TokenType.SINGLE_LINE_C_COMMENT);
+
+            // Multi-line C-style comments require special treatment, i.e. a special scanner state
+            // 'IN_MULTI_LINE_C_COMMENT'.
             scanner.addRule(
-                State.IN_MULTI_LINE_C_COMMENT,
-                ".*",
-                TokenType.MULTI_LINE_C_COMMENT_MIDDLE
+                "(?s)/\\*.*",
+                TokenType.MULTI_LINE_C_COMMENT_BEGINNING
             ).goTo(State.IN_MULTI_LINE_C_COMMENT);
+            {
+                scanner.addRule(State.IN_MULTI_LINE_C_COMMENT, ".*?\\*/", TokenType.MULTI_LINE_C_COMMENT_END);
+                scanner.addRule(
+                    State.IN_MULTI_LINE_C_COMMENT,
+                    "(?s).+",
+                    TokenType.MULTI_LINE_C_COMMENT_MIDDLE
+                ).goTo(State.IN_MULTI_LINE_C_COMMENT);
+            }
         }
 
         scanner.addRule("\\p{Alpha}+", TokenType.KEYWORD);
@@ -105,16 +129,27 @@ class JsonScanner {
 
         scanner.addRule("[\\{\\}\\[\\]:,]", TokenType.OPERATOR);
 
-        return scanner;
+        return scanner.compile(true);
     }
 
     /**
      * @return A scanner that swallows SPACE and COMMENT tokens
+     * @see    #rawStringScanner()
      */
     public static StringScanner<TokenType>
-    stringScanner() {
+    stringScanner() { return JsonScanner.swallowIgnorables(JsonScanner.rawStringScanner()); }
+
+    /**
+     * @return A scanner that swallows SPACE and COMMENT tokens
+     * @see    #rawStreamingStringScanner()
+     */
+    public static StringScanner<TokenType>
+    streamingStringScanner() { return JsonScanner.swallowIgnorables(JsonScanner.rawStreamingStringScanner()); }
+
+    private static StringScanner<TokenType>
+    swallowIgnorables(StringScanner<TokenType> delegate) {
 
-        return ScannerUtil.filter(JsonScanner.rawStringScanner(), new Predicate<Token<TokenType>>() {
+        return ScannerUtil.filter(delegate, new Predicate<Token<TokenType>>() {
 
             @Override public boolean
             evaluate(@Nullable Token<TokenType> token) {
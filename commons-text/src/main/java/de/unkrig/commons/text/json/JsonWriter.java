@@ -0,0 +1,613 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.parser.ParseException;
+
+/**
+ * Writes a JSON document, either compactly (without any whitespace) or "pretty" (indented, in the same layout as the
+ * {@link JsonUnparseVisitor}).
+ * <p>
+ *   The document is either written through a sequence of invocations like {@link #startObject()}, {@link
+ *   #name(String)}, {@link #value(long)}, {@link #endObject()}, or through {@link #value(Json.Value)}, or by copying
+ *   the events of a {@link JsonPullParser} (see {@link #copy(JsonPullParser)}); these can be mixed freely. Invalid
+ *   sequences, e.g. a value where a member name is expected, cause an {@link IllegalStateException}.
+ * </p>
+ * <p>
+ *   All output, including the escaping of strings, goes directly into one reusable character buffer; when writing to
+ *   an {@link OutputStream}, the characters are encoded to UTF-8 into one reusable byte buffer.
+ * </p>
+ * <p>
+ *   More than one top-level value can be written; they are separated with line separators.
+ * </p>
+ */
+public
+class JsonWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    // The states of an enclosing object or array.
+    private static final int OBJECT_EMPTY = 0; // After "{".
+    private static final int OBJECT_NAME  = 1; // After a member name.
+    private static final int OBJECT       = 2; // After a member value.
+    private static final int ARRAY_EMPTY  = 3; // After "[".
+    private static final int ARRAY        = 4; // After an element.
+
+    /**
+     * Writes a compact JSON document to the <var>writer</var>.
+     */
+    public
+    JsonWriter(Writer writer) { this(writer, null); }
+
+    /**
+     * @param indentation {@code null} for compact output, or the string to indent with, e.g. {@code "  "}
+     */
+    public
+    JsonWriter(Writer writer, @Nullable String indentation) {
+        this.writer       = writer;
+        this.outputStream = null;
+        this.indentation  = indentation;
+    }
+
+    /**
+     * Writes a compact, UTF-8 encoded JSON document to the <var>outputStream</var>.
+     */
+    public
+    JsonWriter(OutputStream outputStream) { this(outputStream, null); }
+
+    /**
+     * Writes a UTF-8 encoded JSON document to the <var>outputStream</var>.
+     *
+     * @param indentation {@code null} for compact output, or the string to indent with, e.g. {@code "  "}
+     */
+    public
+    JsonWriter(OutputStream outputStream, @Nullable String indentation) {
+        this.writer       = null;
+        this.outputStream = outputStream;
+        this.indentation  = indentation;
+        this.bytes        = new byte[3 * JsonWriter.BUFFER_SIZE];
+    }
+
+    /**
+     * Writes a <code>'{'</code>.
+     */
+    public JsonWriter
+    startObject() throws IOException {
+        this.beforeValue();
+        this.append('{');
+        this.push(JsonWriter.OBJECT_EMPTY);
+        return this;
+    }
+
+    /**
+     * Writes a <code>'}'</code>.
+     */
+    public JsonWriter
+    endObject() throws IOException {
+
+        int state = this.pop();
+        if (state == JsonWriter.OBJECT) {
+            this.newline();
+        } else
+        if (state != JsonWriter.OBJECT_EMPTY) {
+            throw new IllegalStateException("Not in an object, or member value missing");
+        }
+
+        this.append('}');
+        return this;
+    }
+
+    /**
+     * Writes a <code>'['</code>.
+     */
+    public JsonWriter
+    startArray() throws IOException {
+        this.beforeValue();
+        this.append('[');
+        this.push(JsonWriter.ARRAY_EMPTY);
+        return this;
+    }
+
+    /**
+     * Writes a <code>']'</code>.
+     */
+    public JsonWriter
+    endArray() throws IOException {
+
+        int state = this.pop();
+        if (state == JsonWriter.ARRAY) {
+            this.newline();
+        } else
+        if (state != JsonWriter.ARRAY_EMPTY) {
+            throw new IllegalStateException("Not in an array");
+        }
+
+        this.append(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of an object member; must be followed by the member's value.
+     */
+    public JsonWriter
+    name(String name) throws IOException {
+
+        int top = this.depth - 1;
+        if (top < 0) throw new IllegalStateException("Not in an object");
+
+        switch (this.states[top]) {
+
+        case OBJECT:
+            this.append(',');
+            // FALLTHROUGH
+
+        case OBJECT_EMPTY:
+            this.newline();
+            this.string(name);
+            if (this.indentation == null) {
+                this.append(':');
+            } else {
+                this.append(" : ");
+            }
+            this.states[top] = JsonWriter.OBJECT_NAME;
+            return this;
+
+        default:
+            throw new IllegalStateException("Member name not allowed here");
+        }
+    }
+
+    /**
+     * Writes a string value.
+     */
+    public JsonWriter
+    value(String value) throws IOException {
+        this.beforeValue();
+        this.string(value);
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     */
+    public JsonWriter
+    value(long value) throws IOException {
+
+        this.beforeValue();
+
+        if (value == Long.MIN_VALUE) {
+            this.append(Long.toString(value));
+            return this;
+        }
+
+        this.ensureCapacity(20);
+        char[] b = this.buffer;
+        if (value < 0) {
+            b[this.length++] = '-';
+            value = -value;
+        }
+
+        // Produce the digits right-to-left at the end of the buffer, then move them into place.
+        int end = this.length + 19, i = end;
+        do {
+            b[--i] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        System.arraycopy(b, i, b, this.length, end - i);
+        this.length += end - i;
+
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @throws IllegalArgumentException The <var>value</var> is infinite or NaN, which JSON cannot represent
+     */
+    public JsonWriter
+    value(double value) throws IOException {
+
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Cannot write " + value + " as JSON");
+        }
+
+        this.beforeValue();
+        this.append(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a {@code true} or {@code false} value.
+     */
+    public JsonWriter
+    value(boolean value) throws IOException {
+        this.beforeValue();
+        this.append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a {@code null} value.
+     */
+    public JsonWriter
+    nullValue() throws IOException {
+        this.beforeValue();
+        this.append("null");
+        return this;
+    }
+
+    /**
+     * Writes the given <var>value</var>, including all its children.
+     */
+    public JsonWriter
+    value(Json.Value value) throws IOException {
+
+        if (value instanceof Json.StrinG) return this.value(((Json.StrinG) value).text);
+
+        if (value instanceof Json.NumbeR) {
+            Number n = ((Json.NumbeR) value).value;
+            return n instanceof Double ? this.value(n.doubleValue()) : this.value(n.longValue());
+        }
+
+        if (value instanceof Json.ObjecT) {
+            this.startObject();
+            for (Json.Member member : ((Json.ObjecT) value).members) {
+                this.name(member.name.text);
+                this.value(member.value);
+            }
+            return this.endObject();
+        }
+
+        if (value instanceof Json.Array) {
+            this.startArray();
+            for (Json.Value element : ((Json.Array) value).elements) this.value(element);
+            return this.endArray();
+        }
+
+        if (value instanceof Json.True)  return this.value(true);
+        if (value instanceof Json.False) return this.value(false);
+        if (value instanceof Json.Null)  return this.nullValue();
+
+        throw new IllegalArgumentException(value.getClass().getName());
+    }
+
+    /**
+     * Writes the current event of the <var>parser</var>. Numbers that conform with the strict JSON number syntax are
+     * copied literally, i.e. without being decoded; all other numbers (e.g. {@code ".5"}) are decoded and written
+     * like {@link #value(long)} or {@link #value(double)} would.
+     * <p>
+     *   Example: Re-format a JSON document with bounded memory:
+     * </p>
+     * <pre>
+     *   while (pp.next() != null) jw.copy(pp);
+     * </pre>
+     *
+     * @throws ParseException The current event is a malformed number
+     */
+    public JsonWriter
+    copy(JsonPullParser parser) throws IOException, ParseException {
+
+        JsonPullParser.Event e = parser.getEvent();
+        if (e == null) throw new IllegalStateException("Parser has no current event");
+
+        switch (e) {
+        case START_OBJECT: return this.startObject();
+        case END_OBJECT:   return this.endObject();
+        case START_ARRAY:  return this.startArray();
+        case END_ARRAY:    return this.endArray();
+        case FIELD_NAME:   return this.name(parser.getText());
+        case VALUE_STRING: return this.value(parser.getText());
+        case VALUE_TRUE:   return this.value(true);
+        case VALUE_FALSE:  return this.value(false);
+        case VALUE_NULL:   return this.nullValue();
+
+        case VALUE_NUMBER:
+            String text = parser.getText();
+            if (!JsonWriter.isStrictNumber(text)) {
+                Number n = parser.getNumber();
+                return n instanceof Double ? this.value(n.doubleValue()) : this.value(n.longValue());
+            }
+            this.beforeValue();
+            this.append(text);
+            return this;
+
+        default:
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Writes the buffered output to the underlying writer or stream, and flushes it.
+     */
+    @Override public void
+    flush() throws IOException {
+        this.flushBuffer();
+        if (this.writer != null) this.writer.flush();
+        if (this.outputStream != null) this.outputStream.flush();
+    }
+
+    /**
+     * Writes the buffered output to the underlying writer or stream, and closes it.
+     */
+    @Override public void
+    close() throws IOException {
+        this.flushBuffer();
+        if (this.writer != null) this.writer.close();
+        if (this.outputStream != null) this.outputStream.close();
+    }
+
+    // IMPLEMENTATION
+
+    /**
+     * @return Whether the <var>s</var> matches {@code -?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?}
+     */
+    private static boolean
+    isStrictNumber(String s) {
+
+        int i = 0, n = s.length();
+        if (i < n && s.charAt(i) == '-') i++;
+
+        if (i < n && s.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            while (i < n && JsonWriter.isDigit(s.charAt(i))) i++;
+            if (i == start) return false;
+        }
+
+        if (i < n && s.charAt(i) == '.') {
+            int start = ++i;
+            while (i < n && JsonWriter.isDigit(s.charAt(i))) i++;
+            if (i == start) return false;
+        }
+
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) i++;
+            int start = i;
+            while (i < n && JsonWriter.isDigit(s.charAt(i))) i++;
+            if (i == start) return false;
+        }
+
+        return i == n;
+    }
+
+    private static boolean
+    isDigit(char c) { return c >= '0' && c <= '9'; }
+
+    /**
+     * Writes the separator that precedes a value, and updates the state.
+     */
+    private void
+    beforeValue() throws IOException {
+
+        int top = this.depth - 1;
+        if (top < 0) {
+            if (this.rootValueWritten) this.append(JsonWriter.LINE_SEPARATOR);
+            this.rootValueWritten = true;
+            return;
+        }
+
+        switch (this.states[top]) {
+
+        case OBJECT_NAME:
+            this.states[top] = JsonWriter.OBJECT;
+            break;
+
+        case ARRAY:
+            this.append(',');
+            this.newline();
+            break;
+
+        case ARRAY_EMPTY:
+            this.states[top] = JsonWriter.ARRAY;
+            this.newline();
+            break;
+
+        default:
+            throw new IllegalStateException("Member name expected");
+        }
+    }
+
+    /**
+     * In "pretty" mode, writes a line separator and indents according to the current depth.
+     */
+    private void
+    newline() throws IOException {
+
+        String indentation = this.indentation;
+        if (indentation == null) return;
+
+        this.append(JsonWriter.LINE_SEPARATOR);
+        for (int i = 0; i < this.depth; i++) this.append(indentation);
+    }
+
+    private void
+    push(int state) {
+        if (this.depth == this.states.length) this.states = Arrays.copyOf(this.states, 2 * this.depth);
+        this.states[this.depth++] = state;
+    }
+
+    private int
+    pop() {
+        if (this.depth == 0) throw new IllegalStateException("Not in an object or array");
+        return this.states[--this.depth];
+    }
+
+    /**
+     * Writes a JSON string literal. Unpaired surrogates are escaped (e.g. {@code "\\ud800"}), so that the buffer
+     * never contains them.
+     */
+    private void
+    string(String s) throws IOException {
+
+        this.append('"');
+
+        char[] b = this.buffer;
+        int    n = s.length();
+        for (int i = 0; i < n; i++) {
+
+            // Enough space for the longest escape sequence.
+            if (this.length > b.length - 6) this.flushBuffer();
+
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && !Character.isSurrogate(c)) {
+                b[this.length++] = c;
+                continue;
+            }
+
+            if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                b[this.length++] = c;
+                b[this.length++] = s.charAt(++i);
+                continue;
+            }
+
+            b[this.length++] = '\\';
+
+            int idx = "\"\\\b\f\n\r\t".indexOf(c);
+            if (idx != -1) {
+                b[this.length++] = "\"\\bfnrt".charAt(idx);
+                continue;
+            }
+
+            b[this.length++] = 'u';
+            b[this.length++] = Character.forDigit(c >> 12, 16);
+            b[this.length++] = Character.forDigit((c >> 8) & 0xf, 16);
+            b[this.length++] = Character.forDigit((c >> 4) & 0xf, 16);
+            b[this.length++] = Character.forDigit(c & 0xf, 16);
+        }
+
+        this.append('"');
+    }
+
+    private void
+    append(char c) throws IOException {
+        if (this.length == this.buffer.length) this.flushBuffer();
+        this.buffer[this.length++] = c;
+    }
+
+    private void
+    append(String s) throws IOException {
+
+        int n = s.length();
+        if (n > this.buffer.length - this.length) {
+            this.flushBuffer();
+            if (n > this.buffer.length) {
+                for (int i = 0; i < n; i++) this.append(s.charAt(i));
+                return;
+            }
+        }
+
+        s.getChars(0, n, this.buffer, this.length);
+        this.length += n;
+    }
+
+    private void
+    ensureCapacity(int n) throws IOException {
+        if (this.length > this.buffer.length - n) this.flushBuffer();
+    }
+
+    /**
+     * Writes the contents of the character buffer to the writer, or encodes it to UTF-8 and writes it to the output
+     * stream.
+     */
+    private void
+    flushBuffer() throws IOException {
+
+        Writer w = this.writer;
+        if (w != null) {
+            w.write(this.buffer, 0, this.length);
+            this.length = 0;
+            return;
+        }
+
+        OutputStream os = this.outputStream;
+        assert os != null;
+
+        char[] cb = this.buffer;
+        byte[] bb = this.bytes;
+        assert bb != null;
+
+        int n = this.length, j = 0;
+        for (int i = 0; i < n; i++) {
+            int c = cb[i];
+            if (c < 0x80) {
+                bb[j++] = (byte) c;
+            } else
+            if (c < 0x800) {
+                bb[j++] = (byte) (0xc0 | (c >> 6));
+                bb[j++] = (byte) (0x80 | (c & 0x3f));
+            } else
+            if (Character.isHighSurrogate((char) c)) {
+
+                // Notice: "string()" guarantees that surrogates appear only in pairs, and never at the end of the
+                // buffer.
+                int cp = Character.toCodePoint((char) c, cb[++i]);
+                bb[j++] = (byte) (0xf0 | (cp >> 18));
+                bb[j++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                bb[j++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                bb[j++] = (byte) (0x80 | (cp & 0x3f));
+            } else
+            {
+                bb[j++] = (byte) (0xe0 | (c >> 12));
+                bb[j++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bb[j++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        os.write(bb, 0, j);
+        this.length = 0;
+    }
+
+    // CONFIGURATION
+
+    @Nullable private final Writer       writer;
+    @Nullable private final OutputStream outputStream;
+    @Nullable private final String       indentation;
+
+    // STATE
+
+    private final char[]     buffer = new char[JsonWriter.BUFFER_SIZE];
+    private int              length;
+    @Nullable private byte[] bytes;
+
+    /**
+     * The states of the enclosing objects and arrays.
+     */
+    private int[]   states = new int[16];
+    private int     depth;
+    private boolean rootValueWritten;
+}
@@ -0,0 +1,156 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.json;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.json.JsonPullParser.Event;
+import de.unkrig.commons.text.parser.ParseException;
+
+/**
+ * JSON objects and arrays that keep their source range, and parse their contents only when they are accessed for
+ * the first time.
+ *
+ * @see JsonPullParser#readLazyValue()
+ */
+final
+class LazyJson {
+
+    private LazyJson() {}
+
+    /**
+     * @param start The offset of the <code>'{'</code> in the <var>document</var>
+     * @param end   The offset after the matching <code>'}'</code>
+     */
+    static Json.ObjecT
+    object(char[] document, int start, int end) {
+        return new Json.ObjecT(new LazyMembers(document, start, end), false);
+    }
+
+    /**
+     * @param start The offset of the <code>'['</code> in the <var>document</var>
+     * @param end   The offset after the matching <code>']'</code>
+     */
+    static Json.Array
+    array(char[] document, int start, int end) {
+        return new Json.Array(new LazyElements(document, start, end), false);
+    }
+
+    /**
+     * Base for the lazy lists: Parses the source range on the first access.
+     *
+     * @param <T> The element type
+     */
+    private abstract static
+    class LazyList<T> extends AbstractList<T> {
+
+        private final char[] document;
+        private final int    start, end;
+
+        /**
+         * Volatile, so that the contents of the list are safely published to other threads.
+         */
+        @Nullable private volatile List<T> materialized;
+
+        LazyList(char[] document, int start, int end) {
+            this.document = document;
+            this.start    = start;
+            this.end      = end;
+        }
+
+        @Override public T
+        get(int index) { return this.materialize().get(index); }
+
+        @Override public int
+        size() { return this.materialize().size(); }
+
+        private List<T>
+        materialize() {
+
+            List<T> result = this.materialized;
+            if (result != null) return result;
+
+            JsonPullParser pp = new JsonPullParser(this.document, this.start, this.end - this.start);
+            try {
+                pp.next();
+                result = this.parseContents(pp);
+            } catch (IOException ioe) {
+                throw new IllegalStateException(ioe);
+            } catch (ParseException pe) {
+
+                // The source range was validated before, so this should not happen.
+                throw new IllegalStateException(pe);
+            }
+
+            return (this.materialized = result);
+        }
+
+        /**
+         * Parses the contents of the object or array, after the opening brace or bracket up to and including the
+         * closing brace or bracket.
+         */
+        abstract List<T>
+        parseContents(JsonPullParser pp) throws IOException, ParseException;
+    }
+
+    private static
+    class LazyMembers extends LazyList<Json.Member> {
+
+        LazyMembers(char[] document, int start, int end) { super(document, start, end); }
+
+        @Override List<Json.Member>
+        parseContents(JsonPullParser pp) throws IOException, ParseException {
+
+            List<Json.Member> result = new ArrayList<Json.Member>();
+            while (pp.next() == Event.FIELD_NAME) {
+                Json.StrinG name = new Json.StrinG(pp.getText());
+                result.add(new Json.Member(name, pp.readLazyValue(pp.nextNotNull(), false)));
+            }
+            return result;
+        }
+    }
+
+    private static
+    class LazyElements extends LazyList<Json.Value> {
+
+        LazyElements(char[] document, int start, int end) { super(document, start, end); }
+
+        @Override List<Json.Value>
+        parseContents(JsonPullParser pp) throws IOException, ParseException {
+
+            List<Json.Value> result = new ArrayList<Json.Value>();
+            for (Event e = pp.nextNotNull(); e != Event.END_ARRAY; e = pp.nextNotNull()) {
+                result.add(pp.readLazyValue(e, false));
+            }
+            return result;
+        }
+    }
+}
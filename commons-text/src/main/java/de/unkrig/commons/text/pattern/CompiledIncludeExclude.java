@@ -0,0 +1,344 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.pattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.pattern.Glob.RegexGlob;
+
+/**
+ * The {@link Glob} that {@link IncludeExclude#compile()} returns.
+ * <p>
+ *   Instead of evaluating the includes and excludes one after another, it locates the highest-priority matching
+ *   {@link Glob#compileRegex(Pattern, String) regex glob} through
+ * </p>
+ * <ul>
+ *   <li>
+ *     a trie of the literal prefixes of the regexes (e.g. {@code "dir/"} for the wildcard pattern {@code
+ *     "dir/**}{@code /*.ext"}), so that only the regexes whose prefix matches the subject are evaluated, and
+ *   </li>
+ *   <li>
+ *     <em>one</em> combined regex {@code "(re1)|(re2)|..."} for the regexes without a literal prefix, where the
+ *     first capturing group that participates in the match identifies the matching glob.
+ *   </li>
+ * </ul>
+ * <p>
+ *   All other globs are evaluated one after another, as {@link IncludeExclude} does.
+ * </p>
+ */
+final
+class CompiledIncludeExclude extends Glob {
+
+    /**
+     * Implements {@link #replace(String)}, {@link #toString()} and the matching of "container" subjects.
+     */
+    private final IncludeExclude source;
+
+    /**
+     * For each glob, in order of decreasing precedence: Whether it is an include or an exclude.
+     */
+    private final boolean[] includes;
+    private final Glob[]    globs;
+
+    /**
+     * For each glob: Its regex, or {@code null} iff it is not a {@link RegexGlob}.
+     */
+    private final Pattern[] regexes;
+
+    /**
+     * For each glob: The literal prefix of its regex, or {@code null}.
+     */
+    private final String[] prefixes;
+
+    private final TrieNode prefixTrie = new TrieNode();
+
+    /**
+     * Combines the regexes without a literal prefix, or {@code null} iff there are less than two of these.
+     */
+    @Nullable private final Pattern combinedRegex;
+
+    /**
+     * The capturing group of the {@link #combinedRegex} and the index of the glob, for each alternative.
+     */
+    private final int[] combinedGroups, combinedGlobs;
+
+    /**
+     * The regex globs that are evaluated one by one, in order of decreasing precedence.
+     */
+    private final int[] singleRegexGlobs;
+
+    /**
+     * The non-regex globs, which must be evaluated with {@link Glob#matches(String)}, in order of decreasing
+     * precedence.
+     */
+    private final int[] otherGlobs;
+
+    private static final
+    class TrieNode {
+
+        final Map<Character, TrieNode> children = new HashMap<Character, TrieNode>();
+
+        /**
+         * The globs whose literal prefix ends at this node, in order of decreasing precedence.
+         */
+        int[] globs = new int[0];
+    }
+
+    CompiledIncludeExclude(IncludeExclude source, boolean[] includes, Glob[] globs) {
+
+        this.source   = source;
+        this.includes = includes;
+        this.globs    = globs;
+
+        int n = globs.length;
+        this.regexes  = new Pattern[n];
+        this.prefixes = new String[n];
+
+        List<Integer> singles = new ArrayList<Integer>(), others = new ArrayList<Integer>();
+        List<Integer> combinables = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+
+            if (!(globs[i] instanceof RegexGlob)) {
+                others.add(i);
+                continue;
+            }
+
+            Pattern regex = (this.regexes[i] = ((RegexGlob) globs[i]).regex);
+
+            String prefix = (this.prefixes[i] = Finders.literalPrefix(regex));
+            if (prefix != null) {
+                TrieNode node = this.prefixTrie;
+                for (int j = 0; j < prefix.length(); j++) {
+                    Character c     = prefix.charAt(j);
+                    TrieNode  child = node.children.get(c);
+                    if (child == null) node.children.put(c, (child = new TrieNode()));
+                    node = child;
+                }
+                node.globs                        = Arrays.copyOf(node.globs, node.globs.length + 1);
+                node.globs[node.globs.length - 1] = i;
+            } else
+            if (CompiledIncludeExclude.inlineFlags(regex) != null) {
+                combinables.add(i);
+            } else
+            {
+                singles.add(i);
+            }
+        }
+
+        if (combinables.size() < 2) {
+            singles.addAll(combinables);
+            this.combinedRegex  = null;
+            this.combinedGroups = this.combinedGlobs = new int[0];
+        } else {
+            int           m  = combinables.size();
+            StringBuilder sb = new StringBuilder();
+            this.combinedGroups = new int[m];
+            this.combinedGlobs  = new int[m];
+            for (int k = 0, group = 1; k < m; k++) {
+                int     i     = combinables.get(k);
+                Pattern regex = this.regexes[i];
+                assert regex != null;
+
+                if (k > 0) sb.append('|');
+                sb.append('(').append(CompiledIncludeExclude.inlineFlags(regex)).append(regex.pattern()).append("))");
+
+                this.combinedGroups[k] = group;
+                this.combinedGlobs[k]  = i;
+                group += 1 + regex.matcher("").groupCount();
+            }
+            this.combinedRegex = Pattern.compile(sb.toString());
+        }
+
+        this.singleRegexGlobs = CompiledIncludeExclude.toSortedArray(singles);
+        this.otherGlobs       = CompiledIncludeExclude.toSortedArray(others);
+    }
+
+    /**
+     * Equivalent with {@link IncludeExclude#matches(String)}.
+     */
+    @Override public boolean
+    matches(String subject) {
+
+        int n = this.globs.length;
+        if (n == 0) return true;
+
+        // Container subjects are relatively rare, and "prefix matching" cannot be combined.
+        if (subject.isEmpty() || subject.endsWith("/") || subject.endsWith("!")) return this.source.matches(subject);
+
+        int best = this.firstRegexMatch(subject, n);
+
+        for (int i : this.otherGlobs) {
+            if (i >= best) break;
+            if (this.globs[i].matches(subject)) {
+                best = i;
+                break;
+            }
+        }
+
+        return best == n ? !this.includes[n - 1] : this.includes[best];
+    }
+
+    /**
+     * @return The index of the first regex glob whose regex matches the <var>subject</var>, or <var>limit</var> iff
+     *         no regex glob before <var>limit</var> matches
+     */
+    private int
+    firstRegexMatch(String subject, int limit) {
+
+        Pattern cr = this.combinedRegex;
+        if (cr != null) {
+            Matcher m = cr.matcher(subject);
+            if (m.matches()) {
+                for (int k = 0; k < this.combinedGroups.length; k++) {
+                    if (m.start(this.combinedGroups[k]) != -1) {
+                        limit = Math.min(limit, this.combinedGlobs[k]);
+                        break;
+                    }
+                }
+            }
+        }
+
+        TrieNode node = this.prefixTrie;
+        for (int i = 0;; i++) {
+
+            for (int gi : node.globs) {
+                if (gi >= limit) break;
+                if (CompiledIncludeExclude.regexMatches(this.regexes[gi], subject)) {
+                    limit = gi;
+                    break;
+                }
+            }
+
+            if (i == subject.length()) break;
+            node = node.children.get(subject.charAt(i));
+            if (node == null) break;
+        }
+
+        for (int gi : this.singleRegexGlobs) {
+            if (gi >= limit) break;
+            if (CompiledIncludeExclude.regexMatches(this.regexes[gi], subject)) return gi;
+        }
+
+        return limit;
+    }
+
+    /**
+     * Equivalent with {@link IncludeExclude#mayMatchBelow(String)}, but skips includes whose literal prefix
+     * contradicts the <var>container</var>.
+     */
+    @Override public boolean
+    mayMatchBelow(String container) {
+
+        int n = this.globs.length;
+        if (n == 0) return true;
+
+        for (int i = 0; i < n; i++) {
+            if (!this.includes[i]) continue;
+
+            String prefix = this.prefixes[i];
+            if (prefix != null && !prefix.startsWith(container) && !container.startsWith(prefix)) continue;
+
+            if (this.globs[i].mayMatchBelow(container)) return true;
+        }
+
+        return !this.includes[n - 1];
+    }
+
+    @Override @Nullable public String
+    replace(String subject) { return this.source.replace(subject); }
+
+    @Override public String
+    toString() { return this.source.toString(); }
+
+    private static boolean
+    regexMatches(@Nullable Pattern regex, String subject) {
+        assert regex != null;
+        return regex.matcher(subject).matches();
+    }
+
+    /**
+     * @return The embedded flag expression that reproduces the flags of the <var>regex</var> (e.g. {@code
+     *         "(?i-dmsu:"}), or {@code null} iff the <var>regex</var> cannot be embedded in a combined regex
+     */
+    @Nullable private static String
+    inlineFlags(Pattern regex) {
+
+        int flags = regex.flags();
+        // Notice: JRE 8 cannot turn off UNICODE_CHARACTER_CLASS with an embedded flag expression.
+        int unsupportedFlags = Pattern.LITERAL | Pattern.CANON_EQ | Pattern.COMMENTS | Pattern.UNICODE_CHARACTER_CLASS;
+        if ((flags & unsupportedFlags) != 0) return null;
+
+        // Back references and named groups would break when the regex is embedded; a "\Q" without an "\E" would quote
+        // the rest of the combined regex.
+        String s = regex.pattern();
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < n) {
+                char c2 = s.charAt(++i);
+                if (Character.isDigit(c2) || c2 == 'k') return null;
+                if (c2 == 'Q') {
+                    i = s.indexOf("\\E", i);
+                    if (i == -1) return null;
+                    i++;
+                }
+            } else
+            if (c == '(' && s.startsWith("?<", i + 1) && i + 3 < n && Character.isLetter(s.charAt(i + 3))) {
+                return null;
+            }
+        }
+
+        StringBuilder on = new StringBuilder(), off = new StringBuilder();
+        for (int j = 0; j < CompiledIncludeExclude.INLINE_FLAGS.length; j++) {
+            ((flags & CompiledIncludeExclude.INLINE_FLAGS[j]) != 0 ? on : off).append("idmsu".charAt(j));
+        }
+
+        return "(?" + on + (off.length() == 0 ? "" : "-" + off) + ':';
+    }
+
+    private static final int[] INLINE_FLAGS = {
+        Pattern.CASE_INSENSITIVE,
+        Pattern.UNIX_LINES,
+        Pattern.MULTILINE,
+        Pattern.DOTALL,
+        Pattern.UNICODE_CASE,
+    };
+
+    private static int[]
+    toSortedArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) result[i] = list.get(i);
+        Arrays.sort(result);
+        return result;
+    }
+}
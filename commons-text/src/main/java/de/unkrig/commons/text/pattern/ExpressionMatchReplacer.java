@@ -40,11 +40,13 @@ import de.unkrig.commons.lang.protocol.Mappings;
 import de.unkrig.commons.lang.protocol.NoException;
 import de.unkrig.commons.lang.protocol.Predicate;
 import de.unkrig.commons.lang.protocol.PredicateUtil;
+import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
 import de.unkrig.commons.lang.protocol.Transformer;
 import de.unkrig.commons.nullanalysis.Nullable;
 import de.unkrig.commons.text.expression.EvaluationException;
 import de.unkrig.commons.text.expression.Expression;
 import de.unkrig.commons.text.expression.ExpressionEvaluator;
+import de.unkrig.commons.text.expression.ParseCache;
 import de.unkrig.commons.text.expression.Parser;
 import de.unkrig.commons.text.parser.ParseException;
 
@@ -171,6 +173,25 @@ class ExpressionMatchReplacer {
         return ExpressionMatchReplacer.parse(spec, isValidVariableName).transform(variables);
     }
 
+    /**
+     * Equivalent with {@link #parse(String, Predicate)}, except that the result is cached in the given
+     * <var>parseCache</var>, keyed by the <var>spec</var> and the <em>identity</em> of the
+     * <var>isValidVariableName</var> predicate (which should therefore not change its results over time).
+     */
+    public static Transformer<Mapping<String, ?>, Function<MatchResult, String>>
+    parse(final String spec, final Predicate<String> isValidVariableName, ParseCache parseCache)
+    throws ParseException {
+
+        return parseCache.get(
+            ParseCache.key("ExpressionMatchReplacer.parse", spec, ParseCache.identityKey(isValidVariableName)),
+            new ProducerWhichThrows<Transformer<Mapping<String, ?>, Function<MatchResult, String>>, ParseException>() { // SUPPRESS CHECKSTYLE LineLength
+
+                @Override @Nullable public Transformer<Mapping<String, ?>, Function<MatchResult, String>>
+                produce() throws ParseException { return ExpressionMatchReplacer.parse(spec, isValidVariableName); }
+            }
+        );
+    }
+
     /**
      * Creates a factory for creating match replacers from a set of variables.
      *
@@ -195,6 +216,25 @@ class ExpressionMatchReplacer {
         };
     }
 
+    /**
+     * Equivalent with {@link #parseExt(String, Predicate)}, except that the result is cached in the given
+     * <var>parseCache</var>, keyed by the <var>spec</var> and the <em>identity</em> of the
+     * <var>isValidVariableName</var> predicate (which should therefore not change its results over time).
+     */
+    public static Transformer<Mapping<String, ?>, Function<MatchResult, String>>
+    parseExt(final String spec, final Predicate<String> isValidVariableName, ParseCache parseCache)
+    throws ParseException {
+
+        return parseCache.get(
+            ParseCache.key("ExpressionMatchReplacer.parseExt", spec, ParseCache.identityKey(isValidVariableName)),
+            new ProducerWhichThrows<Transformer<Mapping<String, ?>, Function<MatchResult, String>>, ParseException>() { // SUPPRESS CHECKSTYLE LineLength
+
+                @Override @Nullable public Transformer<Mapping<String, ?>, Function<MatchResult, String>>
+                produce() throws ParseException { return ExpressionMatchReplacer.parseExt(spec, isValidVariableName); }
+            }
+        );
+    }
+
     // SUPPRESS CHECKSTYLE LineLength:10
     /**
      * Creates a factory for creating match replacers from a set of variables.
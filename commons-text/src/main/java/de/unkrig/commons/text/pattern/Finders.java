@@ -26,14 +26,20 @@
 
 package de.unkrig.commons.text.pattern;
 
+import java.util.Arrays;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import de.unkrig.commons.lang.CharRingBuffer;
+import de.unkrig.commons.lang.StringUtil;
+import de.unkrig.commons.lang.StringUtil.IndexOf;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.FunctionWhichThrows;
 import de.unkrig.commons.lang.protocol.RunnableUtil;
 import de.unkrig.commons.lang.protocol.RunnableWhichThrows;
+import de.unkrig.commons.nullanalysis.Nullable;
 
 /**
  * Finding "matches" of {@link Pattern}s in streams of characters.
@@ -137,149 +143,379 @@ class Finders {
         final RunnableWhichThrows<? extends EX>                       flush,
         final int                                                     lookBehindLimit
     ) {
-        return new ConsumerWhichThrows<CharSequence, EX>() {
+        return Finders.patternFinder2(
+            patterns,
+            match,
+            new ConsumerWhichThrows<CharSequence, EX>() { // nonMatches
 
-            /**
-             * Contains a suffix of the input char sequence.
-             */
-            StringBuilder buffer = new StringBuilder();
+                @Override public void
+                consume(CharSequence run) throws EX {
+                    for (int i = 0, n = run.length(); i < n; i++) nonMatch.consume(run.charAt(i));
+                }
+            },
+            flush,
+            lookBehindLimit
+        );
+    }
 
-            /**
-             * Offset in {@link #buffer}
-             */
-            int start;
+    /**
+     * Equivalent with {@link #patternFinder2(Pattern[], ConsumerWhichThrows, ConsumerWhichThrows,
+     * RunnableWhichThrows, int) patternFinder2}{@code (}<var>patterns</var>{@code ,} <var>match</var>{@code ,}
+     * <var>nonMatches</var>{@code ,} {@link RunnableUtil#NOP}{@code ,} {@link #DEFAULT_LOOKBEHIND_LIMIT}{@code )}.
+     */
+    public static <EX extends Throwable> ConsumerWhichThrows<CharSequence, EX>
+    patternFinder2(
+        Pattern[]                                                patterns,
+        ConsumerWhichThrows<? super MatchResult2, ? extends EX>  match,
+        ConsumerWhichThrows<? super CharSequence, ? extends EX>  nonMatches
+    ) {
+        return Finders.patternFinder2(
+            patterns,
+            match,
+            nonMatches,
+            RunnableUtil.asRunnableWhichThrows(RunnableUtil.NOP), // flush
+            Finders.DEFAULT_LOOKBEHIND_LIMIT                      // lookBehindLimit
+        );
+    }
 
-            private int bufferOffset;
+    /**
+     * Like {@link #patternFinder(Pattern[], ConsumerWhichThrows, ConsumerWhichThrows, RunnableWhichThrows, int)},
+     * but reports each run of non-matching characters with <em>one</em> invocation of <var>nonMatches</var>, instead
+     * of one invocation per character. (A run is never empty, but two adjacent runs are not necessarily merged.)
+     * <p>
+     *   For example, with one pattern {@code "A"}, the input <code>{ "__A__", "" }</code> would invoke
+     * </p>
+     * <ul>
+     *   <li>{@code nonMatches("__")}
+     *   <li>{@code match(<A>)}
+     *   <li>{@code nonMatches("__")}
+     * </ul>
+     * <p>
+     *   Instead of attempting a match at each and every position, the finder jumps to the next position where a
+     *   match is possible: Patterns that start with a literal string (see {@link PatternUtil#constantPrefix(String)})
+     *   are located through a Boyer-Moore-Horspool search for that string, all other patterns through {@link
+     *   Matcher#find()}. When {@link Matcher#find()} "hits the end" of the buffered input, then only the positions
+     *   within the {@link PatternUtil#maxMatchLength(Pattern) maximum match length} from the end are probed one by one,
+     *   so that the finder can determine how many characters it can safely release before more input arrives. (Only
+     *   for patterns with an unbounded match length, e.g. {@code "a+"}, the finder probes from the first position
+     *   on, but only with that one pattern.)
+     * </p>
+     */
+    public static <EX extends Throwable> ConsumerWhichThrows<CharSequence, EX>
+    patternFinder2(
+        Pattern[]                                                patterns,
+        ConsumerWhichThrows<? super MatchResult2, ? extends EX>  match,
+        ConsumerWhichThrows<? super CharSequence, ? extends EX>  nonMatches,
+        RunnableWhichThrows<? extends EX>                        flush,
+        int                                                      lookBehindLimit
+    ) { return new PatternFinder<EX>(patterns, match, nonMatches, flush, lookBehindLimit); }
+
+    private static
+    class PatternFinder<EX extends Throwable> implements ConsumerWhichThrows<CharSequence, EX> {
+
+        /**
+         * Value of {@link #candidates}{@code [i]} indicating that the candidate position of pattern #i must be
+         * (re-)computed.
+         */
+        private static final int STALE = -2;
+
+        private final ConsumerWhichThrows<? super MatchResult2, ? extends EX> match;
+        private final ConsumerWhichThrows<? super CharSequence, ? extends EX> nonMatches;
+        private final RunnableWhichThrows<? extends EX>                       flush;
+        private final int                                                     lookBehindLimit;
+
+        /**
+         * Contains a suffix of the input char sequence.
+         */
+        private final CharRingBuffer buffer = new CharRingBuffer();
+
+        /**
+         * One per pattern; all operate on the {@link #buffer}.
+         */
+        private final Matcher[] matchers;
+
+        /**
+         * For each pattern: Locates the literal prefix of the pattern, or {@code null} iff the pattern has no (usable)
+         * literal prefix.
+         */
+        private final IndexOf[] prefixes;
+        private final int[]     prefixLengths;
+
+        /**
+         * For each pattern: The result of {@link PatternUtil#maxMatchLength(Pattern)}.
+         */
+        private final int[] maxMatchLengths;
+
+        /**
+         * For each pattern: The first position at or after {@link #start} where the pattern may match, or -1, or
+         * {@link #STALE}.
+         */
+        private final int[] candidates;
+
+        /**
+         * For each pattern: At positions before this one, the pattern does not match and does not require more input
+         * to decide that, except at the position designated by {@link #candidates}.
+         */
+        private final int[] undecided;
+
+        /**
+         * Offset in {@link #buffer}
+         */
+        private int start;
+
+        private int bufferOffset;
+
+        private boolean flushed;
+
+        PatternFinder(
+            Pattern[]                                               patterns,
+            ConsumerWhichThrows<? super MatchResult2, ? extends EX> match,
+            ConsumerWhichThrows<? super CharSequence, ? extends EX> nonMatches,
+            RunnableWhichThrows<? extends EX>                       flush,
+            int                                                     lookBehindLimit
+        ) {
+            this.match           = match;
+            this.nonMatches      = nonMatches;
+            this.flush           = flush;
+            this.lookBehindLimit = lookBehindLimit;
+
+            int n = patterns.length;
+            this.matchers      = new Matcher[n];
+            this.prefixes      = new IndexOf[n];
+            this.prefixLengths   = new int[n];
+            this.maxMatchLengths = new int[n];
+            this.candidates      = new int[n];
+            this.undecided       = new int[n];
+            for (int i = 0; i < n; i++) {
+                this.matchers[i] = (
+                    patterns[i]
+                    .matcher(this.buffer)
+                    .useTransparentBounds(true)
+                    .useAnchoringBounds(false)
+                );
+
+                String prefix = Finders.literalPrefix(patterns[i]);
+                if (prefix != null) {
+                    this.prefixes[i]      = StringUtil.boyerMooreHorspoolIndexOf(prefix);
+                    this.prefixLengths[i] = prefix.length();
+                }
 
-            private boolean flushed;
+                this.maxMatchLengths[i] = PatternUtil.maxMatchLength(patterns[i]);
+            }
+        }
 
-            @Override public void
-            consume(CharSequence in) throws EX {
+        @Override public void
+        consume(CharSequence in) throws EX {
 
-                // Unfortunately, "flush()" is not idempotent... must make sure that the finder is never multi-flushed.
-                if (in.length() == 0) {
-                    if (this.flushed) return;
-                    this.flush();
-                    flush.run();
-                    this.flushed = true;
-                    return;
-                }
-                this.flushed = false;
-
-                this.buffer.append(in);
-
-                Matcher[] matchers = new Matcher[patterns.length];
-                for (int i = 0; i < patterns.length; i++) {
-                    matchers[i] = (
-                        patterns[i]
-                        .matcher(this.buffer)
-                        .useTransparentBounds(true)
-                        .useAnchoringBounds(false)
-                    );
-                }
+            // Unfortunately, "flush()" is not idempotent... must make sure that the finder is never multi-flushed.
+            if (in.length() == 0) {
+                if (this.flushed) return;
+                this.find(true);
+                this.buffer.clear();
+                this.start = 0;
+                this.flush.run();
+                this.flushed = true;
+                return;
+            }
+            this.flushed = false;
 
-                NEXT_CHAR:
-                while (this.start < this.buffer.length()) {
+            this.buffer.append(in);
 
-                    for (Matcher m : matchers) {
+            this.find(false);
 
-                        // Match at the current position?
-                        m.region(this.start, this.buffer.length());
-                        boolean la = m.lookingAt();
+            if (this.start > this.lookBehindLimit) {
 
-                        if (m.hitEnd()) {
+                // Truncate the buffer to save memory.
+                int n = this.start - this.lookBehindLimit;
 
-                            // E.g. "A.*B" => "AxxxBxx" => matches, but more input could lead to a different match.
-                            // E.g. "Axxxxxx" => "Axxx" => No match, but more input could lead to a match.
-                            break NEXT_CHAR;
-                        }
+                this.buffer.discard(n);
+                this.start        -= n;
+                this.bufferOffset += n;
+            }
+        }
 
-                        if (la) {
+        /**
+         * Processes the buffered input, starting at {@link #start}.
+         *
+         * @param atEnd Whether no more input will follow
+         */
+        private void
+        find(boolean atEnd) throws EX {
 
-                            // E.g. "A" => "Axxx" => matches, and more input would not change the match.
-                            match.consume(Finders.offset(m, this.bufferOffset));
+            // The buffer has changed since the preceding invocation.
+            for (Matcher m : this.matchers) m.reset(this.buffer);
+            Arrays.fill(this.candidates, PatternFinder.STALE);
 
-                            this.start = m.end();
+            final int len      = this.buffer.length();
+            int       runStart = this.start;
 
-                            if (m.end() == m.start()) {
+            NEXT_CANDIDATE:
+            for (;;) {
 
-                                // Special case: Zero-length match.
-                                if (this.start >= this.buffer.length()) break NEXT_CHAR;
-                                nonMatch.consume(this.buffer.charAt(this.start++));
-                            }
+                // Skip the positions where none of the patterns can match.
+                this.start = this.nextCandidate(atEnd);
+                if (this.start >= len && !atEnd) break;
 
-                            continue NEXT_CHAR;
-                        }
+                for (Matcher m : this.matchers) {
+
+                    // Match at the current position?
+                    m.region(this.start, len);
+                    boolean la = m.lookingAt();
+
+                    if (!atEnd && m.hitEnd()) {
+
+                        // E.g. "A.*B" => "AxxxBxx" => matches, but more input could lead to a different match.
+                        // E.g. "Axxxxxx" => "Axxx" => No match, but more input could lead to a match.
+                        break NEXT_CANDIDATE;
                     }
 
-                    // E.g. "A" => "Bxx" => No match, and more input would not lead to a match (starting within "Bxx").
-                    nonMatch.consume(this.buffer.charAt(this.start++));
-                }
+                    if (la) {
+
+                        // E.g. "A" => "Axxx" => matches, and more input would not change the match.
+                        if (this.start > runStart) {
+                            this.nonMatches.consume(this.buffer.subSequence(runStart, this.start));
+                        }
+                        this.match.consume(Finders.offset(m, this.bufferOffset));
+
+                        this.start = runStart = m.end();
 
-                if (this.start > lookBehindLimit) {
+                        if (m.end() == m.start()) {
 
-                    // Truncate the buffer to save memory.
-                    int n = this.start - lookBehindLimit;
+                            // Special case: Zero-length match.
+                            if (this.start >= len) break NEXT_CANDIDATE;
+                            this.start++;
+                        }
 
-                    this.buffer.delete(0, n);
-                    this.start        -= n;
-                    this.bufferOffset += n;
+                        continue NEXT_CANDIDATE;
+                    }
                 }
 
-                if (this.buffer.capacity() > 10 * this.buffer.length()) this.buffer.trimToSize();
+                // E.g. "A" => "Bxx" => No match, and more input would not lead to a match (starting within "Bxx").
+                if (this.start >= len) break;
+                this.start++;
             }
 
-            private void
-            flush() throws EX {
-
-                Matcher[] matchers = new Matcher[patterns.length];
-                for (int i = 0; i < patterns.length; i++) {
-                    matchers[i] = (
-                        patterns[i]
-                        .matcher(this.buffer)
-                        .useTransparentBounds(true)
-                        .useAnchoringBounds(false)
-                    );
-                }
+            if (this.start > runStart) this.nonMatches.consume(this.buffer.subSequence(runStart, this.start));
+        }
+
+        /**
+         * @return The first position at or after {@link #start} where any of the patterns may match, or where more
+         *         input is required to decide that, or the buffer length
+         */
+        private int
+        nextCandidate(boolean atEnd) {
+
+            int result = this.buffer.length();
+            for (int i = 0; i < this.candidates.length; i++) {
+
+                int c = this.candidates[i];
+                if (
+                    c == PatternFinder.STALE
+                    || (c != -1 && c < this.start)
+                    || this.undecided[i] < this.start
+                ) this.computeCandidate(i, atEnd);
+
+                c = this.candidates[i];
+                if (c != -1 && c < result) result = c;
+                if (this.undecided[i] < result) result = this.undecided[i];
+            }
 
-                NEXT_CHAR:
-                for (;;) {
+            return result < this.start ? this.start : result;
+        }
 
-                    for (Matcher m : matchers) {
+        private void
+        computeCandidate(int i, boolean atEnd) {
 
-                        // Match at the current position?
-                        m.region(this.start, this.buffer.length());
-                        if (m.lookingAt()) {
+            int len = this.buffer.length();
 
-                            // E.g. "A" => "Axxx" => matches.
-                            match.consume(Finders.offset(m, this.bufferOffset));
+            IndexOf prefix = this.prefixes[i];
+            if (prefix != null) {
 
-                            this.start = m.end();
+                // A position where the literal prefix does not occur cannot match, and does not "hit the end" either,
+                // unless the prefix overlaps the end of the buffer.
+                int pl = this.prefixLengths[i];
 
-                            if (m.end() == m.start()) {
+                this.candidates[i] = this.start > len - pl ? -1 : prefix.indexOf(this.buffer, this.start, len - pl);
+                this.undecided[i]  = atEnd ? len : len - pl + 1;
+                return;
+            }
 
-                                // Special case: Zero-length match.
-                                if (this.start >= this.buffer.length()) break NEXT_CHAR;
-                                nonMatch.consume(this.buffer.charAt(this.start++));
-                            }
+            Matcher m   = this.matchers[i];
+            int     mml = this.maxMatchLengths[i];
 
-                            continue NEXT_CHAR;
-                        }
-                    }
+            if (!atEnd && mml != -1 && this.start >= len - mml) {
 
-                    // No match at this position.
+                // So close to the end of the buffer that "find()" would hit the end anyway.
+                this.candidates[i] = this.undecided[i] = this.start;
+                return;
+            }
 
-                    // Input buffer exhausted?
-                    if (this.start >= this.buffer.length()) break;
+            m.region(this.start, len);
+            boolean found = m.find();
+            int     limit = found ? m.start() : len;
 
-                    // E.g. "A" => "Bxx" => No match.
-                    nonMatch.consume(this.buffer.charAt(this.start++));
-                }
+            this.candidates[i] = found ? limit : -1;
 
-                this.buffer.setLength(0);
-                this.start = 0;
+            // A failed "find()" always hits the end (at the latest with the attempt at the end of the buffer), so
+            // only a successful "find()" that did not hit the end proves that no position before the match requires
+            // more input.
+            if (atEnd || (found && !m.hitEnd())) {
+                this.undecided[i] = len;
+                return;
             }
-        };
+
+            // An attempt that starts more than "maxMatchLength" chars before the end of the buffer cannot hit the end.
+            if (mml != -1) {
+                this.undecided[i] = Math.max(this.start, len - mml);
+                return;
+            }
+
+            // The match length is unbounded, so locate the first position where the end is hit by probing, but only
+            // with this one pattern.
+            int p = this.start;
+            for (; p < limit; p++) {
+                m.region(p, len);
+                m.lookingAt();
+                if (m.hitEnd()) break;
+            }
+            this.undecided[i] = p;
+        }
+    }
+
+    /**
+     * @return The string that each match of the <var>pattern</var> starts with, or {@code null} iff that string is
+     *         empty or cannot be determined reliably
+     */
+    @Nullable static String
+    literalPrefix(Pattern pattern) {
+
+        int flags = pattern.flags();
+        if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) return null;
+
+        String prefix;
+        if ((flags & Pattern.LITERAL) != 0) {
+            prefix = pattern.pattern();
+        } else {
+            String[] prefixAndRest;
+            try {
+                prefixAndRest = PatternUtil.constantPrefix(pattern.pattern());
+            } catch (PatternSyntaxException pse) {
+                return null;
+            }
+
+            prefix = prefixAndRest[0];
+
+            // Notice: "constantPrefix()" does not consider alternatives, e.g. "ab|cd".
+            String rest = prefixAndRest[1];
+            if (rest.indexOf('|') != -1 || rest.startsWith("\\E")) return null;
+        }
+
+        if (prefix.isEmpty()) return null;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.isSurrogate(prefix.charAt(i))) return null;
+        }
+
+        return prefix;
     }
 
     protected static MatchResult2
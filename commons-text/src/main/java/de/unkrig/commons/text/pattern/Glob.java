@@ -98,6 +98,24 @@ class Glob implements Predicate<String> {
         return this.matches(subject) ? subject : null;
     }
 
+    /**
+     * Returns whether this glob could match <em>any</em> subject that starts with the given <var>container</var>,
+     * i.e. whether it is worthwhile to list the members of a directory or the entries of an archive. Returns {@code
+     * false} only if it is <em>certain</em> that no such subject matches.
+     * <p>
+     *   The default implementation calls {@link #matches(String)} with the <var>container</var>; notice that {@link
+     *   #compileRegex(Pattern, String) regex globs} implement a "prefix match" for subjects that end with {@code "/"}
+     *   or {@code "!"}. Regex globs additionally return {@code true} iff they match the container path itself or one
+     *   of its parents (e.g. container {@code "a/b/"} vs. regex {@code "a"}).
+     * </p>
+     *
+     * @param container A directory path with a trailing {@code "/"}, or an archive path with a trailing {@code "!"}
+     */
+    public boolean
+    mayMatchBelow(String container) {
+        return this.matches(container);
+    }
+
     /**
      * Modifies the pattern compilation as follows:
      * <p>
@@ -185,25 +203,15 @@ class Glob implements Predicate<String> {
         }
 
         // Important: JRE 11+ implements a check for "unknown flags" - thus we need to clear the "REPLACEMENT" flag.
-        final Glob glob = Glob.compileRegex(Pattern2.compile(pattern, flags & ~Glob.REPLACEMENT), replacement);
+        Pattern regex = Pattern2.compile(pattern, flags & ~Glob.REPLACEMENT);
 
-        // In the WILDCARD mode, wrap the glob in order to override the "toString()" method, so it returns the
-        // *wildcard patten*, and not the *regex pattern*.
+        // In the WILDCARD mode, override the "toString()" method, so it returns the *wildcard patten*, and not the
+        // *regex pattern*.
         if ((flags | Pattern2.WILDCARD) == Pattern2.WILDCARD) {
-
-            final String pattern2 = pattern;
-            return new Glob() {
-
-                @Override public boolean          matches(String subject)            { return glob.matches(subject);  }
-                @Override public boolean          evaluate(@Nullable String subject) { return glob.evaluate(subject); }
-                @Override @Nullable public String replace(String subject)            { return glob.replace(subject);  }
-
-                @Override public String
-                toString() { return replacement == null ? pattern2 : pattern2 + "=" + replacement; }
-            };
+            return new RegexGlob(regex, replacement, replacement == null ? pattern : pattern + "=" + replacement);
         }
 
-        return glob;
+        return new RegexGlob(regex, replacement, null);
     }
 
     /**
@@ -254,72 +262,7 @@ class Glob implements Predicate<String> {
     public static Glob
     compileRegex(final Pattern regex, @Nullable final String replacementString) {
 
-        return new Glob() {
-
-            @Override public boolean
-            matches(String subject) {
-                Matcher matcher = regex.matcher(subject);
-                if (
-                    subject.isEmpty()
-                    || subject.endsWith("/")
-                    || subject.endsWith("!")
-
-                    // "%" is *not* a valid suffix; otherwise all compressed contents (e.g. "dir/file.gz%") would match
-                    // a pattern like "***foo":
-                    // || subject.endsWith("%")
-                ) {
-
-                    // "Prefix match" (e.g. subject "a/b/" vs. glob "a/b/c/d")?
-                    return matcher.matches() || matcher.hitEnd();
-                }
-
-                for (;;) {
-
-                    // Precise match (e.g. subject "a/b/c" vs. glob "a/b/c")?
-                    if (matcher.matches()) return true;
-
-                    // "Parent dir match" (e.g. subject "a/b/c/d" vs. glob "a/b/c")?
-                    for (int i = subject.length() - 1;; i--) {
-                        if (i < 0) return false;
-                        char c = subject.charAt(i);
-                        if (c == '/' || c == '!') {
-                            subject = subject.substring(0, i);
-                            break;
-                        }
-                    }
-                }
-            }
-
-            @Override @Nullable public String
-            replace(String subject) {
-
-                Matcher matcher = regex.matcher(subject);
-
-                if ((regex.flags() & Pattern2.WILDCARD) == 0 ? matcher.matches() : matcher.lookingAt()) {
-
-                    StringBuffer sb = new StringBuffer();
-
-                    final int matchEnd = matcher.end();
-                    matcher.appendReplacement(sb, replacementString == null ? "$0" : replacementString);
-
-                    // Precise match (e.g. subject 'a/b/c' vs. glob 'a/b/c')?
-                    if (matchEnd == subject.length()) return sb.toString();
-
-                    // Subcomponent match (e.g. subject 'a/b/c!d' vs. glob 'a/b/c')?
-                    char c = subject.charAt(matchEnd);
-                    if (c == '/' || c == '!') return sb.append(subject.substring(matchEnd)).toString();
-
-                    return null;
-                }
-
-                return null;
-            }
-
-            @Override public String
-            toString() {
-                return replacementString == null ? regex.toString() : regex + "=" + replacementString;
-            }
-        };
+        return new RegexGlob(regex, replacementString, null);
     }
 
     /**
@@ -537,4 +480,127 @@ class Glob implements Predicate<String> {
             matches(String subject) { return predicate.evaluate(subject); }
         };
     }
+
+    /**
+     * The {@link Glob} that {@link #compileRegex(Pattern, String)} returns. The {@link IncludeExclude#compile()
+     * compiler} inspects the {@link #regex} of these globs.
+     */
+    static final
+    class RegexGlob extends Glob {
+
+        final Pattern          regex;
+        @Nullable final String replacementString;
+
+        /**
+         * The text that {@link #toString()} returns, or {@code null} to derive it from the {@link #regex}.
+         */
+        @Nullable private final String displayString;
+
+        RegexGlob(Pattern regex, @Nullable String replacementString, @Nullable String displayString) {
+            this.regex             = regex;
+            this.replacementString = replacementString;
+            this.displayString     = displayString;
+        }
+
+
+        @Override public boolean
+        matches(String subject) {
+            Matcher matcher = this.regex.matcher(subject);
+            if (
+                subject.isEmpty()
+                || subject.endsWith("/")
+                || subject.endsWith("!")
+
+                // "%" is *not* a valid suffix; otherwise all compressed contents (e.g. "dir/file.gz%") would match
+                // a pattern like "***foo":
+                // || subject.endsWith("%")
+            ) {
+
+                // "Prefix match" (e.g. subject "a/b/" vs. glob "a/b/c/d")?
+                return matcher.matches() || matcher.hitEnd();
+            }
+
+            for (;;) {
+
+                // Precise match (e.g. subject "a/b/c" vs. glob "a/b/c")?
+                if (matcher.matches()) return true;
+
+                // "Parent dir match" (e.g. subject "a/b/c/d" vs. glob "a/b/c")?
+                for (int i = subject.length() - 1;; i--) {
+                    if (i < 0) return false;
+                    char c = subject.charAt(i);
+                    if (c == '/' || c == '!') {
+                        subject = subject.substring(0, i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override public boolean
+        mayMatchBelow(String container) {
+
+            // "Prefix match" (e.g. container "a/b/" vs. glob "a/b/c/d")?
+            if (this.matches(container)) return true;
+
+            // "Parent dir match" (e.g. container "a/b/" vs. glob "a/b" or "a")?
+            return this.matchesPathOrParent(container.substring(0, container.length() - 1));
+        }
+
+        /**
+         * Other than {@link #matches(String)}, this method also returns {@code true} iff the regex matches one of the
+         * "parent paths" of the <var>path</var> (e.g. path {@code "a/b!c"} vs. regex {@code "a/b"} or {@code "a"}).
+         * Only the pruning of containers ({@link #mayMatchBelow(String)}) uses these semantics.
+         *
+         * @param path A path without a trailing {@code "/"} or {@code "!"}
+         */
+        boolean
+        matchesPathOrParent(String path) {
+
+            if (path.isEmpty() || path.endsWith("/") || path.endsWith("!")) return false;
+
+            Matcher matcher = this.regex.matcher(path);
+            for (int end = path.length();;) {
+
+                if (matcher.region(0, end).matches()) return true;
+
+                do {
+                    if (--end < 0) return false;
+                } while (path.charAt(end) != '/' && path.charAt(end) != '!');
+            }
+        }
+
+        @Override @Nullable public String
+        replace(String subject) {
+
+            Matcher matcher = this.regex.matcher(subject);
+
+            if ((this.regex.flags() & Pattern2.WILDCARD) == 0 ? matcher.matches() : matcher.lookingAt()) {
+
+                StringBuffer sb = new StringBuffer();
+
+                final int matchEnd = matcher.end();
+                matcher.appendReplacement(sb, this.replacementString == null ? "$0" : this.replacementString);
+
+                // Precise match (e.g. subject 'a/b/c' vs. glob 'a/b/c')?
+                if (matchEnd == subject.length()) return sb.toString();
+
+                // Subcomponent match (e.g. subject 'a/b/c!d' vs. glob 'a/b/c')?
+                char c = subject.charAt(matchEnd);
+                if (c == '/' || c == '!') return sb.append(subject.substring(matchEnd)).toString();
+
+                return null;
+            }
+
+            return null;
+        }
+
+        @Override public String
+        toString() {
+            String ds = this.displayString;
+            if (ds != null) return ds;
+
+            return this.replacementString == null ? this.regex.toString() : this.regex + "=" + this.replacementString;
+        }
+    }
 }
@@ -50,7 +50,7 @@ class IncludeExclude extends Glob {
         ie.appendExclude(Glob.compile("CVS",      Pattern2.WILDCARD));
         ie.appendExclude(Glob.compile("***/CVS",  Pattern2.WILDCARD));
         ie.appendExclude(Glob.compile("***!CVS",  Pattern2.WILDCARD));
-        DEFAULT_EXCLUDES = ie;
+        DEFAULT_EXCLUDES = ie.compile();
     }
 
     public IncludeExclude() {}
@@ -144,6 +144,49 @@ class IncludeExclude extends Glob {
         return this.mags.get(this.mags.size() - 1).mode == Mode.EXCLUDE;
     }
 
+    /**
+     * A subject below the <var>container</var> can only match iff one of the includes may match below the
+     * <var>container</var>, or iff the lowest-priority rule is an EXCLUDE (and thus subjects that match no rule at all
+     * match). The excludes are <em>not</em> considered, because (other than an include) a subject that matches an
+     * exclude can still be re-admitted by an include with higher priority; e.g. {@code "a/b/c.txt~a/b"} matches
+     * {@code "a/b/c.txt"} although {@code "a/b"} is excluded.
+     */
+    @Override public boolean
+    mayMatchBelow(String container) {
+
+        if (this.mags.isEmpty()) return true;
+
+        for (ModeAndGlob mag : this.mags) {
+            if (mag.mode == Mode.INCLUDE && mag.glob.mayMatchBelow(container)) return true;
+        }
+        return this.mags.get(this.mags.size() - 1).mode == Mode.EXCLUDE;
+    }
+
+    /**
+     * Returns a {@link Glob} that behaves exactly like this object (in its current state), but is optimized for
+     * repeated {@link Glob#matches(String)} calls with many includes and excludes.
+     * <p>
+     *   Later modifications of this object do not affect the returned glob.
+     * </p>
+     */
+    public Glob
+    compile() {
+
+        IncludeExclude copy = new IncludeExclude();
+        copy.mags.addAll(this.mags);
+
+        int       n        = this.mags.size();
+        boolean[] includes = new boolean[n];
+        Glob[]    globs    = new Glob[n];
+        for (int i = 0; i < n; i++) {
+            ModeAndGlob mag = this.mags.get(i);
+            includes[i] = mag.mode == Mode.INCLUDE;
+            globs[i]    = mag.glob;
+        }
+
+        return new CompiledIncludeExclude(copy, includes, globs);
+    }
+
     /**
      * The <var>subject</var> is transformed by all matching includes, until an exclude matches.
      *
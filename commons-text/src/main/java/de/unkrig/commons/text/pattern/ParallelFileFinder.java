@@ -0,0 +1,880 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.pattern;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+import de.unkrig.commons.lang.ByteUtil;
+import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
+import de.unkrig.commons.lang.protocol.Longjump;
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.pattern.Finders.MatchResult2;
+
+/**
+ * Searches files for matches of {@link Pattern}s (or lines that match a {@link Glob}), utilizing multiple threads.
+ * <p>
+ *   The file is memory-mapped and split into chunks of approx. {@link #DEFAULT_CHUNK_SIZE} bytes, where each chunk
+ *   begins at the beginning of a line. The chunks are searched concurrently on a {@link ForkJoinPool}; nevertheless
+ *   the matches are reported in file order, and with correct line numbers (which are computed from the number of
+ *   line feeds in each chunk).
+ * </p>
+ * <p>
+ *   Iff all patterns are literal strings (see {@link #find(File, Charset, Pattern[], ConsumerWhichThrows, long,
+ *   ForkJoinPool, int)}), then the chunks are searched at the byte level (see {@link ByteUtil#indexOf(CharSequence[],
+ *   Charset)}), and only the lines that contain matches are decoded. Otherwise each chunk is decoded and searched
+ *   with {@link Finders#patternFinder2(Pattern[], ConsumerWhichThrows, ConsumerWhichThrows)}.
+ * </p>
+ * <p>
+ *   Limitations:
+ * </p>
+ * <ul>
+ *   <li>
+ *     The charset must be "byte-searchable" (see {@link ByteUtil#isByteSearchable(Charset)}), e.g. UTF-8 or
+ *     ISO-8859-1; otherwise lines cannot be located without decoding the file from its very beginning.
+ *   </li>
+ *   <li>Only LF and CR LF are recognized as line separators.</li>
+ *   <li>A match that spans a chunk boundary (which is only possible for patterns that match line breaks) is lost.</li>
+ *   <li>
+ *     Patterns that depend on the context of the match (e.g. {@code \A}, {@code \G} or a lookbehind) cannot be
+ *     searched chunk by chunk; thus such files are searched as one single chunk (and must not be larger than 2 GiB).
+ *   </li>
+ * </ul>
+ */
+public final
+class ParallelFileFinder {
+
+    private ParallelFileFinder() {}
+
+    /**
+     * The approximate number of bytes that is searched by one task, unless configured otherwise.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    /**
+     * A match within a file, plus the line where the match begins.
+     * <p>
+     *   Notice that all offsets ({@link #start()}, {@link #end()}, ...) are relative to the beginning of that line.
+     * </p>
+     */
+    public
+    interface LineMatchResult extends MatchResult {
+
+        /**
+         * @return The number of the line where the match begins; 1 for the first line of the file
+         */
+        long lineNumber();
+
+        /**
+         * @return The line where the match begins, without the line separator
+         */
+        String line();
+    }
+
+    /**
+     * A {@link LineMatchResult} that also designates the {@link Pattern} that matched.
+     */
+    public
+    interface LineMatchResult2 extends LineMatchResult, MatchResult2 {}
+
+    /**
+     * Equivalent with {@link #find(File, Charset, Pattern[], ConsumerWhichThrows, long, ForkJoinPool, int) find}{@code
+     * (}<var>file</var>{@code ,} <var>charset</var>{@code ,} <var>patterns</var>{@code ,} <var>match</var>{@code ,}
+     * <var>maxMatches</var>{@code , ForkJoinPool.commonPool(),} {@link #DEFAULT_CHUNK_SIZE}{@code )}.
+     */
+    public static <EX extends Throwable> long
+    find(
+        File                                                        file,
+        Charset                                                     charset,
+        Pattern[]                                                   patterns,
+        ConsumerWhichThrows<? super LineMatchResult2, ? extends EX> match,
+        long                                                        maxMatches
+    ) throws IOException, EX {
+        return ParallelFileFinder.find(
+            file,
+            charset,
+            patterns,
+            match,
+            maxMatches,
+            ForkJoinPool.commonPool(),
+            ParallelFileFinder.DEFAULT_CHUNK_SIZE
+        );
+    }
+
+    /**
+     * Reports all non-overlapping matches of the <var>patterns</var> within the contents of the <var>file</var>, in
+     * file order. Where more than one pattern matches at the same position, the first of these is reported (exactly
+     * like {@link Finders#patternFinder2(Pattern[], ConsumerWhichThrows, ConsumerWhichThrows)}).
+     * <p>
+     *   Iff each of the <var>patterns</var> is a non-empty literal string (i.e. it was compiled with the {@link
+     *   Pattern#LITERAL} flag, or contains no regex metacharacters), and has no flags other than {@link
+     *   Pattern#LITERAL}, {@link Pattern#MULTILINE}, {@link Pattern#DOTALL} and {@link Pattern#UNIX_LINES}, then the
+     *   file is searched without decoding it.
+     * </p>
+     * <p>
+     *   Iff any of the <var>patterns</var> contains a construct that would "see" the chunk boundaries, i.e. {@code
+     *   \A}, {@code \G}, {@code \Z}, {@code \z}, a lookbehind, or {@code ^} or {@code $} without the {@link
+     *   Pattern#MULTILINE} flag, then the <var>chunkSize</var> is ignored and the entire file is searched as one
+     *   chunk.
+     * </p>
+     *
+     * @param maxMatches Stop after that many matches have been reported; use {@link Long#MAX_VALUE} for "no limit"
+     * @param pool       Executes the searches of the individual chunks
+     * @param chunkSize  The approximate number of bytes that is searched by one task
+     * @return           The number of matches that were reported
+     * @throws IllegalArgumentException The <var>charset</var> is not {@link ByteUtil#isByteSearchable(Charset)
+     *                                  byte-searchable}
+     */
+    public static <EX extends Throwable> long
+    find(
+        File                                                        file,
+        Charset                                                     charset,
+        final Pattern[]                                             patterns,
+        ConsumerWhichThrows<? super LineMatchResult2, ? extends EX> match,
+        long                                                        maxMatches,
+        ForkJoinPool                                                pool,
+        int                                                         chunkSize
+    ) throws IOException, EX {
+
+        String[] literals = ParallelFileFinder.literals(patterns, charset);
+        if (literals != null) {
+            return ParallelFileFinder.find2(
+                file,
+                charset,
+                ParallelFileFinder.literalSearcher(patterns, literals, charset),
+                match,
+                maxMatches,
+                pool,
+                chunkSize
+            );
+        }
+
+        if (ParallelFileFinder.isContextSensitive(patterns)) chunkSize = Integer.MAX_VALUE;
+
+        return ParallelFileFinder.find2(file, charset, new ChunkSearcher<PatternHit>() {
+
+            @Override public void
+            search(ByteBuffer chunk, Charset charset, final List<PatternHit> result, final int maxHits) {
+
+                CharBuffer        cb          = ParallelFileFinder.decode(chunk, charset);
+                final LineTracker lineTracker = new LineTracker(cb);
+                final int[]       offset      = new int[1];
+
+                ConsumerWhichThrows<CharSequence, Longjump> finder = Finders.<Longjump>patternFinder2(
+                    patterns,
+                    new ConsumerWhichThrows<MatchResult2, Longjump>() { // match
+
+                        @Override public void
+                        consume(MatchResult2 mr) throws Longjump {
+
+                            int matchStart = offset[0];
+                            offset[0] += mr.end() - mr.start();
+
+                            lineTracker.advanceTo(matchStart);
+                            result.add(new PatternHit(
+                                mr,
+                                matchStart - lineTracker.lineStart - mr.start(),
+                                lineTracker
+                            ));
+
+                            if (result.size() >= maxHits) throw new Longjump();
+                        }
+                    },
+                    new ConsumerWhichThrows<CharSequence, Longjump>() { // nonMatches
+
+                        @Override public void
+                        consume(CharSequence run) { offset[0] += run.length(); }
+                    }
+                );
+
+                try {
+                    finder.consume(cb);
+                    finder.consume("");
+                } catch (Longjump lj) {
+                    ;
+                }
+            }
+        }, match, maxMatches, pool, chunkSize);
+    }
+
+    /**
+     * @return Whether any of the <var>patterns</var> could match differently at the beginning or at the end of a chunk
+     *         than at the same position within the entire file (conservatively)
+     */
+    private static boolean
+    isContextSensitive(Pattern[] patterns) {
+
+        for (Pattern p : patterns) {
+            if ((p.flags() & Pattern.LITERAL) != 0) continue;
+
+            boolean multiline = (p.flags() & Pattern.MULTILINE) != 0;
+            String  s         = p.pattern();
+
+            for (int i = 0, classDepth = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+
+                if (c == '\\') {
+                    if (++i == s.length()) break;
+                    c = s.charAt(i);
+                    if (c == 'Q') {
+                        int e = s.indexOf("\\E", i + 1);
+                        if (e == -1) break;
+                        i = e + 1;
+                    } else
+                    if (classDepth == 0 && "AGZz".indexOf(c) != -1) {
+                        return true;
+                    }
+                } else
+                if (c == '[') {
+                    classDepth++;
+                } else
+                if (c == ']') {
+                    if (classDepth > 0) classDepth--;
+                } else
+                if (classDepth == 0) {
+                    if ((c == '^' || c == '$') && !multiline) return true;
+                    if (s.startsWith("(?<=", i) || s.startsWith("(?<!", i)) return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return The literal strings that the <var>patterns</var> match, or {@code null} iff any of the
+     *         <var>patterns</var> is not a literal, or cannot be searched for at the byte level
+     */
+    @Nullable private static String[]
+    literals(Pattern[] patterns, Charset charset) {
+
+        if (!ByteUtil.isByteSearchable(charset)) return null;
+
+        int irrelevantFlags = Pattern.LITERAL | Pattern.MULTILINE | Pattern.DOTALL | Pattern.UNIX_LINES;
+
+        String[] result = new String[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            Pattern p = patterns[i];
+            String  s = p.pattern();
+
+            if ((p.flags() & ~irrelevantFlags) != 0) return null;
+            if ((p.flags() & Pattern.LITERAL) == 0) {
+                for (int j = 0; j < s.length(); j++) {
+                    if ("\\^$.|?*+()[]{}".indexOf(s.charAt(j)) != -1) return null;
+                }
+            }
+
+            // Notice: The decoder replaces malformed input with U+FFFD, which would not be found at the byte level.
+            if (s.isEmpty() || s.indexOf('\ufffd') != -1 || !charset.newEncoder().canEncode(s)) return null;
+
+            result[i] = s;
+        }
+
+        return result;
+    }
+
+    /**
+     * @return A {@link ChunkSearcher} that searches for the <var>literals</var> at the byte level, and decodes only
+     *         the lines where they occur
+     */
+    private static ChunkSearcher<PatternHit>
+    literalSearcher(final Pattern[] patterns, final String[] literals, Charset charset) {
+
+        final ByteUtil.MultiNeedleIndexOf indexOf = ByteUtil.indexOf(literals, charset);
+
+        final int[] lengths = new int[literals.length];
+        for (int i = 0; i < literals.length; i++) lengths[i] = literals[i].getBytes(charset).length;
+
+        return new ChunkSearcher<PatternHit>() {
+
+            @Override public void
+            search(ByteBuffer chunk, Charset charset, List<PatternHit> result, int maxHits) {
+
+                ByteBuffer      hs          = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                ByteLineTracker lineTracker = new ByteLineTracker(hs, charset);
+                BitSet          needles     = new BitSet();
+
+                for (int offset = 0, limit = hs.limit(); offset < limit;) {
+
+                    needles.clear();
+                    int matchStart = indexOf.indexOf(hs, needles, offset, limit);
+                    if (matchStart == -1) return;
+
+                    // Where more than one literal matches, the first of these wins (like "patternFinder2()").
+                    int ni = needles.nextSetBit(0);
+
+                    lineTracker.advanceTo(matchStart);
+                    result.add(new PatternHit(
+                        patterns[ni],
+                        literals[ni],
+                        lineTracker.charOffset(matchStart),
+                        lineTracker
+                    ));
+                    if (result.size() >= maxHits) return;
+
+                    offset = matchStart + lengths[ni];
+                }
+            }
+        };
+    }
+
+    /**
+     * Equivalent with {@link #findLines(File, Charset, Glob, ConsumerWhichThrows, long, ForkJoinPool, int)
+     * findLines}{@code (}<var>file</var>{@code ,} <var>charset</var>{@code ,} <var>glob</var>{@code ,}
+     * <var>match</var>{@code ,} <var>maxMatches</var>{@code , ForkJoinPool.commonPool(),} {@link
+     * #DEFAULT_CHUNK_SIZE}{@code )}.
+     */
+    public static <EX extends Throwable> long
+    findLines(
+        File                                                       file,
+        Charset                                                    charset,
+        Glob                                                       glob,
+        ConsumerWhichThrows<? super LineMatchResult, ? extends EX> match,
+        long                                                       maxMatches
+    ) throws IOException, EX {
+        return ParallelFileFinder.findLines(
+            file,
+            charset,
+            glob,
+            match,
+            maxMatches,
+            ForkJoinPool.commonPool(),
+            ParallelFileFinder.DEFAULT_CHUNK_SIZE
+        );
+    }
+
+    /**
+     * Reports all lines of the <var>file</var> that {@link Glob#matches(String) match} the <var>glob</var>, in file
+     * order. Each match covers the entire line (without the line separator).
+     * <p>
+     *   Notice that a {@link Glob} has "path semantics"; e.g. it typically matches the empty string (see {@link
+     *   Glob#matches(String)}).
+     * </p>
+     *
+     * @param maxMatches Stop after that many lines have been reported; use {@link Long#MAX_VALUE} for "no limit"
+     * @param pool       Executes the searches of the individual chunks
+     * @param chunkSize  The approximate number of bytes that is searched by one task
+     * @return           The number of lines that were reported
+     * @throws IllegalArgumentException The <var>charset</var> is not {@link ByteUtil#isByteSearchable(Charset)
+     *                                  byte-searchable}
+     */
+    public static <EX extends Throwable> long
+    findLines(
+        File                                                       file,
+        Charset                                                    charset,
+        final Glob                                                 glob,
+        ConsumerWhichThrows<? super LineMatchResult, ? extends EX> match,
+        long                                                       maxMatches,
+        ForkJoinPool                                               pool,
+        int                                                        chunkSize
+    ) throws IOException, EX {
+
+        return ParallelFileFinder.find2(file, charset, new ChunkSearcher<LineHit>() {
+
+            @Override public void
+            search(ByteBuffer chunk, Charset charset, List<LineHit> result, int maxHits) {
+
+                LineTracker lineTracker = new LineTracker(ParallelFileFinder.decode(chunk, charset));
+                do {
+                    lineTracker.advanceTo(lineTracker.lineStart);
+                    if (glob.matches(ParallelFileFinder.notNull(lineTracker.line))) {
+                        result.add(new LineHit(lineTracker));
+                        if (result.size() >= maxHits) return;
+                    }
+                } while (lineTracker.nextLine());
+            }
+        }, match, maxMatches, pool, chunkSize);
+    }
+
+    /**
+     * Searches one chunk and adds the hits to the <var>result</var>.
+     *
+     * @param <H> The type of the hits
+     */
+    private
+    interface ChunkSearcher<H extends LineHit> {
+
+        /**
+         * @param chunk   The (undecoded) contents of the chunk, from position 0 to its limit
+         * @param maxHits Return (or stop searching) as soon as <var>result</var> contains that many hits
+         */
+        void search(ByteBuffer chunk, Charset charset, List<H> result, int maxHits);
+    }
+
+    /**
+     * The byte-level counterpart of {@link LineTracker}; decodes only the lines that are actually needed.
+     */
+    private static final
+    class ByteLineTracker {
+
+        private static final ByteUtil.IndexOf LF = ByteUtil.indexOf(new byte[] { '\n' });
+
+        private final ByteBuffer chunk;
+        private final Charset    charset;
+
+        /**
+         * The number of line feeds before {@link #lineStart}.
+         */
+        long lineIndex;
+
+        /**
+         * The offset of the first byte of the current line.
+         */
+        int lineStart;
+
+        /**
+         * The current line (without the line separator), or {@code null} iff not yet computed.
+         */
+        @Nullable String line;
+
+        private int scanned;
+
+        ByteLineTracker(ByteBuffer chunk, Charset charset) {
+            this.chunk   = chunk;
+            this.charset = charset;
+        }
+
+        /**
+         * Makes the line that contains the given <var>offset</var> (or ends right before it) the current line.
+         */
+        void
+        advanceTo(int offset) {
+
+            ByteBuffer bb = this.chunk;
+
+            if (offset > this.scanned) {
+                for (int i = this.scanned;;) {
+                    int lf = ByteLineTracker.LF.indexOf(bb, i, offset - 1);
+                    if (lf == -1) break;
+                    this.lineIndex++;
+                    this.lineStart = i = lf + 1;
+                    this.line      = null;
+                }
+                this.scanned = offset;
+            }
+
+            if (this.line == null) {
+                int end = ByteLineTracker.LF.indexOf(bb, this.lineStart, bb.limit() - 1);
+                if (end == -1) end = bb.limit();
+                if (end > this.lineStart && bb.get(end - 1) == '\r') end--;
+                this.line = ParallelFileFinder.decode(bb, this.lineStart, end, this.charset).toString();
+            }
+        }
+
+        /**
+         * @return The number of characters between the start of the current line and the given byte
+         *         <var>offset</var>
+         */
+        int
+        charOffset(int offset) {
+            return ParallelFileFinder.decode(this.chunk, this.lineStart, offset, this.charset).length();
+        }
+    }
+
+    /**
+     * Keeps track of the line number and the line start while moving forward through a chunk.
+     */
+    private static final
+    class LineTracker {
+
+        private final CharSequence chunk;
+
+        /**
+         * The number of line feeds before {@link #lineStart}.
+         */
+        long lineIndex;
+
+        /**
+         * The offset of the first character of the current line.
+         */
+        int lineStart;
+
+        /**
+         * The current line (without the line separator), or {@code null} iff not yet computed.
+         */
+        @Nullable String line;
+
+        private int scanned;
+
+        LineTracker(CharSequence chunk) { this.chunk = chunk; }
+
+        /**
+         * Makes the line after the current line the current line.
+         *
+         * @return {@code false} iff there is no next line, i.e. the current line is the last line in the chunk, or
+         *         is followed by a line separator and nothing else
+         */
+        boolean
+        nextLine() {
+
+            CharSequence cs = this.chunk;
+
+            for (int i = Math.max(this.lineStart, this.scanned), length = cs.length(); i < length; i++) {
+                if (cs.charAt(i) == '\n') {
+                    if (i + 1 == length) return false;
+                    this.advanceTo(i + 1);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Makes the line that contains the given <var>offset</var> (or ends right before it) the current line.
+         */
+        void
+        advanceTo(int offset) {
+
+            CharSequence cs = this.chunk;
+
+            if (offset > this.scanned) {
+                for (int i = this.scanned; i < offset; i++) {
+                    if (cs.charAt(i) == '\n') {
+                        this.lineIndex++;
+                        this.lineStart = i + 1;
+                        this.line      = null;
+                    }
+                }
+                this.scanned = offset;
+            }
+
+            if (this.line == null) {
+                int end = this.lineStart, length = cs.length();
+                while (end < length && cs.charAt(end) != '\n') end++;
+                this.line = cs.subSequence(this.lineStart, end > this.lineStart && cs.charAt(end - 1) == '\r' ? end - 1 : end).toString(); // SUPPRESS CHECKSTYLE LineLength
+            }
+        }
+    }
+
+    /**
+     * The snapshot of one match; all offsets are relative to the beginning of the line.
+     */
+    private static
+    class LineHit implements LineMatchResult {
+
+        private final String   line;
+        private final int[]    starts, ends;
+        private final String[] groups;
+
+        /**
+         * The number of line feeds in the chunk before the line where the hit begins.
+         */
+        final long lineIndex;
+
+        /**
+         * The line number, which is known only when the preceding chunks have been searched.
+         */
+        long lineNumber;
+
+        /**
+         * A hit that covers the entire current line.
+         */
+        LineHit(LineTracker lineTracker) {
+            this.line      = ParallelFileFinder.notNull(lineTracker.line);
+            this.lineIndex = lineTracker.lineIndex;
+            this.starts    = new int[] { 0 };
+            this.ends      = new int[] { this.line.length() };
+            this.groups    = new String[] { this.line };
+        }
+
+        /**
+         * @param delta Is added to the offsets of the <var>matchResult</var> to make them relative to the line start
+         */
+        LineHit(MatchResult matchResult, int delta, LineTracker lineTracker) {
+
+            int groupCount = matchResult.groupCount();
+
+            this.line      = ParallelFileFinder.notNull(lineTracker.line);
+            this.lineIndex = lineTracker.lineIndex;
+            this.starts    = new int[groupCount + 1];
+            this.ends      = new int[groupCount + 1];
+            this.groups    = new String[groupCount + 1];
+            for (int g = 0; g <= groupCount; g++) {
+                int start = matchResult.start(g);
+                if (start == -1) {
+                    this.starts[g] = this.ends[g] = -1;
+                } else {
+                    this.starts[g] = start + delta;
+                    this.ends[g]   = matchResult.end(g) + delta;
+                    this.groups[g] = matchResult.group(g);
+                }
+            }
+        }
+
+        /**
+         * A hit without capturing groups.
+         *
+         * @param start The offset of the <var>group</var>, relative to the start of the current line
+         */
+        LineHit(String group, int start, ByteLineTracker lineTracker) {
+            this.line      = ParallelFileFinder.notNull(lineTracker.line);
+            this.lineIndex = lineTracker.lineIndex;
+            this.starts    = new int[] { start };
+            this.ends      = new int[] { start + group.length() };
+            this.groups    = new String[] { group };
+        }
+
+        @Override public long   lineNumber()     { return this.lineNumber; }
+        @Override public String line()           { return this.line; }
+        @Override public int    start()          { return this.starts[0]; }
+        @Override public int    start(int group) { return this.starts[group]; }
+        @Override public int    end()            { return this.ends[0]; }
+        @Override public int    end(int group)   { return this.ends[group]; }
+        @Override public String group()          { return this.groups[0]; }
+        @Override public int    groupCount()     { return this.groups.length - 1; }
+
+        @Override @Nullable public String
+        group(int group) { return this.groups[group]; }
+
+        @Override public String
+        toString() { return this.lineNumber + ":" + this.starts[0] + ": " + this.groups[0]; }
+    }
+
+    /**
+     * A {@link LineHit} that also designates the {@link Pattern} that matched.
+     */
+    private static final
+    class PatternHit extends LineHit implements LineMatchResult2 {
+
+        private final Pattern pattern;
+
+        PatternHit(MatchResult2 matchResult, int delta, LineTracker lineTracker) {
+            super(matchResult, delta, lineTracker);
+            this.pattern = matchResult.pattern();
+        }
+
+        PatternHit(Pattern pattern, String group, int start, ByteLineTracker lineTracker) {
+            super(group, start, lineTracker);
+            this.pattern = pattern;
+        }
+
+        @Override public Pattern
+        pattern() { return this.pattern; }
+    }
+
+    /**
+     * The outcome of searching one chunk.
+     */
+    private static final
+    class ChunkResult<H extends LineHit> {
+
+        final List<H> hits;
+
+        /**
+         * The number of line feeds in the chunk, or -1 iff the search was aborted early.
+         */
+        final int lineBreaks;
+
+        ChunkResult(List<H> hits, int lineBreaks) {
+            this.hits       = hits;
+            this.lineBreaks = lineBreaks;
+        }
+    }
+
+    private static <H extends LineHit, EX extends Throwable> long
+    find2(
+        File                                         file,
+        final Charset                                charset,
+        final ChunkSearcher<H>                       chunkSearcher,
+        ConsumerWhichThrows<? super H, ? extends EX> match,
+        long                                         maxMatches,
+        ForkJoinPool                                 pool,
+        int                                          chunkSize
+    ) throws IOException, EX {
+
+        if (!ByteUtil.isByteSearchable(charset)) {
+            throw new IllegalArgumentException("Charset \"" + charset + "\" is not byte-searchable");
+        }
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize");
+
+        if (maxMatches <= 0) return 0;
+        final int maxHitsPerChunk = (int) Math.min(maxMatches, Integer.MAX_VALUE);
+
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+
+            long size = channel.size();
+
+            // Keep a limited number of chunks "in flight", so that not the entire file is mapped and decoded at once.
+            int                           maxPending = 2 * pool.getParallelism();
+            Deque<Future<ChunkResult<H>>> pending    = new ArrayDeque<Future<ChunkResult<H>>>();
+            try {
+
+                long nextChunkStart = 0, linesBefore = 0, matchCount = 0;
+                for (;;) {
+
+                    while (pending.size() < maxPending && nextChunkStart < size) {
+
+                        final long chunkStart = nextChunkStart;
+                        final long chunkEnd   = ParallelFileFinder.lineStartAtOrAfter(
+                            channel,
+                            Math.min(chunkStart + chunkSize, size),
+                            size
+                        );
+                        if (chunkEnd - chunkStart > Integer.MAX_VALUE) {
+                            throw new IOException("Line at offset " + chunkStart + " is too long");
+                        }
+
+                        pending.add(pool.submit(new Callable<ChunkResult<H>>() {
+
+                            @Override public ChunkResult<H>
+                            call() throws IOException {
+                                return ParallelFileFinder.searchChunk(
+                                    channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart),
+                                    charset,
+                                    chunkSearcher,
+                                    maxHitsPerChunk
+                                );
+                            }
+                        }));
+                        nextChunkStart = chunkEnd;
+                    }
+
+                    Future<ChunkResult<H>> f = pending.poll();
+                    if (f == null) return matchCount;
+
+                    ChunkResult<H> cr = ParallelFileFinder.get(f);
+                    for (H hit : cr.hits) {
+                        hit.lineNumber = linesBefore + hit.lineIndex + 1;
+                        match.consume(hit);
+                        if (++matchCount >= maxMatches) return matchCount;
+                    }
+                    assert cr.lineBreaks != -1;
+                    linesBefore += cr.lineBreaks;
+                }
+            } finally {
+                for (Future<ChunkResult<H>> f : pending) f.cancel(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static <H extends LineHit> ChunkResult<H>
+    searchChunk(ByteBuffer chunk, Charset charset, ChunkSearcher<H> chunkSearcher, int maxHits) {
+
+        List<H> hits = new ArrayList<H>();
+        chunkSearcher.search(chunk, charset, hits, maxHits);
+
+        // An aborted chunk is the last chunk that is delivered, so its line count is not needed.
+        if (hits.size() >= maxHits) return new ChunkResult<H>(hits, -1);
+
+        return new ChunkResult<H>(hits, ByteUtil.countLineBreaks(chunk, 0, chunk.limit()));
+    }
+
+    private static CharBuffer
+    decode(ByteBuffer chunk, Charset charset) { return ParallelFileFinder.decode(chunk, 0, chunk.limit(), charset); }
+
+    /**
+     * Decodes the bytes between <var>from</var> and <var>to</var>; malformed input and unmappable characters are
+     * replaced.
+     */
+    private static CharBuffer
+    decode(ByteBuffer chunk, int from, int to, Charset charset) {
+
+        CharsetDecoder decoder = (
+            charset
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        );
+
+        ByteBuffer bb = chunk.duplicate();
+        bb.limit(to);
+        bb.position(from);
+        try {
+            return decoder.decode(bb);
+        } catch (CharacterCodingException cce) {
+            throw new AssertionError(cce); // Cannot happen with "CodingErrorAction.REPLACE".
+        }
+    }
+
+    /**
+     * @return The offset of the first line that starts at or after the given <var>offset</var>, or <var>size</var>
+     */
+    private static long
+    lineStartAtOrAfter(FileChannel channel, long offset, long size) throws IOException {
+
+        if (offset == 0 || offset >= size) return offset;
+
+        ByteBuffer bb = ByteBuffer.allocate(0x10000);
+        for (long o = offset - 1; o < size;) {
+            bb.clear();
+            int n = channel.read(bb, o);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (bb.get(i) == '\n') return o + i + 1;
+            }
+            o += n;
+        }
+
+        return size;
+    }
+
+    private static <T> T
+    get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException)     throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error)            throw (Error) cause;
+            throw new AssertionError(cause);
+        }
+    }
+
+    private static <T> T
+    notNull(@Nullable T subject) {
+        assert subject != null;
+        return subject;
+    }
+}
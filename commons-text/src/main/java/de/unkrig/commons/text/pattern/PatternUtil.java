@@ -573,4 +573,342 @@ class PatternUtil {
 
         return new String[] { result.toString(), regex.substring(offset) };
     }
+
+    /**
+     * Returns an upper bound for the number of chars that an attempt to match the <var>pattern</var> at some position
+     * examines at and after that position. The bound is conservative: Each literal, character class etc. counts as
+     * two chars (because it may match a supplementary code point), and boundary matchers like {@code "$"} may examine
+     * up to two chars after the match. Examples:
+     * <table border="1">
+     *   <tr><td>{@code "abc"}</td><td>8</td></tr>
+     *   <tr><td>{@code "\\d{2,4}"}</td><td>10</td></tr>
+     *   <tr><td>{@code "a+"}</td><td>-1</td></tr>
+     * </table>
+     *
+     * @return -1 iff there is no such bound, or it cannot be determined reliably (e.g. for patterns with lookaheads or
+     *         back references)
+     */
+    public static int
+    maxMatchLength(Pattern pattern) {
+
+        int flags = pattern.flags();
+        if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) return -1;
+
+        long result;
+        if ((flags & Pattern.LITERAL) != 0) {
+            result = 2L * pattern.pattern().length();
+        } else {
+            MaxLengthParser p = new MaxLengthParser(pattern.pattern());
+            result = p.alternatives();
+            if (p.gaveUp || p.offset != pattern.pattern().length()) return -1;
+        }
+
+        // Boundary matchers (e.g. "$") examine up to two chars after the match.
+        return result >= MaxLengthParser.UNBOUNDED ? -1 : (int) result + 2;
+    }
+
+    /**
+     * Computes the maximum length of the matches of a regex, or {@link #UNBOUNDED}. Each "atom" (e.g. {@code "a"},
+     * {@code "."} or {@code "[a-z]"}) counts as two chars, because it may match a supplementary code point.
+     */
+    private static final
+    class MaxLengthParser {
+
+        static final long UNBOUNDED = Integer.MAX_VALUE;
+
+        private final String regex;
+        int                  offset;
+        boolean              gaveUp;
+
+        MaxLengthParser(String regex) { this.regex = regex; }
+
+        /**
+         * Parses "X|Y|...", up to the end of the regex or up to the next unmatched ")".
+         */
+        long
+        alternatives() {
+
+            long result = this.sequence();
+            while (this.peek() == '|') {
+                this.offset++;
+                result = Math.max(result, this.sequence());
+            }
+            return result;
+        }
+
+        private long
+        sequence() {
+
+            long result = 0;
+            for (;;) {
+                int c = this.peek();
+                if (c == -1 || c == '|' || c == ')') return result;
+                result = Math.min(result + this.quantified(this.atom()), MaxLengthParser.UNBOUNDED);
+            }
+        }
+
+        private long
+        atom() {
+
+            char c = this.regex.charAt(this.offset++);
+            switch (c) {
+
+            case '(':
+                return this.group();
+
+            case '[':
+                this.skipCharacterClass();
+                return 2;
+
+            case '\\':
+                return this.escape();
+
+            case '^':
+            case '$':
+                return 0;
+
+            default:
+                return 2;
+            }
+        }
+
+        private long
+        quantified(long atom) {
+
+            long result;
+            switch (this.peek()) {
+
+            case '?':
+                this.offset++;
+                result = atom;
+                break;
+
+            case '*':
+            case '+':
+                this.offset++;
+                result = atom == 0 ? 0 : MaxLengthParser.UNBOUNDED;
+                break;
+
+            case '{':
+                int end = this.regex.indexOf('}', this.offset);
+                if (end == -1) return this.giveUp();
+
+                String bounds = this.regex.substring(this.offset + 1, end);
+                String max    = bounds.substring(bounds.indexOf(',') + 1);
+                this.offset = end + 1;
+
+                if (max.isEmpty()) {
+                    result = atom == 0 ? 0 : MaxLengthParser.UNBOUNDED;
+                } else {
+                    try {
+                        result = Math.min(atom * Integer.parseInt(max), MaxLengthParser.UNBOUNDED);
+                    } catch (NumberFormatException nfe) {
+                        return this.giveUp();
+                    }
+                }
+                break;
+
+            default:
+                return atom;
+            }
+
+            // Reluctant or possessive quantifier?
+            if (this.peek() == '?' || this.peek() == '+') this.offset++;
+
+            return result;
+        }
+
+        /**
+         * Parses the rest of a group, after the opening "(".
+         */
+        private long
+        group() {
+
+            // Capturing group "(X)"?
+            if (this.peek() != '?') return this.groupBody();
+            this.offset++;
+
+            int c = this.peek();
+            this.offset++;
+            switch (c) {
+
+            case ':': // Non-capturing group "(?:X)".
+            case '>': // Independent group "(?>X)".
+                return this.groupBody();
+
+            case '=': // Lookahead "(?=X)" or "(?!X)" examines chars after the match.
+            case '!':
+                return this.giveUp();
+
+            case '<':
+                if (this.peek() == '=' || this.peek() == '!') {
+
+                    // Lookbehind "(?<=X)" or "(?<!X)".
+                    this.offset++;
+                    this.groupBody();
+                    return 0;
+                }
+
+                // Named group "(?<name>X)".
+                int end = this.regex.indexOf('>', this.offset);
+                if (end == -1) return this.giveUp();
+                this.offset = end + 1;
+                return this.groupBody();
+
+            default:
+
+                // Flags "(?idmsux-idmsux)" or "(?idmsux-idmsux:X)". "COMMENTS" mode is not supported.
+                for (this.offset--; Character.isLetter(this.peek()) || this.peek() == '-'; this.offset++) {
+                    if (this.peek() == 'x') return this.giveUp();
+                }
+                c = this.peek();
+                this.offset++;
+                if (c == ')') return 0;
+                if (c == ':') return this.groupBody();
+                return this.giveUp();
+            }
+        }
+
+        private long
+        groupBody() {
+
+            long result = this.alternatives();
+            if (this.peek() != ')') return this.giveUp();
+            this.offset++;
+            return result;
+        }
+
+        /**
+         * Parses the rest of an escape sequence, after the backslash.
+         */
+        private long
+        escape() {
+
+            int c = this.peek();
+            this.offset++;
+            switch (c) {
+
+            case 'Q':
+                int end = this.regex.indexOf("\\E", this.offset);
+                if (end == -1) end = this.regex.length();
+                long result = 2L * (end - this.offset);
+                this.offset = Math.min(end + 2, this.regex.length());
+                return result;
+
+            case 'b':
+            case 'B':
+                if (this.peek() == '{') return this.giveUp(); // E.g. "\b{g}".
+                return 0;
+
+            case 'A':
+            case 'G':
+            case 'Z':
+            case 'z':
+                return 0;
+
+            case 'k': // Named back reference.
+            case 'X': // Grapheme cluster.
+            case -1:
+                return this.giveUp();
+
+            case 'x':
+                if (this.peek() == '{') return this.skipPast('}');
+                this.offset += 2;
+                return 2;
+
+            case 'u':
+                this.offset += 4;
+                return 2;
+
+            case '0':
+                for (int i = 0; i < 3 && this.peek() >= '0' && this.peek() <= '7'; i++) this.offset++;
+                return 2;
+
+            case 'c':
+                this.offset++;
+                return 2;
+
+            case 'p':
+            case 'P':
+            case 'N':
+                if (this.peek() == '{') return this.skipPast('}');
+                this.offset++;
+                return 2;
+
+            default:
+                if (c >= '1' && c <= '9') return this.giveUp(); // Back reference.
+
+                // E.g. "\d", "\t", "\." or "\R" (which also matches CR LF).
+                return 2;
+            }
+        }
+
+        /**
+         * Skips the rest of a character class, after the opening "[".
+         */
+        private void
+        skipCharacterClass() {
+
+            // A "]" right after the "[" or "[^" is a literal.
+            if (this.peek() == '^') this.offset++;
+            if (this.peek() == ']') this.offset++;
+
+            for (int depth = 1; depth > 0;) {
+
+                int c = this.peek();
+                this.offset++;
+                switch (c) {
+
+                case -1:
+                    this.giveUp();
+                    return;
+
+                case '\\':
+                    if (this.peek() == 'Q') {
+                        int end = this.regex.indexOf("\\E", this.offset);
+                        if (end == -1) {
+                            this.giveUp();
+                            return;
+                        }
+                        this.offset = end + 2;
+                    } else
+                    if (this.peek() == 'c') {
+                        this.offset += 2;
+                    } else
+                    {
+                        this.offset++;
+                    }
+                    break;
+
+                case '[':
+                    depth++;
+                    if (this.peek() == '^') this.offset++;
+                    if (this.peek() == ']') this.offset++;
+                    break;
+
+                case ']':
+                    depth--;
+                    break;
+                }
+            }
+        }
+
+        private long
+        skipPast(char c) {
+            int idx = this.regex.indexOf(c, this.offset);
+            if (idx == -1) return this.giveUp();
+            this.offset = idx + 1;
+            return 2;
+        }
+
+        private int
+        peek() { return this.offset < this.regex.length() ? this.regex.charAt(this.offset) : -1; }
+
+        private long
+        giveUp() {
+            this.gaveUp = true;
+            this.offset = this.regex.length();
+            return MaxLengthParser.UNBOUNDED;
+        }
+    }
 }
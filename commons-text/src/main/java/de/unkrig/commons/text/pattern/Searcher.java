@@ -30,6 +30,7 @@ import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.unkrig.commons.lang.CharRingBuffer;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.NoException;
 
@@ -72,14 +73,18 @@ class Searcher<EX extends Throwable> implements ConsumerWhichThrows<CharSequence
 
     // CONFIGURATION
 
-    private final Pattern                                                pattern;
     private final ConsumerWhichThrows<? super MatchResult, ? extends EX> matchHandler;
     private final int                                                    lookBehindLimit;
 
     /**
      * Contains a suffix of the input char sequence.
      */
-    StringBuilder buffer = new StringBuilder();
+    final CharRingBuffer buffer = new CharRingBuffer();
+
+    /**
+     * Operates on the {@link #buffer}; re-used across invocations of {@link #consume(CharSequence)}.
+     */
+    private final Matcher matcher;
 
     /**
      * Offset in {@link #buffer}
@@ -111,9 +116,10 @@ class Searcher<EX extends Throwable> implements ConsumerWhichThrows<CharSequence
         ConsumerWhichThrows<? super MatchResult, ? extends EX> matchHandler,
         int                                                    lookBehindLimit
     ) {
-        this.pattern         = pattern;
         this.matchHandler    = matchHandler;
         this.lookBehindLimit = lookBehindLimit;
+
+        this.matcher = pattern.matcher(this.buffer).useTransparentBounds(true).useAnchoringBounds(false);
     }
 
     /**
@@ -125,9 +131,8 @@ class Searcher<EX extends Throwable> implements ConsumerWhichThrows<CharSequence
 
         this.buffer.append(in);
 
-        Matcher m = this.pattern.matcher(this.buffer);
-        m.useTransparentBounds(true);
-        m.useAnchoringBounds(false);
+        // The buffer has changed since the preceding invocation.
+        final Matcher m = this.matcher.reset(this.buffer);
 
         for (;;) {
 
@@ -180,12 +185,10 @@ class Searcher<EX extends Throwable> implements ConsumerWhichThrows<CharSequence
 
             // Truncate the buffer to save memory.
             int delta = this.start - this.lookBehindLimit;
-            this.buffer.delete(0, delta);
+            this.buffer.discard(delta);
             this.offsetDelta += delta;
             this.start       =  this.lookBehindLimit;
         }
-
-        if (this.buffer.capacity() > 10 * this.buffer.length()) this.buffer.trimToSize();
     }
 
     /**
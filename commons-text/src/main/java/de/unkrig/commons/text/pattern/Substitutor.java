@@ -31,6 +31,7 @@ import java.util.regex.Pattern;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.FunctionWhichThrows;
 import de.unkrig.commons.lang.protocol.NoException;
+import de.unkrig.commons.lang.protocol.RunnableUtil;
 import de.unkrig.commons.lang.protocol.TransformerWhichThrows;
 import de.unkrig.commons.text.pattern.Finders.MatchResult2;
 
@@ -93,7 +94,7 @@ class Substitutor<EX extends Throwable> implements TransformerWhichThrows<CharSe
         final FunctionWhichThrows<? super MatchResult2, ? extends CharSequence, ? extends EX> matchReplacer,
         int                                                                                   lookBehindLimit
     ) {
-        this.finder = Finders.patternFinder(
+        this.finder = Finders.patternFinder2(
             patterns,                                     // patterns
             new ConsumerWhichThrows<MatchResult2, EX>() { // match
 
@@ -108,13 +109,14 @@ class Substitutor<EX extends Throwable> implements TransformerWhichThrows<CharSe
                     }
                 }
             },
-            new ConsumerWhichThrows<Character, EX>() {    // nonMatch
+            new ConsumerWhichThrows<CharSequence, EX>() { // nonMatches
 
                 @Override public void
-                consume(Character c) {
-                    Substitutor.this.buffer.append(c);
+                consume(CharSequence run) {
+                    Substitutor.this.buffer.append(run);
                 }
             },
+            RunnableUtil.asRunnableWhichThrows(RunnableUtil.NOP), // flush
             lookBehindLimit
         );
     }
@@ -27,12 +27,14 @@
 package de.unkrig.commons.text.scanner;
 
 import java.util.Collection;
+import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.protocol.Predicate;
 import de.unkrig.commons.lang.protocol.ProducerUtil;
 import de.unkrig.commons.lang.protocol.ProducerWhichThrows;
+import de.unkrig.commons.nullanalysis.Nullable;
 
 /**
  * A scanner that produces {@link Token}s.
@@ -85,9 +87,12 @@ class AbstractScanner<TT extends Enum<TT>> implements StringScanner<TT> {
             assert type != null;
             assert text != null;
 
-            this.type     = type;
-            this.text     = text;
-            this.captured = Token.DEFAULT_CAPTURED;
+            this.type         = type;
+            this.text         = text;
+            this.captured     = Token.DEFAULT_CAPTURED;
+            this.start        = -1;
+            this.end          = -1;
+            this.groupOffsets = null;
         }
 
         public
@@ -95,25 +100,120 @@ class AbstractScanner<TT extends Enum<TT>> implements StringScanner<TT> {
             assert type != null;
             assert text != null;
 
-            this.type     = type;
-            this.text     = text;
-            this.captured = captured;
+            this.type         = type;
+            this.text         = text;
+            this.captured     = captured;
+            this.start        = -1;
+            this.end          = -1;
+            this.groupOffsets = null;
+        }
+
+        /**
+         * Creates a token from a match within <var>cs</var>, which also knows the offsets of the match and of its
+         * capturing groups.
+         */
+        public
+        Token(TT type, CharSequence cs, MatchResult matchResult) {
+            this(type, cs, matchResult, 0, matchResult.groupCount());
+        }
+
+        /**
+         * Creates a token from the capturing group <var>groupBase</var> (and the <var>groupCount</var> groups that
+         * follow it) of a match within <var>cs</var>.
+         */
+        Token(TT type, CharSequence cs, MatchResult matchResult, int groupBase, int groupCount) {
+            assert type != null;
+
+            this.type  = type;
+            this.start = matchResult.start(groupBase);
+            this.end   = matchResult.end(groupBase);
+            this.text  = cs.subSequence(this.start, this.end).toString();
+
+            // Most tokens have no capturing groups; allocate no arrays for these.
+            if (groupCount == 0) {
+                this.captured     = Token.DEFAULT_CAPTURED;
+                this.groupOffsets = null;
+                return;
+            }
+
+            String[] captured     = new String[groupCount];
+            int[]    groupOffsets = new int[2 * groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                int start = matchResult.start(groupBase + 1 + g), end = matchResult.end(groupBase + 1 + g);
+                if (start != -1) captured[g] = cs.subSequence(start, end).toString();
+                groupOffsets[2 * g]     = start;
+                groupOffsets[2 * g + 1] = end;
+            }
+            this.captured     = captured;
+            this.groupOffsets = groupOffsets;
+        }
+
+        /**
+         * @return The offset of the first character of this token within the scanned char sequence, or -1 iff
+         *         unknown
+         */
+        public int
+        start() { return this.start(0); }
+
+        /**
+         * @return The offset after the last character of this token within the scanned char sequence, or -1 iff
+         *         unknown
+         */
+        public int
+        end() { return this.end(0); }
+
+        /**
+         * @return The offset of the subsequence captured by the given <var>group</var> (zero designates the entire
+         *         token), or -1 iff the group did not participate in the match, or iff unknown
+         */
+        public int
+        start(int group) {
+            if (group == 0) return this.start;
+            int[] o = this.groupOffsets;
+            return o == null ? -1 : o[2 * group - 2];
+        }
+
+        /**
+         * @return The offset after the subsequence captured by the given <var>group</var> (zero designates the entire
+         *         token), or -1 iff the group did not participate in the match, or iff unknown
+         */
+        public int
+        end(int group) {
+            if (group == 0) return this.end;
+            int[] o = this.groupOffsets;
+            return o == null ? -1 : o[2 * group - 1];
         }
 
         @Override public String
         toString() {
             return this.text;
         }
+
+        /**
+         * The offsets of the token within the scanned char sequence, or -1 iff unknown.
+         */
+        private final int start, end;
+
+        /**
+         * The start and end offsets of the capturing groups: <code>{ start1, end1, start2, end2, ... }</code>, where
+         * -1 indicates that a group did not participate in the match; {@code null} iff the token has no capturing
+         * groups, or iff the offsets are unknown.
+         */
+        @Nullable private final int[] groupOffsets;
     }
 
     @Override public AbstractScanner<TT>
     setInput(CharSequence cs) { return this.setInput(cs, 0, cs.length()); }
 
     @Override public AbstractScanner<TT>
-    setInput(CharSequence cs, int start, int end) {
+    setInput(CharSequence cs, int start, int end) { return this.setInput(cs, start, end, true); }
+
+    @Override public AbstractScanner<TT>
+    setInput(CharSequence cs, int start, int end, boolean endOfInput) {
         this.cs                  = cs;
         this.offset              = start;
         this.end                 = end;
+        this.endOfInput          = endOfInput;
         this.previousTokenOffset = -1;
         return this;
     }
@@ -170,6 +270,13 @@ class AbstractScanner<TT extends Enum<TT>> implements StringScanner<TT> {
      */
     protected int end;
 
+    /**
+     * Whether {@link #end} is the end of the input, or more characters may follow.
+     *
+     * @see StringScanner#setInput(CharSequence, int, int, boolean)
+     */
+    protected boolean endOfInput = true;
+
     /**
      * The position within {@link #cs} of the previously scanned token.
      */
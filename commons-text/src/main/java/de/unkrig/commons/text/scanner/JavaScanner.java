@@ -196,9 +196,26 @@ class JavaScanner {
      *   TokenType#MULTI_LINE_C_COMMENT_MIDDLE MULTI_LINE_C_COMMENT_MIDDLE} } {@link TokenType#MULTI_LINE_C_COMMENT_END
      *   MULTI_LINE_C_COMMENT_END}
      * </pre>
+     * <p>
+     *   This scanner is designed for line-by-line scanning, e.g. through {@link
+     *   ScannerUtil#toDocumentScanner(StringScanner, Reader)}; to scan an entire document as one string, or through
+     *   {@link ScannerUtil#toStreamingDocumentScanner(StringScanner, Reader)}, use {@link
+     *   #rawStreamingStringScanner()}.
+     * </p>
      */
     public static StringScanner<TokenType>
-    rawStringScanner() {
+    rawStringScanner() { return JavaScanner.rawStringScanner(false); }
+
+    /**
+     * Returns a Java scanner that also produces SPACE and COMMENT tokens, and that is designed for scanning entire
+     * documents, e.g. through {@link ScannerUtil#toStreamingDocumentScanner(StringScanner, Reader)}. Each C-style
+     * comment, also when it spans multiple lines, is returned as <em>one</em> {@link TokenType#C_COMMENT} token.
+     */
+    public static StringScanner<TokenType>
+    rawStreamingStringScanner() { return JavaScanner.rawStringScanner(true); }
+
+    private static StringScanner<TokenType>
+    rawStringScanner(boolean streaming) {
         StatefulScanner<TokenType, State> scanner = new StatefulScanner<TokenType, State>(State.class);
 
         // Recognize whitespace.
@@ -210,24 +227,32 @@ class JavaScanner {
             TokenType.CXX_COMMENT
         );
 
-        // Recognize single-line C-style comments.
-        scanner.addRule("/\\*.*?\\*/", TokenType.C_COMMENT);
-
-        // Recognize multi-line C-style comments.
-        scanner.addRule(
-            "(?s)/\\*.*",                            // regex
-            TokenType.MULTI_LINE_C_COMMENT_BEGINNING // tokenType
-        ).goTo(State.IN_MULTI_LINE_C_COMMENT);
-        scanner.addRule(
-            State.IN_MULTI_LINE_C_COMMENT,     // state
-            ".*?\\*/",                         // regex
-            TokenType.MULTI_LINE_C_COMMENT_END // tokenType
-        );
-        scanner.addRule(
-            State.IN_MULTI_LINE_C_COMMENT,        // state
-            "(?s).+",                             // regex
-            TokenType.MULTI_LINE_C_COMMENT_MIDDLE // tokenType
-        ).goTo(State.IN_MULTI_LINE_C_COMMENT);
+        if (streaming) {
+
+            // Recognize C-style comments. (A rule that matches up to the end of the input, like the one for the
+            // beginning of a multi-line C comment below, would consume the entire rest of the document.)
+            scanner.addRule("(?s)/\\*.*?\\*/", TokenType.C_COMMENT);
+        } else {
+
+            // Recognize single-line C-style comments.
+            scanner.addRule("/\\*.*?\\*/", TokenType.C_COMMENT);
+
+            // Recognize multi-line C-style comments.
+            scanner.addRule(
+                "(?s)/\\*.*",                            // regex
+                TokenType.MULTI_LINE_C_COMMENT_BEGINNING // tokenType
+            ).goTo(State.IN_MULTI_LINE_C_COMMENT);
+            scanner.addRule(
+                State.IN_MULTI_LINE_C_COMMENT,     // state
+                ".*?\\*/",                         // regex
+                TokenType.MULTI_LINE_C_COMMENT_END // tokenType
+            );
+            scanner.addRule(
+                State.IN_MULTI_LINE_C_COMMENT,        // state
+                "(?s).+",                             // regex
+                TokenType.MULTI_LINE_C_COMMENT_MIDDLE // tokenType
+            ).goTo(State.IN_MULTI_LINE_C_COMMENT);
+        }
 
         // Recognize Java keywords.
         scanner.addRule((
@@ -285,16 +310,27 @@ class JavaScanner {
             + "|@"                                     // @
         ), TokenType.OPERATOR);
 
-        return scanner;
+        return scanner.compile(true);
     }
 
     /**
      * @return A {@link StringScanner} that swallows SPACE and COMMENT tokens
+     * @see    #rawStringScanner()
+     */
+    public static StringScanner<TokenType>
+    stringScanner() { return JavaScanner.swallowIgnorables(JavaScanner.rawStringScanner()); }
+
+    /**
+     * @return A {@link StringScanner} that swallows SPACE and COMMENT tokens
+     * @see    #rawStreamingStringScanner()
      */
     public static StringScanner<TokenType>
-    stringScanner() {
+    streamingStringScanner() { return JavaScanner.swallowIgnorables(JavaScanner.rawStreamingStringScanner()); }
+
+    private static StringScanner<TokenType>
+    swallowIgnorables(StringScanner<TokenType> delegate) {
 
-        return ScannerUtil.filter(JavaScanner.rawStringScanner(), new Predicate<Token<TokenType>>() {
+        return ScannerUtil.filter(delegate, new Predicate<Token<TokenType>>() {
 
             @Override public boolean
             evaluate(@Nullable Token<TokenType> token) {
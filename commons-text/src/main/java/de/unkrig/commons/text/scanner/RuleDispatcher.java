@@ -0,0 +1,321 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.commons.text.scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.scanner.AbstractScanner.Token;
+
+/**
+ * Finds the first of a list of regexes that matches at a given position of the input (in the sense of {@link
+ * Matcher#lookingAt()}), which is the core operation of the "compiled mode" of {@link StatelessScanner} and {@link
+ * StatefulScanner}.
+ * <p>
+ *   Instead of trying each and every regex, it
+ * </p>
+ * <ul>
+ *   <li>
+ *     dispatches on the first character (through a precomputed table for the ASCII characters) to the regexes
+ *     that can possibly match at that position,
+ *   </li>
+ *   <li>reuses one {@link Matcher} per regex (as long as the input does not change), and</li>
+ *   <li>
+ *     optionally merges the candidate regexes into one regex {@code "(re1)|(re2)|..."}, so that only <em>one</em>
+ *     match attempt is necessary. (Because Java regex alternatives are tried left-to-right, the first participating
+ *     group identifies the first matching regex.)
+ *   </li>
+ * </ul>
+ * <p>
+ *   Instances are stateful and not thread-safe.
+ * </p>
+ */
+final
+class RuleDispatcher {
+
+    private static final int TABLE_SIZE = 128;
+
+    private final Pattern[] regexes;
+    private final int[]     groupCounts;
+
+    /**
+     * For the ASCII characters, and at index {@link #TABLE_SIZE} for all other characters: The index into the
+     * "slot arrays".
+     */
+    private final int[] slotOfChar = new int[RuleDispatcher.TABLE_SIZE + 1];
+
+    /**
+     * For each slot: The indexes of the regexes that can possibly match, in ascending order.
+     */
+    private final int[][] slotCandidates;
+
+    /**
+     * For each slot: The merged regex, or {@code null}.
+     */
+    private final Pattern[] slotMergedRegexes;
+
+    /**
+     * For each slot: For each candidate: The number of the capturing group that wraps the candidate within the
+     * merged regex.
+     */
+    private final int[][] slotGroupBases;
+
+    // STATE
+
+    private CharSequence    cs = "";
+    private final Matcher[] matchers, slotMatchers;
+
+    @Nullable private Matcher lastMatcher;
+    private int               lastGroupBase;
+    private boolean           lastHitEnd;
+
+    /**
+     * @param merge Whether to merge the candidate regexes of each first character into one regex (where possible)
+     */
+    RuleDispatcher(List<Pattern> regexes, boolean merge) {
+
+        int n = regexes.size();
+        this.regexes     = regexes.toArray(new Pattern[n]);
+        this.groupCounts = new int[n];
+        this.matchers    = new Matcher[n];
+        for (int i = 0; i < n; i++) this.groupCounts[i] = this.regexes[i].matcher("").groupCount();
+
+        // Determine the candidates for each ASCII character.
+        boolean[][] canStartWith = new boolean[n][];
+        for (int i = 0; i < n; i++) canStartWith[i] = RuleDispatcher.canStartWith(this.regexes[i]);
+
+        Map<String, Integer> slotByKey  = new HashMap<String, Integer>();
+        List<int[]>          candidates = new ArrayList<int[]>();
+        for (int c = 0; c <= RuleDispatcher.TABLE_SIZE; c++) {
+
+            int[] tmp = new int[n];
+            int   k   = 0;
+            for (int i = 0; i < n; i++) {
+                if (c == RuleDispatcher.TABLE_SIZE || canStartWith[i][c]) tmp[k++] = i;
+            }
+            tmp = Arrays.copyOf(tmp, k);
+
+            String  key  = Arrays.toString(tmp);
+            Integer slot = slotByKey.get(key);
+            if (slot == null) {
+                slotByKey.put(key, (slot = candidates.size()));
+                candidates.add(tmp);
+            }
+            this.slotOfChar[c] = slot;
+        }
+
+        int slotCount = candidates.size();
+        this.slotCandidates    = candidates.toArray(new int[slotCount][]);
+        this.slotMergedRegexes = new Pattern[slotCount];
+        this.slotGroupBases    = new int[slotCount][];
+        this.slotMatchers      = new Matcher[slotCount];
+
+        if (merge) {
+            for (int slot = 0; slot < slotCount; slot++) {
+
+                int[] cands = this.slotCandidates[slot];
+                if (cands.length < 2) continue;
+
+                boolean mergeable = true;
+                for (int i : cands) mergeable &= RuleDispatcher.isMergeable(this.regexes[i]);
+                if (!mergeable) continue;
+
+                StringBuilder sb         = new StringBuilder();
+                int[]         groupBases = new int[cands.length];
+                for (int k = 0, group = 1; k < cands.length; k++) {
+                    if (k > 0) sb.append('|');
+                    sb.append('(').append(this.regexes[cands[k]].pattern()).append(')');
+                    groupBases[k] = group;
+                    group += 1 + this.groupCounts[cands[k]];
+                }
+
+                this.slotMergedRegexes[slot] = Pattern.compile(sb.toString());
+                this.slotGroupBases[slot]    = groupBases;
+            }
+        }
+    }
+
+    /**
+     * @return The number of regexes that this dispatcher was created with
+     */
+    int
+    regexCount() { return this.regexes.length; }
+
+    /**
+     * Must be called before {@link #lookingAt(int, int)} whenever the input changes.
+     */
+    void
+    setInput(CharSequence cs) {
+        if (cs == this.cs) return;
+        this.cs = cs;
+        Arrays.fill(this.matchers, null);
+        Arrays.fill(this.slotMatchers, null);
+    }
+
+    /**
+     * @return The index of the first regex that matches at <var>offset</var>, or -1
+     */
+    int
+    lookingAt(int offset, int end) {
+
+        char c    = this.cs.charAt(offset);
+        int  slot = this.slotOfChar[c < RuleDispatcher.TABLE_SIZE ? c : RuleDispatcher.TABLE_SIZE];
+
+        int[] cands = this.slotCandidates[slot];
+
+        Pattern merged = this.slotMergedRegexes[slot];
+        if (merged != null) {
+
+            Matcher m = this.slotMatchers[slot];
+            if (m == null) m = (this.slotMatchers[slot] = RuleDispatcher.matcher(merged, this.cs));
+
+            m.region(offset, end);
+            boolean found = m.lookingAt();
+            this.lastHitEnd = m.hitEnd();
+            if (!found) return -1;
+
+            int[] groupBases = this.slotGroupBases[slot];
+            for (int k = 0;; k++) {
+                if (m.start(groupBases[k]) != -1) {
+                    this.lastMatcher   = m;
+                    this.lastGroupBase = groupBases[k];
+                    return cands[k];
+                }
+            }
+        }
+
+        this.lastHitEnd = false;
+        for (int i : cands) {
+
+            Matcher m = this.matchers[i];
+            if (m == null) m = (this.matchers[i] = RuleDispatcher.matcher(this.regexes[i], this.cs));
+
+            m.region(offset, end);
+            boolean found = m.lookingAt();
+            this.lastHitEnd |= m.hitEnd();
+            if (found) {
+                this.lastMatcher   = m;
+                this.lastGroupBase = 0;
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return Whether the most recent {@link #lookingAt(int, int)} "hit the end" of the region, i.e. whether its
+     *         result could have been different if the region were longer
+     * @see    Matcher#hitEnd()
+     */
+    boolean
+    hitEnd() { return this.lastHitEnd; }
+
+    /**
+     * @return A token for the match of the regex that {@link #lookingAt(int, int)} found most recently
+     */
+    <TT extends Enum<TT>> Token<TT>
+    token(TT tokenType, int regexIndex) {
+
+        Matcher m = this.lastMatcher;
+        assert m != null;
+
+        return new Token<TT>(tokenType, this.cs, m, this.lastGroupBase, this.groupCounts[regexIndex]);
+    }
+
+    private static Matcher
+    matcher(Pattern regex, CharSequence cs) {
+        return regex.matcher(cs).useTransparentBounds(true); // Allow lookaheads and lookbehinds in the patterns.
+    }
+
+    /**
+     * @return For each ASCII character: Whether a match of the <var>regex</var> can possibly start with that
+     *         character
+     */
+    private static boolean[]
+    canStartWith(Pattern regex) {
+
+        boolean[] result = new boolean[RuleDispatcher.TABLE_SIZE];
+
+        // Lookbehinds and word boundaries depend on the character *before* the match, which the probing below
+        // cannot take into account.
+        String s = regex.pattern();
+        if (s.contains("(?<=") || s.contains("(?<!") || s.contains("\\b") || s.contains("\\B")) {
+            Arrays.fill(result, true);
+            return result;
+        }
+
+        // Probe the regex with each character: Iff it cannot match, and does not "hit the end", then no match can
+        // start with that character.
+        Matcher m = regex.matcher("").useTransparentBounds(true);
+        for (int c = 0; c < RuleDispatcher.TABLE_SIZE; c++) {
+            m.reset(String.valueOf((char) c));
+            result[c] = m.lookingAt() || m.hitEnd();
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Whether the <var>regex</var> can be embedded in a merged regex; back references and named groups would
+     *         break, a "\Q" without an "\E" would quote the rest of the merged regex, and embedded flags (like
+     *         "(?s)" or "(?x)") could affect the following alternatives
+     */
+    private static boolean
+    isMergeable(Pattern regex) {
+
+        if (regex.flags() != 0) return false;
+
+        String s = regex.pattern();
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < n) {
+                char c2 = s.charAt(++i);
+                if (Character.isDigit(c2) || c2 == 'k') return false;
+                if (c2 == 'Q') {
+                    i = s.indexOf("\\E", i);
+                    if (i == -1) return false;
+                    i++;
+                }
+            } else
+            if (c == '(' && s.startsWith("?<", i + 1) && i + 3 < n && Character.isLetter(s.charAt(i + 3))) {
+                return false;
+            } else
+            if (c == '(' && i + 2 < n && s.charAt(i + 1) == '?' && "idmsuxU-".indexOf(s.charAt(i + 2)) != -1) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
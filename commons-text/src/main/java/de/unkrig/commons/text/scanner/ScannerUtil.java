@@ -33,7 +33,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import de.unkrig.commons.io.LineUtil;
 import de.unkrig.commons.lang.protocol.Predicate;
@@ -100,6 +102,159 @@ class ScannerUtil {
         };
     }
 
+    /**
+     * Like {@link #toDocumentScanner(StringScanner, Reader)}, but feeds the <var>stringScanner</var> from a refillable
+     * character buffer instead of line by line. Thus the tokens can span multiple lines, and no string is allocated
+     * per line. The line and column numbers are tracked incrementally, where CR, LF and CR-LF count as line
+     * separators.
+     * <p>
+     *   Whenever the <var>stringScanner</var> indicates that it needs more input (see {@link
+     *   StringScanner#setInput(CharSequence, int, int, boolean)}), more characters are read from the
+     *   <var>reader</var>; the buffer grows as necessary to hold the longest token.
+     * </p>
+     * <p>
+     *   Notice that the tokens are generally <em>not</em> the same as those produced by {@link
+     *   #toDocumentScanner(StringScanner, Reader)}, but the same as if the entire document were scanned as <em>one</em>
+     *   string; e.g. a rule {@code "\\s+"} matches a line separator <em>plus</em> the following whitespace. Lookbehinds
+     *   in the rules' patterns see only a limited number of characters before the current position.
+     * </p>
+     * <p>
+     *   Rules that match up to the end of the input, like those that line-oriented scanners typically use for the
+     *   beginning of a multi-line comment (e.g. {@code "(?s)/\\*.*"}), are not suitable for streaming: Such a rule
+     *   "hits the end" after each refill, so the buffer would grow until end-of-input, and the entire rest of the
+     *   document would become one token. Use scanners with rules that match entire tokens instead, e.g. {@link
+     *   JavaScanner#rawStreamingStringScanner()} and {@link
+     *   de.unkrig.commons.text.json.JsonScanner#rawStreamingStringScanner()}.
+     * </p>
+     * <p>
+     *   {@link IOException}s thrown by the {@link Reader} are wrapped in {@link ScanException}s.
+     * </p>
+     */
+    public static <TT extends Enum<TT>> DocumentScanner<TT>
+    toStreamingDocumentScanner(final StringScanner<TT> stringScanner, final Reader reader) {
+
+        return new DocumentScanner<TT>() {
+
+            private char[]  buffer = new char[ScannerUtil.STREAMING_BUFFER_SIZE];
+            private int     limit; // The number of valid characters in the buffer.
+            private boolean started, endOfInput;
+
+            // The line number and the buffer index of the start of the line where "trackedTo" is; notice that the
+            // "lineStart" is negative iff the start of the line was discarded from the buffer.
+            private int     lineNumber = 1, lineStart, trackedTo;
+            private boolean afterCr;
+
+            private int previousTokenLineNumber, previousTokenColumnNumber;
+
+            @Override @Nullable public Token<TT>
+            produce() throws ScanException {
+
+                if (!this.started) {
+                    this.started = true;
+                    this.fill(0);
+                }
+
+                for (;;) {
+                    Token<TT> token = stringScanner.produce();
+                    if (token != null) {
+                        int offset = stringScanner.getPreviousTokenOffset();
+                        this.trackTo(offset);
+                        this.previousTokenLineNumber   = this.lineNumber;
+                        this.previousTokenColumnNumber = offset - this.lineStart + 1;
+                        return token;
+                    }
+                    if (this.endOfInput) return null;
+                    this.fill(stringScanner.getOffset());
+                }
+            }
+
+            /**
+             * Discards the characters before the <var>offset</var> (except for some history for lookbehinds), reads
+             * more characters and re-configures the <var>stringScanner</var>.
+             */
+            private void
+            fill(int offset) throws ScanException {
+
+                this.trackTo(offset);
+
+                int discard = offset - ScannerUtil.STREAMING_LOOKBEHIND;
+                if (discard > 0) {
+                    System.arraycopy(this.buffer, discard, this.buffer, 0, this.limit - discard);
+                    this.limit     -= discard;
+                    this.lineStart -= discard;
+                    this.trackedTo -= discard;
+                    offset         -= discard;
+                }
+
+                if (this.limit == this.buffer.length) this.buffer = Arrays.copyOf(this.buffer, 2 * this.limit);
+
+                try {
+                    int n = reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+                    if (n == -1) {
+                        this.endOfInput = true;
+                    } else {
+                        this.limit += n;
+                    }
+                } catch (IOException ioe) {
+                    throw new ScanException(ioe);
+                }
+
+                stringScanner.setInput(
+                    CharBuffer.wrap(this.buffer, 0, this.limit),
+                    offset,
+                    this.limit,
+                    this.endOfInput
+                );
+            }
+
+            /**
+             * Counts the line separators between {@link #trackedTo} and <var>offset</var>.
+             */
+            private void
+            trackTo(int offset) {
+
+                char[] b = this.buffer;
+                for (int i = this.trackedTo; i < offset; i++) {
+                    char c = b[i];
+                    if (c == '\r') {
+                        if (i + 1 < this.limit && b[i + 1] == '\n') {
+                            this.afterCr = false; // The LF will end the line.
+                            continue;
+                        }
+                        this.lineNumber++;
+                        this.lineStart = i + 1;
+                        this.afterCr   = true;
+                        continue;
+                    }
+                    if (c == '\n') {
+                        if (!this.afterCr) this.lineNumber++;
+                        this.lineStart = i + 1;
+                    }
+                    this.afterCr = false;
+                }
+                this.trackedTo = offset;
+            }
+
+            @Override public int
+            getPreviousTokenLineNumber() {
+                return this.previousTokenLineNumber;
+            }
+
+            @Override public int
+            getPreviousTokenColumnNumber() {
+                return this.previousTokenColumnNumber;
+            }
+
+            @Override public String
+            toString() {
+                return "Line " + this.getPreviousTokenLineNumber() + ", column " + this.getPreviousTokenColumnNumber();
+            }
+        };
+    }
+
+    private static final int STREAMING_BUFFER_SIZE = 8192;
+    private static final int STREAMING_LOOKBEHIND  = 64;
+
     /**
      * Uses a given {@link StringScanner} to scan the contents of a given file.
      *
@@ -167,6 +322,12 @@ class ScannerUtil {
                 return this;
             }
 
+            @Override public StringScanner<TT>
+            setInput(CharSequence cs, int start, int end, boolean endOfInput) {
+                delegate.setInput(cs, start, end, endOfInput);
+                return this;
+            }
+
             @Override public int
             getOffset() {
                 return delegate.getOffset();
@@ -29,6 +29,7 @@ package de.unkrig.commons.text.scanner;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -92,10 +93,35 @@ class StatefulScanner<TT extends Enum<TT>, S extends Enum<S>> extends AbstractSc
         this.defaultStateRules    = that.defaultStateRules;
         this.nonDefaultStateRules = that.nonDefaultStateRules;
 
+        this.compiled             = that.compiled;
+        this.mergeRules           = that.mergeRules;
+
         // We start in the default state.
         this.currentStateRules = this.defaultStateRules;
     }
 
+    /**
+     * Switches this scanner to the "compiled mode", where {@link #produce()} no longer tries each and every rule of
+     * the current state, but dispatches on the next character to the rules that can possibly match, and reuses one
+     * {@link Matcher} per rule. The tokens produced and the state transitions are exactly the same as in the default
+     * mode.
+     * <p>
+     *   Rules may be added before and after this method is called. Scanners created through {@link
+     *   #StatefulScanner(StatefulScanner)} inherit the mode.
+     * </p>
+     *
+     * @param mergeRules Whether to merge the candidate rules into one regex, so that only one match attempt is made
+     *                   per token (rules with flags, back references or named groups are never merged)
+     * @return           This scanner
+     */
+    public StatefulScanner<TT, S>
+    compile(boolean mergeRules) {
+        this.compiled   = true;
+        this.mergeRules = mergeRules;
+        this.dispatchers.clear();
+        return this;
+    }
+
     /**
      * Adds a rule that applies iff the scanner is in the "default state". After the rule has matched, the scanner
      * remains in the default state.
@@ -172,36 +198,54 @@ class StatefulScanner<TT extends Enum<TT>, S extends Enum<S>> extends AbstractSc
     }
 
     /**
-     * @return {@code null} iff the input string is exhausted
+     * @return {@code null} iff the input string is exhausted, or iff more input is needed (see {@link
+     *         #setInput(CharSequence, int, int, boolean)})
      */
     @Override @Nullable public Token<TT>
     produce() throws ScanException {
 
         if (this.offset == this.end) return null;
 
-        for (Rule rule : this.currentStateRules) {
-            Matcher matcher = rule.regex.matcher(this.cs);
-            matcher.useTransparentBounds(true); // Allow lookaheads and lookbehinds in the patterns.
-            matcher.region(this.offset, this.end);
-            if (matcher.lookingAt()) {
-                if (rule.popState) {
-                    this.currentStateRules = this.stateStack.remove(this.stateStack.size() - 1);
-                } else {
-                    if (rule.pushState) this.stateStack.add(this.currentStateRules);
-                    if (rule.nextStateRules != null/*this.REMAIN*/) this.currentStateRules = rule.nextStateRules;
-                }
+        boolean hitEnd;
 
-                this.previousTokenOffset = this.offset;
-                this.offset              = matcher.end();
+        if (this.compiled) {
 
-                int      gc       = matcher.groupCount();
-                String[] captured = new String[gc];
-                for (int i = 0; i < gc; i++) captured[i] = matcher.group(i + 1);
+            List<Rule>     rules = this.currentStateRules;
+            RuleDispatcher rd    = this.dispatchers.get(rules);
 
-                return new Token<TT>(rule.tokenType, matcher.group(), captured);
+            // Notice: Rule lists only grow, but are possibly shared with other scanners (see the copy constructor).
+            if (rd == null || rd.regexCount() != rules.size()) {
+                List<Pattern> regexes = new ArrayList<Pattern>(rules.size());
+                for (Rule rule : rules) regexes.add(rule.regex);
+                this.dispatchers.put(rules, (rd = new RuleDispatcher(regexes, this.mergeRules)));
+            }
+            rd.setInput(this.cs);
+
+            int ruleIndex = rd.lookingAt(this.offset, this.end);
+            hitEnd = rd.hitEnd();
+            if (ruleIndex != -1) {
+                if (hitEnd && !this.endOfInput) return null;
+                Rule rule = rules.get(ruleIndex);
+                return this.apply(rule, rd.token(rule.tokenType, ruleIndex));
+            }
+        } else {
+
+            hitEnd = false;
+            for (Rule rule : this.currentStateRules) {
+                Matcher matcher = rule.regex.matcher(this.cs);
+                matcher.useTransparentBounds(true); // Allow lookaheads and lookbehinds in the patterns.
+                matcher.region(this.offset, this.end);
+                boolean found = matcher.lookingAt();
+                hitEnd |= matcher.hitEnd();
+                if (found) {
+                    if (hitEnd && !this.endOfInput) return null;
+                    return this.apply(rule, new Token<TT>(rule.tokenType, this.cs, matcher));
+                }
             }
         }
 
+        if (hitEnd && !this.endOfInput) return null;
+
         String message = (
             "Unexpected character \""
             + this.cs.charAt(this.offset)
@@ -241,6 +285,25 @@ class StatefulScanner<TT extends Enum<TT>, S extends Enum<S>> extends AbstractSc
         throw new ScanException(message);
     }
 
+    /**
+     * Executes the state transition of the <var>rule</var> that matched, and returns the <var>token</var>.
+     */
+    private Token<TT>
+    apply(Rule rule, Token<TT> token) {
+
+        if (rule.popState) {
+            this.currentStateRules = this.stateStack.remove(this.stateStack.size() - 1);
+        } else {
+            if (rule.pushState) this.stateStack.add(this.currentStateRules);
+            if (rule.nextStateRules != null/*this.REMAIN*/) this.currentStateRules = rule.nextStateRules;
+        }
+
+        this.previousTokenOffset = this.offset;
+        this.offset              = token.end();
+
+        return token;
+    }
+
     /**
      * @deprecated Use {@code ss.addRule(regex, tokenType).goTo(nextState)} instead.
      */
@@ -326,8 +389,14 @@ class StatefulScanner<TT extends Enum<TT>, S extends Enum<S>> extends AbstractSc
 
     private final List<Rule>         defaultStateRules;
     private final Map<S, List<Rule>> nonDefaultStateRules;
+    private boolean                  compiled, mergeRules;
 
     // STATE
 
     private List<Rule> currentStateRules;
+
+    /**
+     * Implements the compiled mode: One dispatcher per rule list (i.e. per state), created lazily.
+     */
+    private final Map<List<Rule>, RuleDispatcher> dispatchers = new IdentityHashMap<List<Rule>, RuleDispatcher>();
 }
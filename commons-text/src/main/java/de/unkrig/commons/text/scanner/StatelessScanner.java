@@ -52,32 +52,91 @@ class StatelessScanner<TT extends Enum<TT>> extends AbstractScanner<TT> {
     public void
     addRule(String regex, TT tokenType) {
         this.rules.add(new Rule<TT>(regex, tokenType));
+        this.dispatcher = null;
     }
 
     /**
-     * @return {@code null} iff the input string is exhausted
+     * Switches this scanner to the "compiled mode", where {@link #produce()} no longer tries each and every rule,
+     * but dispatches on the next character to the rules that can possibly match, and reuses one {@link Matcher} per
+     * rule. The tokens produced are exactly the same as in the default mode.
+     * <p>
+     *   Rules may be added before and after this method is called.
+     * </p>
+     *
+     * @param mergeRules Whether to merge the candidate rules into one regex, so that only one match attempt is made
+     *                   per token (rules with flags, back references or named groups are never merged)
+     * @return           This scanner
+     */
+    public StatelessScanner<TT>
+    compile(boolean mergeRules) {
+        this.compiled   = true;
+        this.mergeRules = mergeRules;
+        this.dispatcher = null;
+        return this;
+    }
+
+    @Override public StatelessScanner<TT>
+    setInput(CharSequence cs, int start, int end, boolean endOfInput) {
+        super.setInput(cs, start, end, endOfInput);
+        if (this.dispatcher != null) this.dispatcher.setInput(cs);
+        return this;
+    }
+
+    /**
+     * @return {@code null} iff the input string is exhausted, or iff more input is needed (see {@link
+     *         #setInput(CharSequence, int, int, boolean)})
      */
     @Override @Nullable public Token<TT>
     produce() throws ScanException {
 
         if (this.offset == this.end) return null;
 
-        for (Rule<TT> rule : this.rules) {
-            Matcher matcher = rule.regex.matcher(this.cs);
-            matcher.useTransparentBounds(true); // Allow lookaheads and lookbehinds in the patterns.
-            matcher.region(this.offset, this.end);
-            if (matcher.lookingAt()) {
-                this.previousTokenOffset = this.offset;
-                this.offset              = matcher.end();
+        boolean hitEnd;
 
-                int      gc       = matcher.groupCount();
-                String[] captured = new String[gc];
-                for (int i = 0; i < gc; i++) captured[i] = matcher.group(i + 1);
+        if (this.compiled) {
 
-                return new Token<TT>(rule.tokenType, matcher.group(), captured);
+            RuleDispatcher rd = this.dispatcher;
+            if (rd == null) {
+                List<Pattern> regexes = new ArrayList<Pattern>(this.rules.size());
+                for (Rule<TT> rule : this.rules) regexes.add(rule.regex);
+                this.dispatcher = (rd = new RuleDispatcher(regexes, this.mergeRules));
+                rd.setInput(this.cs);
+            }
+
+            int ruleIndex = rd.lookingAt(this.offset, this.end);
+            hitEnd = rd.hitEnd();
+            if (ruleIndex != -1) {
+                if (hitEnd && !this.endOfInput) return null;
+
+                Token<TT> token = rd.token(this.rules.get(ruleIndex).tokenType, ruleIndex);
+
+                this.previousTokenOffset = this.offset;
+                this.offset              = token.end();
+
+                return token;
+            }
+        } else {
+
+            hitEnd = false;
+            for (Rule<TT> rule : this.rules) {
+                Matcher matcher = rule.regex.matcher(this.cs);
+                matcher.useTransparentBounds(true); // Allow lookaheads and lookbehinds in the patterns.
+                matcher.region(this.offset, this.end);
+                boolean found = matcher.lookingAt();
+                hitEnd |= matcher.hitEnd();
+                if (found) {
+                    if (hitEnd && !this.endOfInput) return null;
+
+                    this.previousTokenOffset = this.offset;
+                    this.offset              = matcher.end();
+
+                    return new Token<TT>(rule.tokenType, this.cs, matcher);
+                }
             }
         }
 
+        if (hitEnd && !this.endOfInput) return null;
+
         throw new ScanException(
             "Unexpected character \""
             + this.cs.charAt(this.offset)
@@ -108,4 +167,12 @@ class StatelessScanner<TT extends Enum<TT>> extends AbstractScanner<TT> {
     // CONFIGURATION
 
     private final List<Rule<TT>> rules = new ArrayList<Rule<TT>>();
+    private boolean              compiled, mergeRules;
+
+    // STATE
+
+    /**
+     * Implements the compiled mode; {@code null} iff not (yet) created.
+     */
+    @Nullable private RuleDispatcher dispatcher;
 }
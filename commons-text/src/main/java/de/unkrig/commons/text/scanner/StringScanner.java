@@ -53,6 +53,22 @@ interface StringScanner<TT extends Enum<TT>> extends ProducerWhichThrows<Token<T
      */
     StringScanner<TT> setInput(CharSequence cs, int start, int end);
 
+    /**
+     * Iff <var>endOfInput</var> is {@code true}, then this method is equivalent with {@link
+     * #setInput(CharSequence, int, int)}.
+     * <p>
+     *   Otherwise, the region {@code start ... end} is only a prefix of the input, and more characters may follow.
+     *   Then {@link #produce()} returns {@code null} (without consuming any characters and without changing its
+     *   state) iff the next token cannot be determined without looking at these following characters, i.e. when the
+     *   region is exhausted, or when the matching of the rules "hit the end" of the region (see {@link
+     *   java.util.regex.Matcher#hitEnd()}). The caller would then typically read more characters and invoke this
+     *   method again, with the same {@link #getOffset() offset} as the <var>start</var>.
+     * </p>
+     *
+     * @return This scanner
+     */
+    StringScanner<TT> setInput(CharSequence cs, int start, int end, boolean endOfInput);
+
     /**
      * Before {@link #setInput(CharSequence)} is called, this method returns {@code null}. After {@link
      * #setInput(CharSequence)} was called, this method breaks the input char character sequence up into tokens and
@@ -214,7 +214,7 @@ class XmlScanner {
 
         scanner.addRule("(?:<!\\[CDATA\\[(.*?)]]>)", TokenType.CDATA_SECTION);
 
-        return scanner;
+        return scanner.compile(true);
     }
 
     /**
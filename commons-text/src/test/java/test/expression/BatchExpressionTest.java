@@ -0,0 +1,154 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc|LineLength:9999
+
+package test.expression;
+
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.lang.protocol.Predicate;
+import de.unkrig.commons.text.expression.BatchExpression;
+import de.unkrig.commons.text.expression.ColumnBatch;
+import de.unkrig.commons.text.expression.ExpressionEvaluator;
+import de.unkrig.commons.text.expression.ExpressionUtil;
+
+public
+class BatchExpressionTest {
+
+    private static final int N = 1000;
+
+    private static final ColumnBatch BATCH = new ColumnBatch(BatchExpressionTest.N);
+    static {
+        int[]     ints     = new int[BatchExpressionTest.N];
+        long[]    longs    = new long[BatchExpressionTest.N];
+        double[]  doubles  = new double[BatchExpressionTest.N];
+        boolean[] booleans = new boolean[BatchExpressionTest.N];
+        byte[]    bytes    = new byte[BatchExpressionTest.N];
+        String[]  strings  = new String[BatchExpressionTest.N];
+        for (int i = 0; i < BatchExpressionTest.N; i++) {
+            ints[i]     = i % 17 - 8;
+            longs[i]    = (long) i * i * 1000003L;
+            doubles[i]  = i % 5 == 0 ? Double.NaN : i % 7 == 0 ? -0.0 : i / 3.0;
+            booleans[i] = i % 3 == 0;
+            bytes[i]    = (byte) i;
+            strings[i]  = i % 11 == 0 ? null : i % 2 == 0 ? "" : "s" + i;
+        }
+        BatchExpressionTest.BATCH
+        .put("i", ints)
+        .put("l", longs)
+        .put("d", doubles)
+        .put("b", booleans)
+        .put("by", bytes)
+        .put("s", strings);
+    }
+
+    @Test public void
+    testArithmetic() throws Exception {
+        BatchExpressionTest.assertBatchEqualsRowWise("i + 1");
+        BatchExpressionTest.assertBatchEqualsRowWise("i * 2147483647");
+        BatchExpressionTest.assertBatchEqualsRowWise("i + l");
+        BatchExpressionTest.assertBatchEqualsRowWise("l * l - i");
+        BatchExpressionTest.assertBatchEqualsRowWise("d / i + l % 7");
+        BatchExpressionTest.assertBatchEqualsRowWise("i << 3 | i >>> 2 ^ l & 255");
+        BatchExpressionTest.assertBatchEqualsRowWise("-i + ~l - -d");
+        BatchExpressionTest.assertBatchEqualsRowWise("by + by");
+        BatchExpressionTest.assertBatchEqualsRowWise("s + i");
+    }
+
+    @Test public void
+    testComparisons() throws Exception {
+        BatchExpressionTest.assertBatchEqualsRowWise("i == 0");
+        BatchExpressionTest.assertBatchEqualsRowWise("i < l");
+        BatchExpressionTest.assertBatchEqualsRowWise("d >= 1.5");
+        BatchExpressionTest.assertBatchEqualsRowWise("d == d");
+        BatchExpressionTest.assertBatchEqualsRowWise("d != -0.0");
+        BatchExpressionTest.assertBatchEqualsRowWise("s == \"s3\"");
+    }
+
+    @Test public void
+    testLogic() throws Exception {
+        BatchExpressionTest.assertBatchEqualsRowWise("b && i > 0");
+        BatchExpressionTest.assertBatchEqualsRowWise("b || s");
+        BatchExpressionTest.assertBatchEqualsRowWise("!b && (i < 0 || d > 100)");
+        BatchExpressionTest.assertBatchEqualsRowWise("s && true");
+        BatchExpressionTest.assertBatchEqualsRowWise("i != 0 && 100 / i > 20");
+        BatchExpressionTest.assertBatchEqualsRowWise("i == 0 || 100 / i > 20");
+        BatchExpressionTest.assertBatchEqualsRowWise("b ? i : s");
+        BatchExpressionTest.assertBatchEqualsRowWise("!i");
+    }
+
+    @Test public void
+    testMisc() throws Exception {
+        BatchExpressionTest.assertBatchEqualsRowWise("s =* \"s1*\"");
+        BatchExpressionTest.assertBatchEqualsRowWise("s =~ \"s(.)(.*)=$2$1\"");
+        BatchExpressionTest.assertBatchEqualsRowWise("String.valueOf(i).length() + Math.max(i, 3)");
+        BatchExpressionTest.assertBatchEqualsRowWise("s != null && s.length() > 2");
+        BatchExpressionTest.assertBatchEqualsRowWise("s instanceof String");
+    }
+
+    @Test public void
+    testFilterRows() throws Exception {
+
+        LogRecord[] records = new LogRecord[BatchExpressionTest.N];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new LogRecord(i % 3 == 0 ? Level.WARNING : Level.INFO, "msg" + i);
+        }
+
+        BatchExpression
+        be = new ExpressionEvaluator("r").parseBatch("r.level == java.util.logging.Level.WARNING && r.message =* \"*7\"");
+
+        Predicate<LogRecord> p = ExpressionUtil.toPredicate(be, "r");
+
+        BitSet expected = new BitSet();
+        for (int i = 0; i < records.length; i++) {
+            if (p.evaluate(records[i])) expected.set(i);
+        }
+
+        Assert.assertEquals(expected, be.filter(ColumnBatch.fromRows("r", records)));
+        Assert.assertFalse(expected.isEmpty());
+    }
+
+    private static void
+    assertBatchEqualsRowWise(String spec) throws Exception {
+
+        BatchExpression be = new ExpressionEvaluator("i", "l", "d", "b", "by", "s").parseBatch(spec);
+
+        Object[] actual = be.evaluate(BatchExpressionTest.BATCH);
+        BitSet   filter = be.filter(BatchExpressionTest.BATCH);
+
+        for (int row = 0; row < BatchExpressionTest.N; row++) {
+            Object expected = be.evaluate(BatchExpressionTest.BATCH.row(row));
+            Assert.assertEquals(spec + ", row " + row, expected, actual[row]);
+            Assert.assertEquals(spec + ", row " + row, ExpressionEvaluator.toBoolean(expected), filter.get(row));
+        }
+    }
+}
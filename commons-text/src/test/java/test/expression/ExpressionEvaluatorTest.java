@@ -48,12 +48,14 @@ import org.junit.ComparisonFailure;
 import org.junit.Test;
 
 import de.unkrig.commons.lang.ExceptionUtil;
+import de.unkrig.commons.lang.protocol.Predicate;
 import de.unkrig.commons.lang.protocol.PredicateUtil;
 import de.unkrig.commons.nullanalysis.Nullable;
 import de.unkrig.commons.text.expression.EvaluationException;
 import de.unkrig.commons.text.expression.Expression;
 import de.unkrig.commons.text.expression.ExpressionEvaluator;
 import de.unkrig.commons.text.expression.ExpressionUtil;
+import de.unkrig.commons.text.expression.ParseCache;
 import de.unkrig.commons.text.expression.Parser;
 import de.unkrig.commons.text.expression.Parser.Extension;
 import de.unkrig.commons.text.parser.ParseException;
@@ -380,6 +382,72 @@ class ExpressionEvaluatorTest {
         Assert.assertEquals("FOO ABC ABC ABCXYZ BAR", e.evaluate("abc", "ABC"));
     }
 
+    @Test public void
+    testParseCache() throws Exception {
+
+        ParseCache pc = new ParseCache(100);
+
+        Expression e1 = new ExpressionEvaluator("a", "b").setParseCache(pc).parse("a + String.valueOf(b)");
+        Expression e2 = new ExpressionEvaluator("b", "a").setParseCache(pc).parse("a + String.valueOf(b)");
+        Assert.assertSame(e1, e2);
+        Assert.assertEquals("xy", e2.evaluate("a", "x", "b", "y"));
+
+        // Different variable names => different expression.
+        Expression e4 = new ExpressionEvaluator("a", "b", "c").setParseCache(pc).parse("a + String.valueOf(b)");
+        Assert.assertNotSame(e1, e4);
+
+        // Different imports => different expression.
+        Expression e3 = (
+            new ExpressionEvaluator()
+            .addOnDemandImports(new String[] { "java.util" })
+            .setParseCache(pc)
+            .parse("new Date(0)")
+        );
+        Assert.assertEquals(new Date(0), e3.evaluate());
+        try {
+            new ExpressionEvaluator().setParseCache(pc).parse("new Date(0)");
+            Assert.fail();
+        } catch (ParseException pe) {
+            ;
+        }
+
+        // Caching is opt-in.
+        ExpressionEvaluator ee = new ExpressionEvaluator("a");
+        Assert.assertNotSame(ee.parse("a + 1"), ee.parse("a + 1"));
+        Predicate<String> isA = PredicateUtil.equal("a");
+        Assert.assertNotSame(ExpressionUtil.expand("#a#", isA), ExpressionUtil.expand("#a#", isA));
+        Assert.assertSame(ExpressionUtil.expand("#a#", isA, pc), ExpressionUtil.expand("#a#", isA, pc));
+    }
+
+    @Test public void
+    testClassLookupMissesAreNotCachedGlobally() throws Exception {
+
+        final boolean[] available = new boolean[1];
+        ClassLoader     cl        = new ClassLoader(ExpressionEvaluatorTest.class.getClassLoader()) {
+
+            @Override protected Class<?>
+            loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!available[0] && "java.util.BitSet".equals(name)) throw new ClassNotFoundException(name);
+                return super.loadClass(name, resolve);
+            }
+        };
+
+        // While the class is not (yet) loadable, the expression must not parse.
+        try {
+            new ExpressionEvaluator().setClassLoader(cl).parse("new java.util.BitSet()");
+            Assert.fail("ParseException expected");
+        } catch (ParseException pe) {
+            ;
+        }
+
+        // Once it is, a fresh parse with the same class loader must see it.
+        available[0] = true;
+        Assert.assertEquals(
+            new java.util.BitSet(),
+            new ExpressionEvaluator().setClassLoader(cl).parse("new java.util.BitSet()").evaluate()
+        );
+    }
+
     /**
      * For all possible parsing {@link Extension} combinations that contain the given <var>extensionVarargs</var>:
      * Asserts that the <var>expression</var> parses and evaluates to <var>expected</var>.
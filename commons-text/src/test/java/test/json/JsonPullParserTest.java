@@ -0,0 +1,241 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.json;
+
+import static de.unkrig.commons.text.json.JsonPullParser.Event.END_ARRAY;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.END_OBJECT;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.FIELD_NAME;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.START_ARRAY;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.START_OBJECT;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.VALUE_FALSE;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.VALUE_NULL;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.VALUE_NUMBER;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.VALUE_STRING;
+import static de.unkrig.commons.text.json.JsonPullParser.Event.VALUE_TRUE;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.text.json.Json;
+import de.unkrig.commons.text.json.JsonParser;
+import de.unkrig.commons.text.json.JsonPullParser;
+import de.unkrig.commons.text.json.JsonPullParser.Event;
+import de.unkrig.commons.text.json.JsonScanner;
+import de.unkrig.commons.text.parser.ParseException;
+import de.unkrig.commons.text.scanner.ScannerUtil;
+
+public
+class JsonPullParserTest {
+
+    private static final String DOCUMENT = (
+        ""
+        + "{\r\n"
+        + "  \"a\" : \"x\\\"y\\u00e4\\n\", // comment\n"
+        + "  \"b\" : [ 1, -2.5, 3e2, true, false, null, [], {} ],\n"
+        + "  /* multi-\n  line comment */\n"
+        + "  \"c\" : { \"d\" : { \"e\" : [ \"f\" ] } },\n"
+        + "  \"\\u0067\" : 9223372036854775807\n"
+        + "}"
+    );
+
+    @Test public void
+    testEvents() throws Exception {
+
+        JsonPullParser pp = new JsonPullParser(JsonPullParserTest.DOCUMENT);
+
+        JsonPullParserTest.assertNext(pp, START_OBJECT, "{");
+        JsonPullParserTest.assertNext(pp, FIELD_NAME,   "a");
+        JsonPullParserTest.assertNext(pp, VALUE_STRING, "x\"y\u00e4\n");
+        JsonPullParserTest.assertNext(pp, FIELD_NAME,   "b");
+        JsonPullParserTest.assertNext(pp, START_ARRAY,  "[");
+        Assert.assertEquals(2, pp.getDepth());
+        JsonPullParserTest.assertNext(pp, VALUE_NUMBER, "1");
+        Assert.assertEquals(1L, pp.getNumber());
+        Assert.assertEquals(1L, pp.getLong());
+        JsonPullParserTest.assertNext(pp, VALUE_NUMBER, "-2.5");
+        Assert.assertEquals(-2.5, pp.getNumber());
+        JsonPullParserTest.assertNext(pp, VALUE_NUMBER, "3e2");
+        Assert.assertEquals(300.0, pp.getDouble(), 0.0);
+        JsonPullParserTest.assertNext(pp, VALUE_TRUE,   "true");
+        JsonPullParserTest.assertNext(pp, VALUE_FALSE,  "false");
+        JsonPullParserTest.assertNext(pp, VALUE_NULL,   "null");
+        JsonPullParserTest.assertNext(pp, START_ARRAY,  "[");
+        JsonPullParserTest.assertNext(pp, END_ARRAY,    "]");
+        JsonPullParserTest.assertNext(pp, START_OBJECT, "{");
+        JsonPullParserTest.assertNext(pp, END_OBJECT,   "}");
+        JsonPullParserTest.assertNext(pp, END_ARRAY,    "]");
+        JsonPullParserTest.assertNext(pp, FIELD_NAME,   "c");
+        JsonPullParserTest.assertNext(pp, START_OBJECT, "{");
+        pp.skipSubtree();
+        Assert.assertEquals(END_OBJECT, pp.getEvent());
+        Assert.assertEquals(1, pp.getDepth());
+        JsonPullParserTest.assertNext(pp, FIELD_NAME,   "g");
+        JsonPullParserTest.assertNext(pp, VALUE_NUMBER, "9223372036854775807");
+        Assert.assertEquals(Long.MAX_VALUE, pp.getLong());
+        JsonPullParserTest.assertNext(pp, END_OBJECT,   "}");
+        Assert.assertEquals(0, pp.getDepth());
+        Assert.assertNull(pp.next());
+    }
+
+    @Test public void
+    testSources() throws Exception {
+
+        Json.Value expected = new JsonPullParser(JsonPullParserTest.DOCUMENT).readValue();
+
+        Assert.assertEquals(
+            expected,
+            new JsonPullParser(JsonPullParserTest.slowReader(JsonPullParserTest.DOCUMENT)).readValue()
+        );
+        Assert.assertEquals(expected, new JsonPullParser(JsonPullParserTest.DOCUMENT.getBytes("UTF-8")).readValue());
+
+        // The DOM must be the same as the one that the scanner-based parser creates.
+        Assert.assertEquals(
+            expected,
+            new JsonParser(ScannerUtil.toDocumentScanner(
+                JsonScanner.stringScanner(),
+                new StringReader(JsonPullParserTest.DOCUMENT.replace("3e2", "300.0"))
+            )).parseValue()
+        );
+        Assert.assertEquals(
+            expected,
+            JsonParser.parseValue(new JsonPullParser(new StringReader(JsonPullParserTest.DOCUMENT)))
+        );
+
+        // The token-level methods of a reader-based parser see the tokens.
+        JsonParser jp = new JsonParser(new StringReader("[ 1 ]"));
+        Assert.assertTrue(jp.peekRead("["));
+        Assert.assertEquals("1", jp.read().text);
+        Assert.assertTrue(jp.peekRead("]"));
+    }
+
+    @Test public void
+    testLongStrings() throws Exception {
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) sb.append((char) ('a' + i % 26));
+        String s = sb.toString();
+
+        JsonPullParser pp = new JsonPullParser(JsonPullParserTest.slowReader(
+            "[ \"" + s + "\", \"\\t" + s + "\", " + s.length() + " ]"
+        ));
+        JsonPullParserTest.assertNext(pp, START_ARRAY, "[");
+        JsonPullParserTest.assertNext(pp, VALUE_STRING, s);
+        JsonPullParserTest.assertNext(pp, VALUE_STRING, "\t" + s);
+        JsonPullParserTest.assertNext(pp, VALUE_NUMBER, "20000");
+        JsonPullParserTest.assertNext(pp, END_ARRAY, "]");
+        Assert.assertNull(pp.next());
+    }
+
+    @Test public void
+    testMultipleTopLevelValues() throws Exception {
+        JsonPullParser pp = new JsonPullParser("{\"a\":1}\n{\"a\":2}\n");
+        Assert.assertEquals(
+            new Json.ObjecT(java.util.Collections.singletonList(new Json.Member(
+                new Json.StrinG("a"),
+                new Json.NumbeR("2")
+            ))),
+            JsonPullParserTest.skipAndRead(pp)
+        );
+        Assert.assertNull(pp.readValue());
+    }
+
+    @Test public void
+    testErrors() throws Exception {
+        JsonPullParserTest.assertParseException("[ 1, 2, ]",           "Line 1, column 9: Unexpected character ']'");
+        JsonPullParserTest.assertParseException("{ \"a\" 1 }",         "Line 1, column 7: \":\" expected");
+        JsonPullParserTest.assertParseException("{\n  1 : 2 }",       "Line 2, column 3: Field name expected");
+        JsonPullParserTest.assertParseException("[ \"abc",             "Line 1, column 7: Unterminated string");
+        JsonPullParserTest.assertParseException("[ nix ]",             "Line 1, column 3: Invalid keyword \"nix\"");
+        JsonPullParserTest.assertParseException("\r\n\r\n[ 1 }",      "Line 3, column 5: \",\" or \"]\" expected");
+        JsonPullParserTest.assertParseException("[ 1.2.3 ]",           "Line 1, column 8: Invalid number \"1.2.3\"");
+
+        try {
+            JsonParser.parseObject(new JsonPullParser("\n  [ 1 ]"));
+            Assert.fail();
+        } catch (ParseException pe) {
+            Assert.assertEquals("Line 2, column 4: Object expected", pe.getMessage());
+        }
+        try {
+            JsonParser.parseArray(new JsonPullParser("{}"));
+            Assert.fail();
+        } catch (ParseException pe) {
+            Assert.assertEquals("Line 1, column 2: Array expected", pe.getMessage());
+        }
+        try {
+            JsonParser.parseValue(new JsonPullParser(" "));
+            Assert.fail();
+        } catch (ParseException pe) {
+            Assert.assertEquals("Line 1, column 2: Unexpected end of input", pe.getMessage());
+        }
+    }
+
+    private static Json.Value
+    skipAndRead(JsonPullParser pp) throws IOException, ParseException {
+        Assert.assertEquals(START_OBJECT, pp.next());
+        pp.skipSubtree();
+        Json.Value result = pp.readValue();
+        assert result != null;
+        return result;
+    }
+
+    private static void
+    assertParseException(String document, String expectedMessage) throws IOException {
+        try {
+            new JsonPullParser(document).readValue();
+            Assert.fail(document);
+        } catch (ParseException pe) {
+            Assert.assertEquals(expectedMessage, pe.getMessage());
+        }
+    }
+
+    private static void
+    assertNext(JsonPullParser pp, Event expectedEvent, String expectedText) throws IOException, ParseException {
+        Assert.assertEquals(expectedEvent, pp.next());
+        Assert.assertEquals(expectedText, pp.getText());
+    }
+
+    /**
+     * @return A reader that returns at most 3 characters per invocation, so that the parser must refill its buffer
+     *         very often
+     */
+    private static Reader
+    slowReader(String s) {
+        return new StringReader(s) {
+
+            @Override public int
+            read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        };
+    }
+}
@@ -0,0 +1,257 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.text.json.Json;
+import de.unkrig.commons.text.json.JsonPullParser;
+import de.unkrig.commons.text.json.JsonWriter;
+import de.unkrig.commons.text.parser.ParseException;
+
+public
+class JsonWriterTest {
+
+    private static final String DOCUMENT = (
+        "{\"a\":\"x\\\"y\u00e4\\n\",\"b\":[1,-2.5,300.0,true,false,null,[],{}],\"c\":{\"d\":{\"e\":[\"f\"]}},\"a\":7}"
+    );
+
+    @Test public void
+    testObjectGet() throws Exception {
+
+        Json.ObjecT o = (Json.ObjecT) new JsonPullParser(JsonWriterTest.DOCUMENT).readValue();
+        Assert.assertNotNull(o);
+
+        // The first of several members with the same name wins.
+        Assert.assertEquals(new Json.StrinG("x\"y\u00e4\n"), o.get("a"));
+        Assert.assertTrue(o.get("c") instanceof Json.ObjecT);
+        Assert.assertNull(o.get("z"));
+    }
+
+    @Test public void
+    testLazyValue() throws Exception {
+
+        Json.Value eager = new JsonPullParser(JsonWriterTest.DOCUMENT).readValue();
+        Json.Value lazy  = new JsonPullParser(JsonWriterTest.DOCUMENT).readLazyValue();
+
+        Assert.assertEquals(eager, lazy);
+        Assert.assertEquals(eager, new JsonPullParser(JsonWriterTest.DOCUMENT.getBytes("UTF-8")).readLazyValue());
+        Assert.assertEquals(JsonWriterTest.write(eager), JsonWriterTest.write(lazy));
+
+        Json.ObjecT o = (Json.ObjecT) lazy;
+        Assert.assertNotNull(o);
+        Assert.assertEquals(4, o.members.size());
+        Assert.assertEquals(8, ((Json.Array) o.members.get(1).value).elements.size());
+        Assert.assertEquals(new Json.Array(Collections.<Json.Value>singletonList(new Json.StrinG("f"))), (
+            ((Json.ObjecT) ((Json.ObjecT) o.get("c")).get("d")).get("e")
+        ));
+    }
+
+    @Test public void
+    testLazyValueErrors() throws Exception {
+        JsonWriterTest.assertLazyParseException(
+            "[1-2, 3]",
+            "Line 1, column 5: Invalid integral number \"1-2\""
+        );
+        JsonWriterTest.assertLazyParseException(
+            "[\"\\uZZZZ\"]",
+            "Line 1, column 10: Invalid unicode escape sequence in string"
+        );
+        JsonWriterTest.assertLazyParseException(
+            "{\"a\": [1e, 2]}",
+            "Line 1, column 10: Invalid number \"1e\""
+        );
+    }
+
+    @Test public void
+    testCompact() throws Exception {
+
+        StringWriter sw = new StringWriter();
+        JsonWriter   jw = new JsonWriter(sw);
+        jw.startObject();
+        jw.name("a").value("x\"y\u00e4\n");
+        jw.name("b").startArray().value(1).value(-2.5).value(300.0).value(true).value(false).nullValue();
+        jw.startArray().endArray().startObject().endObject().endArray();
+        jw.name("c").value(new JsonPullParser("{\"d\":{\"e\":[\"f\"]}}").readValue());
+        jw.name("a").value(7);
+        jw.endObject();
+        jw.close();
+
+        Assert.assertEquals(JsonWriterTest.DOCUMENT, sw.toString());
+    }
+
+    @Test public void
+    testLongs() throws Exception {
+        for (long l : new long[] { 0, 9, -9, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            StringWriter sw = new StringWriter();
+            new JsonWriter(sw).value(l).close();
+            Assert.assertEquals(Long.toString(l), sw.toString());
+        }
+    }
+
+    @Test public void
+    testPretty() throws Exception {
+
+        Json.Value value = new JsonPullParser(JsonWriterTest.DOCUMENT).readValue();
+
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw, "  ").value(value).close();
+
+        String nl = System.getProperty("line.separator");
+        Assert.assertTrue(sw.toString(), sw.toString().startsWith("{" + nl + "  \"a\" : \"x\\\"y\u00e4\\n\"," + nl));
+        Assert.assertEquals(value, new JsonPullParser(sw.toString()).readValue());
+    }
+
+    @Test public void
+    testUtf8() throws Exception {
+
+        // Enough characters to make a surrogate pair straddle buffer boundaries.
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) sb.append("a\u00e4\u20ac\ud83d\ude00\u0001");
+        String s = sb.toString();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        JsonWriter            jw   = new JsonWriter(baos);
+        jw.startArray().value(s).endArray();
+        jw.close();
+
+        byte[] bytes = baos.toByteArray();
+        Assert.assertEquals(
+            "[\"" + s.replace("\u0001", "\\u0001") + "\"]",
+            new String(bytes, "UTF-8")
+        );
+        Assert.assertEquals(
+            new Json.Array(Arrays.<Json.Value>asList(new Json.StrinG(s))),
+            new JsonPullParser(bytes).readValue()
+        );
+    }
+
+    @Test public void
+    testCopy() throws Exception {
+
+        String document = "{ \"a\" : [ 1.50, 2 ], \"b\" : { } }";
+
+        JsonPullParser pp = new JsonPullParser(document);
+        StringWriter   sw = new StringWriter();
+        JsonWriter     jw = new JsonWriter(sw);
+        while (pp.next() != null) jw.copy(pp);
+        jw.close();
+
+        // Notice: Numbers are copied literally, unless they violate the strict JSON syntax.
+        Assert.assertEquals("{\"a\":[1.50,2],\"b\":{}}", sw.toString());
+        Assert.assertEquals("[0.5,-1.0E10,7]", JsonWriterTest.copy("[ .5, -1.e10, 7 ]"));
+
+        try {
+            JsonWriterTest.copy("[ 1-2 ]");
+            Assert.fail();
+        } catch (ParseException pe) {
+            ;
+        }
+    }
+
+    @Test public void
+    testUnpairedSurrogates() throws Exception {
+
+        String s = "\ud800a\udc00\ud83d\ude00\ud800";
+
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).value(s).close();
+        Assert.assertEquals("\"\\ud800a\\udc00\ud83d\ude00\\ud800\"", sw.toString());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new JsonWriter(baos).value(s).close();
+        Assert.assertEquals(sw.toString(), new String(baos.toByteArray(), "UTF-8"));
+        Assert.assertEquals(new Json.StrinG(s), new JsonPullParser(baos.toByteArray()).readValue());
+    }
+
+    @Test public void
+    testIllegalSequences() throws Exception {
+
+        try {
+            new JsonWriter(new StringWriter()).startObject().value(1);
+            Assert.fail();
+        } catch (IllegalStateException ise) {
+            ;
+        }
+
+        try {
+            new JsonWriter(new StringWriter()).startArray().name("a");
+            Assert.fail();
+        } catch (IllegalStateException ise) {
+            ;
+        }
+
+        try {
+            new JsonWriter(new StringWriter()).startObject().name("a").endObject();
+            Assert.fail();
+        } catch (IllegalStateException ise) {
+            ;
+        }
+
+        try {
+            new JsonWriter(new StringWriter()).value(Double.NaN);
+            Assert.fail();
+        } catch (IllegalArgumentException iae) {
+            ;
+        }
+    }
+
+    private static void
+    assertLazyParseException(String document, String expectedMessage) throws Exception {
+        try {
+            new JsonPullParser(document).readLazyValue();
+            Assert.fail(document);
+        } catch (ParseException pe) {
+            Assert.assertEquals(expectedMessage, pe.getMessage());
+        }
+    }
+
+    private static String
+    copy(String document) throws Exception {
+        JsonPullParser pp = new JsonPullParser(document);
+        StringWriter   sw = new StringWriter();
+        JsonWriter     jw = new JsonWriter(sw);
+        while (pp.next() != null) jw.copy(pp);
+        jw.close();
+        return sw.toString();
+    }
+
+    private static String
+    write(Json.Value value) throws Exception {
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).value(value).close();
+        return sw.toString();
+    }
+}
@@ -27,7 +27,9 @@
 package test.pattern;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
@@ -35,6 +37,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import de.unkrig.commons.lang.protocol.Consumer;
+import de.unkrig.commons.lang.protocol.ConsumerUtil;
 import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.NoException;
 import de.unkrig.commons.text.pattern.Finders;
@@ -53,6 +56,140 @@ class FindersTest {
         FindersTest.testPatternFinder("[$0=] [$0=A][$0=]",       Pattern.compile("A*"), " A", "");
     }
 
+    @Test public void
+    testLiteralPrefix() {
+        FindersTest.testPatternFinder("x[$0=abc]y[$0=abbc]z", Pattern.compile("ab+c"),   "xabcyabbcz", "");
+        FindersTest.testPatternFinder("[$0=a.b]a_b",          Pattern.compile("a\\.b"), "a.ba_b",     "");
+        FindersTest.testPatternFinder("[$0=cd]e",             Pattern.compile("ab|cd"),  "cde",        "");
+        FindersTest.testPatternFinder("[$0=ab]c[$0=cd]e",     Pattern.compile("ab|cd"),  "abccde", "");
+        FindersTest.testPatternFinder("__[$0=a.*b]__",        Pattern.compile("a.*b", Pattern.LITERAL), "__a.*b__", "");
+        FindersTest.testPatternFinder("[$0=ABC]x[$0=abc]",    Pattern.compile("abc", Pattern.CASE_INSENSITIVE), "ABCxabc", "");
+    }
+
+    @Test public void
+    testMatchesAcrossChunks() {
+        FindersTest.testPatternFinder("x[$0=abc]y[$0=ab]",   Pattern.compile("abc?"),  "xa", "b", "cya", "b", "");
+        FindersTest.testPatternFinder("x[$0=123]y[$0=45]",   Pattern.compile("\\d+"), "x1", "2", "3y4", "5", "");
+        FindersTest.testPatternFinder("[$0=A] [$0=AAAA]",    Pattern.compile("A+"),    "A A", "A", "AA", "");
+    }
+
+    @Test public void
+    testNoLiteralPrefix() {
+
+        // Bounded match length.
+        FindersTest.testPatternFinder(
+            "at [$0=12:30] and [$0=12:45]",
+            Pattern.compile("\\d{2}:\\d{2}"),
+            "at 12:3", "0 and 1", "2:45", ""
+        );
+        FindersTest.testPatternFinder("x[$0=ab]y[$0=b]", Pattern.compile("[ab]{1,2}"), "xa", "by", "b", "");
+
+        // Unbounded match length; the first position that "hits the end" is far before the end of the buffer.
+        FindersTest.testPatternFinder("xx[$0=accccd]xx", Pattern.compile("[ab]c*d"), "xxaccc", "cdxx", "");
+        FindersTest.testPatternFinder("[$0=<a>]x<b", Pattern.compile("<[^>]*>"), "<a>x<b", "");
+
+        // The first pattern matches across the position where the second pattern "hits the end".
+        FindersTest.testPatternFinder2(
+            "[abbbb]d[cd]",
+            new Pattern[] { Pattern.compile("ab+"), Pattern.compile("[bc]+d") },
+            "abb", "bbdc", "d", ""
+        );
+    }
+
+    /**
+     * Verifies that a pattern without a literal prefix does not degrade the finder to attempting a match of
+     * <em>each</em> pattern at <em>each</em> position.
+     */
+    @Test public void
+    testLinearScan() {
+
+        Pattern[] prefixPatterns = new Pattern[50];
+        for (int i = 0; i < prefixPatterns.length; i++) prefixPatterns[i] = Pattern.compile("k" + i + "=\\d+");
+
+        Pattern[] allPatterns = Arrays.copyOf(prefixPatterns, prefixPatterns.length + 1);
+        allPatterns[prefixPatterns.length] = Pattern.compile("\\d{3}-\\d{4}");
+
+        char[] ca = new char[1 << 20];
+        Random r  = new Random(1);
+        for (int i = 0; i < ca.length; i++) ca[i] = (char) ('a' + r.nextInt(26));
+        String input = new String(ca);
+
+        long withoutPrefix = Long.MAX_VALUE, withPrefixOnly = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            withoutPrefix  = Math.min(withoutPrefix,  FindersTest.timePatternFinder2(allPatterns,    input, 8192));
+            withPrefixOnly = Math.min(withPrefixOnly, FindersTest.timePatternFinder2(prefixPatterns, input, 8192));
+        }
+
+        Assert.assertTrue(withoutPrefix + "ns vs. " + withPrefixOnly + "ns", withoutPrefix < 5 * withPrefixOnly);
+    }
+
+    private static long
+    timePatternFinder2(Pattern[] patterns, String input, int chunkSize) {
+
+        ConsumerWhichThrows<CharSequence, NoException> finder = Finders.patternFinder2(
+            patterns,                                 // patterns
+            ConsumerUtil.<MatchResult>nop(),          // match
+            ConsumerUtil.<CharSequence>nop()          // nonMatches
+        );
+
+        long start = System.nanoTime();
+        for (int i = 0; i < input.length(); i += chunkSize) {
+            finder.consume(input.substring(i, Math.min(i + chunkSize, input.length())));
+        }
+        finder.consume("");
+        return System.nanoTime() - start;
+    }
+
+    @Test public void
+    testMultiplePatterns() {
+
+        // If two patterns match at the same position, then the first pattern wins.
+        FindersTest.testPatternFinder2(
+            "[ab]x[ab]cy[c1]",
+            new Pattern[] { Pattern.compile("ab"), Pattern.compile("abc"), Pattern.compile("c\\d") },
+            "abxabcyc1", ""
+        );
+        FindersTest.testPatternFinder2(
+            "1[b]2[a]3",
+            new Pattern[] { Pattern.compile("a"), Pattern.compile("\\w(?<=b)") },
+            "1b2a3", ""
+        );
+    }
+
+    private static void
+    testPatternFinder2(String expected, Pattern[] patterns, String... inputs) {
+
+        for (String[] in : new String[][] { inputs, FindersTest.explode(inputs) }) {
+            final StringBuilder result = new StringBuilder();
+
+            ConsumerWhichThrows<CharSequence, NoException> finder = Finders.patternFinder2(
+                patterns,                          // patterns
+                new Consumer<MatchResult>() {      // match
+                    @Override public void consume(MatchResult m) { result.append('[').append(m.group()).append(']'); }
+                },
+                new Consumer<CharSequence>() {     // nonMatches
+                    @Override public void consume(CharSequence run) { result.append(run); }
+                }
+            );
+
+            for (String s : in) finder.consume(s);
+            Assert.assertEquals("Finders.patternFinder2()", expected, result.toString());
+        }
+    }
+
+    /**
+     * @return The <var>inputs</var>, split into single characters, plus a trailing {@code ""}
+     */
+    private static String[]
+    explode(String[] inputs) {
+        List<String> result = new ArrayList<String>();
+        for (String s : inputs) {
+            for (int i = 0; i < s.length(); i++) result.add(s.substring(i, i + 1));
+        }
+        result.add("");
+        return result.toArray(new String[result.size()]);
+    }
+
     private static void
     testPatternFinder(String expected, Object... patternsAndInputs) {
 
@@ -107,6 +244,30 @@ class FindersTest {
             Assert.assertEquals("Finders.patternFinder()", expected, result.toString());
         }
 
+        // Try "Finders.patternFinder2()", with the input in one chunk, and with one chunk per character:
+        for (String[] in2 : new String[][] { in, FindersTest.explode(in) }) {
+            final StringBuilder result = new StringBuilder();
+
+            ConsumerWhichThrows<CharSequence, NoException> finder = Finders.patternFinder2(
+                patterns,                         // patterns
+                new Consumer<MatchResult>() {     // match
+
+                    @Override public void
+                    consume(MatchResult m) {
+                        result.append("[$0=").append(m.group());
+                        for (int i = 1; i <= m.groupCount(); i++) result.append(" $" + i + "=" + m.group(i));
+                        result.append("]");
+                    }
+                },
+                new Consumer<CharSequence>() {    // nonMatches
+                    @Override public void consume(CharSequence run) { result.append(run); }
+                }
+            );
+
+            for (String s : in2) finder.consume(s);
+            Assert.assertEquals("Finders.patternFinder2()", expected, result.toString());
+        }
+
         // Try "Matcher.replaceAll()":
         {
             StringBuilder sb = new StringBuilder();
@@ -29,11 +29,13 @@
 package test.pattern;
 
 import java.io.File;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import de.unkrig.commons.text.pattern.Glob;
+import de.unkrig.commons.text.pattern.IncludeExclude;
 import de.unkrig.commons.text.pattern.Pattern2;
 
 public
@@ -175,4 +177,93 @@ class GlobTest {
         Assert.assertTrue (Glob.compile("~a/a",    Pattern2.WILDCARD | Glob.INCLUDES_EXCLUDES).matches("a/"));
         Assert.assertTrue (Glob.compile("~a/**a*", Pattern2.WILDCARD | Glob.INCLUDES_EXCLUDES).matches("a/a/"));
     }
+
+    @Test public void
+    testNoParentDirMatch() {
+        // SUPPRESS CHECKSTYLE L_PAREN__METH_INVOCATION|Whitespace:7
+        Assert.assertFalse(Glob.compile("a/b",   Pattern2.WILDCARD).matches("a/b/c"));
+        Assert.assertFalse(Glob.compile("a/b",   Pattern2.WILDCARD).matches("a/b!c"));
+        Assert.assertFalse(Glob.compile("*.zip", Pattern2.WILDCARD).matches("x.zip!entry"));
+        Assert.assertFalse(Glob.compileRegex(Pattern2.compile("\\Q./.test_files\\E", Pattern2.WILDCARD)).matches(
+            "./.test_files/dir1/file1"
+        ));
+        Assert.assertTrue (Glob.compile("~a/b", Pattern2.WILDCARD | Glob.INCLUDES_EXCLUDES).matches("a/b/c"));
+        Assert.assertTrue (Glob.compile("a,b", Pattern2.WILDCARD | Glob.INCLUDES_EXCLUDES) instanceof IncludeExclude);
+    }
+
+    @Test public void
+    testMayMatchBelow() {
+        // SUPPRESS CHECKSTYLE L_PAREN__METH_INVOCATION|Whitespace:14
+        Assert.assertTrue (Glob.compile("a/**/*.c", Pattern2.WILDCARD).mayMatchBelow("a/"));
+        Assert.assertTrue (Glob.compile("a/**/*.c", Pattern2.WILDCARD).mayMatchBelow("a/b/"));
+        Assert.assertFalse(Glob.compile("a/**/*.c", Pattern2.WILDCARD).mayMatchBelow("b/"));
+        Assert.assertTrue (Glob.compile("a/b",      Pattern2.WILDCARD).mayMatchBelow("a/b/c/"));
+        Assert.assertTrue (Glob.compile("a/b",      Pattern2.WILDCARD).mayMatchBelow("a/b!"));
+        Assert.assertFalse(Glob.compile("a/b",      Pattern2.WILDCARD).mayMatchBelow("a/bc/"));
+
+        int ie = Pattern2.WILDCARD | Glob.INCLUDES_EXCLUDES;
+        Assert.assertTrue (Glob.compile("***~***/.svn",        ie).mayMatchBelow("a/"));
+        Assert.assertTrue (Glob.compile("***~***/.svn",        ie).mayMatchBelow("a/.svn/"));
+        Assert.assertTrue (Glob.compile("***~***/.svn,**.txt", ie).mayMatchBelow("a/.svn/"));
+        Assert.assertFalse(Glob.compile("a/**/*.c",            ie).mayMatchBelow("c/"));
+        Assert.assertFalse(Glob.compile("a/**/*.c,b/*",        ie).mayMatchBelow("c/"));
+        Assert.assertFalse(Glob.compile("a/**/*.c~a/b",        ie).mayMatchBelow("c/"));
+    }
+
+    @Test public void
+    testMayMatchBelowWithReadmittingInclude() {
+
+        // "a/b" is excluded, but the (lower-priority) include still matches a file below it.
+        Glob glob = Glob.compile("a/b/c.txt~a/b", Pattern2.WILDCARD | Glob.INCLUDES_EXCLUDES);
+        Assert.assertTrue(glob.matches("a/b/c.txt"));
+        Assert.assertTrue(glob.mayMatchBelow("a/b/"));
+        Assert.assertTrue(((IncludeExclude) glob).compile().mayMatchBelow("a/b/"));
+    }
+
+    @Test public void
+    testCompiledIncludeExclude() {
+
+        String[] patterns = {
+            "***", "**", "*", "a", "a/b", "a/**/*.c", "**.c", "***/.svn", "***!.svn", "b/*", "(?i)A/**", "a!*.c",
+            "**/b/**", "?/?", "a/b!**/x.c", "\\Qa/b\\E/*",
+        };
+        String[] subjects = {
+            "", "a", "b", "a/", "a/b", "a/b/", "a/b/c.c", "a/b/c.d", "a/x.c", "b/x.c", "a/.svn", "a/.svn/x.c",
+            "x.zip!.svn", "x.zip!.svn/y", "A/b", "a!x.c", "a!x.c!", "b/b/b", "a/b!x.c", "a/b!c/x.c", "c/d/e.c",
+        };
+
+        Random r = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+
+            IncludeExclude ie = new IncludeExclude();
+            for (int j = r.nextInt(8); j >= 0; j--) {
+                Glob glob = Glob.compile(patterns[r.nextInt(patterns.length)], Pattern2.WILDCARD);
+                if (r.nextBoolean()) {
+                    ie.addInclude(glob, r.nextBoolean());
+                } else {
+                    ie.addExclude(glob, r.nextBoolean());
+                }
+            }
+
+            Glob compiled = ie.compile();
+            Assert.assertEquals(ie.toString(), compiled.toString());
+            for (String subject : subjects) {
+                Assert.assertEquals(ie + " vs. " + subject, ie.matches(subject), compiled.matches(subject));
+                if (subject.endsWith("/") || subject.endsWith("!")) {
+                    Assert.assertEquals(
+                        ie + " vs. " + subject,
+                        ie.mayMatchBelow(subject),
+                        compiled.mayMatchBelow(subject)
+                    );
+
+                    // "mayMatchBelow()" must never prune a subject that "matches()".
+                    for (String subject2 : subjects) {
+                        if (subject2.startsWith(subject) && ie.matches(subject2)) {
+                            Assert.assertTrue(ie + " vs. " + subject2, ie.mayMatchBelow(subject));
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
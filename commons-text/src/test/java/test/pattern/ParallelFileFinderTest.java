@@ -0,0 +1,255 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package test.pattern;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
+import de.unkrig.commons.lang.protocol.NoException;
+import de.unkrig.commons.text.pattern.Glob;
+import de.unkrig.commons.text.pattern.ParallelFileFinder;
+import de.unkrig.commons.text.pattern.ParallelFileFinder.LineMatchResult;
+import de.unkrig.commons.text.pattern.ParallelFileFinder.LineMatchResult2;
+import de.unkrig.commons.text.pattern.Pattern2;
+
+public
+class ParallelFileFinderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private File   file;
+    private String contents;
+
+    @Before public void
+    setUp() throws IOException {
+
+        // Notice: Includes CR LF separators, empty lines, non-ASCII characters and a last line without separator.
+        Random        r  = new Random(42);
+        String[]      ws = { "alpha", "beta", "gamma", "äöü", "€42", "delta", "" };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            for (int j = r.nextInt(5); j > 0; j--) sb.append(ws[r.nextInt(ws.length)]).append(' ');
+            sb.append(r.nextInt(10) == 0 ? "\r\n" : "\n");
+        }
+        sb.append("last gamma");
+        this.contents = sb.toString();
+
+        this.file = File.createTempFile("pff-", ".txt");
+        OutputStream os = new FileOutputStream(this.file);
+        try {
+            os.write(this.contents.getBytes(ParallelFileFinderTest.UTF_8));
+        } finally {
+            os.close();
+        }
+    }
+
+    @After public void
+    tearDown() throws IOException { Files.delete(this.file.toPath()); }
+
+    @Test public void
+    testFind() throws IOException {
+        for (int chunkSize : new int[] { 1, 7, 100, 1000, 1 << 20 }) {
+            this.assertFind("gamma|€\\d+", chunkSize, Long.MAX_VALUE);
+            this.assertFind("(a)(l)?pha",       chunkSize, Long.MAX_VALUE);
+            this.assertFind("^$",               chunkSize, Long.MAX_VALUE);
+        }
+    }
+
+    @Test public void
+    testFindLiterals() throws IOException {
+        for (int chunkSize : new int[] { 1, 7, 100, 1000, 1 << 20 }) {
+            this.assertFind("äöü",                                     chunkSize, Long.MAX_VALUE);
+            this.assertFind("€42 gamma",                               chunkSize, Long.MAX_VALUE);
+            this.assertFind(new String[] { "alpha", "al", "pha", "€" }, chunkSize, Long.MAX_VALUE);
+        }
+    }
+
+    @Test public void
+    testContextSensitivePatterns() throws IOException {
+        for (int chunkSize : new int[] { 1, 7, 100, 1000, 1 << 20 }) {
+            this.assertFind(new String[] { "\\A\\w*" },          0, chunkSize, Long.MAX_VALUE);
+            this.assertFind(new String[] { "^\\w*", "gamma$" },   0, chunkSize, Long.MAX_VALUE);
+            this.assertFind(new String[] { "(?<!\\n)alpha" },     0, chunkSize, Long.MAX_VALUE);
+            this.assertFind(new String[] { "\\Gbeta|\\Galpha" }, 0, chunkSize, Long.MAX_VALUE);
+        }
+    }
+
+    @Test public void
+    testMaxMatches() throws IOException {
+        this.assertFind("beta", 100, 0);
+        this.assertFind("beta", 100, 1);
+        this.assertFind("beta", 100, 17);
+        this.assertFind("beta", 7,   250);
+    }
+
+    @Test public void
+    testFindLines() throws IOException {
+
+        Glob glob = Glob.compile("beta*", Pattern2.WILDCARD);
+
+        for (int chunkSize : new int[] { 1, 100, 1 << 20 }) {
+
+            List<String> expected = new ArrayList<String>();
+            String[]     lines    = this.contents.split("\r?\n", -1);
+            for (int i = 0; i < lines.length; i++) {
+                if (glob.matches(lines[i])) expected.add((i + 1) + ":0: " + lines[i]);
+            }
+
+            final List<String> actual = new ArrayList<String>();
+            long               count  = ParallelFileFinder.findLines(
+                this.file,
+                ParallelFileFinderTest.UTF_8,
+                glob,
+                new ConsumerWhichThrows<LineMatchResult, NoException>() {
+
+                    @Override public void
+                    consume(LineMatchResult lmr) {
+                        Assert.assertEquals(lmr.line(), lmr.group());
+                        actual.add(lmr.toString());
+                    }
+                },
+                Long.MAX_VALUE,
+                ParallelFileFinderTest.POOL,
+                chunkSize
+            );
+
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(expected.size(), count);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    testUnsearchableCharset() throws IOException {
+        ParallelFileFinder.find(
+            this.file,
+            Charset.forName("UTF-16"),
+            new Pattern[] { Pattern.compile("x") },
+            new ConsumerWhichThrows<LineMatchResult2, NoException>() {
+                @Override public void consume(LineMatchResult2 lmr) {}
+            },
+            Long.MAX_VALUE
+        );
+    }
+
+    private void
+    assertFind(String regex, int chunkSize, long maxMatches) throws IOException {
+        this.assertFind(new String[] { regex }, chunkSize, maxMatches);
+    }
+
+    private void
+    assertFind(String[] regexes, int chunkSize, long maxMatches) throws IOException {
+        this.assertFind(regexes, Pattern.MULTILINE, chunkSize, maxMatches);
+    }
+
+    /**
+     * Verifies the result of {@link ParallelFileFinder#find(File, Charset, Pattern[], ConsumerWhichThrows, long,
+     * ForkJoinPool, int)} against the matches of the alternation of the <var>regexes</var>.
+     */
+    private void
+    assertFind(String[] regexes, int flags, int chunkSize, long maxMatches) throws IOException {
+
+        String          regex    = String.join("|", regexes);
+        Pattern         pattern  = Pattern.compile(regex, flags);
+        final Pattern[] patterns = new Pattern[regexes.length];
+        for (int i = 0; i < regexes.length; i++) patterns[i] = Pattern.compile(regexes[i], flags);
+
+        // Compute the expected result with a plain MATCHER.
+        List<String> expected = new ArrayList<String>();
+        {
+            Matcher m          = pattern.matcher(this.contents);
+            int     lineNumber = 1, lineStart = 0, scanned = 0;
+            while (expected.size() < maxMatches && m.find()) {
+                for (; scanned < m.start(); scanned++) {
+                    if (this.contents.charAt(scanned) == '\n') {
+                        lineNumber++;
+                        lineStart = scanned + 1;
+                    }
+                }
+                int lineEnd = this.contents.indexOf('\n', lineStart);
+                if (lineEnd == -1) lineEnd = this.contents.length();
+                if (lineEnd > lineStart && this.contents.charAt(lineEnd - 1) == '\r') lineEnd--;
+
+                StringBuilder sb = new StringBuilder();
+                sb.append(lineNumber).append(':').append(m.start() - lineStart).append(": ").append(m.group());
+                for (int g = 1; g <= m.groupCount(); g++) {
+                    sb.append(" $").append(g).append('=').append(m.group(g));
+                    if (m.start(g) != -1) sb.append('@').append(m.start(g) - lineStart);
+                }
+                sb.append(" line=").append(this.contents, lineStart, lineEnd);
+                expected.add(sb.toString());
+            }
+        }
+
+        final List<String> actual = new ArrayList<String>();
+        long               count  = ParallelFileFinder.find(
+            this.file,
+            ParallelFileFinderTest.UTF_8,
+            patterns,
+            new ConsumerWhichThrows<LineMatchResult2, NoException>() {
+
+                @Override public void
+                consume(LineMatchResult2 lmr) {
+                    Assert.assertTrue(Arrays.asList(patterns).contains(lmr.pattern()));
+
+                    StringBuilder sb = new StringBuilder(lmr.toString());
+                    for (int g = 1; g <= lmr.groupCount(); g++) {
+                        sb.append(" $").append(g).append('=').append(lmr.group(g));
+                        if (lmr.start(g) != -1) sb.append('@').append(lmr.start(g));
+                    }
+                    sb.append(" line=").append(lmr.line());
+                    actual.add(sb.toString());
+                }
+            },
+            maxMatches,
+            ParallelFileFinderTest.POOL,
+            chunkSize
+        );
+
+        Assert.assertEquals(regex + ", chunkSize=" + chunkSize, expected, actual);
+        Assert.assertEquals(expected.size(), count);
+    }
+}
@@ -38,6 +38,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.swing.text.Segment;
@@ -270,6 +271,40 @@ class PatternUtilTest extends TestCase {
         Assert.assertArrayEquals(new String[] { "\ud87d\uee51def", "" }, PatternUtil.constantPrefix("\\x{1f651}def"));
     }
 
+    @Test public void
+    testMaxMatchLength() {
+
+        // SUPPRESS CHECKSTYLE Whitespace:14
+        Assert.assertEquals(8,  PatternUtil.maxMatchLength(Pattern.compile("abc")));
+        Assert.assertEquals(10, PatternUtil.maxMatchLength(Pattern.compile("\\d{2,4}")));
+        Assert.assertEquals(6,  PatternUtil.maxMatchLength(Pattern.compile("a|bc")));
+        Assert.assertEquals(6,  PatternUtil.maxMatchLength(Pattern.compile("(?:ab)?$")));
+        Assert.assertEquals(4,  PatternUtil.maxMatchLength(Pattern.compile("(?<=a{1,3})b")));
+        Assert.assertEquals(6,  PatternUtil.maxMatchLength(Pattern.compile("\\Qa*\\E")));
+        Assert.assertEquals(6,  PatternUtil.maxMatchLength(Pattern.compile("[]a]{2}")));
+        Assert.assertEquals(6,  PatternUtil.maxMatchLength(Pattern.compile("(?i)[a[^]b]]\\x{1f651}")));
+        Assert.assertEquals(-1, PatternUtil.maxMatchLength(Pattern.compile("a+")));
+        Assert.assertEquals(-1, PatternUtil.maxMatchLength(Pattern.compile("a{2,}")));
+        Assert.assertEquals(-1, PatternUtil.maxMatchLength(Pattern.compile("a(?=b)")));
+        Assert.assertEquals(-1, PatternUtil.maxMatchLength(Pattern.compile("(a)\\1")));
+        Assert.assertEquals(-1, PatternUtil.maxMatchLength(Pattern.compile("(?x)a b")));
+
+        // Verify that no attempt to match beyond the bound "hits the end".
+        String[] regexes = { "abc", "ab?c?", "\\d{2,4}", "x\\b", "a$", "a\\R", "(?m)a$", "[ab]\\Z", "(?<=a)b" };
+        String[] subjects = { "xxabc", "xxab", "x12345", "xx", "a\r\n", "aa\n", "ba\r", "aaab" };
+        for (String regex : regexes) {
+            Pattern pattern = Pattern.compile(regex);
+            int     mml     = PatternUtil.maxMatchLength(pattern);
+            for (String subject : subjects) {
+                Matcher m = pattern.matcher(subject).useTransparentBounds(true).useAnchoringBounds(false);
+                for (int p = 0; p < subject.length() - mml; p++) {
+                    m.region(p, subject.length()).lookingAt();
+                    Assert.assertFalse(regex + " vs. " + subject + " at " + p, m.hitEnd());
+                }
+            }
+        }
+    }
+
     @Test public void
     testAppend() throws Exception, RuntimeException {
     	StringBuilder sb = new StringBuilder();
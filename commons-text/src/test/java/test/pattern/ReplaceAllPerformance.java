@@ -0,0 +1,150 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.pattern;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.io.TransformingFilterReader;
+import de.unkrig.commons.lang.protocol.FunctionWhichThrows;
+import de.unkrig.commons.text.pattern.PatternUtil;
+import de.unkrig.commons.text.pattern.Substitutor;
+
+/**
+ * Measures the throughput of on-the-fly search-and-replace in a 1 GB character stream. Not executed by the regular
+ * build (the class name does not end with "Test").
+ */
+public
+class ReplaceAllPerformance {
+
+    private static final long SIZE = 1L << 30;
+
+    private static final Pattern PATTERN = Pattern.compile("foo(\\d+)");
+
+    private static final FunctionWhichThrows<MatchResult, String, ? extends IOException>
+    MATCH_REPLACER = PatternUtil.<IOException>replacementStringMatchReplacer("bar$1");
+
+    @Test public void
+    replaceAllFilterReader() throws IOException {
+        System.err.println("replaceAllFilterReader()");
+
+        ReplaceAllPerformance.measure(PatternUtil.replaceAllFilterReader(
+            new SyntheticReader(ReplaceAllPerformance.SIZE),
+            ReplaceAllPerformance.PATTERN,
+            ReplaceAllPerformance.MATCH_REPLACER
+        ));
+    }
+
+    @Test public void
+    largeLookBehindLimit() throws IOException {
+
+        final int lookBehindLimit = 1000000;
+        System.err.println("largeLookBehindLimit(" + lookBehindLimit + ")");
+
+        ReplaceAllPerformance.measure(TransformingFilterReader.create(
+            new SyntheticReader(ReplaceAllPerformance.SIZE),
+            Substitutor.create(ReplaceAllPerformance.PATTERN, ReplaceAllPerformance.MATCH_REPLACER, lookBehindLimit)
+        ));
+    }
+
+    // ------------------------------------------------------
+
+    private static void
+    measure(Reader r) throws IOException {
+
+        long   begin = System.currentTimeMillis();
+        long   count = 0;
+        char[] buf   = new char[8192];
+        for (int n; (n = r.read(buf)) != -1;) count += n;
+        r.close();
+        long   end   = System.currentTimeMillis();
+
+        // Each "foo<n>" is replaced with "bar<n>", so the length does not change.
+        Assert.assertEquals(ReplaceAllPerformance.SIZE, count);
+
+        long duration = end - begin;
+        System.err.printf(
+            Locale.US,
+            " %,d chars in %,d ms (%,d chars/sec)%n",
+            count,
+            duration,
+            duration == 0 ? 0 : 1000 * count / duration
+        );
+    }
+
+    /**
+     * Produces <var>size</var> characters of text with occasional matches of {@link #PATTERN}.
+     */
+    private static
+    class SyntheticReader extends Reader {
+
+        private static final String TEXT;
+        static {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; sb.length() < 65536; i++) {
+                sb.append(i % 17 == 0 ? "The foo" + i + " jumps over the lazy dog. " : "Lorem ipsum dolor sit amet, ");
+                if (i % 5 == 4) sb.append('\n');
+            }
+            TEXT = sb.substring(0, 65536);
+        }
+
+        private long remaining;
+        private int  offset;
+
+        SyntheticReader(long size) { this.remaining = size; }
+
+        @Override public int
+        read(char[] cbuf, int off, int len) {
+
+            if (this.remaining == 0) return -1;
+
+            int n = (int) Math.min(Math.min(len, this.remaining), SyntheticReader.TEXT.length() - this.offset);
+            SyntheticReader.TEXT.getChars(this.offset, this.offset + n, cbuf, off);
+
+            this.offset    =  (this.offset + n) % SyntheticReader.TEXT.length();
+            this.remaining -= n;
+            return n;
+        }
+
+        @Override public void
+        close() {}
+    }
+
+    public static void
+    main(String[] args) throws Exception {
+        new ReplaceAllPerformance().replaceAllFilterReader();
+        new ReplaceAllPerformance().largeLookBehindLimit();
+    }
+}
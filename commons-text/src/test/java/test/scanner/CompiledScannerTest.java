@@ -0,0 +1,216 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.commons.text.scanner.AbstractScanner.Token;
+import de.unkrig.commons.text.scanner.ScanException;
+import de.unkrig.commons.text.scanner.StatefulScanner;
+import de.unkrig.commons.text.scanner.StatelessScanner;
+import de.unkrig.commons.text.scanner.StringScanner;
+
+public
+class CompiledScannerTest {
+
+    enum TokenType { SPACE, KEYWORD, IDENTIFIER, NUMBER, DOUBLED, OPERATOR, STRING, STRING_BEGIN, STRING_END, OTHER }
+
+    enum State { IN_STRING }
+
+    private static final String[] INPUTS = {
+        "",
+        "a",
+        "if iffy  IF x1 = 0x1F + 12.5e3 * (y)",
+        "aa bb ab 99 --- ++ +",
+        "\"abc\" x \"a\\\"b\" if\"x\"",
+        "äöü € 7 if",
+        "  \t\n if(a,b)>=c!=d;",
+    };
+
+    @Test public void
+    testStateless() throws ScanException {
+        for (String input : CompiledScannerTest.INPUTS) {
+            List<String> expected = CompiledScannerTest.scan(CompiledScannerTest.statelessScanner(), input);
+            Assert.assertEquals(
+                input,
+                expected,
+                CompiledScannerTest.scan(CompiledScannerTest.statelessScanner().compile(false), input)
+            );
+            Assert.assertEquals(
+                input,
+                expected,
+                CompiledScannerTest.scan(CompiledScannerTest.statelessScanner().compile(true), input)
+            );
+        }
+    }
+
+    @Test public void
+    testStateful() throws ScanException {
+        for (String input : CompiledScannerTest.INPUTS) {
+            List<String> expected = CompiledScannerTest.scan(CompiledScannerTest.statefulScanner(), input);
+            Assert.assertEquals(
+                input,
+                expected,
+                CompiledScannerTest.scan(CompiledScannerTest.statefulScanner().compile(false), input)
+            );
+            Assert.assertEquals(
+                input,
+                expected,
+                CompiledScannerTest.scan(CompiledScannerTest.statefulScanner().compile(true), input)
+            );
+            Assert.assertEquals(
+                input,
+                expected,
+                CompiledScannerTest.scan(
+                    new StatefulScanner<TokenType, State>(CompiledScannerTest.statefulScanner().compile(true)),
+                    input
+                )
+            );
+        }
+    }
+
+    @Test public void
+    testAddRuleAfterCompile() throws ScanException {
+
+        StatelessScanner<TokenType> ss = new StatelessScanner<TokenType>().compile(true);
+        ss.addRule("a", TokenType.IDENTIFIER);
+        Assert.assertEquals(Arrays.asList("IDENTIFIER:a[0-1]"), CompiledScannerTest.scan(ss, "a"));
+
+        ss.addRule("b", TokenType.OTHER);
+        Assert.assertEquals(
+            Arrays.asList("IDENTIFIER:a[0-1]", "OTHER:b[1-2]"),
+            CompiledScannerTest.scan(ss, "ab")
+        );
+    }
+
+    @Test public void
+    testEmbeddedFlagsAreNotMerged() throws ScanException {
+
+        // In COMMENTS mode, the "#" would comment out the rest of a merged regex.
+        StatelessScanner<TokenType> ss = new StatelessScanner<TokenType>().compile(true);
+        ss.addRule("(?x) a b  # a and b", TokenType.KEYWORD);
+        ss.addRule("a\\w*",               TokenType.IDENTIFIER);
+        ss.addRule(" ",                   TokenType.SPACE);
+
+        Assert.assertEquals(
+            Arrays.asList("KEYWORD:ab[0-2]", "SPACE: [2-3]", "IDENTIFIER:ax[3-5]"),
+            CompiledScannerTest.scan(ss, "ab ax")
+        );
+    }
+
+    @Test public void
+    testOffsets() throws ScanException {
+
+        StatelessScanner<TokenType> ss = CompiledScannerTest.statelessScanner().compile(true);
+        ss.setInput("xx 0x1F");
+        ss.produce();
+        ss.produce();
+
+        Token<TokenType> t = ss.produce();
+        assert t != null;
+        Assert.assertEquals(TokenType.NUMBER, t.type);
+        Assert.assertEquals(3, t.start());
+        Assert.assertEquals(7, t.end());
+        Assert.assertEquals(5, t.start(1));
+        Assert.assertEquals(7, t.end(1));
+        Assert.assertEquals(-1, t.start(2));
+        Assert.assertEquals("1F", t.captured[0]);
+        Assert.assertNull(t.captured[1]);
+
+        Token<TokenType> t2 = new Token<TokenType>(TokenType.OTHER, "x");
+        Assert.assertEquals(-1, t2.start());
+        Assert.assertEquals(-1, t2.end(0));
+    }
+
+    private static StatelessScanner<TokenType>
+    statelessScanner() {
+        StatelessScanner<TokenType> ss = new StatelessScanner<TokenType>();
+        ss.addRule("\\s+", TokenType.SPACE);
+        ss.addRule("(?i)if\\b", TokenType.KEYWORD);
+        ss.addRule("0x(\\p{XDigit}+)|(\\d+(?:\\.\\d*)?(?:e\\d+)?)", TokenType.NUMBER);
+        ss.addRule("(\\p{L})\\1", TokenType.DOUBLED);
+        ss.addRule("\\p{L}[\\p{L}\\d]*", TokenType.IDENTIFIER);
+        ss.addRule("(?<=\\+)\\+", TokenType.OTHER);
+        ss.addRule(">=|!=|[-+*/=()<>,;!]", TokenType.OPERATOR);
+        ss.addRule("\"(?:\\\\.|[^\"\\\\])*\"", TokenType.STRING);
+        ss.addRule(".", TokenType.OTHER);
+        return ss;
+    }
+
+    private static StatefulScanner<TokenType, State>
+    statefulScanner() {
+        StatefulScanner<TokenType, State> ss = new StatefulScanner<TokenType, State>(State.class);
+        ss.addRule("\\s+", TokenType.SPACE);
+        ss.addRule("(?i)if\\b", TokenType.KEYWORD);
+        ss.addRule("0x(\\p{XDigit}+)|(\\d+(?:\\.\\d*)?(?:e\\d+)?)", TokenType.NUMBER);
+        ss.addRule("(\\p{L})\\1", TokenType.DOUBLED);
+        ss.addRule("\\p{L}[\\p{L}\\d]*", TokenType.IDENTIFIER);
+        ss.addRule("\"", TokenType.STRING_BEGIN).push(State.IN_STRING);
+        ss.addRule(State.IN_STRING, "(?:\\\\.|[^\"\\\\])+", TokenType.STRING).goTo(State.IN_STRING);
+        ss.addRule(State.IN_STRING, "\"", TokenType.STRING_END).pop();
+        ss.addRule(ss.ANY_STATE, ">=|!=|[-+*/=()<>,;!]", TokenType.OPERATOR);
+        ss.addRule(".", TokenType.OTHER);
+        return ss;
+    }
+
+    /**
+     * @return One string for each token, including type, text, captured groups and offsets
+     */
+    private static List<String>
+    scan(StringScanner<TokenType> ss, String input) throws ScanException {
+
+        ss.setInput(input);
+
+        List<String> result = new ArrayList<String>();
+        for (;;) {
+            Token<TokenType> t = ss.produce();
+            if (t == null) break;
+            result.add(CompiledScannerTest.toString(t));
+        }
+        return result;
+    }
+
+    private static String
+    toString(@Nullable Token<TokenType> t) {
+        assert t != null;
+        StringBuilder sb = new StringBuilder().append(t.type).append(':').append(t.text);
+        sb.append('[').append(t.start()).append('-').append(t.end()).append(']');
+        for (int i = 0; i < t.captured.length; i++) {
+            sb.append(" $").append(i + 1).append('=').append(t.captured[i]);
+            sb.append('[').append(t.start(i + 1)).append('-').append(t.end(i + 1)).append(']');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,256 @@
+
+/*
+ * de.unkrig.commons - A general-purpose Java class library
+ *
+ * Copyright (c) 2026, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+// SUPPRESS CHECKSTYLE Javadoc:9999
+
+package test.scanner;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.unkrig.commons.io.Readers;
+import de.unkrig.commons.text.json.JsonScanner;
+import de.unkrig.commons.text.scanner.AbstractScanner.Token;
+import de.unkrig.commons.text.scanner.DocumentScanner;
+import de.unkrig.commons.text.scanner.JavaScanner;
+import de.unkrig.commons.text.scanner.ScanException;
+import de.unkrig.commons.text.scanner.ScannerUtil;
+import de.unkrig.commons.text.scanner.StatelessScanner;
+import de.unkrig.commons.text.scanner.StringScanner;
+import de.unkrig.commons.text.scanner.XmlScanner;
+
+public
+class StreamingDocumentScannerTest {
+
+    enum TokenType { SPACE, COMMENT, WORD, OTHER }
+
+    @Test public void
+    testJava() throws Exception {
+        String document = StreamingDocumentScannerTest.readAll(
+            new File("../commons-util/src/main/java/de/unkrig/commons/util/TimeTable.java")
+        );
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            JavaScanner.rawStreamingStringScanner(),
+            JavaScanner.rawStreamingStringScanner(),
+            document
+        );
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            JavaScanner.streamingStringScanner(),
+            JavaScanner.streamingStringScanner(),
+            document
+        );
+    }
+
+    @Test public void
+    testMultiLineCommentFollowedByCode() throws Exception {
+
+        String document = "/**\n * Doc.\r\n */\nclass A { /* x\n */ }\n";
+
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            JavaScanner.rawStreamingStringScanner(),
+            JavaScanner.rawStreamingStringScanner(),
+            document
+        );
+
+        // Each comment must be ONE token, and must not swallow the rest of the document.
+        DocumentScanner<JavaScanner.TokenType> ds = ScannerUtil.toStreamingDocumentScanner(
+            JavaScanner.rawStreamingStringScanner(),
+            StreamingDocumentScannerTest.slowReader(document)
+        );
+        List<String> actual = new ArrayList<String>();
+        for (Token<JavaScanner.TokenType> t = ds.produce(); t != null; t = ds.produce()) {
+            if (t.type != JavaScanner.TokenType.SPACE) actual.add(t.type + ":" + t.text);
+        }
+        Assert.assertEquals(Arrays.asList(
+            "C_COMMENT:/**\n * Doc.\r\n */",
+            "KEYWORD:class",
+            "IDENTIFIER:A",
+            "SEPARATOR:{",
+            "C_COMMENT:/* x\n */",
+            "SEPARATOR:}"
+        ), actual);
+
+        // The same for JSON.
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            JsonScanner.streamingStringScanner(),
+            JsonScanner.streamingStringScanner(),
+            "/* a\n b */ { \"a\" /*\n*/ : 1 }"
+        );
+    }
+
+    @Test public void
+    testXmlAndJson() throws Exception {
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            XmlScanner.stringScanner(),
+            XmlScanner.stringScanner(),
+            "<?xml version=\"1.0\"?>\r\n<a b='c'>\r\n  <!-- x y -->text\nmore&amp;<![CDATA[<>]]>\r</a>\n"
+        );
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            JsonScanner.streamingStringScanner(),
+            JsonScanner.streamingStringScanner(),
+            "{\n  \"a\" : [ 1, 2.5e3, true, null ],\r\n  \"b\" : \"x\\\"y\"\n}"
+        );
+    }
+
+    @Test public void
+    testLongToken() throws Exception {
+
+        StringBuilder sb = new StringBuilder("one /*");
+        for (int i = 0; i < 3000; i++) sb.append(i % 7 == 0 ? "\r\n" : " x ");
+        String document = sb.append("*/ two\nthree").toString();
+
+        StreamingDocumentScannerTest.assertScansLikeOneString(
+            StreamingDocumentScannerTest.scanner(),
+            StreamingDocumentScannerTest.scanner(),
+            document
+        );
+
+        DocumentScanner<TokenType> ds = ScannerUtil.toStreamingDocumentScanner(
+            StreamingDocumentScannerTest.scanner(),
+            new StringReader(document)
+        );
+        Assert.assertEquals("one", StreamingDocumentScannerTest.produce(ds).text);
+        Assert.assertEquals(TokenType.SPACE, StreamingDocumentScannerTest.produce(ds).type);
+        Assert.assertEquals(TokenType.COMMENT, StreamingDocumentScannerTest.produce(ds).type);
+        Assert.assertEquals(TokenType.SPACE, StreamingDocumentScannerTest.produce(ds).type);
+        Assert.assertEquals("two", StreamingDocumentScannerTest.produce(ds).text);
+        Assert.assertEquals(430, ds.getPreviousTokenLineNumber());
+        Assert.assertEquals(13, ds.getPreviousTokenColumnNumber());
+        StreamingDocumentScannerTest.produce(ds);
+        Assert.assertEquals("three", StreamingDocumentScannerTest.produce(ds).text);
+        Assert.assertEquals(431, ds.getPreviousTokenLineNumber());
+        Assert.assertEquals(1, ds.getPreviousTokenColumnNumber());
+        Assert.assertNull(ds.produce());
+    }
+
+    private static StringScanner<TokenType>
+    scanner() {
+        StatelessScanner<TokenType> ss = new StatelessScanner<TokenType>();
+        ss.addRule("\\s+",            TokenType.SPACE);
+        ss.addRule("(?s)/\\*.*?\\*/", TokenType.COMMENT);
+        ss.addRule("\\w+",            TokenType.WORD);
+        ss.addRule(".",               TokenType.OTHER);
+        return ss;
+    }
+
+    /**
+     * Verifies that streaming the <var>document</var> (through a reader that returns only few characters at a time)
+     * produces exactly the same tokens as scanning it as one string, and that the line and column numbers are correct.
+     *
+     * @param stringScanner1 Scans the <var>document</var> as one string
+     * @param stringScanner2 Is equivalent with <var>stringScanner1</var>, and scans the <var>document</var> in
+     *                       streaming mode
+     */
+    private static <TT extends Enum<TT>> void
+    assertScansLikeOneString(StringScanner<TT> stringScanner1, StringScanner<TT> stringScanner2, String document)
+    throws ScanException {
+
+        List<String> expected = new ArrayList<String>();
+        {
+            stringScanner1.setInput(document);
+            for (Token<TT> t = stringScanner1.produce(); t != null; t = stringScanner1.produce()) {
+                int offset = stringScanner1.getPreviousTokenOffset();
+                expected.add(t.type + ":" + t.text + "@" + StreamingDocumentScannerTest.lineAndColumn(document, offset));
+            }
+        }
+
+        List<String> actual = new ArrayList<String>();
+        {
+            DocumentScanner<TT> ds = ScannerUtil.toStreamingDocumentScanner(
+                stringScanner2,
+                StreamingDocumentScannerTest.slowReader(document)
+            );
+            for (Token<TT> t = ds.produce(); t != null; t = ds.produce()) {
+                actual.add(
+                    t.type
+                    + ":"
+                    + t.text
+                    + "@"
+                    + ds.getPreviousTokenLineNumber()
+                    + ":"
+                    + ds.getPreviousTokenColumnNumber()
+                );
+            }
+        }
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    private static String
+    lineAndColumn(String document, int offset) {
+        int lineNumber = 1, lineStart = 0;
+        for (int i = 0; i < offset; i++) {
+            char c = document.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == document.length() || document.charAt(i + 1) != '\n'))) {
+                lineNumber++;
+                lineStart = i + 1;
+            }
+        }
+        return lineNumber + ":" + (offset - lineStart + 1);
+    }
+
+    /**
+     * @return A reader that returns at most 7 characters per invocation, so that the streaming document scanner
+     *         must refill its buffer very often
+     */
+    private static Reader
+    slowReader(String s) {
+        return new StringReader(s) {
+
+            @Override public int
+            read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    private static Token<TokenType>
+    produce(DocumentScanner<TokenType> ds) throws ScanException {
+        Token<TokenType> result = ds.produce();
+        Assert.assertNotNull(result);
+        assert result != null;
+        return result;
+    }
+
+    private static String
+    readAll(File file) throws IOException {
+        Reader r = new FileReader(file);
+        try {
+            return Readers.readAll(r);
+        } finally {
+            try { r.close(); } catch (Exception e) {}
+        }
+    }
+}